@@ -14,6 +14,9 @@ TRUNCATE TABLE cards;
 TRUNCATE TABLE loans;
 TRUNCATE TABLE transactions;
 TRUNCATE TABLE accounts;
+-- Emptied summaries are rebuilt from the tables by the application on next use
+TRUNCATE TABLE transaction_summary;
+TRUNCATE TABLE account_summary;
 SET FOREIGN_KEY_CHECKS = 1;
 
 -- ================================================================
@@ -99,6 +99,73 @@ CREATE TABLE IF NOT EXISTS cards (
     INDEX idx_status (status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ================================================================
+-- Table: import_checkpoints
+-- Description: Progress of interrupted CSV imports, so a re-run resumes
+-- after the last committed batch. A row covers bytes [range_start,
+-- range_end) of a file and records how far into the range was committed.
+-- Rows are removed when the file imports completely.
+-- ================================================================
+CREATE TABLE IF NOT EXISTS import_checkpoints (
+    file_path VARCHAR(500) NOT NULL,
+    range_start BIGINT NOT NULL,
+    range_end BIGINT NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_modified BIGINT NOT NULL,
+    byte_offset BIGINT NOT NULL,
+    rows_committed BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (file_path, range_start, range_end)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ================================================================
+-- Table: import_row_hashes
+-- Description: Content hash of each row last imported in delta mode,
+-- so unchanged rows of a re-delivered file are not written again
+-- ================================================================
+CREATE TABLE IF NOT EXISTS import_row_hashes (
+    table_name VARCHAR(64) NOT NULL,
+    row_id INT NOT NULL,
+    row_hash BIGINT NOT NULL,
+    PRIMARY KEY (table_name, row_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ================================================================
+-- Table: account_summary
+-- Description: Count, sum, minimum and maximum balance of accounts per
+-- account type, branch, status ('' for none) and balance range (0 for
+-- 10M and above to 4 for below 500K), kept current by the importer
+-- ================================================================
+CREATE TABLE IF NOT EXISTS account_summary (
+    account_type VARCHAR(50) NOT NULL,
+    branch VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    balance_range TINYINT NOT NULL,
+    account_count BIGINT NOT NULL,
+    total_balance DECIMAL(20, 2) NOT NULL,
+    min_balance DECIMAL(15, 2),
+    max_balance DECIMAL(15, 2),
+    PRIMARY KEY (account_type, branch, status, balance_range)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ================================================================
+-- Table: transaction_summary
+-- Description: Count, sum, minimum and maximum amount, inflow and outflow
+-- of completed transactions per transaction type and month (YYYY-MM),
+-- kept current by the importer
+-- ================================================================
+CREATE TABLE IF NOT EXISTS transaction_summary (
+    transaction_type VARCHAR(50) NOT NULL,
+    month CHAR(7) NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    total_amount DECIMAL(20, 2) NOT NULL,
+    min_amount DECIMAL(15, 2),
+    max_amount DECIMAL(15, 2),
+    total_inflow DECIMAL(20, 2) NOT NULL,
+    total_outflow DECIMAL(20, 2) NOT NULL,
+    PRIMARY KEY (transaction_type, month)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ================================================================
 -- Create views for common queries
 -- ================================================================
@@ -0,0 +1,241 @@
+package analysis;
+
+import db.ColumnarResult;
+import db.ColumnarResult.ColumnType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+
+import static analysis.Aggregation.avg;
+import static analysis.Aggregation.descending;
+import static analysis.Aggregation.fit;
+import static analysis.Aggregation.groups;
+import static analysis.Aggregation.money;
+
+/**
+ * Aggregates of one pass over the accounts table, from which the
+ * balances by type, branch distribution, status distribution and balance
+ * range analyses are all produced.
+ *
+ * Rows can be added one at a time, by {@link ColumnarEngine}, or as
+ * partial aggregates of groups at the finest grain (type, branch, status
+ * and balance range), from one grouped query in MySQL. Aggregates are
+ * sums, so both give the same results.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class AccountAggregates {
+
+    /** Lowest balance in cents of each range, highest range first, as in StatService. */
+    private static final long[] RANGE_FLOORS = {
+        10_000_000_00L, 5_000_000_00L, 1_000_000_00L, 500_000_00L, Long.MIN_VALUE
+    };
+    private static final String[] RANGE_LABELS = {
+        "10M+ (High Value)", "5M-10M (Medium-High)", "1M-5M (Medium)", "500K-1M (Low-Medium)", "Below 500K"
+    };
+
+    private final Dictionary types;
+    private final Dictionary branches;
+    private final Dictionary statuses;
+    private final int active;
+    private final int closed;
+    private long accounts;
+
+    private long[] typeCount;
+    private long[] typeSum;
+    private long[] typeMin;
+    private long[] typeMax;
+    private long[] branchCount;
+    private long[] branchSum;
+    private long[] branchActive;
+    private long[] branchClosed;
+    private long[] statusCount;
+    private long[] statusSum;
+    private final long[] rangeCount = new long[RANGE_FLOORS.length];
+    private final long[] rangeSum = new long[RANGE_FLOORS.length];
+
+    /**
+     * Creates aggregates for rows added by value.
+     */
+    AccountAggregates() {
+        this(new Dictionary("account_type", 128), new Dictionary("branch", Integer.MAX_VALUE),
+                seededStatuses());
+    }
+
+    /**
+     * Creates aggregates for rows added by code.
+     *
+     * @param types Codes of account_type
+     * @param branches Codes of branch
+     * @param statuses Codes of status
+     */
+    AccountAggregates(Dictionary types, Dictionary branches, Dictionary statuses) {
+        this.types = types;
+        this.branches = branches;
+        this.statuses = statuses;
+        this.active = statuses.find("Active");
+        this.closed = statuses.find("Closed");
+        typeCount = new long[Math.max(8, types.size())];
+        typeSum = new long[typeCount.length];
+        typeMin = fit(new long[0], typeCount.length - 1, Long.MAX_VALUE);
+        typeMax = fit(new long[0], typeCount.length - 1, Long.MIN_VALUE);
+        branchCount = new long[Math.max(8, branches.size())];
+        branchSum = new long[branchCount.length];
+        branchActive = new long[branchCount.length];
+        branchClosed = new long[branchCount.length];
+        statusCount = new long[Math.max(8, statuses.size())];
+        statusSum = new long[statusCount.length];
+    }
+
+    /**
+     * Codes the statuses counted per branch before any row is seen.
+     */
+    private static Dictionary seededStatuses() {
+        Dictionary statuses = new Dictionary("status", 128);
+        statuses.code("Active");
+        statuses.code("Closed");
+        return statuses;
+    }
+
+    /**
+     * @return Index of the balance range of a balance in cents
+     */
+    static int range(long balance) {
+        int range = 0;
+        while (balance < RANGE_FLOORS[range]) {
+            range++;
+        }
+        return range;
+    }
+
+    /**
+     * Adds one account.
+     */
+    void add(int type, int branch, int status, long balance) {
+        add(type, branch, status, range(balance), 1, balance, balance, balance);
+    }
+
+    /**
+     * Adds the aggregates of a group of accounts.
+     *
+     * @param range Balance range index, see {@link #range(long)}
+     * @param count Accounts in the group
+     * @param sum Sum of their balances in cents
+     * @param min Lowest balance in cents
+     * @param max Highest balance in cents
+     */
+    void add(String type, String branch, String status, int range, long count, long sum, long min, long max) {
+        add(types.code(type), branches.code(branch), statuses.code(status), range, count, sum, min, max);
+    }
+
+    private void add(int type, int branch, int status, int range, long count, long sum, long min, long max) {
+        if (type >= typeCount.length) {
+            typeCount = fit(typeCount, type, 0);
+            typeSum = fit(typeSum, type, 0);
+            typeMin = fit(typeMin, type, Long.MAX_VALUE);
+            typeMax = fit(typeMax, type, Long.MIN_VALUE);
+        }
+        if (branch >= branchCount.length) {
+            branchCount = fit(branchCount, branch, 0);
+            branchSum = fit(branchSum, branch, 0);
+            branchActive = fit(branchActive, branch, 0);
+            branchClosed = fit(branchClosed, branch, 0);
+        }
+        if (status >= statusCount.length) {
+            statusCount = fit(statusCount, status, 0);
+            statusSum = fit(statusSum, status, 0);
+        }
+
+        accounts += count;
+        typeCount[type] += count;
+        typeSum[type] += sum;
+        typeMin[type] = Math.min(typeMin[type], min);
+        typeMax[type] = Math.max(typeMax[type], max);
+        branchCount[branch] += count;
+        branchSum[branch] += sum;
+        statusCount[status] += count;
+        statusSum[status] += sum;
+        if (status == active) {
+            branchActive[branch] += count;
+            rangeCount[range] += count;
+            rangeSum[range] += sum;
+        } else if (status == closed) {
+            branchClosed[branch] += count;
+        }
+    }
+
+    /**
+     * @see StatService#getAccountBalancesByType()
+     */
+    ColumnarResult getBalancesByType() {
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("account_type", ColumnType.STRING)
+                .column("total_accounts", ColumnType.LONG)
+                .column("total_balance", ColumnType.DOUBLE)
+                .column("avg_balance", ColumnType.DOUBLE)
+                .column("min_balance", ColumnType.DOUBLE)
+                .column("max_balance", ColumnType.DOUBLE);
+        for (int g : groups(typeCount, descending(typeSum))) {
+            result.appendString(0, types.value(g)).appendLong(1, typeCount[g])
+                    .appendDouble(2, money(typeSum[g])).appendDouble(3, avg(typeSum[g], typeCount[g]))
+                    .appendDouble(4, money(typeMin[g])).appendDouble(5, money(typeMax[g]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getBranchDistribution()
+     */
+    ColumnarResult getBranchDistribution() {
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("branch", ColumnType.STRING)
+                .column("total_accounts", ColumnType.LONG)
+                .column("total_balance", ColumnType.DOUBLE)
+                .column("avg_balance", ColumnType.DOUBLE)
+                .column("active_accounts", ColumnType.LONG)
+                .column("closed_accounts", ColumnType.LONG);
+        for (int g : groups(branchCount, descending(branchSum))) {
+            result.appendString(0, branches.value(g)).appendLong(1, branchCount[g])
+                    .appendDouble(2, money(branchSum[g])).appendDouble(3, avg(branchSum[g], branchCount[g]))
+                    .appendLong(4, branchActive[g]).appendLong(5, branchClosed[g]);
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getStatusDistribution()
+     */
+    ColumnarResult getStatusDistribution() {
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("status", ColumnType.STRING)
+                .column("count", ColumnType.LONG)
+                .column("percentage", ColumnType.DOUBLE)
+                .column("total_balance", ColumnType.DOUBLE);
+        for (int g : groups(statusCount, descending(statusCount))) {
+            double percentage = BigDecimal.valueOf(statusCount[g] * 100)
+                    .divide(BigDecimal.valueOf(accounts), 2, RoundingMode.HALF_UP).doubleValue();
+            result.appendString(0, statuses.value(g)).appendLong(1, statusCount[g])
+                    .appendDouble(2, percentage).appendDouble(3, money(statusSum[g]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getBalanceRangeAnalysis()
+     */
+    ColumnarResult getBalanceRanges() {
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("balance_range", ColumnType.STRING)
+                .column("account_count", ColumnType.LONG)
+                .column("total_balance", ColumnType.DOUBLE)
+                .column("avg_balance", ColumnType.DOUBLE);
+        Comparator<Integer> byAverage = Comparator.comparingDouble(g -> (double) rangeSum[g] / rangeCount[g]);
+        for (int g : groups(rangeCount, byAverage.reversed())) {
+            result.appendString(0, RANGE_LABELS[g]).appendLong(1, rangeCount[g])
+                    .appendDouble(2, money(rangeSum[g])).appendDouble(3, avg(rangeSum[g], rangeCount[g]));
+        }
+        return result.build();
+    }
+}
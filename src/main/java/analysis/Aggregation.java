@@ -0,0 +1,73 @@
+package analysis;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Helpers shared by the in-process aggregations, which keep money as long
+ * cents and must round like MySQL does on DECIMAL(15,2) columns.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class Aggregation {
+
+    /** Scale of AVG over DECIMAL(15,2) and DECIMAL(5,2) columns in MySQL. */
+    private static final int AVG_SCALE = 6;
+
+    private Aggregation() {
+    }
+
+    static double money(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * @return Average of cent values, rounded to six decimals like MySQL's AVG
+     */
+    static double avg(long sumCents, long count) {
+        return BigDecimal.valueOf(sumCents, 2)
+                .divide(BigDecimal.valueOf(count), AVG_SCALE, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    static long cents(BigDecimal value) {
+        return value == null ? 0 : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Lists the non-empty groups in the given order.
+     */
+    static List<Integer> groups(long[] count, Comparator<Integer> order) {
+        List<Integer> groups = new ArrayList<>();
+        for (int g = 0; g < count.length; g++) {
+            if (count[g] > 0) {
+                groups.add(g);
+            }
+        }
+        groups.sort(order);
+        return groups;
+    }
+
+    static Comparator<Integer> descending(long[] values) {
+        return (x, y) -> Long.compare(values[y], values[x]);
+    }
+
+    /**
+     * Grows an aggregate array so it has a slot for an index.
+     *
+     * @param fill Initial value of new slots
+     */
+    static long[] fit(long[] array, int index, long fill) {
+        if (index < array.length) {
+            return array;
+        }
+        int length = array.length;
+        long[] grown = Arrays.copyOf(array, Math.max(index + 1, length * 2));
+        Arrays.fill(grown, length, grown.length, fill);
+        return grown;
+    }
+}
@@ -0,0 +1,267 @@
+package analysis;
+
+import db.ColumnarResult;
+import db.DBConnection;
+import db.QueryCancellation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous front end for {@link StatService}.
+ *
+ * Every analysis has a variant returning a CompletableFuture that runs on
+ * a bounded executor sized to the connection pool, so no more queries run
+ * at once than there are connections to serve them. On a Java 21+ runtime
+ * tasks run on virtual threads gated by a semaphore of the same size.
+ *
+ * Cancelling a returned future, or letting it time out, interrupts the
+ * task; a task still waiting for a pooled connection or still queued is
+ * abandoned without touching the database. A task already running a query
+ * has its statements cancelled on the server, and with a timeout each
+ * statement also gets a query timeout of the time left, since the driver
+ * does not stop a query when its thread is interrupted.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class AsyncStatService {
+
+    /**
+     * Default time after which a pending analysis completes with a TimeoutException.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * An analysis call that may fail with any exception.
+     *
+     * @param <T> Result type
+     */
+    @FunctionalInterface
+    public interface StatQuery<T> {
+        T run(StatService statService) throws Exception;
+    }
+
+    private final StatService statService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+
+    /**
+     * Constructor - sizes the executor to the configured connection pool.
+     *
+     * @param statService Service that runs the blocking queries
+     */
+    public AsyncStatService(StatService statService) {
+        this(statService, DBConnection.getInstance().getPoolMaxSize(), DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor with explicit concurrency and timeout.
+     *
+     * @param statService Service that runs the blocking queries
+     * @param maxConcurrency Maximum number of analyses running at once
+     * @param timeoutMillis Time after which a pending analysis times out (0 disables)
+     */
+    public AsyncStatService(StatService statService, int maxConcurrency, long timeoutMillis) {
+        this.statService = statService;
+        this.timeoutMillis = timeoutMillis;
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            this.executor = virtual;
+            this.permits = new Semaphore(maxConcurrency);
+            this.virtualThreads = true;
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "stat-async-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+            this.virtualThreads = false;
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor when the runtime supports
+     * it. Looked up reflectively so the code still builds for Java 11.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs an arbitrary analysis asynchronously with the default timeout.
+     *
+     * @param query Analysis to run against the StatService
+     * @return Future completed with the analysis result
+     */
+    public <T> CompletableFuture<T> submit(StatQuery<T> query) {
+        return submit(query, timeoutMillis);
+    }
+
+    /**
+     * Runs an arbitrary analysis asynchronously.
+     *
+     * @param query Analysis to run against the StatService
+     * @param timeoutMillis Time after which the future times out (0 disables)
+     * @return Future completed with the analysis result
+     */
+    public <T> CompletableFuture<T> submit(StatQuery<T> query, long timeoutMillis) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        QueryCancellation cancellation = new QueryCancellation(timeoutMillis);
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                boolean acquired = false;
+                cancellation.bind();
+                try {
+                    if (permits != null) {
+                        permits.acquire();
+                        acquired = true;
+                    }
+                    result.complete(query.run(statService));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    cancellation.unbind();
+                    if (acquired) {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        if (timeoutMillis > 0) {
+            result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        // Propagate cancellation and timeouts to the running task and its
+        // statements; cancelling a statement is a round trip, so keep it off
+        // the thread that cancelled the future, which may be the EDT
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(true);
+                CompletableFuture.runAsync(cancellation::cancel);
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<ColumnarResult> getAccountBalancesByType() {
+        return submit(StatService::getAccountBalancesByType);
+    }
+
+    public CompletableFuture<ColumnarResult> getTransactionsByType() {
+        return submit(StatService::getTransactionsByType);
+    }
+
+    public CompletableFuture<ColumnarResult> getBranchDistribution() {
+        return submit(StatService::getBranchDistribution);
+    }
+
+    public CompletableFuture<ColumnarResult> getLoanPortfolioAnalysis() {
+        return submit(StatService::getLoanPortfolioAnalysis);
+    }
+
+    public CompletableFuture<ColumnarResult> getStatusDistribution() {
+        return submit(StatService::getStatusDistribution);
+    }
+
+    public CompletableFuture<ColumnarResult> getTopAccounts(int limit) {
+        return submit(service -> service.getTopAccounts(limit));
+    }
+
+    public CompletableFuture<ColumnarResult> getTransactionTrends() {
+        return submit(StatService::getTransactionTrends);
+    }
+
+    public CompletableFuture<ColumnarResult> getCardDistribution() {
+        return submit(StatService::getCardDistribution);
+    }
+
+    public CompletableFuture<ColumnarResult> getAccountActivity() {
+        return submit(StatService::getAccountActivity);
+    }
+
+    public CompletableFuture<ColumnarResult> getLoanRepaymentAnalysis() {
+        return submit(StatService::getLoanRepaymentAnalysis);
+    }
+
+    public CompletableFuture<ColumnarResult> getBalanceRangeAnalysis() {
+        return submit(StatService::getBalanceRangeAnalysis);
+    }
+
+    public CompletableFuture<ColumnarResult> getRevenueAnalysis() {
+        return submit(StatService::getRevenueAnalysis);
+    }
+
+    public CompletableFuture<ColumnarResult> getTransactionAmountQuantiles() {
+        return submit(StatService::getTransactionAmountQuantiles);
+    }
+
+    public CompletableFuture<ColumnarResult> getBalanceQuantiles() {
+        return submit(StatService::getBalanceQuantiles);
+    }
+
+    public CompletableFuture<ColumnarResult> getTransactionAmountDistribution() {
+        return submit(StatService::getTransactionAmountDistribution);
+    }
+
+    public CompletableFuture<ColumnarResult> getDistinctCustomersByBranch() {
+        return submit(StatService::getDistinctCustomersByBranch);
+    }
+
+    public CompletableFuture<Map<String, Object>> getSummaryStatistics() {
+        return submit(StatService::getSummaryStatistics);
+    }
+
+    /**
+     * Gets the underlying blocking service.
+     *
+     * @return Wrapped StatService
+     */
+    public StatService getStatService() {
+        return statService;
+    }
+
+    /**
+     * @return true if analyses run on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting analyses and interrupts running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
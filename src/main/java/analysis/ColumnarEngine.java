@@ -0,0 +1,704 @@
+package analysis;
+
+import db.ColumnarResult;
+import db.ColumnarResult.ColumnType;
+import db.QueryExecutor;
+import util.CsvRow;
+import util.CsvRowReader;
+import util.ImportTable;
+import util.IntLongHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static analysis.Aggregation.avg;
+import static analysis.Aggregation.cents;
+import static analysis.Aggregation.descending;
+import static analysis.Aggregation.groups;
+import static analysis.Aggregation.money;
+
+/**
+ * In-process columnar copy of the bank data that computes the
+ * {@link StatService} analyses without a database.
+ *
+ * The four tables are held as primitive column arrays: money as long
+ * cents, dates as month numbers, and low-cardinality strings such as
+ * types, statuses and branches as dictionary codes, so each analysis is a
+ * single pass over a few arrays with aggregates indexed by code. Every
+ * analysis returns a {@link ColumnarResult} with the same columns, types
+ * and row order as the SQL query it replaces, and averages are rounded to
+ * six decimals like MySQL's AVG of a DECIMAL(15,2) column. The account
+ * and transaction analyses that group the same table share one pass, see
+ * {@link #scanAccounts()} and {@link #scanTransactions()}, and the
+ * quantile and distinct count analyses share the sketches of
+ * {@link #scanDistributions()}.
+ *
+ * An engine is loaded either from a directory of CSV files, recognized by
+ * {@link ImportTable#forFileName(String)}, or from a snapshot of the
+ * database tables. CSV rows are taken as they are: unlike an import, a
+ * key repeated in the files is counted twice. The snapshot reads each
+ * table with its own streaming query, so it is consistent per table only.
+ * An engine is immutable once loaded and safe to query from any thread.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class ColumnarEngine {
+
+    /** Marks a NULL credit limit, which SUM and AVG skip. */
+    private static final long NULL_MONEY = Long.MIN_VALUE;
+
+    private final Accounts accounts = new Accounts();
+    private final Transactions transactions = new Transactions();
+    private final Loans loans = new Loans();
+    private final Cards cards = new Cards();
+    private IntLongHashMap accountRows;
+
+    private ColumnarEngine() {
+    }
+
+    /**
+     * Loads the accounts, transactions, loans and cards CSV files of a
+     * directory, including gzip compressed and split files.
+     *
+     * @param directory Directory of CSV files with the import headers
+     * @return Loaded engine
+     * @throws IOException if a file cannot be read or has invalid values
+     */
+    public static ColumnarEngine loadCsv(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase();
+            return lower.endsWith(".csv") || lower.endsWith(".csv.gz");
+        });
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+
+        ColumnarEngine engine = new ColumnarEngine();
+        for (File file : files) {
+            ImportTable table = ImportTable.forFileName(file.getName());
+            if (table == null) {
+                continue;
+            }
+            try (CsvRowReader reader = CsvRowReader.open(file.getPath(), table.getHeaders(), true)) {
+                for (CsvRow row; (row = reader.next()) != null; ) {
+                    try {
+                        engine.add(table, row);
+                    } catch (RuntimeException e) {
+                        throw new IOException(file.getName() + " line " + reader.getLineNumber()
+                                + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        engine.index();
+        return engine;
+    }
+
+    /**
+     * Copies the four tables from the database, streaming each one.
+     *
+     * @param queryExecutor Executor for the snapshot queries
+     * @return Loaded engine
+     * @throws SQLException if a table cannot be read
+     */
+    public static ColumnarEngine snapshot(QueryExecutor queryExecutor) throws SQLException {
+        ColumnarEngine engine = new ColumnarEngine();
+        Accounts a = engine.accounts;
+        queryExecutor.streamQuery("SELECT account_id, customer_name, email, account_type, " +
+                "balance, branch, status FROM accounts", rs -> {
+                    a.add(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            cents(rs.getBigDecimal(5)), rs.getString(6), rs.getString(7));
+                    return true;
+                });
+        Transactions t = engine.transactions;
+        queryExecutor.streamQuery("SELECT account_id, transaction_type, amount, transaction_date, " +
+                "status FROM transactions", rs -> {
+                    t.add(rs.getInt(1), rs.getString(2), cents(rs.getBigDecimal(3)),
+                            month(rs.getObject(4, LocalDate.class)), rs.getString(5));
+                    return true;
+                });
+        Loans l = engine.loans;
+        queryExecutor.streamQuery("SELECT account_id, loan_type, amount, interest_rate, status, " +
+                "monthly_payment FROM loans", rs -> {
+                    l.add(rs.getInt(1), rs.getString(2), cents(rs.getBigDecimal(3)),
+                            cents(rs.getBigDecimal(4)), rs.getString(5), cents(rs.getBigDecimal(6)));
+                    return true;
+                });
+        Cards c = engine.cards;
+        queryExecutor.streamQuery("SELECT card_type, status, credit_limit FROM cards", rs -> {
+            BigDecimal limit = rs.getBigDecimal(3);
+            c.add(rs.getString(1), rs.getString(2), limit == null ? NULL_MONEY : cents(limit));
+            return true;
+        });
+        engine.index();
+        return engine;
+    }
+
+    private void add(ImportTable table, CsvRow row) {
+        switch (table) {
+            case ACCOUNTS:
+                accounts.add(row.getInt(0), row.getString(1), row.getString(2), row.getString(4),
+                        row.getScaledLong(5, 2), row.getString(7), row.getString(8));
+                break;
+            case TRANSACTIONS:
+                transactions.add(row.getInt(1), row.getString(2), row.getScaledLong(3, 2),
+                        month(row.getDate(4)), row.getString(6));
+                break;
+            case LOANS:
+                loans.add(row.getInt(1), row.getString(2), row.getScaledLong(3, 2),
+                        row.getScaledLong(4, 2), row.getString(7), row.getScaledLong(8, 2));
+                break;
+            default:
+                cards.add(row.getString(2), row.getString(6), row.getScaledLong(5, 2));
+                break;
+        }
+    }
+
+    /**
+     * Maps account ids to rows, for the analyses that join on account_id.
+     */
+    private void index() {
+        accountRows = new IntLongHashMap(accounts.size);
+        for (int i = 0; i < accounts.size; i++) {
+            accountRows.put(accounts.id[i], i);
+        }
+    }
+
+    /**
+     * @return Rows loaded per table, for logging
+     */
+    public String describe() {
+        return accounts.size + " accounts, " + transactions.size + " transactions, "
+                + loans.size + " loans, " + cards.size + " cards";
+    }
+
+    /**
+     * Aggregates all accounts in one pass, for the four account analyses.
+     */
+    AccountAggregates scanAccounts() {
+        Accounts a = accounts;
+        AccountAggregates aggregates = new AccountAggregates(a.types, a.branches, a.statuses);
+        for (int i = 0; i < a.size; i++) {
+            aggregates.add(a.type[i], a.branch[i], a.status[i], a.balance[i]);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Aggregates the completed transactions in one pass, for the two
+     * transaction analyses.
+     */
+    TransactionAggregates scanTransactions() {
+        Transactions t = transactions;
+        int completed = t.statuses.find("Completed");
+        TransactionAggregates aggregates = new TransactionAggregates(t.types);
+        for (int i = 0; i < t.size; i++) {
+            if (t.status[i] == completed) {
+                aggregates.add(t.type[i], t.month[i], t.amount[i]);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Feeds accounts and completed transactions to the quantile and
+     * distinct count sketches in one pass over each table.
+     */
+    DistributionAggregates scanDistributions() {
+        Accounts a = accounts;
+        Transactions t = transactions;
+        DistributionAggregates aggregates = new DistributionAggregates(t.types, a.types, a.branches);
+        for (int i = 0; i < a.size; i++) {
+            aggregates.addAccount(a.type[i], a.branch[i], a.name[i], a.balance[i]);
+        }
+        int completed = t.statuses.find("Completed");
+        for (int i = 0; i < t.size; i++) {
+            if (t.status[i] == completed) {
+                aggregates.addTransaction(t.type[i], t.amount[i]);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * @see StatService#getAccountBalancesByType()
+     */
+    public ColumnarResult getAccountBalancesByType() {
+        return scanAccounts().getBalancesByType();
+    }
+
+    /**
+     * @see StatService#getTransactionsByType()
+     */
+    public ColumnarResult getTransactionsByType() {
+        return scanTransactions().getTransactionsByType();
+    }
+
+    /**
+     * @see StatService#getBranchDistribution()
+     */
+    public ColumnarResult getBranchDistribution() {
+        return scanAccounts().getBranchDistribution();
+    }
+
+    /**
+     * @see StatService#getLoanPortfolioAnalysis()
+     */
+    public ColumnarResult getLoanPortfolioAnalysis() {
+        LoanTotals totals = activeLoansByType();
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("loan_type", ColumnType.STRING)
+                .column("total_loans", ColumnType.LONG)
+                .column("total_loan_amount", ColumnType.DOUBLE)
+                .column("avg_loan_amount", ColumnType.DOUBLE)
+                .column("avg_interest_rate", ColumnType.DOUBLE)
+                .column("total_monthly_payments", ColumnType.DOUBLE);
+        for (int g : groups(totals.count, descending(totals.amount))) {
+            result.appendString(0, loans.types.value(g)).appendLong(1, totals.count[g])
+                    .appendDouble(2, money(totals.amount[g]))
+                    .appendDouble(3, avg(totals.amount[g], totals.count[g]))
+                    .appendDouble(4, avg(totals.rate[g], totals.count[g]))
+                    .appendDouble(5, money(totals.payment[g]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getStatusDistribution()
+     */
+    public ColumnarResult getStatusDistribution() {
+        return scanAccounts().getStatusDistribution();
+    }
+
+    /**
+     * @see StatService#getTopAccounts(int)
+     */
+    public ColumnarResult getTopAccounts(int limit) {
+        Accounts a = accounts;
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("account_id", ColumnType.LONG)
+                .column("customer_name", ColumnType.STRING)
+                .column("email", ColumnType.STRING)
+                .column("account_type", ColumnType.STRING)
+                .column("balance", ColumnType.DOUBLE)
+                .column("branch", ColumnType.STRING)
+                .column("status", ColumnType.STRING);
+        for (int i : top(a.balance, a.size, limit, Long.MIN_VALUE)) {
+            result.appendLong(0, a.id[i]).appendString(1, a.name[i]).appendString(2, a.email[i])
+                    .appendString(3, a.types.value(a.type[i])).appendDouble(4, money(a.balance[i]))
+                    .appendString(5, a.branches.value(a.branch[i]))
+                    .appendString(6, a.statuses.value(a.status[i]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getTransactionTrends()
+     */
+    public ColumnarResult getTransactionTrends() {
+        return scanTransactions().getTransactionTrends();
+    }
+
+    /**
+     * @see StatService#getCardDistribution()
+     */
+    public ColumnarResult getCardDistribution() {
+        Cards c = cards;
+        int active = c.statuses.find("Active");
+        int credit = c.types.find("Credit");
+        int groups = c.types.size();
+        long[] count = new long[groups];
+        long[] activeCount = new long[groups];
+        long[] limits = new long[groups];
+        long[] limitCount = new long[groups];
+        for (int i = 0; i < c.size; i++) {
+            int g = c.type[i];
+            count[g]++;
+            if (c.status[i] == active) {
+                activeCount[g]++;
+            }
+            if (g == credit && c.limit[i] != NULL_MONEY) {
+                limits[g] += c.limit[i];
+                limitCount[g]++;
+            }
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("card_type", ColumnType.STRING)
+                .column("total_cards", ColumnType.LONG)
+                .column("active_cards", ColumnType.LONG)
+                .column("total_credit_limit", ColumnType.DOUBLE)
+                .column("avg_credit_limit", ColumnType.DOUBLE);
+        for (int g = 0; g < groups; g++) {
+            result.appendString(0, c.types.value(g)).appendLong(1, count[g])
+                    .appendLong(2, activeCount[g]).appendDouble(3, money(limits[g]));
+            if (limitCount[g] == 0) {
+                result.appendNull(4);
+            } else {
+                result.appendDouble(4, avg(limits[g], limitCount[g]));
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getAccountActivity()
+     */
+    public ColumnarResult getAccountActivity() {
+        Accounts a = accounts;
+        Transactions t = transactions;
+        int completed = t.statuses.find("Completed");
+        long[] count = new long[a.size];
+        long[] deposits = new long[a.size];
+        long[] withdrawals = new long[a.size];
+        for (int i = 0; i < t.size; i++) {
+            int row = t.status[i] == completed ? (int) accountRows.get(t.account[i], -1) : -1;
+            if (row < 0) {
+                continue;
+            }
+            long amount = t.amount[i];
+            count[row]++;
+            if (amount > 0) {
+                deposits[row] += amount;
+            } else {
+                withdrawals[row] -= amount;
+            }
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("account_id", ColumnType.LONG)
+                .column("customer_name", ColumnType.STRING)
+                .column("account_type", ColumnType.STRING)
+                .column("balance", ColumnType.DOUBLE)
+                .column("transaction_count", ColumnType.LONG)
+                .column("total_deposits", ColumnType.DOUBLE)
+                .column("total_withdrawals", ColumnType.DOUBLE);
+        for (int i : top(count, a.size, 10, 0)) {
+            result.appendLong(0, a.id[i]).appendString(1, a.name[i])
+                    .appendString(2, a.types.value(a.type[i])).appendDouble(3, money(a.balance[i]))
+                    .appendLong(4, count[i]).appendDouble(5, money(deposits[i]))
+                    .appendDouble(6, money(withdrawals[i]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getLoanRepaymentAnalysis()
+     */
+    public ColumnarResult getLoanRepaymentAnalysis() {
+        Accounts a = accounts;
+        Loans l = loans;
+        int active = l.statuses.find("Active");
+        long[] count = new long[a.size];
+        long[] borrowed = new long[a.size];
+        long[] payment = new long[a.size];
+        long[] rate = new long[a.size];
+        for (int i = 0; i < l.size; i++) {
+            int row = l.status[i] == active ? (int) accountRows.get(l.account[i], -1) : -1;
+            if (row >= 0) {
+                count[row]++;
+                borrowed[row] += l.amount[i];
+                payment[row] += l.payment[i];
+                rate[row] += l.rate[i];
+            }
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("account_id", ColumnType.LONG)
+                .column("customer_name", ColumnType.STRING)
+                .column("total_loans", ColumnType.LONG)
+                .column("total_borrowed", ColumnType.DOUBLE)
+                .column("monthly_obligation", ColumnType.DOUBLE)
+                .column("avg_interest_rate", ColumnType.DOUBLE)
+                .column("balance", ColumnType.DOUBLE);
+        for (int i : groups(count, descending(borrowed))) {
+            result.appendLong(0, a.id[i]).appendString(1, a.name[i]).appendLong(2, count[i])
+                    .appendDouble(3, money(borrowed[i])).appendDouble(4, money(payment[i]))
+                    .appendDouble(5, avg(rate[i], count[i])).appendDouble(6, money(a.balance[i]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getBalanceRangeAnalysis()
+     */
+    public ColumnarResult getBalanceRangeAnalysis() {
+        return scanAccounts().getBalanceRanges();
+    }
+
+    /**
+     * @see StatService#getRevenueAnalysis()
+     */
+    public ColumnarResult getRevenueAnalysis() {
+        LoanTotals totals = activeLoansByType();
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("loan_type", ColumnType.STRING)
+                .column("active_loans", ColumnType.LONG)
+                .column("total_principal", ColumnType.DOUBLE)
+                .column("avg_rate", ColumnType.DOUBLE)
+                .column("monthly_revenue", ColumnType.DOUBLE)
+                .column("annual_revenue", ColumnType.DOUBLE);
+        for (int g : groups(totals.count, descending(totals.payment))) {
+            result.appendString(0, loans.types.value(g)).appendLong(1, totals.count[g])
+                    .appendDouble(2, money(totals.amount[g]))
+                    .appendDouble(3, avg(totals.rate[g], totals.count[g]))
+                    .appendDouble(4, money(totals.payment[g]))
+                    .appendDouble(5, money(totals.payment[g] * 12));
+        }
+        return result.build();
+    }
+
+    /**
+     * Computes the dashboard metrics, as boxed by the JDBC driver for
+     * StatService's summary query: total accounts, total active balance
+     * (a BigDecimal, null without active accounts), completed
+     * transactions, active accounts, active loans and active cards.
+     *
+     * @return The six metrics in that order
+     */
+    public Object[] getSummaryValues() {
+        Accounts a = accounts;
+        int activeAccount = a.statuses.find("Active");
+        long activeAccounts = 0;
+        long balance = 0;
+        for (int i = 0; i < a.size; i++) {
+            if (a.status[i] == activeAccount) {
+                activeAccounts++;
+                balance += a.balance[i];
+            }
+        }
+        return new Object[] {
+            (long) a.size,
+            activeAccounts == 0 ? null : BigDecimal.valueOf(balance, 2),
+            count(transactions.status, transactions.size, transactions.statuses.find("Completed")),
+            activeAccounts,
+            count(loans.status, loans.size, loans.statuses.find("Active")),
+            count(cards.status, cards.size, cards.statuses.find("Active"))
+        };
+    }
+
+    private LoanTotals activeLoansByType() {
+        Loans l = loans;
+        int active = l.statuses.find("Active");
+        LoanTotals totals = new LoanTotals(l.types.size());
+        for (int i = 0; i < l.size; i++) {
+            if (l.status[i] == active) {
+                int g = l.type[i];
+                totals.count[g]++;
+                totals.amount[g] += l.amount[i];
+                totals.rate[g] += l.rate[i];
+                totals.payment[g] += l.payment[i];
+            }
+        }
+        return totals;
+    }
+
+    private static long count(byte[] codes, int size, int code) {
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the rows with the largest values, like ORDER BY value DESC
+     * LIMIT n, keeping a min-heap of the best rows seen so far.
+     *
+     * @param floor Rows with a value at or below it are skipped
+     * @return Row indices, largest value first
+     */
+    private static List<Integer> top(long[] values, int size, int limit, long floor) {
+        int[] heap = new int[Math.max(0, Math.min(limit, size))];
+        int n = 0;
+        for (int i = 0; i < size && heap.length > 0; i++) {
+            if (values[i] <= floor) {
+                continue;
+            }
+            if (n < heap.length) {
+                int child = n++;
+                heap[child] = i;
+                while (child > 0 && values[heap[(child - 1) / 2]] > values[heap[child]]) {
+                    swap(heap, child, (child - 1) / 2);
+                    child = (child - 1) / 2;
+                }
+            } else if (values[i] > values[heap[0]]) {
+                heap[0] = i;
+                for (int parent = 0, child; (child = 2 * parent + 1) < n; parent = child) {
+                    if (child + 1 < n && values[heap[child + 1]] < values[heap[child]]) {
+                        child++;
+                    }
+                    if (values[heap[parent]] <= values[heap[child]]) {
+                        break;
+                    }
+                    swap(heap, parent, child);
+                }
+            }
+        }
+        List<Integer> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(heap[i]);
+        }
+        rows.sort(descending(values).thenComparing(Comparator.naturalOrder()));
+        return rows;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static int month(LocalDate date) {
+        return TransactionAggregates.month(date.getYear(), date.getMonthValue());
+    }
+
+    private static final class Accounts {
+
+        final Dictionary types = new Dictionary("account_type", 128);
+        final Dictionary branches = new Dictionary("branch", Integer.MAX_VALUE);
+        final Dictionary statuses = new Dictionary("status", 128);
+        int size;
+        int[] id = new int[16];
+        String[] name = new String[16];
+        String[] email = new String[16];
+        byte[] type = new byte[16];
+        long[] balance = new long[16];
+        int[] branch = new int[16];
+        byte[] status = new byte[16];
+
+        void add(int id, String name, String email, String type, long balance, String branch, String status) {
+            if (size == this.id.length) {
+                int capacity = size * 2;
+                this.id = Arrays.copyOf(this.id, capacity);
+                this.name = Arrays.copyOf(this.name, capacity);
+                this.email = Arrays.copyOf(this.email, capacity);
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.balance = Arrays.copyOf(this.balance, capacity);
+                this.branch = Arrays.copyOf(this.branch, capacity);
+                this.status = Arrays.copyOf(this.status, capacity);
+            }
+            this.id[size] = id;
+            this.name[size] = name;
+            this.email[size] = email;
+            this.type[size] = (byte) types.code(type);
+            this.balance[size] = balance;
+            this.branch[size] = branches.code(branch);
+            this.status[size] = (byte) statuses.code(status);
+            size++;
+        }
+    }
+
+    private static final class Transactions {
+
+        final Dictionary types = new Dictionary("transaction_type", 128);
+        final Dictionary statuses = new Dictionary("status", 128);
+        int size;
+        int[] account = new int[16];
+        byte[] type = new byte[16];
+        long[] amount = new long[16];
+        int[] month = new int[16];
+        byte[] status = new byte[16];
+
+        void add(int account, String type, long amount, int month, String status) {
+            if (size == this.account.length) {
+                int capacity = size * 2;
+                this.account = Arrays.copyOf(this.account, capacity);
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.amount = Arrays.copyOf(this.amount, capacity);
+                this.month = Arrays.copyOf(this.month, capacity);
+                this.status = Arrays.copyOf(this.status, capacity);
+            }
+            this.account[size] = account;
+            this.type[size] = (byte) types.code(type);
+            this.amount[size] = amount;
+            this.month[size] = month;
+            this.status[size] = (byte) statuses.code(status);
+            size++;
+        }
+    }
+
+    private static final class Loans {
+
+        final Dictionary types = new Dictionary("loan_type", 128);
+        final Dictionary statuses = new Dictionary("status", 128);
+        int size;
+        int[] account = new int[16];
+        byte[] type = new byte[16];
+        long[] amount = new long[16];
+        long[] rate = new long[16];
+        byte[] status = new byte[16];
+        long[] payment = new long[16];
+
+        void add(int account, String type, long amount, long rate, String status, long payment) {
+            if (size == this.account.length) {
+                int capacity = size * 2;
+                this.account = Arrays.copyOf(this.account, capacity);
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.amount = Arrays.copyOf(this.amount, capacity);
+                this.rate = Arrays.copyOf(this.rate, capacity);
+                this.status = Arrays.copyOf(this.status, capacity);
+                this.payment = Arrays.copyOf(this.payment, capacity);
+            }
+            this.account[size] = account;
+            this.type[size] = (byte) types.code(type);
+            this.amount[size] = amount;
+            this.rate[size] = rate;
+            this.status[size] = (byte) statuses.code(status);
+            this.payment[size] = payment;
+            size++;
+        }
+    }
+
+    private static final class Cards {
+
+        final Dictionary types = new Dictionary("card_type", 128);
+        final Dictionary statuses = new Dictionary("status", 128);
+        int size;
+        byte[] type = new byte[16];
+        byte[] status = new byte[16];
+        long[] limit = new long[16];
+
+        void add(String type, String status, long limit) {
+            if (size == this.type.length) {
+                int capacity = size * 2;
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.status = Arrays.copyOf(this.status, capacity);
+                this.limit = Arrays.copyOf(this.limit, capacity);
+            }
+            this.type[size] = (byte) types.code(type);
+            this.status[size] = (byte) statuses.code(status);
+            this.limit[size] = limit;
+            size++;
+        }
+    }
+
+    /**
+     * Sums of active loans per loan type.
+     */
+    private static final class LoanTotals {
+
+        final long[] count;
+        final long[] amount;
+        final long[] rate;
+        final long[] payment;
+
+        LoanTotals(int groups) {
+            count = new long[groups];
+            amount = new long[groups];
+            rate = new long[groups];
+            payment = new long[groups];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distinct values of a string column, numbered in order of appearance.
+ * A null value gets a code like any other value.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class Dictionary {
+
+    private final String column;
+    private final int limit;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @param column Column name, for errors
+     * @param limit Maximum number of distinct values, such as 128 for byte codes
+     */
+    Dictionary(String column, int limit) {
+        this.column = column;
+        this.limit = limit;
+    }
+
+    /**
+     * @return Code of a value, assigning the next code to a new value
+     * @throws IllegalArgumentException if the column has too many distinct values
+     */
+    int code(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (values.size() == limit) {
+                throw new IllegalArgumentException("More than " + limit + " distinct " + column + " values");
+            }
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @return Code of a value, or -1, which matches no row, if absent
+     */
+    int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    String value(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
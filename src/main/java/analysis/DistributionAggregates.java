@@ -0,0 +1,217 @@
+package analysis;
+
+import db.ColumnarResult;
+import db.ColumnarResult.ColumnType;
+import sketch.HyperLogLog;
+import sketch.KllSketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static analysis.Aggregation.descending;
+import static analysis.Aggregation.fit;
+import static analysis.Aggregation.groups;
+import static analysis.Aggregation.money;
+
+/**
+ * Sketches of one streaming pass over accounts and completed transactions,
+ * from which the quantile and distinct customer analyses are produced.
+ *
+ * Each transaction type keeps a {@link KllSketch} of its amounts, each
+ * account type one of its balances, and each branch a
+ * {@link HyperLogLog} of its customers' names, so percentiles and
+ * distinct counts come from a few kilobytes per group instead of a sort
+ * of the whole table. The totals over all groups are merges of the group
+ * sketches. Results are estimates: quantiles are within about 1% in rank
+ * and distinct counts within about 1%.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class DistributionAggregates {
+
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+    private final Dictionary transactionTypes;
+    private final Dictionary accountTypes;
+    private final Dictionary branches;
+    private final List<KllSketch> amounts = new ArrayList<>();
+    private final List<KllSketch> balances = new ArrayList<>();
+    private final List<HyperLogLog> customers = new ArrayList<>();
+    private long[] branchCount = new long[8];
+
+    /**
+     * Creates aggregates for rows added by value.
+     */
+    DistributionAggregates() {
+        this(new Dictionary("transaction_type", 128), new Dictionary("account_type", 128),
+                new Dictionary("branch", Integer.MAX_VALUE));
+    }
+
+    /**
+     * Creates aggregates for rows added by code.
+     *
+     * @param transactionTypes Codes of transaction_type
+     * @param accountTypes Codes of account_type
+     * @param branches Codes of branch
+     */
+    DistributionAggregates(Dictionary transactionTypes, Dictionary accountTypes, Dictionary branches) {
+        this.transactionTypes = transactionTypes;
+        this.accountTypes = accountTypes;
+        this.branches = branches;
+    }
+
+    /**
+     * Adds one completed transaction.
+     *
+     * @param amount Amount in cents
+     */
+    void addTransaction(int type, long amount) {
+        slot(amounts, type, KllSketch::new).update(money(amount));
+    }
+
+    void addTransaction(String type, long amount) {
+        addTransaction(transactionTypes.code(type), amount);
+    }
+
+    /**
+     * Adds one account.
+     *
+     * @param customer Customer name, which identifies the customer; null is not counted
+     * @param balance Balance in cents
+     */
+    void addAccount(int type, int branch, String customer, long balance) {
+        slot(balances, type, KllSketch::new).update(money(balance));
+        slot(customers, branch, HyperLogLog::new).add(customer);
+        branchCount = fit(branchCount, branch, 0);
+        branchCount[branch]++;
+    }
+
+    void addAccount(String type, String branch, String customer, long balance) {
+        addAccount(accountTypes.code(type), branches.code(branch), customer, balance);
+    }
+
+    /**
+     * @see StatService#getTransactionAmountQuantiles()
+     */
+    ColumnarResult getTransactionAmountQuantiles() {
+        return quantiles(amounts, transactionTypes, "transaction_type", "total_transactions", "amount");
+    }
+
+    /**
+     * @see StatService#getBalanceQuantiles()
+     */
+    ColumnarResult getBalanceQuantiles() {
+        return quantiles(balances, accountTypes, "account_type", "total_accounts", "balance");
+    }
+
+    /**
+     * @see StatService#getTransactionAmountDistribution()
+     */
+    ColumnarResult getTransactionAmountDistribution() {
+        KllSketch all = mergeAll(amounts);
+        double[] ranks = new double[99];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = (i + 1) / 100.0;
+        }
+        double[] quantiles = all.getQuantiles(ranks);
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("percentile", ColumnType.LONG)
+                .column("amount", ColumnType.DOUBLE);
+        for (int i = 0; i < ranks.length && all.getN() > 0; i++) {
+            result.appendLong(0, i + 1).appendDouble(1, quantiles[i]);
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getDistinctCustomersByBranch()
+     */
+    ColumnarResult getDistinctCustomersByBranch() {
+        long[] distinct = new long[customers.size()];
+        HyperLogLog all = new HyperLogLog();
+        for (int g = 0; g < distinct.length; g++) {
+            if (customers.get(g) != null) {
+                distinct[g] = customers.get(g).estimate();
+                all.merge(customers.get(g));
+            }
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("branch", ColumnType.STRING)
+                .column("total_accounts", ColumnType.LONG)
+                .column("distinct_customers", ColumnType.LONG);
+        long total = 0;
+        for (int g : groups(Arrays.copyOf(branchCount, distinct.length), descending(distinct))) {
+            result.appendString(0, branches.value(g)).appendLong(1, branchCount[g]).appendLong(2, distinct[g]);
+            total += branchCount[g];
+        }
+        if (total > 0) {
+            result.appendString(0, "All Branches").appendLong(1, total).appendLong(2, all.estimate());
+        }
+        return result.build();
+    }
+
+    /**
+     * Lists count, median, 95th and 99th percentile of each group, largest
+     * group first, followed by a row for all groups together.
+     */
+    private static ColumnarResult quantiles(List<KllSketch> sketches, Dictionary keys, String keyColumn,
+            String countColumn, String measure) {
+        long[] count = new long[sketches.size()];
+        for (int g = 0; g < count.length; g++) {
+            count[g] = sketches.get(g) == null ? 0 : sketches.get(g).getN();
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column(keyColumn, ColumnType.STRING)
+                .column(countColumn, ColumnType.LONG)
+                .column("median_" + measure, ColumnType.DOUBLE)
+                .column("p95_" + measure, ColumnType.DOUBLE)
+                .column("p99_" + measure, ColumnType.DOUBLE);
+        for (int g : groups(count, descending(count))) {
+            appendQuantiles(result, keys.value(g), sketches.get(g));
+        }
+        KllSketch all = mergeAll(sketches);
+        if (all.getN() > 0) {
+            appendQuantiles(result, "All Types", all);
+        }
+        return result.build();
+    }
+
+    private static void appendQuantiles(ColumnarResult.Builder result, String key, KllSketch sketch) {
+        double[] quantiles = sketch.getQuantiles(PERCENTILES);
+        result.appendString(0, key).appendLong(1, sketch.getN());
+        for (int i = 0; i < quantiles.length; i++) {
+            result.appendDouble(2 + i, quantiles[i]);
+        }
+    }
+
+    private static KllSketch mergeAll(List<KllSketch> sketches) {
+        KllSketch all = new KllSketch();
+        for (KllSketch sketch : sketches) {
+            if (sketch != null) {
+                all.merge(sketch);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Gets the sketch of a group, creating it on first use.
+     */
+    private static <T> T slot(List<T> sketches, int code, Supplier<T> create) {
+        while (sketches.size() <= code) {
+            sketches.add(null);
+        }
+        T sketch = sketches.get(code);
+        if (sketch == null) {
+            sketch = create.get();
+            sketches.set(code, sketch);
+        }
+        return sketch;
+    }
+}
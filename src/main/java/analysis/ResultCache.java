@@ -0,0 +1,158 @@
+package analysis;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded, time-limited cache for analysis results.
+ *
+ * Entries are keyed by analysis name and parameters, expire after a fixed
+ * time to live, and are evicted least-recently-used first when the cache
+ * is full. {@link #invalidateAll()} drops everything, for example after an
+ * import; a load that started before the invalidation is not stored.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ResultCache {
+
+    /**
+     * Computes a value on a cache miss.
+     *
+     * @param <T> Value type
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param maxEntries Maximum number of cached results (0 disables caching)
+     * @param ttlMillis Time after which a cached result expires
+     */
+    public ResultCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::nanoTime);
+    }
+
+    ResultCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached value for a key, loading and caching it on a miss.
+     *
+     * @param key Analysis name and parameters
+     * @param loader Computes the value on a miss
+     * @return Cached or freshly loaded value
+     * @throws SQLException if the loader fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Loader<T> loader) throws SQLException {
+        if (maxEntries == 0) {
+            return loader.load();
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits++;
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        T value = loader.load();
+
+        synchronized (this) {
+            // Do not store results computed from data that was invalidated meanwhile
+            if (loadGeneration == generation) {
+                entries.put(key, new Entry(value, clock.getAsLong()));
+                Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                while (entries.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    evictions++;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+        invalidations++;
+    }
+
+    /**
+     * @return Number of results currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Fraction of lookups served from the cache
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Gets a one-line summary of cache metrics.
+     *
+     * @return Cache statistics text
+     */
+    public synchronized String getStatistics() {
+        return String.format("ResultCache[size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, "
+                + "evictions=%d, expirations=%d, invalidations=%d]",
+                entries.size(), maxEntries, hits, misses, getHitRate() * 100,
+                evictions, expirations, invalidations);
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
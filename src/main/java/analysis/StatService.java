@@ -1,10 +1,20 @@
 package analysis;
 
+import db.ColumnarResult;
+import db.DBConnection;
 import db.QueryExecutor;
+import util.AppConfig;
+import util.SummaryTables;
 
 import javax.swing.table.DefaultTableModel;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static analysis.Aggregation.cents;
 
 /**
  * Statistical Analysis Service for Bank Data Analysis System.
@@ -12,30 +22,287 @@ import java.util.*;
  * 
  * This class implements all the statistical analysis requirements
  * from the project specification, including aggregations, trends,
- * and distribution analysis for banking data.
+ * and distribution analysis for banking data. Results are returned
+ * as {@link ColumnarResult} so charts can read primitive arrays and
+ * tables can wrap them with {@link ColumnarResult#toTableModel()}.
+ * Every analysis is served from a {@link ResultCache} keyed by analysis
+ * and parameters; call {@link #invalidateCache()} after the data changes.
+ * 
+ * With analysis.engine=memory, analyses run in process on a
+ * {@link ColumnarEngine} instead of MySQL. The engine loads the CSV files
+ * of analysis.dataDirectory, so no database is needed at all, or a
+ * snapshot of the database tables when no directory is set. It is loaded
+ * on first use and reloaded after {@link #invalidateCache()}.
+ * 
+ * With analysis.singlePass=true, the default, the analyses that group
+ * the same table are computed together: one scan of accounts feeds the
+ * balances by type, branch, status and balance range analyses, and one
+ * scan of completed transactions feeds the by type and trend analyses.
+ * On MySQL the scan is a single GROUP BY at the finest grain of all the
+ * analyses, streamed into {@link AccountAggregates} or
+ * {@link TransactionAggregates}, so a full refresh costs one scan per
+ * table instead of one per analysis.
+ * 
+ * Percentiles and distinct counts, which MySQL can only compute with a
+ * sort of the whole table, are estimated from {@link DistributionAggregates}:
+ * quantile and HyperLogLog sketches fed by one streaming scan of accounts
+ * and completed transactions and shared by those analyses. The scan reads
+ * every row, so its sketches are kept until {@link #invalidateCache()}
+ * rather than in the result cache, where eviction or expiry would repeat
+ * it, and it only runs when one of those analyses is asked for.
+ * 
+ * With analysis.summaryTables=true, the default, those scans and the
+ * dashboard summary read the {@link SummaryTables} that imports keep
+ * current instead of the base tables, so their cost depends on the number
+ * of groups rather than of rows. The summary tables are created, and
+ * built if empty, on first use. Only imports through {@link util.CSVImporter}
+ * maintain them: after the base tables are changed any other way, call
+ * {@link #rebuildSummaryTables()} (Tools, Rebuild Summary Tables) or the
+ * analyses will report the old data.
  * 
  * @author Bank Data Analysis Team
  * @version 1.0
  */
 public class StatService {
     
+    /**
+     * Dashboard labels for the summary metrics, in query column order.
+     */
+    private static final String[] SUMMARY_LABELS = {
+        "Total Accounts", "Total Balance", "Total Transactions",
+        "Active Accounts", "Active Loans", "Active Cards"
+    };
+    
     private QueryExecutor queryExecutor;
+    private ResultCache cache;
+    private boolean inMemory;
+    private String dataDirectory;
+    private boolean reloadable = true;
+    private volatile ColumnarEngine engine;
+    private boolean singlePass;
+    private boolean summaryTables;
+    private volatile boolean summariesReady;
+    private final Object accountScanLock = new Object();
+    private final Object transactionScanLock = new Object();
+    private final Object distributionScanLock = new Object();
+    private volatile DistributionAggregates distributions;
+    private final AtomicLong dataVersion = new AtomicLong();
     
     /**
-     * Constructor - initializes the service with query executor.
+     * Constructor - initializes the service with query executor and a
+     * result cache sized by cache.maxEntries and cache.ttlSeconds, and
+     * selects the engine by analysis.engine.
      */
     public StatService() {
         this.queryExecutor = new QueryExecutor();
+        this.cache = new ResultCache(
+                AppConfig.getInt("cache.maxEntries", 64),
+                AppConfig.getInt("cache.ttlSeconds", 300) * 1000L);
+        this.inMemory = "memory".equalsIgnoreCase(AppConfig.getString("analysis.engine", "database").trim());
+        this.dataDirectory = AppConfig.getString("analysis.dataDirectory", "").trim();
+        this.singlePass = AppConfig.getBoolean("analysis.singlePass", true);
+        this.summaryTables = AppConfig.getBoolean("analysis.summaryTables", true);
+    }
+    
+    /**
+     * Constructor for in-memory analysis of an already loaded engine.
+     * 
+     * @param engine Data to analyze
+     */
+    public StatService(ColumnarEngine engine) {
+        this();
+        this.inMemory = true;
+        this.reloadable = false;
+        this.engine = engine;
+    }
+    
+    /**
+     * Tells whether analyses need the database: false when they run in
+     * memory on CSV files.
+     * 
+     * @return true if analyses query MySQL or snapshot its tables
+     */
+    public boolean requiresDatabase() {
+        return !inMemory || reloadable && dataDirectory.isEmpty();
+    }
+    
+    /**
+     * Gets the in-memory engine, loading it on first use.
+     */
+    private ColumnarEngine engine() throws SQLException {
+        ColumnarEngine loaded = engine;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = engine;
+                if (loaded == null) {
+                    long start = System.nanoTime();
+                    if (dataDirectory.isEmpty()) {
+                        loaded = ColumnarEngine.snapshot(queryExecutor);
+                    } else {
+                        try {
+                            loaded = ColumnarEngine.loadCsv(new File(dataDirectory));
+                        } catch (IOException e) {
+                            throw new SQLException("Cannot load " + dataDirectory + ": " + e.getMessage(), e);
+                        }
+                    }
+                    System.out.println("Loaded " + loaded.describe() + " for in-memory analysis in " 
+                            + (System.nanoTime() - start) / 1_000_000 + " ms");
+                    engine = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * Tells whether database analyses read the summary tables, creating
+     * and building them on first use.
+     */
+    private boolean useSummaries() throws SQLException {
+        if (!summaryTables) {
+            return false;
+        }
+        if (!summariesReady) {
+            synchronized (this) {
+                if (!summariesReady) {
+                    try (Connection conn = DBConnection.getInstance().getConnection()) {
+                        SummaryTables.ensure(conn);
+                    }
+                    summariesReady = true;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the aggregates of one scan of the accounts table, shared by the
+     * four account analyses. The lock makes an analysis wait for a scan in
+     * progress and take its cached result rather than start another one.
+     */
+    private AccountAggregates accountAggregates() throws SQLException {
+        synchronized (accountScanLock) {
+            return cache.get("scanAccounts", () -> inMemory ? engine().scanAccounts() : scanAccounts());
+        }
+    }
+    
+    /**
+     * Gets the aggregates of one scan of the completed transactions, shared
+     * by the two transaction analyses.
+     */
+    private TransactionAggregates transactionAggregates() throws SQLException {
+        synchronized (transactionScanLock) {
+            return cache.get("scanTransactions", 
+                    () -> inMemory ? engine().scanTransactions() : scanTransactions());
+        }
+    }
+    
+    /**
+     * Gets the sketches of one scan of accounts and completed transactions,
+     * shared by the quantile and distinct customer analyses, scanning on
+     * first use after {@link #invalidateCache()}.
+     */
+    private DistributionAggregates distributionAggregates() throws SQLException {
+        synchronized (distributionScanLock) {
+            DistributionAggregates current = distributions;
+            if (current == null) {
+                long version = dataVersion.get();
+                current = inMemory ? engine().scanDistributions() : scanDistributions();
+                // A scan that overlapped an invalidation may have read old data
+                if (version == dataVersion.get()) {
+                    distributions = current;
+                }
+            }
+            return current;
+        }
+    }
+    
+    /**
+     * Streams accounts and completed transactions into the sketches. The
+     * rows are read unsorted and ungrouped, so the server does no more
+     * work than a sequential read of each table.
+     */
+    private DistributionAggregates scanDistributions() throws SQLException {
+        DistributionAggregates aggregates = new DistributionAggregates();
+        queryExecutor.streamQuery("SELECT account_type, branch, customer_name, balance FROM accounts", rs -> {
+            aggregates.addAccount(rs.getString(1), rs.getString(2), rs.getString(3), cents(rs.getBigDecimal(4)));
+            return true;
+        });
+        queryExecutor.streamQuery("SELECT transaction_type, amount FROM transactions " +
+                "WHERE status = 'Completed'", rs -> {
+            aggregates.addTransaction(rs.getString(1), cents(rs.getBigDecimal(2)));
+            return true;
+        });
+        return aggregates;
+    }
+    
+    /**
+     * Scans accounts with one query grouped by every key of the account
+     * analyses. Balance ranges are numbered like
+     * {@link AccountAggregates#range(long)}. The rows of account_summary
+     * are these groups already, stored with '' for a NULL status.
+     */
+    private AccountAggregates scanAccounts() throws SQLException {
+        String query = useSummaries()
+                ? "SELECT account_type, branch, NULLIF(status, ''), balance_range, " +
+                  "account_count, total_balance, min_balance, max_balance " +
+                  "FROM account_summary " +
+                  "WHERE account_count > 0"
+                : "SELECT account_type, branch, status, " +
+                  "CASE WHEN balance >= 10000000 THEN 0 " +
+                  "WHEN balance >= 5000000 THEN 1 " +
+                  "WHEN balance >= 1000000 THEN 2 " +
+                  "WHEN balance >= 500000 THEN 3 " +
+                  "ELSE 4 END AS balance_range, " +
+                  "COUNT(*), SUM(balance), MIN(balance), MAX(balance) " +
+                  "FROM accounts " +
+                  "GROUP BY account_type, branch, status, balance_range";
+        
+        AccountAggregates aggregates = new AccountAggregates();
+        queryExecutor.streamQuery(query, rs -> {
+            aggregates.add(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(5),
+                    cents(rs.getBigDecimal(6)), cents(rs.getBigDecimal(7)), cents(rs.getBigDecimal(8)));
+            return true;
+        });
+        return aggregates;
+    }
+    
+    /**
+     * Scans completed transactions with one query grouped by type and
+     * month, or reads the same groups from transaction_summary.
+     */
+    private TransactionAggregates scanTransactions() throws SQLException {
+        String query = useSummaries()
+                ? "SELECT transaction_type, month, transaction_count, total_amount, " +
+                  "min_amount, max_amount, total_inflow, total_outflow " +
+                  "FROM transaction_summary " +
+                  "WHERE transaction_count > 0"
+                : "SELECT transaction_type, DATE_FORMAT(transaction_date, '%Y-%m') AS month, " +
+                  "COUNT(*), SUM(amount), MIN(amount), MAX(amount), " +
+                  "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), " +
+                  "SUM(CASE WHEN amount < 0 THEN ABS(amount) ELSE 0 END) " +
+                  "FROM transactions " +
+                  "WHERE status = 'Completed' " +
+                  "GROUP BY transaction_type, month";
+        
+        TransactionAggregates aggregates = new TransactionAggregates();
+        queryExecutor.streamQuery(query, rs -> {
+            aggregates.add(rs.getString(1), rs.getString(2), rs.getLong(3), cents(rs.getBigDecimal(4)),
+                    cents(rs.getBigDecimal(5)), cents(rs.getBigDecimal(6)), 
+                    cents(rs.getBigDecimal(7)), cents(rs.getBigDecimal(8)));
+            return true;
+        });
+        return aggregates;
     }
     
     /**
      * Gets account balances by account type.
      * Returns account type, count, total and average balances.
      * 
-     * @return TableModel with account balance statistics
+     * @return Columnar result with account balance statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getAccountBalancesByType() throws SQLException {
+    public ColumnarResult getAccountBalancesByType() throws SQLException {
         String query = "SELECT account_type, " +
                 "COUNT(account_id) AS total_accounts, " +
                 "SUM(balance) AS total_balance, " +
@@ -46,17 +313,18 @@ public class StatService {
                 "GROUP BY account_type " +
                 "ORDER BY total_balance DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getAccountBalancesByType", () -> singlePass ? accountAggregates().getBalancesByType() 
+                : inMemory ? engine().getAccountBalancesByType() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets transaction analysis by type.
      * Shows volumes and amounts for each transaction type.
      * 
-     * @return TableModel with transaction statistics
+     * @return Columnar result with transaction statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getTransactionsByType() throws SQLException {
+    public ColumnarResult getTransactionsByType() throws SQLException {
         String query = "SELECT transaction_type, " +
                 "COUNT(transaction_id) AS total_transactions, " +
                 "SUM(amount) AS total_amount, " +
@@ -68,17 +336,18 @@ public class StatService {
                 "GROUP BY transaction_type " +
                 "ORDER BY total_amount DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getTransactionsByType", () -> singlePass ? transactionAggregates().getTransactionsByType() 
+                : inMemory ? engine().getTransactionsByType() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets branch-wise account distribution.
      * Shows account counts and balances per branch.
      * 
-     * @return TableModel with branch statistics
+     * @return Columnar result with branch statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getBranchDistribution() throws SQLException {
+    public ColumnarResult getBranchDistribution() throws SQLException {
         String query = "SELECT branch, " +
                 "COUNT(account_id) AS total_accounts, " +
                 "SUM(balance) AS total_balance, " +
@@ -89,17 +358,18 @@ public class StatService {
                 "GROUP BY branch " +
                 "ORDER BY total_balance DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getBranchDistribution", () -> singlePass ? accountAggregates().getBranchDistribution() 
+                : inMemory ? engine().getBranchDistribution() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets loan portfolio analysis.
      * Analyzes loans by type with amounts and interest rates.
      * 
-     * @return TableModel with loan statistics
+     * @return Columnar result with loan statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getLoanPortfolioAnalysis() throws SQLException {
+    public ColumnarResult getLoanPortfolioAnalysis() throws SQLException {
         String query = "SELECT loan_type, " +
                 "COUNT(loan_id) AS total_loans, " +
                 "SUM(amount) AS total_loan_amount, " +
@@ -111,17 +381,18 @@ public class StatService {
                 "GROUP BY loan_type " +
                 "ORDER BY total_loan_amount DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getLoanPortfolioAnalysis", () -> inMemory 
+                ? engine().getLoanPortfolioAnalysis() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets account status distribution.
      * Shows count and percentage for each status type.
      * 
-     * @return TableModel with status distribution
+     * @return Columnar result with status distribution
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getStatusDistribution() throws SQLException {
+    public ColumnarResult getStatusDistribution() throws SQLException {
         String query = "SELECT status, COUNT(*) AS count, " +
                 "ROUND(COUNT(*) * 100.0 / (SELECT COUNT(*) FROM accounts), 2) AS percentage, " +
                 "SUM(balance) AS total_balance " +
@@ -129,34 +400,36 @@ public class StatService {
                 "GROUP BY status " +
                 "ORDER BY count DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getStatusDistribution", () -> singlePass ? accountAggregates().getStatusDistribution() 
+                : inMemory ? engine().getStatusDistribution() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets top accounts by balance.
      * 
      * @param limit Maximum number of accounts to return
-     * @return TableModel with top accounts
+     * @return Columnar result with top accounts
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getTopAccounts(int limit) throws SQLException {
+    public ColumnarResult getTopAccounts(int limit) throws SQLException {
         String query = "SELECT account_id, customer_name, email, " +
                 "account_type, balance, branch, status " +
                 "FROM accounts " +
                 "ORDER BY balance DESC " +
                 "LIMIT " + limit;
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getTopAccounts:" + limit, () -> inMemory 
+                ? engine().getTopAccounts(limit) : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets transaction volume trends over time.
      * Shows monthly transaction patterns.
      * 
-     * @return TableModel with transaction trends
+     * @return Columnar result with transaction trends
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getTransactionTrends() throws SQLException {
+    public ColumnarResult getTransactionTrends() throws SQLException {
         String query = "SELECT DATE_FORMAT(transaction_date, '%Y-%m') AS month, " +
                 "COUNT(transaction_id) AS total_transactions, " +
                 "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END) AS total_inflow, " +
@@ -167,17 +440,18 @@ public class StatService {
                 "GROUP BY month " +
                 "ORDER BY month DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getTransactionTrends", () -> singlePass ? transactionAggregates().getTransactionTrends() 
+                : inMemory ? engine().getTransactionTrends() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets card distribution analysis.
      * Shows debit and credit card statistics.
      * 
-     * @return TableModel with card statistics
+     * @return Columnar result with card statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getCardDistribution() throws SQLException {
+    public ColumnarResult getCardDistribution() throws SQLException {
         String query = "SELECT card_type, " +
                 "COUNT(card_id) AS total_cards, " +
                 "COUNT(CASE WHEN status = 'Active' THEN 1 END) AS active_cards, " +
@@ -186,17 +460,18 @@ public class StatService {
                 "FROM cards " +
                 "GROUP BY card_type";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getCardDistribution", () -> inMemory 
+                ? engine().getCardDistribution() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets account activity analysis.
      * Identifies most active accounts based on transaction count.
      * 
-     * @return TableModel with account activity
+     * @return Columnar result with account activity
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getAccountActivity() throws SQLException {
+    public ColumnarResult getAccountActivity() throws SQLException {
         String query = "SELECT a.account_id, a.customer_name, a.account_type, a.balance, " +
                 "COUNT(t.transaction_id) AS transaction_count, " +
                 "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END) AS total_deposits, " +
@@ -208,17 +483,18 @@ public class StatService {
                 "ORDER BY transaction_count DESC " +
                 "LIMIT 10";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getAccountActivity", () -> inMemory 
+                ? engine().getAccountActivity() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets loan repayment analysis.
      * Calculates total loan obligations per account.
      * 
-     * @return TableModel with loan obligations
+     * @return Columnar result with loan obligations
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getLoanRepaymentAnalysis() throws SQLException {
+    public ColumnarResult getLoanRepaymentAnalysis() throws SQLException {
         String query = "SELECT a.account_id, a.customer_name, " +
                 "COUNT(l.loan_id) AS total_loans, " +
                 "SUM(l.amount) AS total_borrowed, " +
@@ -231,17 +507,18 @@ public class StatService {
                 "GROUP BY a.account_id, a.customer_name, a.balance " +
                 "ORDER BY total_borrowed DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getLoanRepaymentAnalysis", () -> inMemory 
+                ? engine().getLoanRepaymentAnalysis() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets balance range analysis.
      * Categorizes accounts by balance ranges.
      * 
-     * @return TableModel with balance range statistics
+     * @return Columnar result with balance range statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getBalanceRangeAnalysis() throws SQLException {
+    public ColumnarResult getBalanceRangeAnalysis() throws SQLException {
         String query = "SELECT " +
                 "CASE WHEN balance >= 10000000 THEN '10M+ (High Value)' " +
                 "WHEN balance >= 5000000 THEN '5M-10M (Medium-High)' " +
@@ -256,17 +533,18 @@ public class StatService {
                 "GROUP BY balance_range " +
                 "ORDER BY avg_balance DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getBalanceRangeAnalysis", () -> singlePass ? accountAggregates().getBalanceRanges() 
+                : inMemory ? engine().getBalanceRangeAnalysis() : queryExecutor.executeColumnarQuery(query));
     }
     
     /**
      * Gets revenue analysis from loan interest.
      * Calculates potential monthly and annual revenue.
      * 
-     * @return TableModel with revenue statistics
+     * @return Columnar result with revenue statistics
      * @throws SQLException if query execution fails
      */
-    public DefaultTableModel getRevenueAnalysis() throws SQLException {
+    public ColumnarResult getRevenueAnalysis() throws SQLException {
         String query = "SELECT loan_type, " +
                 "COUNT(loan_id) AS active_loans, " +
                 "SUM(amount) AS total_principal, " +
@@ -278,49 +556,179 @@ public class StatService {
                 "GROUP BY loan_type " +
                 "ORDER BY annual_revenue DESC";
         
-        return queryExecutor.executeQuery(query);
+        return cache.get("getRevenueAnalysis", () -> inMemory 
+                ? engine().getRevenueAnalysis() : queryExecutor.executeColumnarQuery(query));
+    }
+    
+    /**
+     * Gets the median, 95th and 99th percentile of completed transaction
+     * amounts per transaction type, and over all types in a last row.
+     * Percentiles are estimated within about 1% in rank.
+     * 
+     * @return Columnar result with transaction amount percentiles
+     * @throws SQLException if query execution fails
+     */
+    public ColumnarResult getTransactionAmountQuantiles() throws SQLException {
+        return cache.get("getTransactionAmountQuantiles", 
+                () -> distributionAggregates().getTransactionAmountQuantiles());
+    }
+    
+    /**
+     * Gets the median, 95th and 99th percentile of account balances per
+     * account type, and over all types in a last row.
+     * 
+     * @return Columnar result with balance percentiles
+     * @throws SQLException if query execution fails
+     */
+    public ColumnarResult getBalanceQuantiles() throws SQLException {
+        return cache.get("getBalanceQuantiles", () -> distributionAggregates().getBalanceQuantiles());
+    }
+    
+    /**
+     * Gets the distribution of completed transaction amounts as the 1st
+     * to 99th percentile.
+     * 
+     * @return Columnar result with percentile and amount
+     * @throws SQLException if query execution fails
+     */
+    public ColumnarResult getTransactionAmountDistribution() throws SQLException {
+        return cache.get("getTransactionAmountDistribution", 
+                () -> distributionAggregates().getTransactionAmountDistribution());
+    }
+    
+    /**
+     * Gets the estimated number of distinct customers, by name, per
+     * branch, and over all branches in a last row. A customer with
+     * several accounts counts once per branch, and once in the total.
+     * 
+     * @return Columnar result with branch, accounts and distinct customers
+     * @throws SQLException if query execution fails
+     */
+    public ColumnarResult getDistinctCustomersByBranch() throws SQLException {
+        return cache.get("getDistinctCustomersByBranch", 
+                () -> distributionAggregates().getDistinctCustomersByBranch());
     }
     
     /**
      * Gets summary statistics for dashboard.
      * Returns key metrics as a map.
      * 
+     * All six metrics come from one query: the accounts metrics share a
+     * single scan using conditional aggregates, and the loan, card and
+     * transaction counts are scalar subqueries, so a refresh costs one
+     * round trip instead of six. With summary tables, the account and
+     * transaction metrics are sums over their groups.
+     * 
      * @return Map containing summary statistics
      * @throws SQLException if query execution fails
      */
     public Map<String, Object> getSummaryStatistics() throws SQLException {
-        Map<String, Object> stats = new LinkedHashMap<>();
-        
-        // Total accounts
-        Object totalAccounts = queryExecutor.executeScalar(
-                "SELECT COUNT(*) FROM accounts");
-        stats.put("Total Accounts", totalAccounts);
-        
-        // Total balance
-        Object totalBalance = queryExecutor.executeScalar(
-                "SELECT ROUND(SUM(balance), 2) FROM accounts WHERE status = 'Active'");
-        stats.put("Total Balance", totalBalance);
-        
-        // Total transactions
-        Object totalTransactions = queryExecutor.executeScalar(
-                "SELECT COUNT(*) FROM transactions WHERE status = 'Completed'");
-        stats.put("Total Transactions", totalTransactions);
-        
-        // Active accounts
-        Object activeAccounts = queryExecutor.executeScalar(
-                "SELECT COUNT(*) FROM accounts WHERE status = 'Active'");
-        stats.put("Active Accounts", activeAccounts);
-        
-        // Active loans
-        Object activeLoans = queryExecutor.executeScalar(
-                "SELECT COUNT(*) FROM loans WHERE status = 'Active'");
-        stats.put("Active Loans", activeLoans);
+        return cache.get("getSummaryStatistics", this::loadSummaryStatistics);
+    }
+    
+    /**
+     * Runs the combined summary query.
+     */
+    private Map<String, Object> loadSummaryStatistics() throws SQLException {
+        if (inMemory) {
+            return toSummaryMap(engine().getSummaryValues());
+        }
+        if (useSummaries()) {
+            return toSummaryMap(queryRow("SELECT a.total_accounts, a.total_balance, " +
+                    "(SELECT CAST(COALESCE(SUM(transaction_count), 0) AS SIGNED) " +
+                    "FROM transaction_summary) AS total_transactions, " +
+                    "a.active_accounts, " +
+                    "(SELECT COUNT(*) FROM loans WHERE status = 'Active') AS active_loans, " +
+                    "(SELECT COUNT(*) FROM cards WHERE status = 'Active') AS active_cards " +
+                    "FROM (SELECT CAST(COALESCE(SUM(account_count), 0) AS SIGNED) AS total_accounts, " +
+                    "ROUND(SUM(CASE WHEN status = 'Active' AND account_count > 0 THEN total_balance END), 2) " +
+                    "AS total_balance, " +
+                    "CAST(COALESCE(SUM(CASE WHEN status = 'Active' THEN account_count END), 0) AS SIGNED) " +
+                    "AS active_accounts " +
+                    "FROM account_summary) a"));
+        }
+        String query = "SELECT a.total_accounts, a.total_balance, " +
+                "(SELECT COUNT(*) FROM transactions WHERE status = 'Completed') AS total_transactions, " +
+                "a.active_accounts, " +
+                "(SELECT COUNT(*) FROM loans WHERE status = 'Active') AS active_loans, " +
+                "(SELECT COUNT(*) FROM cards WHERE status = 'Active') AS active_cards " +
+                "FROM (SELECT COUNT(*) AS total_accounts, " +
+                "ROUND(SUM(CASE WHEN status = 'Active' THEN balance END), 2) AS total_balance, " +
+                "COUNT(CASE WHEN status = 'Active' THEN 1 END) AS active_accounts " +
+                "FROM accounts) a";
         
-        // Total cards
-        Object totalCards = queryExecutor.executeScalar(
-                "SELECT COUNT(*) FROM cards WHERE status = 'Active'");
-        stats.put("Active Cards", totalCards);
+        return toSummaryMap(queryRow(query));
+    }
+    
+    /**
+     * Runs a summary query and returns its single row.
+     */
+    private Object[] queryRow(String query) throws SQLException {
+        DefaultTableModel row = queryExecutor.executeParameterizedQuery(query);
         
-        return stats;
+        Object[] values = new Object[SUMMARY_LABELS.length];
+        for (int i = 0; i < values.length && row.getRowCount() > 0; i++) {
+            values[i] = row.getValueAt(0, i);
+        }
+        return values;
+    }
+    
+    /**
+     * Labels summary metrics given in query column order.
+     */
+    private static Map<String, Object> toSummaryMap(Object[] values) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (int i = 0; i < SUMMARY_LABELS.length; i++) {
+            stats.put(SUMMARY_LABELS[i], values[i]);
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+    
+    /**
+     * Drops all cached analysis results so the next calls query the
+     * database again. Should be called after data is imported. An
+     * in-memory engine loaded by this service is dropped too, so it is
+     * reloaded with the new data on next use, the summary tables are
+     * checked again, and the distribution sketches are dropped.
+     */
+    public void invalidateCache() {
+        if (reloadable) {
+            engine = null;
+        }
+        summariesReady = false;
+        dataVersion.incrementAndGet();
+        distributions = null;
+        cache.invalidateAll();
+    }
+    
+    /**
+     * Recomputes the summary tables from the base tables in one
+     * transaction, then drops all cached results. Needed after the base
+     * tables were changed other than by an import.
+     * 
+     * @throws SQLException if the summary tables cannot be rebuilt
+     */
+    public void rebuildSummaryTables() throws SQLException {
+        try (Connection conn = DBConnection.getInstance().getConnection()) {
+            SummaryTables.ensure(conn);
+            conn.setAutoCommit(false);
+            try {
+                SummaryTables.rebuild(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        invalidateCache();
+    }
+    
+    /**
+     * Gets result cache metrics such as hit rate and evictions.
+     * 
+     * @return Cache statistics text
+     */
+    public String getCacheStatistics() {
+        return cache.getStatistics();
     }
 }
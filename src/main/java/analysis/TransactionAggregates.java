@@ -0,0 +1,165 @@
+package analysis;
+
+import db.ColumnarResult;
+import db.ColumnarResult.ColumnType;
+import util.IntLongHashMap;
+
+import java.util.Arrays;
+
+import static analysis.Aggregation.avg;
+import static analysis.Aggregation.descending;
+import static analysis.Aggregation.fit;
+import static analysis.Aggregation.groups;
+import static analysis.Aggregation.money;
+
+/**
+ * Aggregates of one pass over the completed transactions, from which the
+ * transactions by type and transaction trends analyses are both produced.
+ *
+ * Like {@link AccountAggregates}, rows can be added one at a time or as
+ * partial aggregates of (type, month) groups from one grouped query.
+ * Callers add completed transactions only.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class TransactionAggregates {
+
+    private final Dictionary types;
+    private long[] typeCount;
+    private long[] typeSum;
+    private long[] typeMin;
+    private long[] typeMax;
+
+    // Months are numbered year * 12 + month - 1 and mapped to slots in order of appearance
+    private final IntLongHashMap monthSlots = new IntLongHashMap();
+    private int[] months = new int[32];
+    private long[] monthCount = new long[32];
+    private long[] monthInflow = new long[32];
+    private long[] monthOutflow = new long[32];
+
+    /**
+     * Creates aggregates for rows added by value.
+     */
+    TransactionAggregates() {
+        this(new Dictionary("transaction_type", 128));
+    }
+
+    /**
+     * Creates aggregates for rows added by code.
+     *
+     * @param types Codes of transaction_type
+     */
+    TransactionAggregates(Dictionary types) {
+        this.types = types;
+        typeCount = new long[Math.max(8, types.size())];
+        typeSum = new long[typeCount.length];
+        typeMin = fit(new long[0], typeCount.length - 1, Long.MAX_VALUE);
+        typeMax = fit(new long[0], typeCount.length - 1, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return Month number of a year and month
+     */
+    static int month(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Adds one completed transaction.
+     *
+     * @param month Month number, see {@link #month(int, int)}
+     */
+    void add(int type, int month, long amount) {
+        add(type, month, 1, amount, amount, amount, Math.max(amount, 0), Math.max(-amount, 0));
+    }
+
+    /**
+     * Adds the aggregates of a group of completed transactions.
+     *
+     * @param month Month as yyyy-MM
+     * @param count Transactions in the group
+     * @param sum Sum of their amounts in cents
+     * @param min Lowest amount in cents
+     * @param max Highest amount in cents
+     * @param inflow Sum of the positive amounts in cents
+     * @param outflow Sum of the absolute negative amounts in cents
+     */
+    void add(String type, String month, long count, long sum, long min, long max, long inflow, long outflow) {
+        add(types.code(type), month(Integer.parseInt(month.substring(0, 4)), Integer.parseInt(month.substring(5, 7))),
+                count, sum, min, max, inflow, outflow);
+    }
+
+    private void add(int type, int month, long count, long sum, long min, long max, long inflow, long outflow) {
+        if (type >= typeCount.length) {
+            typeCount = fit(typeCount, type, 0);
+            typeSum = fit(typeSum, type, 0);
+            typeMin = fit(typeMin, type, Long.MAX_VALUE);
+            typeMax = fit(typeMax, type, Long.MIN_VALUE);
+        }
+        typeCount[type] += count;
+        typeSum[type] += sum;
+        typeMin[type] = Math.min(typeMin[type], min);
+        typeMax[type] = Math.max(typeMax[type], max);
+
+        int slot = (int) monthSlots.get(month, -1);
+        if (slot < 0) {
+            slot = monthSlots.size();
+            monthSlots.put(month, slot);
+            if (slot == months.length) {
+                months = Arrays.copyOf(months, slot * 2);
+                monthCount = Arrays.copyOf(monthCount, slot * 2);
+                monthInflow = Arrays.copyOf(monthInflow, slot * 2);
+                monthOutflow = Arrays.copyOf(monthOutflow, slot * 2);
+            }
+            months[slot] = month;
+        }
+        monthCount[slot] += count;
+        monthInflow[slot] += inflow;
+        monthOutflow[slot] += outflow;
+    }
+
+    /**
+     * @see StatService#getTransactionsByType()
+     */
+    ColumnarResult getTransactionsByType() {
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("transaction_type", ColumnType.STRING)
+                .column("total_transactions", ColumnType.LONG)
+                .column("total_amount", ColumnType.DOUBLE)
+                .column("avg_amount", ColumnType.DOUBLE)
+                .column("min_amount", ColumnType.DOUBLE)
+                .column("max_amount", ColumnType.DOUBLE);
+        for (int g : groups(typeCount, descending(typeSum))) {
+            result.appendString(0, types.value(g)).appendLong(1, typeCount[g])
+                    .appendDouble(2, money(typeSum[g])).appendDouble(3, avg(typeSum[g], typeCount[g]))
+                    .appendDouble(4, money(typeMin[g])).appendDouble(5, money(typeMax[g]));
+        }
+        return result.build();
+    }
+
+    /**
+     * @see StatService#getTransactionTrends()
+     */
+    ColumnarResult getTransactionTrends() {
+        long[] keys = new long[monthSlots.size()];
+        for (int slot = 0; slot < keys.length; slot++) {
+            keys[slot] = months[slot];
+        }
+
+        ColumnarResult.Builder result = ColumnarResult.builder()
+                .column("month", ColumnType.STRING)
+                .column("total_transactions", ColumnType.LONG)
+                .column("total_inflow", ColumnType.DOUBLE)
+                .column("total_outflow", ColumnType.DOUBLE)
+                .column("net_amount", ColumnType.DOUBLE);
+        for (int slot : groups(Arrays.copyOf(monthCount, keys.length), descending(keys))) {
+            int month = months[slot];
+            result.appendString(0, String.format("%04d-%02d", month / 12, month % 12 + 1))
+                    .appendLong(1, monthCount[slot]).appendDouble(2, money(monthInflow[slot]))
+                    .appendDouble(3, money(monthOutflow[slot]))
+                    .appendDouble(4, money(monthInflow[slot] - monthOutflow[slot]));
+        }
+        return result.build();
+    }
+}
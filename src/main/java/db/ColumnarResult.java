@@ -0,0 +1,530 @@
+package db;
+
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented, primitive-typed query result.
+ *
+ * Numeric columns are stored as long[] or double[] arrays and string
+ * columns are dictionary encoded as int codes into a table of distinct
+ * values, so low-cardinality columns like branch, status or account_type
+ * hold each distinct string once. Charts read the arrays directly and
+ * JTable reads through the thin adapter returned by {@link #toTableModel()}.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class ColumnarResult {
+
+    /**
+     * Storage type of a column.
+     */
+    public enum ColumnType {
+        LONG, DOUBLE, STRING, OBJECT
+    }
+
+    private static final ColumnarResult EMPTY = builder().build();
+
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Object[] data;
+    private final String[][] dictionaries;
+    private final BitSet[] nulls;
+    private final int rowCount;
+
+    private ColumnarResult(String[] names, ColumnType[] types, Object[] data,
+                           String[][] dictionaries, BitSet[] nulls, int rowCount) {
+        this.names = names;
+        this.types = types;
+        this.data = data;
+        this.dictionaries = dictionaries;
+        this.nulls = nulls;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Creates a builder for assembling a result column by column.
+     *
+     * @return New empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets a result with no columns and no rows.
+     *
+     * @return Shared empty result
+     */
+    public static ColumnarResult empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Reads a result set into columnar form. Column storage is chosen
+     * from the JDBC column types.
+     *
+     * @param rs Result set positioned before the first row
+     * @return Columnar copy of the result
+     * @throws SQLException if reading the result fails
+     */
+    public static ColumnarResult from(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        Builder builder = builder();
+        for (int i = 0; i < columnCount; i++) {
+            builder.column(metaData.getColumnLabel(i + 1), typeOf(metaData.getColumnType(i + 1)));
+        }
+
+        ColumnType[] types = builder.types.toArray(new ColumnType[0]);
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                switch (types[i]) {
+                    case LONG: {
+                        long value = rs.getLong(i + 1);
+                        if (rs.wasNull()) {
+                            builder.appendNull(i);
+                        } else {
+                            builder.appendLong(i, value);
+                        }
+                        break;
+                    }
+                    case DOUBLE: {
+                        double value = rs.getDouble(i + 1);
+                        if (rs.wasNull()) {
+                            builder.appendNull(i);
+                        } else {
+                            builder.appendDouble(i, value);
+                        }
+                        break;
+                    }
+                    case STRING:
+                        builder.appendString(i, rs.getString(i + 1));
+                        break;
+                    default:
+                        builder.appendObject(i, rs.getObject(i + 1));
+                        break;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static ColumnType typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return ColumnType.LONG;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return ColumnType.DOUBLE;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return ColumnType.STRING;
+            default:
+                return ColumnType.OBJECT;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(int column) {
+        return names[column];
+    }
+
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Finds a column by its label, ignoring case.
+     *
+     * @param name Column label
+     * @return Column index, or -1 if there is no such column
+     */
+    public int findColumn(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a cell is SQL NULL.
+     */
+    public boolean isNull(int row, int column) {
+        return nulls[column].get(row);
+    }
+
+    /**
+     * Gets the backing array of a LONG column. NULL cells hold 0.
+     *
+     * @param column Column index
+     * @return Backing array (do not modify)
+     */
+    public long[] getLongs(int column) {
+        requireType(column, ColumnType.LONG);
+        return (long[]) data[column];
+    }
+
+    /**
+     * Gets a numeric column as doubles. DOUBLE columns return their
+     * backing array; LONG columns are widened into a new array. NULL
+     * cells hold 0.
+     *
+     * @param column Column index
+     * @return Column values (do not modify)
+     */
+    public double[] getDoubles(int column) {
+        if (types[column] == ColumnType.DOUBLE) {
+            return (double[]) data[column];
+        }
+        long[] longs = getLongs(column);
+        double[] doubles = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            doubles[i] = longs[i];
+        }
+        return doubles;
+    }
+
+    /**
+     * Gets the dictionary codes of a STRING column. A NULL cell has code -1.
+     *
+     * @param column Column index
+     * @return Backing code array (do not modify)
+     */
+    public int[] getCodes(int column) {
+        requireType(column, ColumnType.STRING);
+        return (int[]) data[column];
+    }
+
+    /**
+     * Gets the distinct values of a STRING column indexed by code.
+     *
+     * @param column Column index
+     * @return Dictionary (do not modify)
+     */
+    public String[] getDictionary(int column) {
+        requireType(column, ColumnType.STRING);
+        return dictionaries[column];
+    }
+
+    /**
+     * Decodes a STRING column into one value per row. The strings are
+     * shared with the dictionary, not copied.
+     *
+     * @param column Column index
+     * @return Decoded values
+     */
+    public String[] getStrings(int column) {
+        int[] codes = getCodes(column);
+        String[] dictionary = dictionaries[column];
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = codes[i] < 0 ? null : dictionary[codes[i]];
+        }
+        return values;
+    }
+
+    public long getLong(int row, int column) {
+        return getLongs(column)[row];
+    }
+
+    public double getDouble(int row, int column) {
+        if (types[column] == ColumnType.DOUBLE) {
+            return ((double[]) data[column])[row];
+        }
+        return getLongs(column)[row];
+    }
+
+    public String getString(int row, int column) {
+        if (types[column] != ColumnType.STRING) {
+            Object value = getValue(row, column);
+            return value != null ? value.toString() : null;
+        }
+        int code = ((int[]) data[column])[row];
+        return code < 0 ? null : dictionaries[column][code];
+    }
+
+    /**
+     * Gets a cell as an object, boxing numeric values.
+     *
+     * @return Cell value, or null for SQL NULL
+     */
+    public Object getValue(int row, int column) {
+        if (nulls[column].get(row)) {
+            return null;
+        }
+        switch (types[column]) {
+            case LONG:
+                return ((long[]) data[column])[row];
+            case DOUBLE:
+                return ((double[]) data[column])[row];
+            case STRING:
+                return dictionaries[column][((int[]) data[column])[row]];
+            default:
+                return ((Object[]) data[column])[row];
+        }
+    }
+
+    /**
+     * Wraps this result in a read-only TableModel for JTable.
+     * Cells are boxed only when the table asks for them.
+     *
+     * @return TableModel view of this result
+     */
+    public TableModel toTableModel() {
+        return new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return rowCount;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return names.length;
+            }
+
+            @Override
+            public String getColumnName(int column) {
+                return names[column];
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                switch (types[column]) {
+                    case LONG:
+                        return Long.class;
+                    case DOUBLE:
+                        return Double.class;
+                    case STRING:
+                        return String.class;
+                    default:
+                        return Object.class;
+                }
+            }
+
+            @Override
+            public Object getValueAt(int row, int column) {
+                return getValue(row, column);
+            }
+        };
+    }
+
+    private void requireType(int column, ColumnType expected) {
+        if (types[column] != expected) {
+            throw new IllegalArgumentException("Column " + names[column] + " is "
+                    + types[column] + ", not " + expected);
+        }
+    }
+
+    /**
+     * Assembles a ColumnarResult column by column. Every column must
+     * receive the same number of values before {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final List<ColumnType> types = new ArrayList<>();
+        private final List<Object> data = new ArrayList<>();
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        private final List<BitSet> nulls = new ArrayList<>();
+        private final List<int[]> sizes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a column.
+         *
+         * @param name Column label
+         * @param type Storage type
+         * @return This builder
+         */
+        public Builder column(String name, ColumnType type) {
+            names.add(name);
+            types.add(type);
+            switch (type) {
+                case LONG:
+                    data.add(new long[16]);
+                    break;
+                case DOUBLE:
+                    data.add(new double[16]);
+                    break;
+                case STRING:
+                    data.add(new int[16]);
+                    break;
+                default:
+                    data.add(new Object[16]);
+                    break;
+            }
+            dictionaries.add(type == ColumnType.STRING ? new HashMap<>() : null);
+            nulls.add(new BitSet());
+            sizes.add(new int[1]);
+            return this;
+        }
+
+        public Builder appendLong(int column, long value) {
+            long[] values = (long[]) data.get(column);
+            int size = sizes.get(column)[0];
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                data.set(column, values);
+            }
+            values[size] = value;
+            sizes.get(column)[0]++;
+            return this;
+        }
+
+        public Builder appendDouble(int column, double value) {
+            double[] values = (double[]) data.get(column);
+            int size = sizes.get(column)[0];
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                data.set(column, values);
+            }
+            values[size] = value;
+            sizes.get(column)[0]++;
+            return this;
+        }
+
+        /**
+         * Appends a string, reusing its dictionary code if it was seen before.
+         */
+        public Builder appendString(int column, String value) {
+            if (value == null) {
+                return appendNull(column);
+            }
+            Map<String, Integer> dictionary = dictionaries.get(column);
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            appendCode(column, code);
+            return this;
+        }
+
+        public Builder appendObject(int column, Object value) {
+            Object[] values = (Object[]) data.get(column);
+            int size = sizes.get(column)[0];
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                data.set(column, values);
+            }
+            values[size] = value;
+            if (value == null) {
+                nulls.get(column).set(size);
+            }
+            sizes.get(column)[0]++;
+            return this;
+        }
+
+        /**
+         * Appends SQL NULL. Numeric columns store 0 and string columns code -1.
+         */
+        public Builder appendNull(int column) {
+            int size = sizes.get(column)[0];
+            switch (types.get(column)) {
+                case LONG:
+                    appendLong(column, 0L);
+                    break;
+                case DOUBLE:
+                    appendDouble(column, 0.0);
+                    break;
+                case STRING:
+                    appendCode(column, -1);
+                    break;
+                default:
+                    appendObject(column, null);
+                    break;
+            }
+            nulls.get(column).set(size);
+            return this;
+        }
+
+        private void appendCode(int column, int code) {
+            int[] values = (int[]) data.get(column);
+            int size = sizes.get(column)[0];
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                data.set(column, values);
+            }
+            values[size] = code;
+            sizes.get(column)[0]++;
+        }
+
+        /**
+         * Builds the result, trimming column arrays to the row count.
+         *
+         * @return Immutable columnar result
+         * @throws IllegalStateException if columns have different lengths
+         */
+        public ColumnarResult build() {
+            int columnCount = names.size();
+            int rowCount = columnCount == 0 ? 0 : sizes.get(0)[0];
+            Object[] trimmed = new Object[columnCount];
+            String[][] dictionaryArrays = new String[columnCount][];
+
+            for (int i = 0; i < columnCount; i++) {
+                if (sizes.get(i)[0] != rowCount) {
+                    throw new IllegalStateException("Column " + names.get(i) + " has "
+                            + sizes.get(i)[0] + " values, expected " + rowCount);
+                }
+                Object values = data.get(i);
+                switch (types.get(i)) {
+                    case LONG:
+                        trimmed[i] = Arrays.copyOf((long[]) values, rowCount);
+                        break;
+                    case DOUBLE:
+                        trimmed[i] = Arrays.copyOf((double[]) values, rowCount);
+                        break;
+                    case STRING:
+                        trimmed[i] = Arrays.copyOf((int[]) values, rowCount);
+                        String[] dictionary = new String[dictionaries.get(i).size()];
+                        for (Map.Entry<String, Integer> entry : dictionaries.get(i).entrySet()) {
+                            dictionary[entry.getValue()] = entry.getKey();
+                        }
+                        dictionaryArrays[i] = dictionary;
+                        break;
+                    default:
+                        trimmed[i] = Arrays.copyOf((Object[]) values, rowCount);
+                        break;
+                }
+            }
+
+            return new ColumnarResult(names.toArray(new String[0]),
+                    types.toArray(new ColumnType[0]), trimmed, dictionaryArrays,
+                    nulls.toArray(new BitSet[0]), rowCount);
+        }
+    }
+}
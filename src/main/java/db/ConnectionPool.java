@@ -0,0 +1,596 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool for Bank Data Analysis System.
+ * Hands out each physical connection to one caller at a time.
+ *
+ * Connections are leased with {@link #borrow()} and returned to the pool
+ * when the caller closes the leased Connection. A connection is only
+ * validated when it has been idle longer than the validation interval,
+ * and idle connections above the minimum size are evicted in the background.
+ * Each physical connection keeps a {@link StatementCache}, so repeated
+ * prepareStatement(sql) calls reuse the already prepared statement, and
+ * statements the caller leaves open are closed when the connection is
+ * returned. Statements created by a thread with a bound {@link QueryCancellation}
+ * can be cancelled from another thread.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final long validationIdleNanos;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> all = new HashSet<>();
+    private int pending;
+    private boolean closed;
+
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+
+    /**
+     * Creates a new pool. No connections are opened until the first borrow.
+     *
+     * @param url JDBC URL
+     * @param user Database username
+     * @param password Database password
+     * @param minSize Number of idle connections kept open by eviction
+     * @param maxSize Maximum number of open connections
+     * @param borrowTimeoutMillis Maximum time to wait for a free connection
+     * @param idleTimeoutMillis Idle time after which extra connections are closed
+     * @param validationIdleMillis Idle time after which a connection is validated before reuse
+     * @param statementCacheSize Prepared statements cached per connection (0 disables caching)
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long validationIdleMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minSize = Math.max(0, Math.min(minSize, maxSize));
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validationIdleNanos = TimeUnit.MILLISECONDS.toNanos(validationIdleMillis);
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connection from the pool, opening a new one if the pool is
+     * below its maximum size, or waiting for one to be returned otherwise.
+     * The caller must close the returned Connection to give it back.
+     *
+     * @return Leased Connection
+     * @throws SQLTimeoutException if no connection became free in time
+     * @throws SQLException if the pool is closed or a connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        boolean waited = false;
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (all.size() + pending < maxSize) {
+                        pending++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection (pool size " + maxSize + ")");
+                    }
+                    waited = true;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                candidate = open();
+            } else if (!validate(candidate)) {
+                continue;
+            }
+
+            long waitNanos = System.nanoTime() - start;
+            borrowCount.incrementAndGet();
+            if (waited) {
+                waitCount.incrementAndGet();
+            }
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+            return candidate.lease();
+        }
+    }
+
+    /**
+     * Opens a new physical connection for a slot reserved by borrow().
+     */
+    private PooledConnection open() throws SQLException {
+        Connection physical;
+        try {
+            physical = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            lock.lock();
+            try {
+                pending--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        PooledConnection pooled = new PooledConnection(physical);
+        lock.lock();
+        try {
+            pending--;
+            if (closed) {
+                closeQuietly(physical);
+                throw new SQLException("Connection pool is closed");
+            }
+            all.add(pooled);
+        } finally {
+            lock.unlock();
+        }
+        createdCount.incrementAndGet();
+        return pooled;
+    }
+
+    /**
+     * Checks a connection taken from the idle list. Only connections that
+     * have been idle longer than the validation interval are pinged.
+     */
+    private boolean validate(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastReturnedNanos < validationIdleNanos) {
+            return true;
+        }
+        boolean valid;
+        try {
+            valid = pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            valid = false;
+        }
+        if (!valid) {
+            destroy(pooled);
+        }
+        return valid;
+    }
+
+    /**
+     * Returns a leased connection to the idle list, or discards it if it
+     * is broken or the pool has been closed. Uncommitted work is rolled back.
+     */
+    private void release(PooledConnection pooled) {
+        boolean healthy;
+        try {
+            pooled.openStatements.closeAll();
+            if (pooled.statementCache != null) {
+                pooled.statementCache.checkinAll();
+            }
+            healthy = !pooled.physical.isClosed();
+            if (healthy && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                pooled.lastReturnedNanos = System.nanoTime();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pooled);
+    }
+
+    /**
+     * Removes a connection from the pool and closes it.
+     */
+    private void destroy(PooledConnection pooled) {
+        lock.lock();
+        try {
+            if (!all.remove(pooled)) {
+                return;
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(pooled.physical);
+        destroyedCount.incrementAndGet();
+    }
+
+    /**
+     * Closes idle connections that exceeded the idle timeout,
+     * keeping at least the minimum number of connections open.
+     */
+    private void evictIdle() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            // Oldest idle connections sit at the tail of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && all.size() - evicted.size() > minSize) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastReturnedNanos < idleTimeoutNanos) {
+                    break;
+                }
+                it.remove();
+                evicted.add(pooled);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pooled : evicted) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Closes the pool and every physical connection, including leased ones.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictor.shutdownNow();
+
+        for (PooledConnection pooled : toClose) {
+            closeQuietly(pooled.physical);
+            destroyedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the pool size and borrow metrics.
+     *
+     * @return Current pool statistics
+     */
+    public Statistics getStatistics() {
+        int total;
+        int idleNow;
+        lock.lock();
+        try {
+            total = all.size();
+            idleNow = idle.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Statistics(total, idleNow, maxSize, borrowCount.get(), waitCount.get(),
+                totalWaitNanos.get(), maxWaitNanos.get(), timeoutCount.get(),
+                createdCount.get(), destroyedCount.get(), statementHits.get(),
+                statementMisses.get(), statementEvictions.get());
+    }
+
+    /**
+     * Gets the maximum number of connections this pool will open.
+     *
+     * @return Maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private final OpenStatements openStatements = new OpenStatements();
+        private volatile long lastReturnedNanos = System.nanoTime();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize,
+                            statementHits, statementMisses, statementEvictions)
+                    : null;
+        }
+
+        /**
+         * Wraps the physical connection in a proxy whose close() returns it
+         * to the pool. Each lease gets its own proxy so a stale reference
+         * cannot touch the connection after it has been handed to someone else.
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new Lease(this));
+        }
+    }
+
+    /**
+     * Invocation handler for a single lease of a pooled connection.
+     */
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned ? ", returned]" : "]");
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            if (pooled.statementCache != null && "prepareStatement".equals(method.getName())
+                    && args.length == 1) {
+                result = pooled.statementCache.prepare((Connection) proxy, (String) args[0]);
+            } else {
+                try {
+                    result = method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Statement) {
+                    result = pooled.openStatements.track((Connection) proxy, (Statement) result,
+                            method.getReturnType());
+                }
+            }
+
+            QueryCancellation cancellation = QueryCancellation.current();
+            if (cancellation != null && result instanceof Statement) {
+                return cancellation.track((Statement) result, method.getReturnType());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool size and borrow-wait metrics.
+     */
+    public static final class Statistics {
+
+        private final int totalConnections;
+        private final int idleConnections;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long waitCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        Statistics(int totalConnections, int idleConnections, int maxSize,
+                   long borrowCount, long waitCount, long totalWaitNanos, long maxWaitNanos,
+                   long timeoutCount, long createdCount, long destroyedCount,
+                   long statementHits, long statementMisses, long statementEvictions) {
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.waitCount = waitCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getActiveConnections() {
+            return totalConnections - idleConnections;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        /**
+         * @return Number of borrows that had to wait for a connection to be returned
+         */
+        public long getWaitCount() {
+            return waitCount;
+        }
+
+        public double getAverageWaitMillis() {
+            return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getDestroyedCount() {
+            return destroyedCount;
+        }
+
+        public long getStatementCacheHits() {
+            return statementHits;
+        }
+
+        public long getStatementCacheMisses() {
+            return statementMisses;
+        }
+
+        public long getStatementCacheEvictions() {
+            return statementEvictions;
+        }
+
+        public double getStatementCacheHitRate() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0.0 : (double) statementHits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[active=%d, idle=%d, max=%d, borrows=%d, waits=%d, "
+                    + "avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, created=%d, destroyed=%d, "
+                    + "stmtHits=%d, stmtMisses=%d, stmtEvictions=%d]",
+                    getActiveConnections(), idleConnections, maxSize, borrowCount, waitCount,
+                    getAverageWaitMillis(), getMaxWaitMillis(), timeoutCount,
+                    createdCount, destroyedCount, statementHits, statementMisses, statementEvictions);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package db;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -13,6 +12,8 @@ import java.util.Properties;
  * 
  * This class implements the Singleton pattern to ensure only one
  * connection manager instance exists throughout the application.
+ * Connections are leased from a bounded {@link ConnectionPool}; callers
+ * must close the Connection they receive to return it to the pool.
  * 
  * @author Bank Data Analysis Team
  * @version 1.0
@@ -23,7 +24,13 @@ public class DBConnection {
     private String url;
     private String user;
     private String password;
-    private Connection connection;
+    private int poolMinSize = 2;
+    private int poolMaxSize = 10;
+    private int poolBorrowTimeoutMs = 30000;
+    private int poolIdleTimeoutMs = 300000;
+    private int poolValidationIdleMs = 30000;
+    private int statementCacheSize = 64;
+    private ConnectionPool pool;
     
     /**
      * Private constructor to prevent direct instantiation.
@@ -48,7 +55,7 @@ public class DBConnection {
     
     /**
      * Loads database configuration from the properties file.
-     * Configuration includes URL, username, and password.
+     * Configuration includes URL, username, password and pool settings.
      */
     private void loadConfiguration() {
         Properties props = new Properties();
@@ -58,7 +65,8 @@ public class DBConnection {
             if (input == null) {
                 System.err.println("Unable to find config.properties");
                 // Set default values
-                this.url = "jdbc:mysql://localhost:3306/bank_data_analysis?useSSL=false&serverTimezone=UTC";
+                this.url = "jdbc:mysql://localhost:3306/bank_data_analysis?useSSL=false&serverTimezone=UTC"
+                        + "&rewriteBatchedStatements=true&useServerPrepStmts=true";
                 this.user = "root";
                 this.password = "";
                 return;
@@ -68,6 +76,12 @@ public class DBConnection {
             this.url = props.getProperty("db.url");
             this.user = props.getProperty("db.user");
             this.password = props.getProperty("db.password");
+            this.poolMinSize = getIntProperty(props, "db.pool.minSize", poolMinSize);
+            this.poolMaxSize = getIntProperty(props, "db.pool.maxSize", poolMaxSize);
+            this.poolBorrowTimeoutMs = getIntProperty(props, "db.pool.borrowTimeoutMs", poolBorrowTimeoutMs);
+            this.poolIdleTimeoutMs = getIntProperty(props, "db.pool.idleTimeoutMs", poolIdleTimeoutMs);
+            this.poolValidationIdleMs = getIntProperty(props, "db.pool.validationIdleMs", poolValidationIdleMs);
+            this.statementCacheSize = getIntProperty(props, "db.pool.statementCacheSize", statementCacheSize);
             
             System.out.println("Database configuration loaded successfully");
             
@@ -78,45 +92,70 @@ public class DBConnection {
     }
     
     /**
-     * Establishes and returns a database connection.
-     * Reuses existing connection if available and valid.
+     * Reads an integer property, falling back to a default when it is
+     * missing or malformed.
+     */
+    private static int getIntProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Gets the connection pool, creating it on first use.
+     * The pool is recreated if it was closed by closeConnection().
+     * 
+     * @return Active connection pool
+     * @throws SQLException if the JDBC driver cannot be loaded
+     */
+    private synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            try {
+                // Load MySQL JDBC driver
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("MySQL JDBC Driver not found");
+                e.printStackTrace();
+                throw new SQLException("Driver not found", e);
+            }
+            pool = new ConnectionPool(url, user, password, poolMinSize, poolMaxSize,
+                    poolBorrowTimeoutMs, poolIdleTimeoutMs, poolValidationIdleMs, statementCacheSize);
+        }
+        return pool;
+    }
+    
+    /**
+     * Leases a database connection from the pool.
+     * The caller owns the connection until it calls close(), which
+     * returns it to the pool instead of closing the physical connection.
      * 
      * @return Active database Connection object
      * @throws SQLException if connection cannot be established
      */
     public Connection getConnection() throws SQLException {
-        try {
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // Check if connection exists and is valid
-            if (connection == null || connection.isClosed() || !connection.isValid(5)) {
-                connection = DriverManager.getConnection(url, user, password);
-                System.out.println("Database connection established successfully");
-            }
-            
-            return connection;
-            
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found");
-            e.printStackTrace();
-            throw new SQLException("Driver not found", e);
-        }
+        return getPool().borrow();
     }
     
     /**
-     * Closes the database connection if it's open.
+     * Closes the connection pool and all of its connections.
      * Should be called when the application is shutting down.
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed successfully");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
-            e.printStackTrace();
+        ConnectionPool toClose;
+        synchronized (this) {
+            toClose = pool;
+            pool = null;
+        }
+        if (toClose != null) {
+            toClose.close();
+            System.out.println("Database connection pool closed successfully");
         }
     }
     
@@ -126,9 +165,8 @@ public class DBConnection {
      * @return true if connection is successful, false otherwise
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed() && conn.isValid(5);
+        try (Connection conn = getConnection()) {
+            return !conn.isClosed() && conn.isValid(5);
         } catch (SQLException e) {
             System.err.println("Connection test failed: " + e.getMessage());
             return false;
@@ -152,4 +190,22 @@ public class DBConnection {
     public String getUser() {
         return user;
     }
+    
+    /**
+     * Gets the maximum number of pooled connections.
+     * 
+     * @return Configured maximum pool size
+     */
+    public int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+    
+    /**
+     * Gets a snapshot of connection pool metrics.
+     * 
+     * @return Pool statistics, or null if the pool has not been started
+     */
+    public synchronized ConnectionPool.Statistics getPoolStatistics() {
+        return pool != null ? pool.getStatistics() : null;
+    }
 }
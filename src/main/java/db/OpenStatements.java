@@ -0,0 +1,76 @@
+package db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statements created on a pooled connection that are not kept in the
+ * {@link StatementCache}.
+ *
+ * Each statement is handed out through a proxy whose getConnection()
+ * returns the leased connection instead of the physical one, and is
+ * tracked until closed so a statement the caller forgets is closed when
+ * the connection goes back to the pool.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class OpenStatements {
+
+    private final Set<Statement> open = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Wraps a new statement and tracks it until it is closed.
+     *
+     * @param lease Leased connection reported by Statement.getConnection()
+     * @param statement Statement just created on the physical connection
+     * @param type Statement interface the caller expects
+     * @return Tracked statement of the given type
+     */
+    Statement track(Connection lease, Statement statement, Class<?> type) {
+        open.add(statement);
+        return (Statement) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            open.remove(statement);
+                            break;
+                        case "getConnection":
+                            return lease;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Closes every statement still open. Called when the connection goes
+     * back to the pool.
+     */
+    void closeAll() {
+        for (Statement statement : open) {
+            open.remove(statement);
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a task's database work be stopped from another thread.
+ *
+ * Interrupting a thread blocked in a JDBC call does not stop the query:
+ * MySQL Connector/J keeps waiting for the server. While a cancellation is
+ * bound to a thread, every statement that thread creates on a pooled
+ * connection is tracked until it is closed, and {@link #cancel()} calls
+ * Statement.cancel() on each, which makes the server abort the query.
+ * With a timeout, each statement also gets a query timeout of the time
+ * left, so the server gives up on its own at the deadline.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class QueryCancellation {
+
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * @param timeoutMillis Time from now after which statements time out (0 disables)
+     */
+    public QueryCancellation(long timeoutMillis) {
+        this.deadlineNanos = timeoutMillis > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                : 0;
+    }
+
+    /**
+     * Tracks the statements the current thread creates from now on.
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Stops tracking the current thread's statements.
+     */
+    public void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Cancels every tracked statement that is still open and makes
+     * statements created afterwards fail. May block while the driver
+     * asks the server to abort the queries.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : running) {
+            cancelQuietly(statement);
+        }
+    }
+
+    /**
+     * @return true once {@link #cancel()} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return Cancellation bound to the current thread, or null
+     */
+    static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Applies the remaining time as query timeout and wraps a new statement
+     * so it is tracked until closed.
+     *
+     * @param statement Statement just created on a pooled connection
+     * @param type Statement interface the caller expects
+     * @return Tracked statement of the given type
+     * @throws SQLException if cancelled or past the deadline; the statement is closed
+     */
+    Statement track(Statement statement, Class<?> type) throws SQLException {
+        try {
+            if (cancelled) {
+                throw new SQLException("Query was cancelled", "70100");
+            }
+            if (deadlineNanos != 0) {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new SQLTimeoutException("Query timed out before it started");
+                }
+                // Round up so the server never gives up before the caller does
+                statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE,
+                        (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+            }
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+
+        Statement tracked = (Statement) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            running.remove(proxy);
+                            break;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        running.add(tracked);
+        if (cancelled) {
+            // cancel() ran between the check above and the add
+            cancelQuietly(tracked);
+        }
+        return tracked;
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // The statement finished or was closed meanwhile
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package db;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Vector;
 import javax.swing.table.DefaultTableModel;
 
 /**
@@ -11,12 +10,23 @@ import javax.swing.table.DefaultTableModel;
  * 
  * This class provides methods to execute queries and format results
  * for display in GUI components like JTable, or for data processing.
+ * Each call leases its own pooled connection, so several queries can
+ * run in parallel from different threads. Parameterized calls go through
+ * the pooled connection's statement cache, so repeating the same SQL
+ * reuses the already prepared statement. Large results can be streamed
+ * row by row with {@link #streamQuery(String, int, RowCallback, Object...)}
+ * instead of being materialized in memory.
  * 
  * @author Bank Data Analysis Team
  * @version 1.0
  */
 public class QueryExecutor {
     
+    /**
+     * Fetch size that makes MySQL Connector/J stream rows one at a time.
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    
     private DBConnection dbConnection;
     
     /**
@@ -42,41 +52,13 @@ public class QueryExecutor {
             stmt = conn.createStatement();
             rs = stmt.executeQuery(query);
             
-            // Get column metadata
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            // Create column names array
-            String[] columnNames = new String[columnCount];
-            for (int i = 0; i < columnCount; i++) {
-                columnNames[i] = metaData.getColumnLabel(i + 1);
-            }
-            
-            // Create data list
-            List<Object[]> dataList = new ArrayList<>();
-            while (rs.next()) {
-                Object[] row = new Object[columnCount];
-                for (int i = 0; i < columnCount; i++) {
-                    row[i] = rs.getObject(i + 1);
-                }
-                dataList.add(row);
-            }
-            
-            // Convert list to array
-            Object[][] data = dataList.toArray(new Object[0][]);
-            
-            // Create and return table model
-            return new DefaultTableModel(data, columnNames) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false; // Make table read-only
-                }
-            };
+            return toTableModel(rs);
             
         } finally {
             // Close resources
             if (rs != null) rs.close();
             if (stmt != null) stmt.close();
+            conn.close(); // Return connection to the pool
         }
     }
     
@@ -104,43 +86,131 @@ public class QueryExecutor {
             
             rs = pstmt.executeQuery();
             
-            // Get column metadata
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
+            return toTableModel(rs);
             
-            // Create column names array
-            String[] columnNames = new String[columnCount];
-            for (int i = 0; i < columnCount; i++) {
-                columnNames[i] = metaData.getColumnLabel(i + 1);
-            }
+        } finally {
+            if (rs != null) rs.close();
+            if (pstmt != null) pstmt.close();
+            conn.close(); // Return connection to the pool
+        }
+    }
+    
+    /**
+     * Executes a query and returns its result in columnar, primitive-typed
+     * form. Preferred over the TableModel variants for aggregates that
+     * feed charts or further computation.
+     * 
+     * @param query SQL query with ? placeholders
+     * @param params Parameters to replace placeholders
+     * @return ColumnarResult containing query results
+     * @throws SQLException if query execution fails
+     */
+    public ColumnarResult executeColumnarQuery(String query, Object... params) 
+            throws SQLException {
+        Connection conn = dbConnection.getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            pstmt = conn.prepareStatement(query);
             
-            // Create data list
-            List<Object[]> dataList = new ArrayList<>();
-            while (rs.next()) {
-                Object[] row = new Object[columnCount];
-                for (int i = 0; i < columnCount; i++) {
-                    row[i] = rs.getObject(i + 1);
-                }
-                dataList.add(row);
+            // Set parameters
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
             }
             
-            // Convert list to array
-            Object[][] data = dataList.toArray(new Object[0][]);
+            rs = pstmt.executeQuery();
             
-            // Create and return table model
-            return new DefaultTableModel(data, columnNames) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
-            };
+            return ColumnarResult.from(rs);
             
         } finally {
             if (rs != null) rs.close();
             if (pstmt != null) pstmt.close();
+            conn.close(); // Return connection to the pool
         }
     }
     
+    /**
+     * Streams the rows of a query to a callback using the driver's
+     * row-by-row streaming mode, so memory use does not grow with the result.
+     * 
+     * @param query SQL query with ? placeholders
+     * @param callback Callback invoked for each row
+     * @param params Parameters to replace placeholders
+     * @return Number of rows passed to the callback
+     * @throws SQLException if query execution fails
+     */
+    public long streamQuery(String query, RowCallback callback, Object... params) 
+            throws SQLException {
+        return streamQuery(query, STREAMING_FETCH_SIZE, callback, params);
+    }
+    
+    /**
+     * Streams the rows of a query to a callback through a forward-only,
+     * read-only result set. Rows are handed to the callback as they
+     * arrive and are never collected.
+     * 
+     * With MySQL, {@link #STREAMING_FETCH_SIZE} streams one row at a time;
+     * a positive fetch size fetches that many rows per round trip when the
+     * URL enables useCursorFetch=true. The leased connection cannot run
+     * other statements until streaming finishes.
+     * 
+     * @param query SQL query with ? placeholders
+     * @param fetchSize Driver fetch size hint
+     * @param callback Callback invoked for each row; returning false stops streaming
+     * @param params Parameters to replace placeholders
+     * @return Number of rows passed to the callback
+     * @throws SQLException if query execution fails
+     */
+    public long streamQuery(String query, int fetchSize, RowCallback callback, Object... params) 
+            throws SQLException {
+        return stream(dbConnection.getConnection(), query, fetchSize, callback, params);
+    }
+    
+    /**
+     * Streams a query on a leased connection, see
+     * {@link #streamQuery(String, int, RowCallback, Object...)}, and
+     * closes the connection.
+     * 
+     * A stream stopped early is cancelled, and closing its result set may
+     * then fail with the interrupted query; that error is ignored, since
+     * every row the callback asked for was read. The statement and the
+     * connection are closed in any case.
+     */
+    static long stream(Connection conn, String query, int fetchSize, RowCallback callback, 
+            Object... params) throws SQLException {
+        long rows = 0;
+        boolean stopped = false;
+        
+        try (Connection lease = conn; // Returned to the pool on close
+             PreparedStatement pstmt = lease.prepareStatement(query, 
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(fetchSize);
+            
+            // Set parameters
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    if (!callback.onRow(rs)) {
+                        // Abandon the rest of the stream instead of draining it
+                        stopped = true;
+                        pstmt.cancel();
+                        break;
+                    }
+                }
+            } catch (SQLException e) {
+                if (!stopped) {
+                    throw e;
+                }
+            }
+        }
+        return rows;
+    }
+    
     /**
      * Executes an UPDATE, INSERT, or DELETE query.
      * 
@@ -157,6 +227,7 @@ public class QueryExecutor {
             return stmt.executeUpdate(query);
         } finally {
             if (stmt != null) stmt.close();
+            conn.close(); // Return connection to the pool
         }
     }
     
@@ -185,6 +256,7 @@ public class QueryExecutor {
             
         } finally {
             if (pstmt != null) pstmt.close();
+            conn.close(); // Return connection to the pool
         }
     }
     
@@ -213,6 +285,7 @@ public class QueryExecutor {
         } finally {
             if (rs != null) rs.close();
             if (stmt != null) stmt.close();
+            conn.close(); // Return connection to the pool
         }
     }
     
@@ -249,10 +322,46 @@ public class QueryExecutor {
             }
             throw e;
         } finally {
+            if (stmt != null) stmt.close();
             if (conn != null) {
                 conn.setAutoCommit(true);
+                conn.close(); // Return connection to the pool
             }
-            if (stmt != null) stmt.close();
         }
     }
+    
+    /**
+     * Copies a result set into a read-only table model. Rows are read
+     * straight into the model's row vectors without intermediate copies.
+     * 
+     * @param rs Result set positioned before the first row
+     * @return Read-only DefaultTableModel
+     * @throws SQLException if reading the result fails
+     */
+    private DefaultTableModel toTableModel(ResultSet rs) throws SQLException {
+        // Get column metadata
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        
+        Vector<Object> columnNames = new Vector<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columnNames.add(metaData.getColumnLabel(i + 1));
+        }
+        
+        Vector<Vector<Object>> data = new Vector<>();
+        while (rs.next()) {
+            Vector<Object> row = new Vector<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                row.add(rs.getObject(i + 1));
+            }
+            data.add(row);
+        }
+        
+        return new DefaultTableModel(data, columnNames) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Make table read-only
+            }
+        };
+    }
 }
@@ -0,0 +1,27 @@
+package db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Callback for streaming query results row by row.
+ *
+ * The ResultSet passed to {@link #onRow(ResultSet)} is positioned on the
+ * current row and is only valid for the duration of the call; callers
+ * must read the values they need instead of keeping a reference to it.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface RowCallback {
+
+    /**
+     * Handles one row of a streamed result.
+     *
+     * @param row ResultSet positioned on the current row
+     * @return true to continue with the next row, false to stop streaming
+     * @throws SQLException if reading the row fails
+     */
+    boolean onRow(ResultSet row) throws SQLException;
+}
@@ -0,0 +1,235 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection LRU cache of prepared statements keyed by SQL text.
+ *
+ * Statements handed out by the cache look like ordinary PreparedStatements,
+ * but close() resets them and keeps them open for the next caller that
+ * prepares the same SQL on the same physical connection. Hit, miss and
+ * eviction counts are shared with the owning pool.
+ *
+ * The cache only saves a round trip when the driver prepares on the
+ * server: MySQL Connector/J needs useServerPrepStmts=true in the URL, and
+ * otherwise prepares client-side, where a cached statement saves little
+ * more than parsing the SQL again.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final LinkedHashMap<String, CachedStatement> statements =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final OpenStatements uncached = new OpenStatements();
+
+    /**
+     * @param physical Physical connection the statements belong to
+     * @param maxSize Maximum number of cached statements
+     * @param hits Counter incremented when a cached statement is reused
+     * @param misses Counter incremented when a statement has to be prepared
+     * @param evictions Counter incremented when a statement is evicted
+     */
+    StatementCache(Connection physical, int maxSize,
+                   AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Returns a prepared statement for the SQL, reusing a cached one if it
+     * is not already checked out.
+     *
+     * @param lease Leased connection reported by Statement.getConnection()
+     * @param sql SQL text with ? placeholders
+     * @return PreparedStatement whose close() returns it to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    synchronized PreparedStatement prepare(Connection lease, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null) {
+            if (cached.owner == null) {
+                hits.incrementAndGet();
+                return cached.checkout(lease);
+            }
+            // Same SQL is already open by this caller: hand out an uncached statement
+            misses.incrementAndGet();
+            return (PreparedStatement) uncached.track(lease, physical.prepareStatement(sql),
+                    PreparedStatement.class);
+        }
+
+        misses.incrementAndGet();
+        cached = new CachedStatement(physical.prepareStatement(sql));
+        statements.put(sql, cached);
+        PreparedStatement handle = cached.checkout(lease);
+        evictOverflow();
+        return handle;
+    }
+
+    /**
+     * Closes least recently used statements that are not checked out
+     * until the cache fits its maximum size.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            if (eldest.owner != null) {
+                continue;
+            }
+            it.remove();
+            closeQuietly(eldest.statement);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns every checked-out statement to the cache and closes the
+     * uncached ones. Called when the connection goes back to the pool so
+     * forgotten statements do not leak.
+     */
+    synchronized void checkinAll() {
+        uncached.closeAll();
+        List<String> broken = new ArrayList<>();
+        for (Map.Entry<String, CachedStatement> entry : statements.entrySet()) {
+            CachedStatement cached = entry.getValue();
+            if (cached.owner != null && !cached.reset()) {
+                broken.add(entry.getKey());
+            }
+        }
+        for (String sql : broken) {
+            closeQuietly(statements.remove(sql).statement);
+        }
+    }
+
+    /**
+     * @return Number of statements currently cached
+     */
+    synchronized int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical prepared statement plus the handle currently using it.
+     */
+    private final class CachedStatement {
+
+        private final PreparedStatement statement;
+        private Handle owner;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkout(Connection lease) {
+            owner = new Handle(this, lease);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    owner);
+        }
+
+        /**
+         * Closes a result set left open and restores parameters, batch,
+         * fetch size, row limit and timeout so the next caller starts clean.
+         *
+         * @return false if the statement is no longer usable
+         */
+        boolean reset() {
+            owner = null;
+            try {
+                ResultSet open = statement.getResultSet();
+                if (open != null) {
+                    open.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+                statement.setQueryTimeout(0);
+                return !statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Invocation handler for one checkout of a cached statement.
+     */
+    private final class Handle implements InvocationHandler {
+
+        private final CachedStatement cached;
+        private final Connection lease;
+
+        Handle(CachedStatement cached, Connection lease) {
+            this.cached = cached;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (StatementCache.this) {
+                        if (cached.owner == this && !cached.reset()) {
+                            statements.values().remove(cached);
+                            closeQuietly(cached.statement);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return cached.owner != this || cached.statement.isClosed();
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+
+            if (cached.owner != this) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch of a stream of doubles.
+ *
+ * Values are appended to level 0. When a level reaches its capacity it is
+ * sorted and compacted: every other value, starting at a random offset,
+ * moves up a level with twice the weight, and the rest are dropped. Lower
+ * levels get geometrically smaller capacities, so the sketch keeps about
+ * 3k values however long the stream is, and a quantile is off by about
+ * 1.7/k in rank, under 1% for the default k of 200. Minimum and maximum
+ * are exact.
+ *
+ * Sketches of parts of a stream can be merged into a sketch of the whole,
+ * and serialized with {@link #toBytes()} to be stored and merged later.
+ * The random offsets come from a fixed seed, so feeding the same values
+ * in the same order gives the same sketch. Not thread safe.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class KllSketch {
+
+    /** Default accuracy parameter. */
+    public static final int DEFAULT_K = 200;
+
+    private static final int MIN_CAPACITY = 8;
+    private static final double DECAY = 2.0 / 3.0;
+    private static final byte FORMAT = 1;
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final int k;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private long n;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long random = SEED;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k Accuracy parameter, at least 8; memory and accuracy grow with it
+     */
+    public KllSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.levels[0] = new double[capacity(0)];
+    }
+
+    /**
+     * Adds a value. NaN is ignored.
+     *
+     * @param value Value to add
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (n == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        n++;
+        append(0, value);
+        if (sizes[0] >= capacity(0)) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds the values of another sketch, which is left unchanged.
+     *
+     * @param other Sketch to merge
+     */
+    public void merge(KllSketch other) {
+        if (other.n == 0) {
+            return;
+        }
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        min = n == 0 ? other.min : Math.min(min, other.min);
+        max = n == 0 ? other.max : Math.max(max, other.max);
+        n += other.n;
+        compress();
+    }
+
+    /**
+     * @return Number of values added
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return Smallest value added, or NaN if empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return Largest value added, or NaN if empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return Number of values retained
+     */
+    public int getRetained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    /**
+     * Estimates a quantile: the smallest retained value that at least the
+     * given fraction of all values are less than or equal to.
+     *
+     * @param rank Fraction between 0 and 1, such as 0.5 for the median
+     * @return Estimated quantile, or NaN if empty
+     */
+    public double getQuantile(double rank) {
+        return getQuantiles(new double[] { rank })[0];
+    }
+
+    /**
+     * Estimates several quantiles with one sort of the retained values.
+     *
+     * @param ranks Fractions between 0 and 1
+     * @return Estimated quantiles in the order of the ranks, NaN if empty
+     */
+    public double[] getQuantiles(double[] ranks) {
+        double[] quantiles = new double[ranks.length];
+        if (n == 0) {
+            Arrays.fill(quantiles, Double.NaN);
+            return quantiles;
+        }
+
+        // Order the retained values, each standing for 2^level values of the stream
+        int retained = getRetained();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int next = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[next] = levels[level][i];
+                weights[next] = 1L << level;
+                order[next] = next;
+                next++;
+            }
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(values[x], values[y]));
+
+        for (int q = 0; q < ranks.length; q++) {
+            double rank = ranks[q];
+            if (rank < 0 || rank > 1 || Double.isNaN(rank)) {
+                throw new IllegalArgumentException("Rank must be between 0 and 1: " + rank);
+            }
+            if (rank == 0) {
+                quantiles[q] = min;
+                continue;
+            }
+            if (rank == 1) {
+                quantiles[q] = max;
+                continue;
+            }
+            double target = rank * n;
+            long cumulative = 0;
+            quantiles[q] = max;
+            for (int i : order) {
+                cumulative += weights[i];
+                if (cumulative >= target) {
+                    quantiles[q] = values[i];
+                    break;
+                }
+            }
+        }
+        return quantiles;
+    }
+
+    /**
+     * Serializes the sketch: format, k, count, minimum, maximum and the
+     * values of each level.
+     *
+     * @return Serialized sketch, see {@link #fromBytes(byte[])}
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + 8 * getRetained());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeInt(k);
+            out.writeLong(n);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeInt(levels.length);
+            for (int level = 0; level < levels.length; level++) {
+                out.writeInt(sizes[level]);
+                for (int i = 0; i < sizes[level]; i++) {
+                    out.writeDouble(levels[level][i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Cannot happen on a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a sketch written by {@link #toBytes()}.
+     *
+     * @param bytes Serialized sketch
+     * @return Sketch
+     * @throws IllegalArgumentException if the bytes are not a serialized sketch
+     */
+    public static KllSketch fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != FORMAT) {
+                throw new IllegalArgumentException("Unknown KLL sketch format");
+            }
+            KllSketch sketch = new KllSketch(in.readInt());
+            sketch.n = in.readLong();
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            int levels = in.readInt();
+            if (levels < 1 || levels > 64) {
+                throw new IllegalArgumentException("Corrupt KLL sketch: " + levels + " levels");
+            }
+            for (int level = 0; level < levels; level++) {
+                int size = in.readInt();
+                if (size < 0 || size > bytes.length / 8) {
+                    throw new IllegalArgumentException("Corrupt KLL sketch: level of " + size + " values");
+                }
+                for (int i = 0; i < size; i++) {
+                    sketch.append(level, in.readDouble());
+                }
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated KLL sketch", e);
+        }
+    }
+
+    /**
+     * @return Capacity of a level: k for the top level, two thirds of that
+     *         for each level below, but at least eight
+     */
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            for (int l = 0; l <= level; l++) {
+                if (levels[l] == null) {
+                    levels[l] = new double[capacity(l)];
+                }
+            }
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_CAPACITY, sizes[level] * 2));
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    /**
+     * Compacts full levels from the bottom up until none is over capacity.
+     * Adding a level lowers the capacities below it, hence the rescan.
+     */
+    private void compress() {
+        boolean compacted = true;
+        while (compacted) {
+            compacted = false;
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    compacted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Halves a level into the one above. With an odd size, the smallest
+     * value stays behind so total weight is preserved exactly.
+     */
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int start = size % 2;
+        int offset = nextBit();
+        for (int i = start + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes[level] = start;
+    }
+
+    /**
+     * @return A pseudo-random bit from a xorshift generator
+     */
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+}
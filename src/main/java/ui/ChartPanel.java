@@ -1,12 +1,12 @@
 package ui;
 
 import analysis.StatService;
+import db.ColumnarResult;
 import org.knowm.xchart.*;
 import org.knowm.xchart.style.Styler;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.IOException;
 import java.sql.SQLException;
@@ -25,6 +25,9 @@ import java.util.List;
  */
 public class ChartPanel extends JPanel {
     
+    /** Chart estimated from a scan of every completed transaction, see StatService. */
+    private static final String FULL_SCAN_CHART = "Transaction Amount Distribution (Line)";
+    
     private StatService statService;
     private JPanel chartDisplayPanel;
     private JComboBox<String> chartTypeComboBox;
@@ -64,7 +67,8 @@ public class ChartPanel extends JPanel {
             "Branch Distribution (Bar)",
             "Transaction Types (Pie)",
             "Balance Range Analysis (Bar)",
-            "Loan Portfolio (Bar)"
+            "Loan Portfolio (Bar)",
+            FULL_SCAN_CHART
         };
         
         chartTypeComboBox = new JComboBox<>(chartTypes);
@@ -119,11 +123,9 @@ public class ChartPanel extends JPanel {
             @Override
             protected void done() {
                 try {
-                    if (currentChartPanel != null) {
-                        chartDisplayPanel.remove(currentChartPanel);
-                    }
-                    
-                    currentChartPanel = get();
+                    XChartPanel<? extends org.knowm.xchart.internal.chartpart.Chart> chart = get();
+                    chartDisplayPanel.removeAll();
+                    currentChartPanel = chart;
                     chartDisplayPanel.add(currentChartPanel, BorderLayout.CENTER);
                     chartDisplayPanel.revalidate();
                     chartDisplayPanel.repaint();
@@ -162,6 +164,8 @@ public class ChartPanel extends JPanel {
                 return createBalanceRangeChart();
             case "Loan Portfolio (Bar)":
                 return createLoanPortfolioChart();
+            case FULL_SCAN_CHART:
+                return createTransactionAmountDistributionChart();
             default:
                 return createAccountBalancesByTypeChart();
         }
@@ -171,7 +175,7 @@ public class ChartPanel extends JPanel {
      * Creates bar chart for account balances by type.
      */
     private XChartPanel<CategoryChart> createAccountBalancesByTypeChart() throws SQLException {
-        DefaultTableModel model = statService.getAccountBalancesByType();
+        ColumnarResult result = statService.getAccountBalancesByType();
         
         CategoryChart chart = new CategoryChartBuilder()
                 .width(800).height(600)
@@ -184,13 +188,8 @@ public class ChartPanel extends JPanel {
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
         chart.getStyler().setXAxisLabelRotation(45);
         
-        List<String> accountTypes = new ArrayList<>();
-        List<Number> balances = new ArrayList<>();
-        
-        for (int i = 0; i < model.getRowCount(); i++) {
-            accountTypes.add((String) model.getValueAt(i, 0));
-            balances.add((Number) model.getValueAt(i, 2));
-        }
+        List<String> accountTypes = Arrays.asList(result.getStrings(0));
+        List<Double> balances = toList(result.getDoubles(2));
         
         chart.addSeries("Total Balance", accountTypes, balances);
         
@@ -201,7 +200,7 @@ public class ChartPanel extends JPanel {
      * Creates line chart for transaction trends.
      */
     private XChartPanel<XYChart> createTransactionTrendsChart() throws SQLException {
-        DefaultTableModel model = statService.getTransactionTrends();
+        ColumnarResult result = statService.getTransactionTrends();
         
         XYChart chart = new XYChartBuilder()
                 .width(800).height(600)
@@ -215,12 +214,10 @@ public class ChartPanel extends JPanel {
         chart.getStyler().setMarkerSize(8);
         chart.getStyler().setXAxisLabelRotation(45);
         
-        List<Double> months = new ArrayList<>();
-        List<Double> totalTransactions = new ArrayList<>();
-        
-        for (int i = 0; i < model.getRowCount(); i++) {
-            months.add((double) i);
-            totalTransactions.add(((Number) model.getValueAt(i, 1)).doubleValue());
+        double[] totalTransactions = result.getDoubles(1);
+        double[] months = new double[totalTransactions.length];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = i;
         }
         
         chart.addSeries("Total Transactions", months, totalTransactions);
@@ -232,7 +229,7 @@ public class ChartPanel extends JPanel {
      * Creates pie chart for account status distribution.
      */
     private XChartPanel<PieChart> createStatusDistributionChart() throws SQLException {
-        DefaultTableModel model = statService.getStatusDistribution();
+        ColumnarResult result = statService.getStatusDistribution();
         
         PieChart chart = new PieChartBuilder()
                 .width(800).height(600)
@@ -242,10 +239,10 @@ public class ChartPanel extends JPanel {
         
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNE);
         
-        for (int i = 0; i < model.getRowCount(); i++) {
-            String status = (String) model.getValueAt(i, 0);
-            Number count = (Number) model.getValueAt(i, 1);
-            chart.addSeries(status, count);
+        String[] statuses = result.getStrings(0);
+        long[] counts = result.getLongs(1);
+        for (int i = 0; i < statuses.length; i++) {
+            chart.addSeries(statuses[i], counts[i]);
         }
         
         return new XChartPanel<>(chart);
@@ -255,7 +252,7 @@ public class ChartPanel extends JPanel {
      * Creates bar chart for branch distribution.
      */
     private XChartPanel<CategoryChart> createBranchDistributionChart() throws SQLException {
-        DefaultTableModel model = statService.getBranchDistribution();
+        ColumnarResult result = statService.getBranchDistribution();
         
         CategoryChart chart = new CategoryChartBuilder()
                 .width(800).height(600)
@@ -268,15 +265,9 @@ public class ChartPanel extends JPanel {
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
         chart.getStyler().setXAxisLabelRotation(45);
         
-        List<String> branches = new ArrayList<>();
-        List<Number> accountCounts = new ArrayList<>();
-        List<Number> activeAccounts = new ArrayList<>();
-        
-        for (int i = 0; i < model.getRowCount(); i++) {
-            branches.add((String) model.getValueAt(i, 0));
-            accountCounts.add((Number) model.getValueAt(i, 1));
-            activeAccounts.add((Number) model.getValueAt(i, 4));
-        }
+        List<String> branches = Arrays.asList(result.getStrings(0));
+        List<Double> accountCounts = toList(result.getDoubles(1));
+        List<Double> activeAccounts = toList(result.getDoubles(4));
         
         chart.addSeries("Total Accounts", branches, accountCounts);
         chart.addSeries("Active Accounts", branches, activeAccounts);
@@ -288,7 +279,7 @@ public class ChartPanel extends JPanel {
      * Creates pie chart for transaction types distribution.
      */
     private XChartPanel<PieChart> createTransactionTypesPieChart() throws SQLException {
-        DefaultTableModel model = statService.getTransactionsByType();
+        ColumnarResult result = statService.getTransactionsByType();
         
         PieChart chart = new PieChartBuilder()
                 .width(800).height(600)
@@ -298,10 +289,10 @@ public class ChartPanel extends JPanel {
         
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNE);
         
-        for (int i = 0; i < model.getRowCount(); i++) {
-            String transType = (String) model.getValueAt(i, 0);
-            Number count = (Number) model.getValueAt(i, 1);
-            chart.addSeries(transType, count);
+        String[] transTypes = result.getStrings(0);
+        long[] counts = result.getLongs(1);
+        for (int i = 0; i < transTypes.length; i++) {
+            chart.addSeries(transTypes[i], counts[i]);
         }
         
         return new XChartPanel<>(chart);
@@ -311,7 +302,7 @@ public class ChartPanel extends JPanel {
      * Creates bar chart for balance range analysis.
      */
     private XChartPanel<CategoryChart> createBalanceRangeChart() throws SQLException {
-        DefaultTableModel model = statService.getBalanceRangeAnalysis();
+        ColumnarResult result = statService.getBalanceRangeAnalysis();
         
         CategoryChart chart = new CategoryChartBuilder()
                 .width(800).height(600)
@@ -324,13 +315,8 @@ public class ChartPanel extends JPanel {
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
         chart.getStyler().setXAxisLabelRotation(45);
         
-        List<String> ranges = new ArrayList<>();
-        List<Number> counts = new ArrayList<>();
-        
-        for (int i = 0; i < model.getRowCount(); i++) {
-            ranges.add((String) model.getValueAt(i, 0));
-            counts.add((Number) model.getValueAt(i, 1));
-        }
+        List<String> ranges = Arrays.asList(result.getStrings(0));
+        List<Double> counts = toList(result.getDoubles(1));
         
         chart.addSeries("Accounts", ranges, counts);
         
@@ -341,7 +327,7 @@ public class ChartPanel extends JPanel {
      * Creates bar chart for loan portfolio analysis.
      */
     private XChartPanel<CategoryChart> createLoanPortfolioChart() throws SQLException {
-        DefaultTableModel model = statService.getLoanPortfolioAnalysis();
+        ColumnarResult result = statService.getLoanPortfolioAnalysis();
         
         CategoryChart chart = new CategoryChartBuilder()
                 .width(800).height(600)
@@ -354,19 +340,63 @@ public class ChartPanel extends JPanel {
         chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
         chart.getStyler().setXAxisLabelRotation(45);
         
-        List<String> loanTypes = new ArrayList<>();
-        List<Number> amounts = new ArrayList<>();
+        List<String> loanTypes = Arrays.asList(result.getStrings(0));
+        List<Double> amounts = toList(result.getDoubles(2));
         
-        for (int i = 0; i < model.getRowCount(); i++) {
-            loanTypes.add((String) model.getValueAt(i, 0));
-            amounts.add((Number) model.getValueAt(i, 2));
+        chart.addSeries("Total Loan Amount", loanTypes, amounts);
+        
+        return new XChartPanel<>(chart);
+    }
+    
+    /**
+     * Creates line chart of transaction amount percentiles, estimated
+     * from quantile sketches.
+     */
+    private XChartPanel<XYChart> createTransactionAmountDistributionChart() throws SQLException {
+        ColumnarResult result = statService.getTransactionAmountDistribution();
+        
+        XYChart chart = new XYChartBuilder()
+                .width(800).height(600)
+                .title("Transaction Amount Distribution")
+                .xAxisTitle("Percentile")
+                .yAxisTitle("Amount")
+                .theme(Styler.ChartTheme.XChart)
+                .build();
+        
+        chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
+        chart.getStyler().setMarkerSize(4);
+        
+        double[] percentiles = result.getDoubles(0);
+        double[] amounts = result.getDoubles(1);
+        if (percentiles.length == 0) {
+            // XChart cannot draw an empty series
+            percentiles = new double[] { 0 };
+            amounts = new double[] { 0 };
         }
         
-        chart.addSeries("Total Loan Amount", loanTypes, amounts);
+        chart.addSeries("Completed Transactions", percentiles, amounts);
         
         return new XChartPanel<>(chart);
     }
     
+    /**
+     * Wraps a primitive column as a List for XChart category series.
+     * Values are boxed lazily as XChart reads them.
+     */
+    private static List<Double> toList(double[] values) {
+        return new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return values[index];
+            }
+            
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+    
     /**
      * Exports the current chart to PNG file.
      */
@@ -412,9 +442,19 @@ public class ChartPanel extends JPanel {
     }
     
     /**
-     * Refreshes all charts.
+     * Refreshes all charts. A chart that scans every row is not rescanned
+     * on a general refresh; it is cleared until the user loads it again.
      */
     public void refreshCharts() {
+        if (FULL_SCAN_CHART.equals(chartTypeComboBox.getSelectedItem())) {
+            chartDisplayPanel.removeAll();
+            currentChartPanel = null;
+            chartDisplayPanel.add(new JLabel("Data changed: press Refresh to rescan this chart",
+                    SwingConstants.CENTER), BorderLayout.CENTER);
+            chartDisplayPanel.revalidate();
+            chartDisplayPanel.repaint();
+            return;
+        }
         loadSelectedChart();
     }
 }
@@ -1,13 +1,13 @@
 package ui;
 
-import analysis.StatService;
+import analysis.AsyncStatService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
-import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 /**
  * Dashboard Panel for Bank Data Analysis System.
@@ -21,16 +21,16 @@ import java.util.Map;
  */
 public class DashboardPanel extends JPanel {
     
-    private StatService statService;
+    private AsyncStatService statService;
     private JPanel cardsPanel;
     private JTextArea insightsArea;
     
     /**
      * Constructor - creates the dashboard panel.
      * 
-     * @param statService Service for retrieving statistics
+     * @param statService Asynchronous service for retrieving statistics
      */
-    public DashboardPanel(StatService statService) {
+    public DashboardPanel(AsyncStatService statService) {
         this.statService = statService;
         
         setLayout(new BorderLayout(10, 10));
@@ -133,51 +133,63 @@ public class DashboardPanel extends JPanel {
     
     /**
      * Refreshes all dashboard data from the database.
+     * The query runs in the background; the cards are updated on the
+     * Event Dispatch Thread when it completes.
      */
     public void refreshData() {
-        try {
-            // Get summary statistics
-            Map<String, Object> stats = statService.getSummaryStatistics();
-            
-            // Clear existing cards
-            cardsPanel.removeAll();
-            
-            // Define colors for cards
-            Color[] colors = {
-                new Color(52, 152, 219),  // Blue
-                new Color(46, 204, 113),  // Green
-                new Color(155, 89, 182),  // Purple
-                new Color(52, 73, 94),    // Dark Blue
-                new Color(230, 126, 34),  // Orange
-                new Color(231, 76, 60)    // Red
-            };
-            
-            // Create cards for each statistic
-            int colorIndex = 0;
-            for (Map.Entry<String, Object> entry : stats.entrySet()) {
-                String value = entry.getValue() != null ? entry.getValue().toString() : "0";
-                JPanel card = createStatCard(
-                        entry.getKey(),
-                        value,
-                        colors[colorIndex % colors.length]);
-                cardsPanel.add(card);
-                colorIndex++;
-            }
-            
-            // Generate insights
-            generateInsights(stats);
-            
-            // Refresh UI
-            cardsPanel.revalidate();
-            cardsPanel.repaint();
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading dashboard data: " + e.getMessage(),
-                    "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+        statService.getSummaryStatistics().whenComplete((stats, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException 
+                                ? error.getCause() : error;
+                        JOptionPane.showMessageDialog(this,
+                                "Error loading dashboard data: " + cause.getMessage(),
+                                "Database Error",
+                                JOptionPane.ERROR_MESSAGE);
+                        cause.printStackTrace();
+                    } else {
+                        showStatistics(stats);
+                    }
+                }));
+    }
+    
+    /**
+     * Rebuilds the metric cards and insights from loaded statistics.
+     * 
+     * @param stats Map of statistics
+     */
+    private void showStatistics(Map<String, Object> stats) {
+        // Clear existing cards
+        cardsPanel.removeAll();
+        
+        // Define colors for cards
+        Color[] colors = {
+            new Color(52, 152, 219),  // Blue
+            new Color(46, 204, 113),  // Green
+            new Color(155, 89, 182),  // Purple
+            new Color(52, 73, 94),    // Dark Blue
+            new Color(230, 126, 34),  // Orange
+            new Color(231, 76, 60)    // Red
+        };
+        
+        // Create cards for each statistic
+        int colorIndex = 0;
+        for (Map.Entry<String, Object> entry : stats.entrySet()) {
+            String value = entry.getValue() != null ? entry.getValue().toString() : "0";
+            JPanel card = createStatCard(
+                    entry.getKey(),
+                    value,
+                    colors[colorIndex % colors.length]);
+            cardsPanel.add(card);
+            colorIndex++;
         }
+        
+        // Generate insights
+        generateInsights(stats);
+        
+        // Refresh UI
+        cardsPanel.revalidate();
+        cardsPanel.repaint();
     }
     
     /**
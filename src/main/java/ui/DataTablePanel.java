@@ -1,12 +1,21 @@
 package ui;
 
+import analysis.AsyncStatService;
 import analysis.StatService;
+import db.ColumnarResult;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Data Table Panel for Bank Data Analysis System.
@@ -20,7 +29,12 @@ import java.sql.SQLException;
  */
 public class DataTablePanel extends JPanel {
     
-    private StatService statService;
+    /** Analyses estimated from a scan of every account or transaction, see StatService. */
+    private static final Set<String> FULL_SCAN_ANALYSES = new HashSet<>(Arrays.asList(
+            "Transaction Amount Percentiles", "Balance Percentiles", "Distinct Customers by Branch"));
+    
+    private AsyncStatService statService;
+    private CompletableFuture<ColumnarResult> pendingLoad;
     private JTable dataTable;
     private JLabel statusLabel;
     private JComboBox<String> analysisComboBox;
@@ -28,9 +42,9 @@ public class DataTablePanel extends JPanel {
     /**
      * Constructor - creates the data table panel.
      * 
-     * @param statService Service for retrieving statistics
+     * @param statService Asynchronous service for retrieving statistics
      */
-    public DataTablePanel(StatService statService) {
+    public DataTablePanel(AsyncStatService statService) {
         this.statService = statService;
         
         setLayout(new BorderLayout(10, 10));
@@ -65,7 +79,10 @@ public class DataTablePanel extends JPanel {
             "Account Activity",
             "Loan Repayment Analysis",
             "Balance Range Analysis",
-            "Revenue Analysis"
+            "Revenue Analysis",
+            "Transaction Amount Percentiles",
+            "Balance Percentiles",
+            "Distinct Customers by Branch"
         };
         
         analysisComboBox = new JComboBox<>(analyses);
@@ -123,53 +140,58 @@ public class DataTablePanel extends JPanel {
     
     /**
      * Loads data based on selected analysis type.
+     * A load still in flight for a previous selection is cancelled.
      */
     private void loadSelectedAnalysis() {
         String selected = (String) analysisComboBox.getSelectedItem();
         statusLabel.setText("Loading: " + selected + "...");
         
-        SwingWorker<DefaultTableModel, Void> worker = new SwingWorker<DefaultTableModel, Void>() {
-            @Override
-            protected DefaultTableModel doInBackground() throws Exception {
-                return getDataForAnalysis(selected);
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+        }
+        
+        CompletableFuture<ColumnarResult> load = 
+                statService.submit(service -> getDataForAnalysis(service, selected));
+        pendingLoad = load;
+        
+        load.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (load != pendingLoad) {
+                return; // Superseded by a newer selection
             }
+            pendingLoad = null;
             
-            @Override
-            protected void done() {
-                try {
-                    DefaultTableModel model = get();
-                    dataTable.setModel(model);
-                    
-                    // Auto-resize columns
-                    for (int i = 0; i < dataTable.getColumnCount(); i++) {
-                        dataTable.getColumnModel().getColumn(i).setPreferredWidth(150);
-                    }
-                    
-                    statusLabel.setText("Loaded: " + selected + " (" + 
-                            model.getRowCount() + " rows)");
-                            
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(DataTablePanel.this,
-                            "Error loading data: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                    statusLabel.setText("Error loading data");
-                    e.printStackTrace();
+            if (error == null) {
+                dataTable.setModel(result.toTableModel());
+                
+                // Auto-resize columns
+                for (int i = 0; i < dataTable.getColumnCount(); i++) {
+                    dataTable.getColumnModel().getColumn(i).setPreferredWidth(150);
                 }
+                
+                statusLabel.setText("Loaded: " + selected + " (" + 
+                        result.getRowCount() + " rows)");
+            } else if (!(error instanceof CancellationException)) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                JOptionPane.showMessageDialog(DataTablePanel.this,
+                        "Error loading data: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                statusLabel.setText("Error loading data");
+                cause.printStackTrace();
             }
-        };
-        
-        worker.execute();
+        }));
     }
     
     /**
-     * Gets table model for specified analysis type.
+     * Gets the result for specified analysis type.
      * 
+     * @param statService Service for retrieving statistics
      * @param analysisType Type of analysis to perform
-     * @return TableModel with query results
+     * @return Columnar query results
      * @throws SQLException if query fails
      */
-    private DefaultTableModel getDataForAnalysis(String analysisType) throws SQLException {
+    private static ColumnarResult getDataForAnalysis(StatService statService, String analysisType) 
+            throws SQLException {
         switch (analysisType) {
             case "Account Balances by Type":
                 return statService.getAccountBalancesByType();
@@ -195,8 +217,14 @@ public class DataTablePanel extends JPanel {
                 return statService.getBalanceRangeAnalysis();
             case "Revenue Analysis":
                 return statService.getRevenueAnalysis();
+            case "Transaction Amount Percentiles":
+                return statService.getTransactionAmountQuantiles();
+            case "Balance Percentiles":
+                return statService.getBalanceQuantiles();
+            case "Distinct Customers by Branch":
+                return statService.getDistinctCustomersByBranch();
             default:
-                return new DefaultTableModel();
+                return ColumnarResult.empty();
         }
     }
     
@@ -215,7 +243,7 @@ public class DataTablePanel extends JPanel {
                 java.io.File file = fileChooser.getSelectedFile();
                 java.io.PrintWriter writer = new java.io.PrintWriter(file);
                 
-                DefaultTableModel model = (DefaultTableModel) dataTable.getModel();
+                TableModel model = dataTable.getModel();
                 
                 // Write headers
                 for (int i = 0; i < model.getColumnCount(); i++) {
@@ -251,9 +279,21 @@ public class DataTablePanel extends JPanel {
     }
     
     /**
-     * Refreshes the current data view.
+     * Refreshes the current data view. An analysis that scans every row
+     * is not rescanned on a general refresh; it is cleared until the user
+     * loads it again.
      */
     public void refreshData() {
+        String selected = (String) analysisComboBox.getSelectedItem();
+        if (FULL_SCAN_ANALYSES.contains(selected)) {
+            if (pendingLoad != null) {
+                pendingLoad.cancel(true);
+                pendingLoad = null;
+            }
+            dataTable.setModel(new DefaultTableModel());
+            statusLabel.setText("Data changed: press Refresh to rescan " + selected);
+            return;
+        }
         loadSelectedAnalysis();
     }
 }
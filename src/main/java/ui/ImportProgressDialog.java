@@ -0,0 +1,212 @@
+package ui;
+
+import util.ImportProgress;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import Progress Dialog for Bank Data Analysis System.
+ * Shows the overall progress of a CSV import with current rows/sec,
+ * MB/sec and estimated time remaining, plus the status of each file.
+ *
+ * Progress updates must be passed in on the Swing event thread, for
+ * example from SwingWorker.process. Cancel (or closing the window) runs
+ * the cancel action once; the import then stops at its next batch.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportProgressDialog extends JDialog {
+
+    private static final long serialVersionUID = 1L;
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private static final String[] FILE_COLUMNS = { "File", "Table", "Status", "Rows Committed", "Progress" };
+
+    private final Runnable cancelAction;
+    private final Map<String, ImportProgress> files = new LinkedHashMap<>();
+    private final Map<String, Integer> fileRows = new LinkedHashMap<>();
+
+    private JProgressBar progressBar;
+    private JLabel rateLabel;
+    private JLabel etaLabel;
+    private DefaultTableModel fileModel;
+    private JButton cancelButton;
+
+    private final long startNanos = System.nanoTime();
+    private long sampleNanos = startNanos;
+    private long sampleRows;
+    private long sampleBytes;
+    private double rowsPerSecond;
+    private double bytesPerSecond;
+
+    /**
+     * Constructor - creates the dialog.
+     *
+     * @param owner Parent frame
+     * @param cancelAction Called once when the user cancels
+     */
+    public ImportProgressDialog(Frame owner, Runnable cancelAction) {
+        super(owner, "Importing CSV Files", true);
+        this.cancelAction = cancelAction;
+
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                requestCancel();
+            }
+        });
+
+        JPanel content = new JPanel(new BorderLayout(10, 10));
+        content.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Starting...");
+
+        rateLabel = new JLabel("0 rows committed");
+        etaLabel = new JLabel("Estimating time remaining...");
+
+        JPanel summaryPanel = new JPanel(new GridLayout(3, 1, 5, 5));
+        summaryPanel.add(progressBar);
+        summaryPanel.add(rateLabel);
+        summaryPanel.add(etaLabel);
+
+        fileModel = new DefaultTableModel(FILE_COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable fileTable = new JTable(fileModel);
+        fileTable.setFillsViewportHeight(true);
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> requestCancel());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+
+        content.add(summaryPanel, BorderLayout.NORTH);
+        content.add(new JScrollPane(fileTable), BorderLayout.CENTER);
+        content.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(content);
+
+        setSize(600, 320);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Applies progress updates and refreshes the display.
+     *
+     * @param updates Updates in the order they were published
+     */
+    public void update(List<ImportProgress> updates) {
+        for (ImportProgress progress : updates) {
+            String key = progress.getFilePath();
+            files.put(key, progress);
+            Integer row = fileRows.get(key);
+            if (row == null) {
+                row = fileModel.getRowCount();
+                fileRows.put(key, row);
+                fileModel.addRow(new Object[FILE_COLUMNS.length]);
+            }
+            fileModel.setValueAt(progress.getFileName(), row, 0);
+            fileModel.setValueAt(progress.getTable().getDisplayName(), row, 1);
+            fileModel.setValueAt(describeStatus(progress), row, 2);
+            fileModel.setValueAt(String.format("%,d", progress.getRowsCommitted()), row, 3);
+            fileModel.setValueAt(String.format("%.0f%%", progress.getFraction() * 100), row, 4);
+        }
+        refreshSummary();
+    }
+
+    private static String describeStatus(ImportProgress progress) {
+        switch (progress.getStatus()) {
+            case QUEUED:
+                return "Queued";
+            case RUNNING:
+                return "Importing";
+            case COMPLETED:
+                return "Done";
+            case CANCELLED:
+                return "Cancelled";
+            default:
+                return "Failed: " + progress.getMessage();
+        }
+    }
+
+    /**
+     * Recomputes the totals, the current rates and the time remaining.
+     */
+    private void refreshSummary() {
+        long totalBytes = 0;
+        long bytesRead = 0;
+        long rows = 0;
+        boolean active = false;
+        for (ImportProgress progress : files.values()) {
+            totalBytes += progress.getTotalBytes();
+            bytesRead += progress.getStatus() == ImportProgress.Status.COMPLETED
+                    ? progress.getTotalBytes() : progress.getBytesRead();
+            rows += progress.getRowsCommitted();
+            active |= progress.getStatus() == ImportProgress.Status.QUEUED
+                    || progress.getStatus() == ImportProgress.Status.RUNNING;
+        }
+
+        // Current rates over the last second rather than since the start
+        long now = System.nanoTime();
+        if (now - sampleNanos >= RATE_WINDOW_NANOS) {
+            double seconds = (now - sampleNanos) / 1_000_000_000.0;
+            rowsPerSecond = (rows - sampleRows) / seconds;
+            bytesPerSecond = (bytesRead - sampleBytes) / seconds;
+            sampleNanos = now;
+            sampleRows = rows;
+            sampleBytes = bytesRead;
+        }
+
+        double fraction = totalBytes == 0 ? 0.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+        progressBar.setValue((int) (fraction * 1000));
+        progressBar.setString(String.format("%.1f%% (%.1f of %.1f MB)",
+                fraction * 100, bytesRead / 1048576.0, totalBytes / 1048576.0));
+        rateLabel.setText(String.format("%,d rows committed  |  %,.0f rows/sec  |  %.1f MB/sec",
+                rows, rowsPerSecond, bytesPerSecond / 1048576.0));
+
+        double elapsed = (now - startNanos) / 1_000_000_000.0;
+        if (!active) {
+            etaLabel.setText(String.format("Finished in %s", formatDuration(elapsed)));
+        } else if (!cancelButton.isEnabled()) {
+            etaLabel.setText("Stopping after the current batch...");
+        } else if (bytesPerSecond > 0) {
+            etaLabel.setText(String.format("Elapsed %s, about %s remaining", formatDuration(elapsed),
+                    formatDuration((totalBytes - bytesRead) / bytesPerSecond)));
+        } else {
+            etaLabel.setText(String.format("Elapsed %s, estimating time remaining...",
+                    formatDuration(elapsed)));
+        }
+    }
+
+    private static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        return total >= 3600
+                ? String.format("%d:%02d:%02d", total / 3600, total / 60 % 60, total % 60)
+                : String.format("%d:%02d", total / 60, total % 60);
+    }
+
+    /**
+     * Runs the cancel action once and tells the user the import is stopping.
+     */
+    private void requestCancel() {
+        if (cancelButton.isEnabled()) {
+            cancelButton.setEnabled(false);
+            cancelButton.setText("Cancelling...");
+            etaLabel.setText("Stopping after the current batch...");
+            cancelAction.run();
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package ui;
 
+import analysis.AsyncStatService;
 import analysis.StatService;
 import db.DBConnection;
 import util.CSVImporter;
+import util.ImportProgress;
+import util.ImportProgressListener;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main Application Frame for Bank Data Analysis System.
@@ -26,6 +30,7 @@ public class MainFrame extends JFrame {
     private DataTablePanel dataTablePanel;
     private ChartPanel chartPanel;
     private StatService statService;
+    private AsyncStatService asyncStatService;
     private CSVImporter csvImporter;
     
     /**
@@ -33,14 +38,17 @@ public class MainFrame extends JFrame {
      */
     public MainFrame() {
         this.statService = new StatService();
+        this.asyncStatService = new AsyncStatService(statService);
         this.csvImporter = new CSVImporter();
         
         initializeFrame();
         createMenuBar();
         createComponents();
         
-        // Test database connection on startup
-        testDatabaseConnection();
+        // Test database connection on startup, unless analyses run on CSV files
+        if (statService.requiresDatabase()) {
+            testDatabaseConnection();
+        }
     }
     
     /**
@@ -74,7 +82,11 @@ public class MainFrame extends JFrame {
         importMenuItem.addActionListener(e -> importCSVFiles());
         
         JMenuItem refreshMenuItem = new JMenuItem("Refresh Data");
-        refreshMenuItem.addActionListener(e -> refreshAllData());
+        refreshMenuItem.addActionListener(e -> {
+            // Explicit refresh bypasses cached analysis results
+            statService.invalidateCache();
+            refreshAllData();
+        });
         
         JMenuItem exitMenuItem = new JMenuItem("Exit");
         exitMenuItem.addActionListener(e -> exitApplication());
@@ -94,8 +106,12 @@ public class MainFrame extends JFrame {
         JMenuItem summaryMenuItem = new JMenuItem("Show Summary");
         summaryMenuItem.addActionListener(e -> showSummary());
         
+        JMenuItem rebuildMenuItem = new JMenuItem("Rebuild Summary Tables");
+        rebuildMenuItem.addActionListener(e -> rebuildSummaryTables());
+        
         toolsMenu.add(dbTestMenuItem);
         toolsMenu.add(summaryMenuItem);
+        toolsMenu.add(rebuildMenuItem);
         
         // Help Menu
         JMenu helpMenu = new JMenu("Help");
@@ -120,8 +136,8 @@ public class MainFrame extends JFrame {
         tabbedPane = new JTabbedPane();
         
         // Create panels
-        dashboardPanel = new DashboardPanel(statService);
-        dataTablePanel = new DataTablePanel(statService);
+        dashboardPanel = new DashboardPanel(asyncStatService);
+        dataTablePanel = new DataTablePanel(asyncStatService);
         chartPanel = new ChartPanel(statService);
         
         // Add panels to tabbed pane
@@ -174,30 +190,37 @@ public class MainFrame extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             String directoryPath = fileChooser.getSelectedFile().getAbsolutePath();
             
-            // Show progress dialog
-            JDialog progressDialog = new JDialog(this, "Importing CSV Files", true);
-            JProgressBar progressBar = new JProgressBar();
-            progressBar.setIndeterminate(true);
-            progressDialog.add(new JLabel("Importing data, please wait..."), BorderLayout.NORTH);
-            progressDialog.add(progressBar, BorderLayout.CENTER);
-            progressDialog.setSize(300, 100);
-            progressDialog.setLocationRelativeTo(this);
+            // Progress dialog; cancelling stops the import at its next batch
+            ImportProgressDialog progressDialog = new ImportProgressDialog(this, csvImporter::cancel);
             
-            // Run import in background thread
-            SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            // Run import in background thread, publishing progress to the dialog
+            SwingWorker<String, ImportProgress> worker = new SwingWorker<String, ImportProgress>() {
                 @Override
                 protected String doInBackground() throws Exception {
-                    return csvImporter.importAllFromDirectory(directoryPath);
+                    ImportProgressListener listener = progress -> publish(progress);
+                    csvImporter.addProgressListener(listener);
+                    try {
+                        return csvImporter.importAllFromDirectory(directoryPath);
+                    } finally {
+                        csvImporter.removeProgressListener(listener);
+                    }
+                }
+                
+                @Override
+                protected void process(List<ImportProgress> updates) {
+                    progressDialog.update(updates);
                 }
                 
                 @Override
                 protected void done() {
                     progressDialog.dispose();
+                    // Imported data makes every cached analysis stale
+                    statService.invalidateCache();
                     try {
                         String importResult = get();
                         JOptionPane.showMessageDialog(MainFrame.this,
                                 importResult,
-                                "Import Complete",
+                                csvImporter.isCancelled() ? "Import Cancelled" : "Import Complete",
                                 JOptionPane.INFORMATION_MESSAGE);
                         refreshAllData();
                     } catch (Exception e) {
@@ -232,25 +255,50 @@ public class MainFrame extends JFrame {
      * Shows summary statistics dialog.
      */
     private void showSummary() {
-        try {
-            Map<String, Object> stats = statService.getSummaryStatistics();
-            StringBuilder message = new StringBuilder("=== SUMMARY STATISTICS ===\n\n");
-            
-            for (Map.Entry<String, Object> entry : stats.entrySet()) {
-                message.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
-            }
-            
-            JOptionPane.showMessageDialog(this,
-                    message.toString(),
-                    "Summary Statistics",
-                    JOptionPane.INFORMATION_MESSAGE);
+        asyncStatService.getSummaryStatistics().whenComplete((stats, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException 
+                                ? error.getCause() : error;
+                        JOptionPane.showMessageDialog(this,
+                                "Error loading summary: " + cause.getMessage(),
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
                     
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading summary: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+                    StringBuilder message = new StringBuilder("=== SUMMARY STATISTICS ===\n\n");
+                    for (Map.Entry<String, Object> entry : stats.entrySet()) {
+                        message.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+                    }
+                    
+                    JOptionPane.showMessageDialog(this,
+                            message.toString(),
+                            "Summary Statistics",
+                            JOptionPane.INFORMATION_MESSAGE);
+                }));
+    }
+    
+    /**
+     * Recomputes the summary tables from the base tables, for after the
+     * data was changed outside the importer, and refreshes the panels.
+     */
+    private void rebuildSummaryTables() {
+        asyncStatService.submit(service -> {
+            service.rebuildSummaryTables();
+            return null;
+        }, 0).whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException 
+                        ? error.getCause() : error;
+                JOptionPane.showMessageDialog(this,
+                        "Error rebuilding summary tables: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            refreshAllData();
+        }));
     }
     
     /**
@@ -285,7 +333,8 @@ public class MainFrame extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            // Close database connection
+            // Stop background queries and close database connections
+            asyncStatService.shutdown();
             DBConnection.getInstance().closeConnection();
             System.exit(0);
         }
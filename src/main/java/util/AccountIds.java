@@ -0,0 +1,105 @@
+package util;
+
+import db.QueryExecutor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory set of known account ids for checking the account_id foreign
+ * key of transactions, loans and cards while they are parsed.
+ *
+ * The set is seeded from the accounts table and grows with the ids of
+ * account rows as they are imported, so dependent rows can be checked
+ * without a round trip and orphans rejected before they reach a batch.
+ * The database still enforces the key: an id added for an account row
+ * that later fails to import only lets its orphans through to the
+ * database, which rejects them there. Safe for concurrent importers.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class AccountIds {
+
+    private final IntHashSet ids;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private AccountIds(IntHashSet ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * Loads the ids of every account in the database.
+     *
+     * @param conn Connection to read with
+     * @return Known account ids
+     * @throws SQLException if the accounts cannot be read
+     */
+    public static AccountIds load(Connection conn) throws SQLException {
+        IntHashSet ids = new IntHashSet();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT account_id FROM accounts",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(QueryExecutor.STREAMING_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return new AccountIds(ids);
+    }
+
+    /**
+     * Records an account id being imported.
+     */
+    public void add(int accountId) {
+        lock.writeLock().lock();
+        try {
+            ids.add(accountId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the account exists or is being imported
+     */
+    public boolean contains(int accountId) {
+        lock.readLock().lock();
+        try {
+            return ids.contains(accountId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks the account_id of a CSV row, or records it if the row is
+     * itself an account.
+     *
+     * @param table Table the row belongs to
+     * @param row Row read by the table's headers
+     * @throws IllegalArgumentException if the row references an unknown account
+     */
+    public void check(ImportTable table, CsvRow row) {
+        int column = table.getAccountColumn();
+        if (column < 0) {
+            add(row.getInt(0));
+        } else if (!contains(row.getInt(column))) {
+            throw new IllegalArgumentException("Unknown account_id: " + row.getInt(column));
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
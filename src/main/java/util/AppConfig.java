@@ -0,0 +1,83 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application settings for Bank Data Analysis System.
+ * Reads config.properties from the classpath once and exposes typed
+ * getters that fall back to a default when a key is missing or malformed.
+ *
+ * Database connection settings are read by DBConnection itself; this
+ * class covers the remaining application, cache and import settings.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class AppConfig {
+
+    private static final Properties PROPERTIES = load();
+
+    private AppConfig() {
+    }
+
+    private static Properties load() {
+        Properties props = new Properties();
+        try (InputStream input = AppConfig.class.getClassLoader()
+                .getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            } else {
+                System.err.println("Unable to find config.properties");
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading application configuration: " + e.getMessage());
+        }
+        return props;
+    }
+
+    /**
+     * Gets a string setting. System properties override the file.
+     *
+     * @param key Property key
+     * @param defaultValue Value used when the key is not set
+     * @return Configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Gets an integer setting.
+     *
+     * @param key Property key
+     * @param defaultValue Value used when the key is missing or malformed
+     * @return Configured value or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a boolean setting ("true" or "false").
+     *
+     * @param key Property key
+     * @param defaultValue Value used when the key is not set
+     * @return Configured value or the default
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
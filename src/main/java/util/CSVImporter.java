@@ -1,35 +1,289 @@
 package util;
 
-import db.QueryExecutor;
+import com.mysql.cj.jdbc.JdbcStatement;
+import db.DBConnection;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CSV Importer Utility for Bank Data Analysis System.
  * Reads CSV files and imports data into the database.
  * 
  * This class handles CSV parsing, data validation, and batch insertion
- * into database tables using JDBC prepared statements.
+ * into database tables using JDBC prepared statements. Rows are sent in
+ * JDBC batches of import.batchSize and committed every import.commitRows
+ * rows on a dedicated pooled connection; with rewriteBatchedStatements=true
+ * in the JDBC URL the driver turns each batch into multi-row INSERTs.
+ * 
+ * With import.bulkLoad=true, files are instead streamed through MySQL's
+ * LOAD DATA LOCAL INFILE into a staging table and merged with the same
+ * upsert semantics. This needs allowLoadLocalInfile=true in the JDBC URL
+ * and local_infile=ON on the server.
+ * 
+ * Files of at least import.parallelThresholdMb are split into record-aligned
+ * byte ranges that are parsed on import.parseThreads threads and written by
+ * import.writerThreads writers, see {@link #importFileParallel}. Parsing and
+ * writing overlap, and the stage statistics of each such import are logged.
+ * 
+ * With import.checkpoints=true, progress through each file is recorded in
+ * the import_checkpoints table as batches commit (see
+ * {@link ImportCheckpoints}), and re-running an interrupted import resumes
+ * after the last committed batch instead of upserting the file again.
+ * 
+ * Gzip compressed files (*.csv.gz) are decompressed on the fly on a
+ * separate thread, see {@link CsvInput}. They cannot be split, so large
+ * ones are parsed by a single thread feeding the parallel writers.
+ * 
+ * With import.rejects=true, rows that fail to parse or violate a foreign
+ * key or constraint are written to a sidecar rejects file, see
+ * {@link RejectWriter}, and the rest of the file still imports. Bulk
+ * loads go through LOAD DATA, which converts bad values with warnings.
+ * 
+ * With import.checkAccounts=true, the account_id of transactions, loans
+ * and cards is checked in memory against the known accounts while rows
+ * are parsed (see {@link AccountIds}), and orphans are rejected before
+ * they reach a batch. The known accounts are read again by every import
+ * call, so accounts added since an earlier import are found.
+ * 
+ * With import.delta=true, files are imported as deltas: rows whose content
+ * hash matches the previous import are skipped, see {@link RowHashes}.
+ * 
+ * With analysis.summaryTables=true, imports of accounts and transactions
+ * keep the pre-aggregated {@link SummaryTables} current, in the same
+ * transaction as each batch, for the dashboard analyses to read.
+ * 
+ * Registered {@link ImportProgressListener}s receive per-file progress
+ * (bytes read, rows committed, status), and {@link #cancel()} stops a
+ * running import at its next batch boundary.
  * 
  * @author Bank Data Analysis Team
  * @version 1.0
  */
 public class CSVImporter {
     
-    private QueryExecutor queryExecutor;
+    private DBConnection dbConnection;
+    private int batchSize;
+    private int commitRows;
+    private boolean bulkLoad;
+    private int importThreads;
+    private int parseThreads;
+    private int writerThreads;
+    private long parallelThresholdBytes;
+    private boolean mappedReader;
+    private boolean deltaImport;
+    private boolean rejectRows;
+    private boolean checkAccounts;
+    private boolean bulkForeignKeyChecks;
+    private boolean summaryTables;
+    private ImportCheckpoints checkpoints;
+    private final List<ImportProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<ImportRun> runs = ConcurrentHashMap.newKeySet();
+    private volatile ImportRun lastRun;
     
     /**
-     * Constructor - initializes the CSV importer with query executor.
+     * Constructor - initializes the CSV importer with batch settings
+     * from config.properties.
      */
     public CSVImporter() {
-        this.queryExecutor = new QueryExecutor();
+        this(AppConfig.getInt("import.batchSize", 1000), 
+                AppConfig.getInt("import.commitRows", 10000));
+    }
+    
+    /**
+     * Constructor with explicit batch settings.
+     * 
+     * @param batchSize Rows per JDBC batch
+     * @param commitRows Rows per transaction commit
+     */
+    public CSVImporter(int batchSize, int commitRows) {
+        this.dbConnection = DBConnection.getInstance();
+        this.batchSize = Math.max(1, batchSize);
+        this.commitRows = Math.max(this.batchSize, commitRows);
+        this.bulkLoad = AppConfig.getBoolean("import.bulkLoad", false);
+        this.importThreads = AppConfig.getInt("import.threads", 4);
+        int configuredParsers = AppConfig.getInt("import.parseThreads", 0);
+        this.parseThreads = configuredParsers > 0 
+                ? configuredParsers : Runtime.getRuntime().availableProcessors();
+        this.writerThreads = Math.max(1, AppConfig.getInt("import.writerThreads", 4));
+        this.parallelThresholdBytes = AppConfig.getInt("import.parallelThresholdMb", 64) * 1024L * 1024L;
+        this.mappedReader = AppConfig.getBoolean("import.mappedReader", true);
+        this.deltaImport = AppConfig.getBoolean("import.delta", false);
+        this.rejectRows = AppConfig.getBoolean("import.rejects", true);
+        this.checkAccounts = AppConfig.getBoolean("import.checkAccounts", true);
+        this.bulkForeignKeyChecks = AppConfig.getBoolean("import.bulkForeignKeyChecks", true);
+        this.summaryTables = AppConfig.getBoolean("analysis.summaryTables", true);
+        this.checkpoints = AppConfig.getBoolean("import.checkpoints", true) 
+                ? new ImportCheckpoints(dbConnection) : null;
+    }
+    
+    /**
+     * Enables or disables the LOAD DATA LOCAL INFILE fast path for
+     * importAllFromDirectory.
+     * 
+     * @param bulkLoad true to bulk load files through a staging table
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+    
+    /**
+     * Enables or disables delta imports, which send only rows that are new
+     * or changed since the previous import and take precedence over the
+     * bulk and parallel paths in importAllFromDirectory.
+     * 
+     * @param deltaImport true to skip rows whose content is unchanged
+     */
+    public void setDeltaImport(boolean deltaImport) {
+        this.deltaImport = deltaImport;
+    }
+    
+    /**
+     * Sets the number of writer threads of parallel imports, each writing
+     * its batches on its own pooled connection.
+     * 
+     * @param writerThreads Writer threads, at least one
+     */
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = Math.max(1, writerThreads);
+    }
+    
+    /**
+     * Registers a listener for per-file progress updates.
+     * 
+     * @param listener Listener called on the importing threads
+     */
+    public void addProgressListener(ImportProgressListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Removes a progress listener.
+     * 
+     * @param listener Listener to remove
+     */
+    public void removeProgressListener(ImportProgressListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Asks the running imports to stop. Each file stops at its next batch
+     * boundary after committing the batches already sent, and files of a
+     * directory import not yet started are skipped. Only imports running
+     * when it is called are cancelled; later ones run normally.
+     */
+    public void cancel() {
+        for (ImportRun run : runs) {
+            run.cancelled = true;
+        }
+    }
+    
+    /**
+     * @return true if {@link #cancel()} was called while the most recently
+     *         started import was running
+     */
+    public boolean isCancelled() {
+        ImportRun run = lastRun;
+        return run != null && run.cancelled;
+    }
+    
+    /**
+     * Starts a top-level import, which {@link #cancel()} reaches until
+     * {@link #end(ImportRun)}.
+     */
+    private ImportRun begin() {
+        ImportRun run = new ImportRun();
+        runs.add(run);
+        lastRun = run;
+        return run;
+    }
+    
+    private void end(ImportRun run) {
+        runs.remove(run);
+    }
+    
+    /**
+     * Creates and fills the summary tables if needed, and returns those
+     * of the table to keep current. Call it while the connection is still
+     * in auto-commit mode.
+     * 
+     * @return Summaries of the table, or null if it has none or they are disabled
+     * @throws SQLException if the summary tables cannot be created
+     */
+    private SummaryTables summaries(Connection conn, ImportTable table) throws SQLException {
+        SummaryTables summaries = summaryTables ? SummaryTables.forTable(table) : null;
+        if (summaries != null) {
+            SummaryTables.ensure(conn);
+        }
+        return summaries;
+    }
+    
+    /**
+     * One call of a public import method, shared by the files of a
+     * directory import. Account ids are loaded once per run, so a run
+     * sees the accounts that exist when it starts, plus those it imports.
+     */
+    private final class ImportRun {
+        
+        private volatile boolean cancelled;
+        private AccountIds accountIds;
+        
+        /**
+         * Returns the known account ids, loading them from the database on
+         * first use.
+         * 
+         * @return Account ids, or null if foreign keys are not checked in memory
+         * @throws SQLException if the accounts cannot be read
+         */
+        synchronized AccountIds accountIds() throws SQLException {
+            if (checkAccounts && accountIds == null) {
+                try (Connection conn = dbConnection.getConnection()) {
+                    accountIds = AccountIds.load(conn);
+                }
+            }
+            return accountIds;
+        }
+        
+        /**
+         * Forgets the loaded account ids, so the next file reads them again.
+         */
+        synchronized void resetAccountIds() {
+            accountIds = null;
+        }
+        
+        void checkCancelled(String csvFilePath) throws ImportCancelledException {
+            checkCancelled(csvFilePath, 0);
+        }
+        
+        void checkCancelled(String csvFilePath, long rowsCommitted) throws ImportCancelledException {
+            if (cancelled) {
+                throw new ImportCancelledException(csvFilePath, rowsCommitted);
+            }
+        }
     }
     
     /**
@@ -41,35 +295,7 @@ public class CSVImporter {
      * @throws SQLException if database insertion fails
      */
     public int importAccounts(String csvFilePath) throws IOException, SQLException {
-        int count = 0;
-        
-        try (Reader reader = new FileReader(csvFilePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader, 
-                     CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
-            
-            for (CSVRecord record : csvParser) {
-                String query = "INSERT INTO accounts (account_id, customer_name, email, " +
-                        "phone, account_type, balance, date_opened, branch, status) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE customer_name=VALUES(customer_name), " +
-                        "balance=VALUES(balance)";
-                
-                queryExecutor.executeParameterizedUpdate(query,
-                        Integer.parseInt(record.get("account_id")),
-                        record.get("customer_name"),
-                        record.get("email"),
-                        record.get("phone"),
-                        record.get("account_type"),
-                        Double.parseDouble(record.get("balance")),
-                        record.get("date_opened"),
-                        record.get("branch"),
-                        record.get("status"));
-                
-                count++;
-            }
-        }
-        
-        return count;
+        return (int) importFile(ImportTable.ACCOUNTS, csvFilePath).getRowCount();
     }
     
     /**
@@ -81,32 +307,7 @@ public class CSVImporter {
      * @throws SQLException if database insertion fails
      */
     public int importTransactions(String csvFilePath) throws IOException, SQLException {
-        int count = 0;
-        
-        try (Reader reader = new FileReader(csvFilePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader, 
-                     CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
-            
-            for (CSVRecord record : csvParser) {
-                String query = "INSERT INTO transactions (transaction_id, account_id, transaction_type, " +
-                        "amount, transaction_date, description, status) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE status=VALUES(status)";
-                
-                queryExecutor.executeParameterizedUpdate(query,
-                        Integer.parseInt(record.get("transaction_id")),
-                        Integer.parseInt(record.get("account_id")),
-                        record.get("transaction_type"),
-                        Double.parseDouble(record.get("amount")),
-                        record.get("transaction_date"),
-                        record.get("description"),
-                        record.get("status"));
-                
-                count++;
-            }
-        }
-        
-        return count;
+        return (int) importFile(ImportTable.TRANSACTIONS, csvFilePath).getRowCount();
     }
     
     /**
@@ -118,128 +319,909 @@ public class CSVImporter {
      * @throws SQLException if database insertion fails
      */
     public int importLoans(String csvFilePath) throws IOException, SQLException {
-        int count = 0;
+        return (int) importFile(ImportTable.LOANS, csvFilePath).getRowCount();
+    }
+    
+    /**
+     * Imports card data from CSV file to database.
+     * 
+     * @param csvFilePath Path to the CSV file
+     * @return Number of records imported
+     * @throws IOException if file reading fails
+     * @throws SQLException if database insertion fails
+     */
+    public int importCards(String csvFilePath) throws IOException, SQLException {
+        return (int) importFile(ImportTable.CARDS, csvFilePath).getRowCount();
+    }
+    
+    /**
+     * Imports a CSV file into its table using batched upserts.
+     * The file is read with {@link MappedCsvReader} when import.mappedReader
+     * is enabled, falling back to Commons CSV. Rows are added to a JDBC
+     * batch that is executed every batchSize rows, and the transaction is
+     * committed every commitRows rows. If the import fails, work since the
+     * last commit is rolled back. If it is cancelled, the batches already
+     * sent are committed and an {@link ImportCancelledException} is thrown.
+     * 
+     * With checkpoints enabled, each commit also records the offset of the
+     * next record in the same transaction, and an import of a file that
+     * was interrupted continues from there. The rows of the earlier run
+     * are not counted again.
+     * 
+     * Rows that cannot be imported are quarantined to the rejects file
+     * when import.rejects is enabled: parse errors as they are read, and
+     * foreign key or constraint failures by rewriting a failed batch row
+     * by row, so the good rows of the batch still commit. With
+     * import.checkAccounts, rows referencing an unknown account are
+     * rejected while parsing, before they reach a batch.
+     * 
+     * In delta mode each row's content hash is compared with the one
+     * stored by the previous import, and unchanged rows are not sent. The
+     * result then reports inserted, updated and unchanged rows.
+     * 
+     * With analysis.summaryTables, the {@link SummaryTables} of accounts
+     * and transactions are updated with the changes of each batch in the
+     * transaction that writes it.
+     * 
+     * @param table Target table
+     * @param csvFilePath Path to the CSV file
+     * @return Rows imported and throughput
+     * @throws IOException if file reading fails
+     * @throws SQLException if database insertion fails
+     */
+    public ImportResult importFile(ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        ImportRun run = begin();
+        try {
+            return importFile(run, table, csvFilePath);
+        } finally {
+            end(run);
+        }
+    }
+    
+    private ImportResult importFile(ImportRun run, ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        FileProgress progress = new FileProgress(table, csvFilePath);
+        long fileSize = new File(csvFilePath).length();
+        FileImport fileImport;
         
-        try (Reader reader = new FileReader(csvFilePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader, 
-                     CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+        try {
+            run.checkCancelled(csvFilePath);
+            ImportCheckpoints.Checkpoint resume = checkpoints == null ? null 
+                    : checkpoints.load(csvFilePath).get(ImportCheckpoints.rangeKey(0, fileSize));
+            long resumed = resume == null ? 0 : resume.getRowsCommitted();
+            AccountIds accounts = run.accountIds();
             
-            for (CSVRecord record : csvParser) {
-                String query = "INSERT INTO loans (loan_id, account_id, loan_type, amount, " +
-                        "interest_rate, duration_months, start_date, status, monthly_payment) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE status=VALUES(status)";
-                
-                queryExecutor.executeParameterizedUpdate(query,
-                        Integer.parseInt(record.get("loan_id")),
-                        Integer.parseInt(record.get("account_id")),
-                        record.get("loan_type"),
-                        Double.parseDouble(record.get("amount")),
-                        Double.parseDouble(record.get("interest_rate")),
-                        Integer.parseInt(record.get("duration_months")),
-                        record.get("start_date"),
-                        record.get("status"),
-                        Double.parseDouble(record.get("monthly_payment")));
+            try (Connection conn = dbConnection.getConnection();
+                 RejectWriter rejects = rejectRows ? new RejectWriter(csvFilePath, resume != null) : null) {
+                // Loaded before the transaction starts, as it may create the hash table
+                RowHashes hashes = deltaImport ? RowHashes.load(conn, table) : null;
+                SummaryTables summaries = summaries(conn, table);
+                conn.setAutoCommit(false);
                 
-                count++;
+                try (CsvRowReader reader = CsvRowReader.open(csvFilePath, table.getHeaders(), mappedReader);
+                     PreparedStatement ps = conn.prepareStatement(table.getUpsertSql())) {
+                    
+                    if (resume != null) {
+                        System.err.println("Resuming " + csvFilePath + " after " + resumed + " committed records");
+                        reader.skip(resume.getByteOffset(), resumed);
+                    }
+                    progress.running(reader.getBytesRead(), 0);
+                    fileImport = new FileImport(run, table, csvFilePath, conn, ps, reader, progress);
+                    fileImport.hashes = hashes;
+                    fileImport.rejects = rejects;
+                    fileImport.accounts = accounts;
+                    fileImport.summaries = summaries;
+                    fileImport.run(fileSize, resumed);
+                    
+                } catch (IOException | SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    if (hashes != null) {
+                        hashes.close();
+                    }
+                }
             }
+        } catch (IOException | SQLException | RuntimeException e) {
+            progress.failed(e);
+            throw e;
         }
         
-        return count;
+        return progress.completed(fileImport.rows, fileImport.hashes, 
+                fileImport.rejects == null ? 0 : fileImport.rejects.getCount());
     }
     
     /**
-     * Imports card data from CSV file to database.
+     * Imports one large CSV file using several parser and writer threads.
+     * 
+     * The file is split by {@link CsvSplitter} into byte ranges aligned on
+     * record boundaries, and each range is parsed on its own thread, see
+     * {@link #produceRange}. Parsed
+     * batches go through the bounded queue of an {@link ImportPipeline} to
+     * writer threads, each writing on its own pooled connection. Every batch
+     * commits on its own, and rows of one file may be written out of file
+     * order, so a key repeated within the file keeps whichever row was
+     * written last.
      * 
+     * With checkpoints enabled, a range is checkpointed once all of its
+     * rows have committed, and ranges completed by an interrupted run are
+     * skipped when the import is repeated with the same parseThreads.
+     * 
+     * Gzip compressed files cannot be split, so they are parsed on one
+     * thread that feeds the writers, and checkpointed only once complete.
+     * 
+     * Summary tables are updated by each writer with its batch, see
+     * {@link ImportPipeline#setSummaries(SummaryTables)}.
+     * 
+     * The {@link PipelineStats} of the import are logged when it ends.
+     * 
+     * @param table Target table
      * @param csvFilePath Path to the CSV file
-     * @return Number of records imported
+     * @return Rows imported and throughput
      * @throws IOException if file reading fails
      * @throws SQLException if database insertion fails
      */
-    public int importCards(String csvFilePath) throws IOException, SQLException {
-        int count = 0;
+    public ImportResult importFileParallel(ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        ImportRun run = begin();
+        try {
+            return importFileParallel(run, table, csvFilePath);
+        } finally {
+            end(run);
+        }
+    }
+    
+    private ImportResult importFileParallel(ImportRun run, ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        FileProgress progress = new FileProgress(table, csvFilePath);
+        long rows;
+        long rejected = 0;
         
-        try (Reader reader = new FileReader(csvFilePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader, 
-                     CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+        try {
+            run.checkCancelled(csvFilePath);
+            List<String> headers = readHeaders(csvFilePath);
+            int[] positions = CsvRowReader.resolveColumns(table.getHeaders(), headers);
+            CSVFormat format = CSVFormat.DEFAULT.builder()
+                    .setHeader(headers.toArray(new String[0]))
+                    .setTrim(true)
+                    .build();
+            AtomicLong bytesRead = new AtomicLong();
+            boolean compressed = CsvInput.isCompressed(csvFilePath);
+            Map<String, ImportCheckpoints.Checkpoint> done = checkpoints == null 
+                    ? Collections.emptyMap() : checkpoints.load(csvFilePath);
             
+            List<CsvSplitter.Range> ranges = new ArrayList<>();
+            List<ImportPipeline.Producer> producers = new ArrayList<>();
+            List<CsvSplitter.Range> split = compressed
+                    ? Collections.singletonList(new CsvSplitter.Range(
+                            Paths.get(csvFilePath), 0, new File(csvFilePath).length()))
+                    : CsvSplitter.split(Paths.get(csvFilePath), parseThreads);
+            for (CsvSplitter.Range range : split) {
+                ImportCheckpoints.Checkpoint checkpoint = 
+                        done.get(ImportCheckpoints.rangeKey(range.getStart(), range.getEnd()));
+                if (checkpoint != null && checkpoint.isComplete()) {
+                    bytesRead.addAndGet(range.getLength());
+                    continue;
+                }
+                ranges.add(range);
+                producers.add(sink -> {
+                    if (!compressed) {
+                        produceRange(table, range, format, bytesRead, sink);
+                        return;
+                    }
+                    InputStream input = new CountingInputStream(new FileInputStream(csvFilePath)) {
+                        @Override
+                        protected void bytesRead(int n) {
+                            bytesRead.addAndGet(n);
+                        }
+                    };
+                    // The whole compressed file still starts with its header line
+                    try (Reader reader = new InputStreamReader(
+                                 CsvInput.open(csvFilePath, input), StandardCharsets.UTF_8);
+                         CSVParser csvParser = new CSVParser(reader,
+                                 format.builder().setSkipHeaderRecord(true).build())) {
+                        for (CSVRecord record : csvParser) {
+                            if (!sink.accept(record)) {
+                                break;
+                            }
+                        }
+                    }
+                });
+            }
+            
+            ImportPipeline pipeline = new ImportPipeline(dbConnection, table, positions, batchSize, writerThreads);
+            pipeline.setCancellation(() -> run.cancelled);
+            pipeline.setBatchListener(() -> progress.running(bytesRead.get(), pipeline.getRowsWritten()));
+            if (checkpoints != null) {
+                if (!done.isEmpty()) {
+                    System.err.println("Resuming " + csvFilePath + ": " + producers.size() 
+                            + " byte ranges left to import");
+                }
+                pipeline.setProducerListener((producer, rowsCommitted) -> {
+                    CsvSplitter.Range range = ranges.get(producer);
+                    checkpoints.save(csvFilePath, new ImportCheckpoints.Checkpoint(
+                            range.getStart(), range.getEnd(), range.getEnd(), rowsCommitted));
+                });
+            }
+            progress.running(bytesRead.get(), 0);
+            pipeline.setAccountIds(run.accountIds());
+            if (summaryTables && SummaryTables.forTable(table) != null) {
+                try (Connection conn = dbConnection.getConnection()) {
+                    pipeline.setSummaries(summaries(conn, table));
+                }
+            }
+            try (RejectWriter rejects = rejectRows ? new RejectWriter(csvFilePath, !done.isEmpty()) : null) {
+                pipeline.setRejects(rejects);
+                try {
+                    rows = producers.isEmpty() ? 0 : pipeline.run(producers, csvFilePath);
+                } finally {
+                    if (pipeline.getStats() != null) {
+                        System.out.println("Pipeline " + csvFilePath + ": " + producers.size() 
+                                + " parsers, " + writerThreads + " writers, " + pipeline.getStats());
+                    }
+                }
+                rejected = rejects == null ? 0 : rejects.getCount();
+            }
+            if (checkpoints != null) {
+                checkpoints.clear(csvFilePath);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            progress.failed(e);
+            throw e;
+        }
+        
+        return progress.completed(rows, null, rejected);
+    }
+    
+    /**
+     * Parses one byte range of a file for {@link #importFileParallel}.
+     * 
+     * With import.mappedReader=true the range is read with a
+     * {@link MappedCsvReader} of its own, whose rows the pipeline copies.
+     * Commons CSV reads the range when the mapped reader is disabled, and
+     * the rest of it when the mapped reader meets input it does not support.
+     * 
+     * @param table Target table
+     * @param range Record-aligned range after the header line
+     * @param format Commons CSV format naming the file's headers
+     * @param bytesRead Bytes parsed by all producers, for progress
+     * @param sink Receives the rows of the range
+     */
+    private void produceRange(ImportTable table, CsvSplitter.Range range, CSVFormat format, 
+            AtomicLong bytesRead, ImportPipeline.RecordSink sink) throws IOException, InterruptedException {
+        long position = range.getStart();
+        if (mappedReader) {
+            long counted = position;
+            try (MappedCsvReader reader = new MappedCsvReader(range.getFile(), table.getHeaders())) {
+                reader.skip(range.getStart(), 0);
+                reader.limit(range.getEnd());
+                CsvRow row;
+                while ((row = reader.next()) != null) {
+                    if (!sink.accept(row, reader.markRecord())) {
+                        return;
+                    }
+                    position = reader.getRecordOffset();
+                    // Publish progress about as often as a buffered stream would
+                    if (position - counted >= 1 << 16) {
+                        bytesRead.addAndGet(position - counted);
+                        counted = position;
+                    }
+                }
+                bytesRead.addAndGet(range.getEnd() - counted);
+                return;
+            } catch (MappedCsvReader.UnsupportedInputException e) {
+                bytesRead.addAndGet(position - counted);
+                System.err.println("Reading " + range.getFile() + " from byte " + position 
+                        + " with Commons CSV: " + e.getMessage());
+            }
+        }
+        
+        CsvSplitter.Range rest = new CsvSplitter.Range(range.getFile(), position, range.getEnd());
+        InputStream input = new CountingInputStream(rest.open()) {
+            @Override
+            protected void bytesRead(int n) {
+                bytesRead.addAndGet(n);
+            }
+        };
+        try (Reader reader = new InputStreamReader(new BufferedInputStream(input, 1 << 16), StandardCharsets.UTF_8);
+             CSVParser csvParser = new CSVParser(reader, format)) {
             for (CSVRecord record : csvParser) {
-                String query = "INSERT INTO cards (card_id, account_id, card_type, card_number, " +
-                        "expiry_date, credit_limit, status) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE status=VALUES(status)";
-                
-                queryExecutor.executeParameterizedUpdate(query,
-                        Integer.parseInt(record.get("card_id")),
-                        Integer.parseInt(record.get("account_id")),
-                        record.get("card_type"),
-                        record.get("card_number"),
-                        record.get("expiry_date"),
-                        Double.parseDouble(record.get("credit_limit")),
-                        record.get("status"));
-                
-                count++;
+                if (!sink.accept(record)) {
+                    break;
+                }
             }
         }
+    }
+    
+    /**
+     * Imports a CSV file with MySQL's native bulk loader.
+     * 
+     * The headers are checked with {@link #validateCSV(String, String[])},
+     * then the file is streamed with LOAD DATA LOCAL INFILE into a
+     * temporary staging table, mapping CSV columns by header name. The
+     * staged rows are merged into the target table with INSERT ... SELECT
+     * using the same ON DUPLICATE KEY UPDATE clause as the batched path,
+     * and the merge is committed as one transaction.
+     * 
+     * For tables referencing accounts, staged orphans are moved to the
+     * rejects file before the merge. With import.bulkForeignKeyChecks=false
+     * the merge then runs with foreign key checks off.
+     * 
+     * Summary tables are updated in the merge transaction, from the groups
+     * of the staged keys read before and after the merge.
+     * 
+     * @param table Target table
+     * @param csvFilePath Path to the CSV file
+     * @return Rows loaded and throughput
+     * @throws IOException if the file cannot be read or has the wrong headers
+     * @throws SQLException if loading or merging fails
+     */
+    public ImportResult importFileBulk(ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        ImportRun run = begin();
+        try {
+            return importFileBulk(run, table, csvFilePath);
+        } finally {
+            end(run);
+        }
+    }
+    
+    private ImportResult importFileBulk(ImportRun run, ImportTable table, String csvFilePath) 
+            throws IOException, SQLException {
+        FileProgress progress = new FileProgress(table, csvFilePath);
+        try {
+            run.checkCancelled(csvFilePath);
+            try (RejectWriter rejects = rejectRows ? new RejectWriter(csvFilePath, false) : null) {
+                long rows = bulkLoad(run, table, csvFilePath, progress, rejects);
+                return progress.completed(rows, null, rejects == null ? 0 : rejects.getCount());
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            progress.failed(e);
+            throw e;
+        }
+    }
+    
+    private long bulkLoad(ImportRun run, ImportTable table, String csvFilePath, FileProgress progress, 
+            RejectWriter rejects) throws IOException, SQLException {
+        if (!validateCSV(csvFilePath, table.getHeaders())) {
+            throw new IOException("CSV headers do not match " + table.getTableName() 
+                    + " table: " + csvFilePath);
+        }
+        
+        List<String> fileHeaders = readHeaders(csvFilePath);
+        String columns = String.join(", ", table.getHeaders());
+        String stagingTable = "stage_" + table.getTableName();
+        
+        // Map each CSV position to a user variable, then assign by header name
+        StringBuilder variables = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < fileHeaders.size(); i++) {
+            if (i > 0) {
+                variables.append(", ");
+                assignments.append(", ");
+            }
+            variables.append("@c").append(i);
+            assignments.append(fileHeaders.get(i).trim().toLowerCase())
+                    .append(" = NULLIF(TRIM(REPLACE(@c").append(i).append(", '\\r', '')), '')");
+        }
+        
+        String loadSql = "LOAD DATA LOCAL INFILE 'csv-stream' INTO TABLE " + stagingTable + 
+                " CHARACTER SET utf8mb4 " +
+                "FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' " +
+                "LINES TERMINATED BY '\\n' IGNORE 1 LINES " +
+                "(" + variables + ") SET " + assignments;
+        String mergeSql = "INSERT INTO " + table.getTableName() + " (" + columns + ") " +
+                "SELECT " + columns + " FROM " + stagingTable + " " +
+                "ON DUPLICATE KEY UPDATE " + table.getUpdateClause();
         
-        return count;
+        long rows;
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            // Staging table has the target's column types but no keys or constraints
+            stmt.execute("DROP TEMPORARY TABLE IF EXISTS " + stagingTable);
+            stmt.execute("CREATE TEMPORARY TABLE " + stagingTable + 
+                    " SELECT " + columns + " FROM " + table.getTableName() + " LIMIT 0");
+            
+            try (InputStream input = new BufferedInputStream(CsvInput.open(csvFilePath,
+                    new CountingInputStream(new FileInputStream(csvFilePath)) {
+                        @Override
+                        protected void bytesRead(int n) {
+                            progress.running(getCount(), 0);
+                        }
+                    }), 1 << 16)) {
+                stmt.unwrap(JdbcStatement.class).setLocalInfileInputStream(input);
+                rows = stmt.executeUpdate(loadSql);
+            }
+            
+            reportWarnings(stmt, csvFilePath);
+            
+            // Orphans must go before the merge can skip foreign key checks
+            boolean removeOrphans = table.getAccountColumn() >= 0 && (rejects != null || !bulkForeignKeyChecks);
+            SummaryTables summaries = summaries(conn, table);
+            conn.setAutoCommit(false);
+            try {
+                // The load is one statement, so cancelling takes effect before the merge
+                run.checkCancelled(csvFilePath);
+                if (removeOrphans) {
+                    rows -= removeOrphans(stmt, table, stagingTable, csvFilePath, rejects);
+                }
+                if (!bulkForeignKeyChecks) {
+                    stmt.execute("SET foreign_key_checks = 0");
+                }
+                try {
+                    SummaryTables.Snapshot before = summaries == null ? null 
+                            : summaries.readStaged(conn, stagingTable);
+                    stmt.executeUpdate(mergeSql);
+                    if (summaries != null) {
+                        summaries.apply(conn, before, summaries.readStaged(conn, stagingTable));
+                    }
+                } finally {
+                    if (!bulkForeignKeyChecks) {
+                        stmt.execute("SET foreign_key_checks = 1");
+                    }
+                }
+                conn.commit();
+            } catch (IOException | SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                stmt.execute("DROP TEMPORARY TABLE IF EXISTS " + stagingTable);
+            }
+        }
+        
+        if (table == ImportTable.ACCOUNTS) {
+            run.resetAccountIds(); // The merged accounts are not in the in-memory set
+        }
+        return rows;
+    }
+    
+    /**
+     * Deletes staged rows whose account does not exist, writing them to
+     * the rejects file first. One anti-join on the server checks the whole
+     * staging table, which is cheaper here than streaming every row back
+     * to check it against {@link AccountIds}.
+     * 
+     * @param rejects Writer for the orphans, or null to only log how many were dropped
+     * @return Rows deleted
+     */
+    private static long removeOrphans(Statement stmt, ImportTable table, String stagingTable, 
+            String csvFilePath, RejectWriter rejects) throws SQLException {
+        String orphans = " FROM " + stagingTable + " s LEFT JOIN accounts a " +
+                "ON a.account_id = s.account_id WHERE a.account_id IS NULL";
+        if (rejects != null) {
+            String[] headers = table.getHeaders();
+            StringBuilder columns = new StringBuilder();
+            for (String header : headers) {
+                columns.append(columns.length() == 0 ? "s." : ", s.").append(header);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT " + columns + orphans)) {
+                Object[] values = new Object[headers.length];
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getString(i + 1);
+                    }
+                    rejects.reject(-1, CSVFormat.DEFAULT.format(values), 
+                            "Unknown account_id: " + rs.getString("account_id"));
+                }
+            }
+        }
+        long deleted = stmt.executeUpdate("DELETE s" + orphans);
+        if (deleted > 0 && rejects == null) {
+            System.err.println("Dropped " + deleted + " rows with unknown account_id from " + csvFilePath);
+        }
+        return deleted;
+    }
+    
+    /**
+     * Logs how many values MySQL truncated or converted while loading,
+     * since LOAD DATA LOCAL reports bad values as warnings, not errors.
+     */
+    private static void reportWarnings(Statement stmt, String csvFilePath) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT @@warning_count")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                System.err.println("Bulk load of " + csvFilePath + " produced " 
+                        + rs.getInt(1) + " warnings (malformed values were converted)");
+            }
+        }
     }
     
     /**
-     * Auto-detects and imports all CSV files from a directory.
+     * Auto-detects and imports all CSV files from a directory, including
+     * gzip compressed *.csv.gz files.
+     * 
+     * Files are imported in dependency order: every accounts file first,
+     * then transactions, loans and cards files concurrently, since their
+     * rows reference account_id. Sharded inputs such as
+     * transactions_2024_01.csv and transactions_2024_02.csv are imported
+     * as separate parallel streams, each on its own pooled connection,
+     * using up to import.threads worker threads.
      * 
      * @param directoryPath Path to directory containing CSV files
-     * @return Summary of import results
+     * @return Summary of import results with per-file timings
      * @throws IOException if file operations fail
      * @throws SQLException if database operations fail
      */
     public String importAllFromDirectory(String directoryPath) throws IOException, SQLException {
-        StringBuilder result = new StringBuilder();
         File directory = new File(directoryPath);
         
         if (!directory.exists() || !directory.isDirectory()) {
             throw new IOException("Invalid directory path: " + directoryPath);
         }
         
-        File[] csvFiles = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".csv"));
+        File[] csvFiles = directory.listFiles((dir, name) -> CsvInput.isCsvFile(name));
         
         if (csvFiles == null || csvFiles.length == 0) {
             return "No CSV files found in directory: " + directoryPath;
         }
         
+        Arrays.sort(csvFiles, Comparator.comparing(File::getName));
+        ImportRun run = begin();
+        try {
+            return importAll(run, csvFiles);
+        } finally {
+            end(run);
+        }
+    }
+    
+    private String importAll(ImportRun run, File[] csvFiles) throws IOException {
+        StringBuilder result = new StringBuilder();
+        
         result.append("=== CSV Import Results ===\n\n");
         
+        // Parents first, then the tables that reference accounts
+        List<File> accountFiles = new ArrayList<>();
+        List<File> dependentFiles = new ArrayList<>();
         for (File csvFile : csvFiles) {
-            String fileName = csvFile.getName().toLowerCase();
-            int count = 0;
+            ImportTable table = ImportTable.forFileName(csvFile.getName());
+            if (table == null) {
+                result.append(String.format("Skipped (unknown type): %s\n", 
+                        csvFile.getName().toLowerCase()));
+            } else {
+                (table == ImportTable.ACCOUNTS ? accountFiles : dependentFiles).add(csvFile);
+                new FileProgress(table, csvFile.getAbsolutePath()).queued();
+            }
+        }
+        
+        long start = System.nanoTime();
+        int threads = Math.max(1, Math.min(importThreads, Math.max(accountFiles.size(), dependentFiles.size())));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long totalRows = 0;
+        try {
+            for (List<File> phase : Arrays.asList(accountFiles, dependentFiles)) {
+                for (FileOutcome outcome : importConcurrently(run, phase, executor)) {
+                    if (outcome.error == null) {
+                        totalRows += outcome.result.getRowCount();
+                        result.append(outcome.result).append("\n");
+                    } else if (outcome.error instanceof ImportCancelledException) {
+                        long committed = ((ImportCancelledException) outcome.error).getRowsCommitted();
+                        totalRows += committed;
+                        result.append(String.format("Cancelled %s: %d records committed\n",
+                                outcome.file.getName().toLowerCase(), committed));
+                    } else {
+                        result.append(String.format("Error importing %s: %s\n",
+                                outcome.file.getName().toLowerCase(), outcome.error.getMessage()));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        result.append(String.format("\nTotal: %d records in %.2f s\n", 
+                totalRows, (System.nanoTime() - start) / 1_000_000_000.0));
+        result.append(run.cancelled ? "\n=== Import Cancelled ===" : "\n=== Import Complete ===");
+        return result.toString();
+    }
+    
+    /**
+     * Imports a group of files in parallel and waits for all of them.
+     * 
+     * @param run Import the files belong to
+     * @param files Files to import
+     * @param executor Worker threads
+     * @return One outcome per file, in the order of the input list
+     * @throws IOException if the import is interrupted
+     */
+    private List<FileOutcome> importConcurrently(ImportRun run, List<File> files, ExecutorService executor) 
+            throws IOException {
+        List<Future<FileOutcome>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(executor.submit(() -> {
+                ImportTable table = ImportTable.forFileName(file.getName());
+                try {
+                    String path = file.getAbsolutePath();
+                    ImportResult result;
+                    if (deltaImport) {
+                        result = importFile(run, table, path);
+                    } else if (bulkLoad) {
+                        result = importFileBulk(run, table, path);
+                    } else if (file.length() >= parallelThresholdBytes) {
+                        result = importFileParallel(run, table, path);
+                    } else {
+                        result = importFile(run, table, path);
+                    }
+                    return new FileOutcome(file, result, null);
+                } catch (Exception e) {
+                    return new FileOutcome(file, null, e);
+                }
+            }));
+        }
+        
+        List<FileOutcome> outcomes = new ArrayList<>();
+        try {
+            for (Future<FileOutcome> future : futures) {
+                outcomes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import worker failed", e.getCause());
+        }
+        return outcomes;
+    }
+    
+    /**
+     * Result or failure of importing one file.
+     */
+    private static final class FileOutcome {
+        
+        private final File file;
+        private final ImportResult result;
+        private final Exception error;
+        
+        FileOutcome(File file, ImportResult result, Exception error) {
+            this.file = file;
+            this.result = result;
+            this.error = error;
+        }
+    }
+    
+    /**
+     * One run of {@link #importFile(ImportTable, String)}: batches the rows
+     * of a reader, commits every commitRows rows and quarantines bad rows.
+     * Each batch also updates the summary tables, if any.
+     */
+    private final class FileImport {
+        
+        private final ImportRun run;
+        private final ImportTable table;
+        private final String csvFilePath;
+        private final Connection conn;
+        private final PreparedStatement ps;
+        private final CsvRowReader reader;
+        private final FileProgress progress;
+        private RowHashes hashes;
+        private RejectWriter rejects;
+        private AccountIds accounts;
+        private SummaryTables summaries;
+        
+        // Reader mark, line and delta position of each row of the pending batch, for retries
+        private final long[] batchMarks = new long[batchSize];
+        private final long[] batchLines = new long[batchSize];
+        private final int[] batchIds = new int[batchSize];
+        private final int[] batchTracked = new int[batchSize];
+        private RecordRow retryRow;
+        
+        private long rows;
+        
+        FileImport(ImportRun run, ImportTable table, String csvFilePath, Connection conn, PreparedStatement ps, 
+                CsvRowReader reader, FileProgress progress) {
+            this.run = run;
+            this.table = table;
+            this.csvFilePath = csvFilePath;
+            this.conn = conn;
+            this.ps = ps;
+            this.reader = reader;
+            this.progress = progress;
+        }
+        
+        /**
+         * Imports the remaining rows of the reader.
+         * 
+         * @param fileSize File size, for checkpoints
+         * @param resumed Records committed by an earlier, interrupted run
+         */
+        void run(long fileSize, long resumed) throws IOException, SQLException {
+            int pending = 0;
+            long records = resumed; // Includes unchanged and rejected rows, for resuming by count
+            long committed = 0;
+            long skipped = 0;
+            CsvRow row;
+            
+            while ((row = reader.next()) != null) {
+                records++;
+                int id = 0;
+                int tracked = -1;
+                try {
+                    if (hashes != null || summaries != null) {
+                        id = row.getInt(0);
+                    }
+                    if (hashes != null) {
+                        long hash = table.contentHash(row);
+                        tracked = hashes.position();
+                        if (hashes.track(id, hash) == RowHashes.Change.UNCHANGED) {
+                            // Keep progress and cancellation responsive through long unchanged stretches
+                            if (++skipped % batchSize == 0) {
+                                progress.running(reader.getBytesRead(), committed);
+                                run.checkCancelled(csvFilePath, committed);
+                            }
+                            continue;
+                        }
+                    }
+                    if (accounts != null) {
+                        accounts.check(table, row);
+                    }
+                    table.bind(ps, row);
+                } catch (RuntimeException e) {
+                    if (rejects == null) {
+                        throw e;
+                    }
+                    if (hashes != null) {
+                        hashes.discard(tracked);
+                    }
+                    rejects.reject(reader.getLineNumber(), reader.getRawRecord(), e);
+                    continue;
+                }
+                ps.addBatch();
+                if (rejects != null) {
+                    batchMarks[pending] = reader.markRecord();
+                    batchLines[pending] = reader.getLineNumber();
+                }
+                batchIds[pending] = id;
+                batchTracked[pending] = tracked;
+                pending++;
+                
+                if (pending == batchSize) {
+                    rows += executeBatch(pending);
+                    pending = 0;
+                    
+                    // On cancel, commit what was sent so the table matches the count reported
+                    if (rows - committed >= commitRows || run.cancelled) {
+                        if (checkpoints != null) {
+                            checkpoints.save(conn, csvFilePath, new ImportCheckpoints.Checkpoint(
+                                    0, fileSize, reader.getRecordOffset(), records));
+                        }
+                        conn.commit();
+                        committed = rows;
+                    }
+                    progress.running(reader.getBytesRead(), committed);
+                    run.checkCancelled(csvFilePath, committed);
+                }
+            }
             
+            if (pending > 0) {
+                rows += executeBatch(pending);
+            }
+            if (checkpoints != null) {
+                checkpoints.clear(conn, csvFilePath);
+            }
+            conn.commit();
+        }
+        
+        /**
+         * Executes the pending batch. If it fails on a row's values and bad
+         * rows are quarantined, the rows are written again one at a time
+         * and the offending ones rejected; upserts are idempotent, so rows
+         * of the batch that did reach the table are just written again.
+         * 
+         * @return Rows written
+         */
+        private int executeBatch(int pending) throws IOException, SQLException {
+            int written = pending;
+            SummaryTables.Snapshot before = summaries == null ? null : summaries.read(conn, batchIds, pending);
             try {
-                if (fileName.contains("account") && !fileName.contains("transaction")) {
-                    count = importAccounts(csvFile.getAbsolutePath());
-                    result.append(String.format("Accounts: %d records imported\n", count));
-                } 
-                else if (fileName.contains("transaction")) {
-                    count = importTransactions(csvFile.getAbsolutePath());
-                    result.append(String.format("Transactions: %d records imported\n", count));
-                } 
-                else if (fileName.contains("loan")) {
-                    count = importLoans(csvFile.getAbsolutePath());
-                    result.append(String.format("Loans: %d records imported\n", count));
-                } 
-                else if (fileName.contains("card")) {
-                    count = importCards(csvFile.getAbsolutePath());
-                    result.append(String.format("Cards: %d records imported\n", count));
-                } 
-                else {
-                    result.append(String.format("Skipped (unknown type): %s\n", fileName));
+                ps.executeBatch();
+            } catch (BatchUpdateException e) {
+                if (rejects == null || !RejectWriter.isRowError(e)) {
+                    throw e;
                 }
-            } catch (Exception e) {
-                result.append(String.format("Error importing %s: %s\n", fileName, e.getMessage()));
+                ps.clearBatch();
+                written = writeRows(pending);
+            } finally {
+                reader.clearMarks();
+            }
+            if (summaries != null) {
+                summaries.apply(conn, before, summaries.read(conn, batchIds, pending));
             }
+            if (hashes != null) {
+                hashes.flush();
+            }
+            return written;
         }
         
-        result.append("\n=== Import Complete ===");
-        return result.toString();
+        private int writeRows(int pending) throws IOException, SQLException {
+            if (retryRow == null) {
+                retryRow = new RecordRow(CsvRowReader.resolveColumns(table.getHeaders(), reader.getHeaders()));
+            }
+            int written = 0;
+            for (int i = 0; i < pending; i++) {
+                String record = reader.getRawRecord(batchMarks[i]);
+                table.bind(ps, retryRow.reset(RecordRow.parse(record)));
+                try {
+                    ps.executeUpdate();
+                    written++;
+                } catch (SQLException e) {
+                    if (!RejectWriter.isRowError(e)) {
+                        throw e;
+                    }
+                    if (hashes != null) {
+                        hashes.discard(batchTracked[i]);
+                    }
+                    rejects.reject(batchLines[i], record, e);
+                }
+            }
+            return written;
+        }
+    }
+    
+    /**
+     * Publishes the progress of one file to the registered listeners.
+     * Running updates are throttled to a few per second.
+     */
+    private final class FileProgress {
+        
+        private static final long RUNNING_INTERVAL_NANOS = 100_000_000L;
+        
+        private final ImportTable table;
+        private final String filePath;
+        private final long totalBytes;
+        private final long startNanos = System.nanoTime();
+        private volatile long lastPublished;
+        private volatile long bytesRead;
+        private volatile long rowsCommitted;
+        
+        FileProgress(ImportTable table, String filePath) {
+            this.table = table;
+            this.filePath = filePath;
+            this.totalBytes = new File(filePath).length();
+        }
+        
+        void queued() {
+            publish(ImportProgress.Status.QUEUED, null);
+        }
+        
+        void running(long bytesRead, long rowsCommitted) {
+            this.bytesRead = bytesRead;
+            this.rowsCommitted = rowsCommitted;
+            long now = System.nanoTime();
+            if (rowsCommitted == 0 && bytesRead == 0 || now - lastPublished >= RUNNING_INTERVAL_NANOS) {
+                lastPublished = now;
+                publish(ImportProgress.Status.RUNNING, null);
+            }
+        }
+        
+        ImportResult completed(long rows) {
+            return completed(rows, null, 0);
+        }
+        
+        ImportResult completed(long rows, RowHashes hashes, long rejected) {
+            bytesRead = totalBytes;
+            rowsCommitted = rows;
+            publish(ImportProgress.Status.COMPLETED, null);
+            return new ImportResult(table, filePath, rows, System.nanoTime() - startNanos, hashes, rejected);
+        }
+        
+        void failed(Exception e) {
+            if (e instanceof ImportCancelledException) {
+                rowsCommitted = ((ImportCancelledException) e).getRowsCommitted();
+                publish(ImportProgress.Status.CANCELLED, e.getMessage());
+            } else {
+                publish(ImportProgress.Status.FAILED, e.getMessage());
+            }
+        }
+        
+        private void publish(ImportProgress.Status status, String message) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            ImportProgress progress = new ImportProgress(table, filePath, status, bytesRead,
+                    totalBytes, rowsCommitted, System.nanoTime() - startNanos, message);
+            for (ImportProgressListener listener : listeners) {
+                listener.importProgress(progress);
+            }
+        }
     }
     
     /**
@@ -250,11 +1232,8 @@ public class CSVImporter {
      * @return true if validation passes, false otherwise
      */
     public boolean validateCSV(String csvFilePath, String[] expectedHeaders) {
-        try (Reader reader = new FileReader(csvFilePath, StandardCharsets.UTF_8);
-             CSVParser csvParser = new CSVParser(reader, 
-                     CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            List<String> headers = new ArrayList<>(csvParser.getHeaderMap().keySet());
+        try {
+            List<String> headers = readHeaders(csvFilePath);
             
             if (headers.size() != expectedHeaders.length) {
                 return false;
@@ -273,4 +1252,20 @@ public class CSVImporter {
             return false;
         }
     }
+    
+    /**
+     * Reads the header row of a CSV file.
+     * 
+     * @param csvFilePath Path to CSV file
+     * @return Header names in file order
+     * @throws IOException if the file cannot be read
+     */
+    private List<String> readHeaders(String csvFilePath) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                     CsvInput.open(csvFilePath, new FileInputStream(csvFilePath)), StandardCharsets.UTF_8);
+             CSVParser csvParser = new CSVParser(reader, 
+                     CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+            return new ArrayList<>(csvParser.getHeaderMap().keySet());
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read through it. Subclasses can
+ * override {@link #bytesRead(int)} to report progress or stop reading.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+class CountingInputStream extends FilterInputStream {
+
+    private volatile long count;
+
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return Bytes read so far
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Called after each successful read.
+     *
+     * @param n Bytes just read
+     * @throws IOException to abort reading
+     */
+    protected void bytesRead(int n) throws IOException {
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count++;
+            bytesRead(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count += n;
+            bytesRead(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens CSV inputs that may be gzip compressed.
+ *
+ * Files named *.csv.gz are decompressed while they are read, on a
+ * background thread through a {@link ReadAheadInputStream}, so inflating
+ * overlaps with parsing and no decompressed copy is written to disk.
+ * Compressed files cannot be memory-mapped or split by byte offset, so
+ * they are always read sequentially with Commons CSV.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class CsvInput {
+
+    private static final int INFLATE_BUFFER_SIZE = 1 << 16;
+
+    private CsvInput() {
+    }
+
+    /**
+     * @return true if the file name marks a CSV input, compressed or not
+     */
+    static boolean isCsvFile(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".csv.gz");
+    }
+
+    /**
+     * @return true if the file is gzip compressed, judged by its name
+     */
+    static boolean isCompressed(String filePath) {
+        return filePath.toLowerCase().endsWith(".gz");
+    }
+
+    /**
+     * Wraps the raw stream of a file so it reads CSV text.
+     *
+     * @param filePath Path of the file, to detect compression
+     * @param file Stream of the file's bytes; count it to track progress
+     *        through the compressed file
+     * @return The stream itself, or a decompressing stream reading ahead
+     *         on its own thread
+     * @throws IOException if the gzip header is invalid
+     */
+    static InputStream open(String filePath, InputStream file) throws IOException {
+        if (!isCompressed(filePath)) {
+            return file;
+        }
+        return new ReadAheadInputStream(new GZIPInputStream(file, INFLATE_BUFFER_SIZE),
+                "gunzip-" + new File(filePath).getName());
+    }
+}
@@ -0,0 +1,56 @@
+package util;
+
+import java.time.LocalDate;
+
+/**
+ * One CSV record, read by column index.
+ *
+ * Column indexes refer to the column list the reader was opened with
+ * (for imports, {@link ImportTable#getHeaders()}), not to positions in
+ * the file, so the header-to-position mapping is resolved once per file.
+ * Values are trimmed. A row object may be reused for the next record, so
+ * read its values before advancing the reader.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public interface CsvRow {
+
+    /**
+     * @param column Column index
+     * @return Field text
+     */
+    String getString(int column);
+
+    /**
+     * @param column Column index
+     * @return Field parsed as an int
+     * @throws NumberFormatException if the field is not an integer
+     */
+    int getInt(int column);
+
+    /**
+     * @param column Column index
+     * @return Field parsed as a double
+     * @throws NumberFormatException if the field is not a number
+     */
+    double getDouble(int column);
+
+    /**
+     * Parses a decimal field into a scaled long without rounding through
+     * a double; with scale 2 the result is in cents.
+     *
+     * @param column Column index
+     * @param scale Number of fractional digits to keep
+     * @return Field value multiplied by 10^scale, see {@link FixedPoint}
+     * @throws NumberFormatException if the field is not a decimal number
+     */
+    long getScaledLong(int column, int scale);
+
+    /**
+     * @param column Column index
+     * @return Field parsed as a yyyy-M-d date
+     * @throws java.time.DateTimeException if the field is not a valid date
+     */
+    LocalDate getDate(int column);
+}
@@ -0,0 +1,140 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV file with a header line as {@link CsvRow}s.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public interface CsvRowReader extends Closeable {
+
+    /**
+     * Advances to the next record.
+     *
+     * @return The next row, or null at the end of the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    CsvRow next() throws IOException;
+
+    /**
+     * @return Header names in file order
+     */
+    List<String> getHeaders();
+
+    /**
+     * @return Line number on which the last record returned ends, or -1
+     *         if lines were not counted
+     */
+    long getLineNumber();
+
+    /**
+     * @return The last record returned as it appears in the file, without
+     *         its line break
+     */
+    String getRawRecord();
+
+    /**
+     * Remembers the last record returned so its text can be recovered
+     * with {@link #getRawRecord(long)} if it is needed later, without
+     * building the text now.
+     *
+     * @return Mark of the record, valid until {@link #clearMarks()}
+     */
+    long markRecord();
+
+    /**
+     * Recovers the text of a marked record, as {@link #getRawRecord()}
+     * returned it when the record was read.
+     *
+     * @param mark Mark from {@link #markRecord()}
+     * @return The record without its line break
+     * @throws IOException if the file cannot be read again
+     */
+    String getRawRecord(long mark) throws IOException;
+
+    /**
+     * Forgets the marked records, invalidating their marks.
+     */
+    void clearMarks();
+
+    /**
+     * @return Bytes of the file consumed so far, for progress reporting
+     */
+    long getBytesRead();
+
+    /**
+     * @return Exact byte offset just past the last record returned, or -1
+     *         if this reader cannot tell
+     */
+    long getRecordOffset();
+
+    /**
+     * Skips records already imported, seeking to a byte offset when it is
+     * known and this reader supports it, or else reading past the records.
+     *
+     * @param byteOffset Offset from {@link #getRecordOffset()}, or -1
+     * @param records Number of records to skip
+     * @throws IOException if the file cannot be read
+     */
+    default void skip(long byteOffset, long records) throws IOException {
+        for (long i = 0; i < records && next() != null; i++) {
+            // Read past the record
+        }
+    }
+
+    /**
+     * Opens a CSV file, using {@link MappedCsvReader} when requested and
+     * possible and Commons CSV otherwise. Gzip compressed files are
+     * decompressed as they are read.
+     *
+     * @param csvFilePath Path to the CSV file
+     * @param columns Column names the rows are read by
+     * @param mapped true to try the memory-mapped tokenizer first
+     * @return Reader positioned before the first record
+     * @throws IOException if the file cannot be opened or lacks a column
+     */
+    static CsvRowReader open(String csvFilePath, String[] columns, boolean mapped) throws IOException {
+        Path path = Paths.get(csvFilePath);
+        if (mapped && !CsvInput.isCompressed(csvFilePath) && Files.isRegularFile(path) && Files.size(path) > 0) {
+            try {
+                return new MappedCsvReader(path, columns);
+            } catch (MappedCsvReader.UnsupportedInputException e) {
+                System.err.println("Reading " + csvFilePath + " with Commons CSV: " + e.getMessage());
+            }
+        }
+        return new CommonsCsvReader(csvFilePath, columns);
+    }
+
+    /**
+     * Maps each column name to its position in the file's header,
+     * ignoring case and surrounding whitespace.
+     *
+     * @param columns Column names to look up
+     * @param fileHeaders Header names in file order
+     * @return File position of each column
+     * @throws IOException if a column is missing from the header
+     */
+    static int[] resolveColumns(String[] columns, List<String> fileHeaders) throws IOException {
+        int[] positions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            positions[i] = -1;
+            for (int j = 0; j < fileHeaders.size(); j++) {
+                if (fileHeaders.get(j).trim().equalsIgnoreCase(columns[i])) {
+                    positions[i] = j;
+                    break;
+                }
+            }
+            if (positions[i] < 0) {
+                throw new IOException("CSV header is missing column: " + columns[i]);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,241 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV file into byte ranges that start and end on record
+ * boundaries, so each range can be parsed independently on its own thread.
+ *
+ * Boundaries are found with one sequential byte scan that tracks whether
+ * the scanner is inside a quoted field, so a newline inside quotes is
+ * never mistaken for the end of a record. Records may end with LF, CRLF
+ * or a bare CR, as {@link MappedCsvReader} accepts. The scan stops as
+ * soon as the last cut point has been found.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class CsvSplitter {
+
+    private CsvSplitter() {
+    }
+
+    /**
+     * A half-open byte range [start, end) of whole CSV records.
+     */
+    public static final class Range {
+
+        private final Path file;
+        private final long start;
+        private final long end;
+
+        Range(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start;
+        }
+
+        /**
+         * Opens a stream that reads exactly this range of the file.
+         *
+         * @return Input stream positioned at the range start
+         * @throws IOException if the file cannot be opened
+         */
+        public InputStream open() throws IOException {
+            InputStream in = Files.newInputStream(file);
+            long skipped = 0;
+            while (skipped < start) {
+                long n = in.skip(start - skipped);
+                if (n <= 0) {
+                    in.close();
+                    throw new IOException("Cannot seek to offset " + start + " in " + file);
+                }
+                skipped += n;
+            }
+            return new LimitedInputStream(in, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return "Range[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Splits the data records of a CSV file (everything after the header
+     * line) into at most the given number of ranges of similar size.
+     *
+     * @param file CSV file with a header line
+     * @param chunks Desired number of ranges
+     * @return Ranges covering every data record exactly once
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Range> split(Path file, int chunks) throws IOException {
+        long size = Files.size(file);
+        Cuts cuts = new Cuts(size, Math.max(1, chunks));
+
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            boolean inQuotes = false;
+            boolean pendingCr = false;
+            long position = 0;
+            int read;
+
+            scan:
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (pendingCr) {
+                        // A CR not followed by LF ends a record on its own
+                        pendingCr = false;
+                        if (b != '\n' && cuts.add(position)) {
+                            break scan;
+                        }
+                    }
+                    if (b == '"') {
+                        // An escaped quote ("") toggles twice and leaves the state unchanged
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes) {
+                        if (cuts.add(position + 1)) {
+                            break scan;
+                        }
+                    } else if (b == '\r' && !inQuotes) {
+                        pendingCr = true;
+                    }
+                }
+            }
+            if (pendingCr) {
+                cuts.add(size);
+            }
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        if (cuts.points.isEmpty()) {
+            return ranges; // Header only, or no complete header line
+        }
+        cuts.points.add(size);
+        for (int i = 0; i + 1 < cuts.points.size(); i++) {
+            if (cuts.points.get(i + 1) > cuts.points.get(i)) {
+                ranges.add(new Range(file, cuts.points.get(i), cuts.points.get(i + 1)));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Cut points found so far: the end of the header, then the first
+     * record boundary at or after each evenly spaced target.
+     */
+    private static final class Cuts {
+
+        private final long size;
+        private final int chunks;
+        private final List<Long> points = new ArrayList<>();
+        private long dataStart = -1;
+        private long nextTarget = Long.MAX_VALUE;
+
+        Cuts(long size, int chunks) {
+            this.size = size;
+            this.chunks = chunks;
+        }
+
+        /**
+         * @param boundary Offset just past the end of a record
+         * @return true once the last cut point has been found
+         */
+        boolean add(long boundary) {
+            if (dataStart < 0) {
+                dataStart = boundary;
+                points.add(boundary);
+                nextTarget = targetFor(dataStart, size, chunks, 1);
+            } else if (boundary >= nextTarget) {
+                points.add(boundary);
+                if (points.size() == chunks) {
+                    return true;
+                }
+                nextTarget = targetFor(dataStart, size, chunks, points.size());
+            }
+            return false;
+        }
+    }
+
+    private static long targetFor(long dataStart, long size, int chunks, int index) {
+        return dataStart + (size - dataStart) * index / chunks;
+    }
+
+    /**
+     * Input stream that stops after a fixed number of bytes.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
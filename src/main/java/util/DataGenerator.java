@@ -0,0 +1,492 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates synthetic accounts, transactions, loans and cards CSV files
+ * for load and scale testing of the import and analysis code.
+ *
+ * Files carry the exact headers of {@link ImportTable} and satisfy the
+ * CHECK, UNIQUE and foreign key constraints of schema.sql: account ids run
+ * from 1 to the account count, and every transaction, loan and card refers
+ * to one of them. Branches, types, statuses, amounts and dates follow
+ * skewed distributions rather than uniform ones, so grouped queries and
+ * charts look like those of a real bank.
+ *
+ * Rows are generated in blocks of {@link #BLOCK_ROWS} on a thread pool and
+ * written in order. Each block draws from its own random generator seeded
+ * from the generator seed, the table and the block number, so the same
+ * seed always produces the same files, whatever the thread count.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class DataGenerator {
+
+    /** Rows generated by one task. */
+    static final int BLOCK_ROWS = 50_000;
+
+    private static final String[] FIRST_NAMES = {
+        "John", "Jane", "Michael", "Sarah", "David", "Grace", "Joseph", "Mary", "Peter", "Anna",
+        "Baraka", "Neema", "Juma", "Amina", "Hassan", "Rehema", "Emmanuel", "Upendo", "Daniel", "Zawadi",
+        "Salim", "Halima", "Frank", "Esther", "Omari", "Mwanaidi", "James", "Faraja", "Paul", "Imani"
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Doe", "Smith", "Johnson", "Brown", "Williams", "Mushi", "Mwakyusa", "Kimaro", "Massawe", "Mollel",
+        "Said", "Mohamed", "Ally", "Komba", "Ngowi", "Lyimo", "Shirima", "Mrema", "Temba", "Swai",
+        "Kweka", "Lema", "Mbwambo", "Nyerere", "Msuya", "Kapinga", "Mwita", "Chacha", "Magesa", "Kiwelu"
+    };
+
+    private static final String[] PHONE_PREFIXES = { "71", "74", "75", "76", "65", "68", "78" };
+
+    /** Branches weighted roughly by regional population and business activity. */
+    private static final Weighted BRANCHES = new Weighted(
+            new String[] { "Dar es Salaam", "Arusha", "Mwanza", "Dodoma", "Mbeya", "Morogoro", "Tanga",
+                "Kilimanjaro", "Zanzibar", "Iringa", "Kagera", "Shinyanga", "Mara", "Tabora", "Kigoma",
+                "Ruvuma", "Mtwara", "Singida", "Pwani", "Lindi" },
+            new int[] { 250, 80, 80, 60, 55, 50, 45, 45, 45, 30, 30, 28, 26, 25, 22, 20, 18, 16, 15, 10 });
+
+    private static final Weighted ACCOUNT_TYPES = new Weighted(
+            new String[] { "Savings", "Checking", "Business", "Fixed Deposit" },
+            new int[] { 50, 30, 15, 5 });
+
+    /** Median balance in cents, by account type. */
+    private static final long[] BALANCE_MEDIANS = { 1_500_000_00L, 2_500_000_00L, 15_000_000_00L, 20_000_000_00L };
+
+    private static final Weighted ACCOUNT_STATUSES = new Weighted(
+            new String[] { "Active", "Dormant", "Closed", "Frozen" },
+            new int[] { 85, 8, 4, 3 });
+
+    private static final Weighted TRANSACTION_TYPES = new Weighted(
+            new String[] { "Deposit", "Withdrawal", "Payment", "Transfer", "Interest" },
+            new int[] { 35, 30, 20, 12, 3 });
+
+    /** Median amount in cents, by transaction type, before outgoing amounts are negated. */
+    private static final long[] AMOUNT_MEDIANS = { 400_000_00L, 150_000_00L, 200_000_00L, 300_000_00L, 20_000_00L };
+
+    private static final String[][] DESCRIPTIONS = {
+        { "Salary Deposit", "Business Revenue", "Cash Deposit", "Freelance Payment", "Contract Payment",
+            "Investment Return" },
+        { "ATM Withdrawal", "Cash Withdrawal" },
+        { "Supplier Payment", "Tax Payment", "Utility Payment", "School Fees", "Loan Repayment" },
+        { "Transfer to Account ", "Transfer from Account " }, // Outgoing first
+        { "Quarterly Interest", "Monthly Interest" }
+    };
+
+    private static final Weighted TRANSACTION_STATUSES = new Weighted(
+            new String[] { "Completed", "Pending", "Failed", "Reversed" },
+            new int[] { 92, 4, 3, 1 });
+
+    private static final Weighted LOAN_TYPES = new Weighted(
+            new String[] { "Personal", "Home", "Auto", "Business", "Education" },
+            new int[] { 35, 15, 20, 20, 10 });
+
+    /** Median principal in cents, lowest rate in tenths of a percent and terms in months, by loan type. */
+    private static final long[] LOAN_MEDIANS = { 3_000_000_00L, 60_000_000_00L, 20_000_000_00L, 25_000_000_00L,
+        5_000_000_00L };
+    private static final int[] LOAN_RATES = { 140, 90, 100, 120, 70 };
+    private static final int[][] LOAN_TERMS = {
+        { 12, 24, 36 }, { 120, 180, 240 }, { 36, 48, 60 }, { 24, 36, 60 }, { 24, 36, 48 }
+    };
+
+    private static final Weighted LOAN_STATUSES = new Weighted(
+            new String[] { "Active", "Paid", "Closed", "Defaulted" },
+            new int[] { 60, 25, 10, 5 });
+
+    private static final Weighted CARD_TYPES = new Weighted(
+            new String[] { "Debit", "Credit" },
+            new int[] { 65, 35 });
+
+    private static final Weighted CARD_STATUSES = new Weighted(
+            new String[] { "Active", "Expired", "Blocked", "Cancelled" },
+            new int[] { 85, 8, 4, 3 });
+
+    /** Accounts open before any loan starts, and loans before transactions. */
+    private static final Weighted OPEN_DATES = dates(LocalDate.of(2010, 1, 1), LocalDate.of(2018, 12, 31));
+    private static final Weighted LOAN_DATES = dates(LocalDate.of(2019, 1, 1), LocalDate.of(2024, 12, 31));
+    private static final Weighted TRANSACTION_DATES = dates(LocalDate.of(2023, 1, 1), LocalDate.of(2024, 12, 31));
+    private static final String[] EXPIRY_DATES = expiryDates(YearMonth.of(2025, 1), YearMonth.of(2029, 12));
+
+    /**
+     * Writes the rows of one block.
+     */
+    @FunctionalInterface
+    private interface RowFormatter {
+        void format(int id, SplittableRandom random, StringBuilder out);
+    }
+
+    private final long seed;
+    private int accounts = 1_000;
+    private int transactions = 10_000;
+    private int loans = -1;
+    private int cards = -1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean compressed;
+
+    /**
+     * @param seed Seed of all random choices; the same seed and counts
+     *        produce the same files
+     */
+    public DataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param accounts Number of accounts, default 1,000
+     */
+    public void setAccounts(int accounts) {
+        if (accounts < 1) {
+            throw new IllegalArgumentException("At least one account is needed");
+        }
+        this.accounts = accounts;
+    }
+
+    /**
+     * @param transactions Number of transactions, default 10,000
+     */
+    public void setTransactions(int transactions) {
+        this.transactions = Math.max(0, transactions);
+    }
+
+    /**
+     * @param loans Number of loans, default 30% of the accounts
+     */
+    public void setLoans(int loans) {
+        this.loans = Math.max(0, loans);
+    }
+
+    /**
+     * @param cards Number of cards, default 80% of the accounts
+     */
+    public void setCards(int cards) {
+        this.cards = Math.max(0, cards);
+    }
+
+    /**
+     * @param threads Threads generating rows, default one per processor
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param compressed true to write .csv.gz files, which the importer
+     *        reads without unpacking them first
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Writes accounts, transactions, loans and cards files to a directory,
+     * replacing existing files of the same names.
+     *
+     * @param directory Directory to write to; created if needed
+     * @return Files written, in import order
+     * @throws IOException if a file cannot be written
+     */
+    public List<File> generate(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory: " + directory);
+        }
+
+        List<File> files = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "data-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            files.add(write(pool, directory, ImportTable.ACCOUNTS, accounts, this::account));
+            files.add(write(pool, directory, ImportTable.TRANSACTIONS, transactions, this::transaction));
+            files.add(write(pool, directory, ImportTable.LOANS,
+                    loans < 0 ? accounts * 3 / 10 : loans, this::loan));
+            files.add(write(pool, directory, ImportTable.CARDS,
+                    cards < 0 ? accounts * 4 / 5 : cards, this::card));
+        } finally {
+            pool.shutdownNow();
+        }
+        return files;
+    }
+
+    private File write(ExecutorService pool, File directory, ImportTable table, int rows,
+                       RowFormatter formatter) throws IOException {
+        File file = new File(directory, table.getTableName() + (compressed ? ".csv.gz" : ".csv"));
+        int blocks = (int) ((rows + (long) BLOCK_ROWS - 1) / BLOCK_ROWS);
+        long start = System.nanoTime();
+
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        try (OutputStream out = open(file)) {
+            out.write((String.join(",", table.getHeaders()) + "\n").getBytes(StandardCharsets.UTF_8));
+            int next = 0;
+            while (next < blocks || !pending.isEmpty()) {
+                // Keep every thread busy, with a bounded number of blocks held in memory
+                while (next < blocks && pending.size() < threads * 2) {
+                    int block = next++;
+                    pending.add(pool.submit(() -> block(table, block, rows, formatter)));
+                }
+                out.write(take(pending.poll()));
+            }
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+
+        System.out.println("Generated " + rows + " " + table.getTableName() + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms: " + file.getPath());
+        return file;
+    }
+
+    private OutputStream open(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        return compressed ? new GZIPOutputStream(out, 1 << 16) : new BufferedOutputStream(out, 1 << 16);
+    }
+
+    private static byte[] take(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while generating data");
+        } catch (ExecutionException e) {
+            throw new IOException("Data generation failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private byte[] block(ImportTable table, int block, int rows, RowFormatter formatter) {
+        int first = block * BLOCK_ROWS + 1;
+        int last = (int) Math.min(rows, (long) first + BLOCK_ROWS - 1);
+        SplittableRandom random = new SplittableRandom(mix(seed ^ ((long) table.ordinal() << 32 | block)));
+        StringBuilder out = new StringBuilder((last - first + 1) * 96);
+        for (int id = first; id <= last; id++) {
+            formatter.format(id, random, out);
+            out.append('\n');
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void account(int id, SplittableRandom random, StringBuilder out) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        int type = ACCOUNT_TYPES.index(random);
+
+        out.append(id).append(',').append(first).append(' ').append(last).append(',');
+        // The id keeps emails unique, as the schema requires
+        out.append(first.toLowerCase(Locale.ROOT)).append('.').append(last.toLowerCase(Locale.ROOT))
+                .append('.').append(id).append("@email.com,");
+        out.append("+255").append(PHONE_PREFIXES[random.nextInt(PHONE_PREFIXES.length)]);
+        appendDigits(out, random.nextInt(10_000_000), 7);
+        out.append(',').append(ACCOUNT_TYPES.value(type)).append(',');
+        appendMoney(out, logNormal(random, BALANCE_MEDIANS[type], 1.0));
+        out.append(',').append(OPEN_DATES.pick(random))
+                .append(',').append(BRANCHES.pick(random))
+                .append(',').append(ACCOUNT_STATUSES.pick(random));
+    }
+
+    private void transaction(int id, SplittableRandom random, StringBuilder out) {
+        // Squaring a uniform value makes low account ids far more active than high ones
+        double u = random.nextDouble();
+        int account = 1 + (int) (accounts * u * u);
+        int type = TRANSACTION_TYPES.index(random);
+        long amount = logNormal(random, AMOUNT_MEDIANS[type], 0.9);
+        if (type != 4) {
+            amount = Math.max(100_00L, amount / 100_00L * 100_00L); // Whole hundreds of shillings
+        }
+
+        String date = TRANSACTION_DATES.pick(random);
+        String[] descriptions = DESCRIPTIONS[type];
+        int description = random.nextInt(descriptions.length);
+        // Money leaving the account is negative: withdrawals, payments and transfers out
+        if (type == 1 || type == 2 || (type == 3 && description == 0)) {
+            amount = -amount;
+        }
+
+        out.append(id).append(',').append(account).append(',').append(TRANSACTION_TYPES.value(type)).append(',');
+        appendMoney(out, amount);
+        out.append(',').append(date).append(',');
+        out.append(descriptions[description]);
+        if (type == 3) {
+            out.append(1 + random.nextInt(accounts));
+        }
+        out.append(',').append(TRANSACTION_STATUSES.pick(random));
+    }
+
+    private void loan(int id, SplittableRandom random, StringBuilder out) {
+        int type = LOAN_TYPES.index(random);
+        long principal = Math.max(100_000_00L, logNormal(random, LOAN_MEDIANS[type], 0.6) / 100_000_00L * 100_000_00L);
+        int rate = LOAN_RATES[type] + random.nextInt(41);
+        int[] terms = LOAN_TERMS[type];
+        int months = terms[random.nextInt(terms.length)];
+
+        // Annuity payment: P * r / (1 - (1 + r)^-n), with r the monthly rate
+        double monthlyRate = rate / 12_000.0;
+        long payment = Math.round(principal * monthlyRate / (1 - Math.pow(1 + monthlyRate, -months)));
+
+        out.append(id).append(',').append(1 + random.nextInt(accounts))
+                .append(',').append(LOAN_TYPES.value(type)).append(',');
+        appendMoney(out, principal);
+        out.append(',').append(rate / 10).append('.').append(rate % 10)
+                .append(',').append(months)
+                .append(',').append(LOAN_DATES.pick(random))
+                .append(',').append(LOAN_STATUSES.pick(random)).append(',');
+        appendMoney(out, payment);
+    }
+
+    private void card(int id, SplittableRandom random, StringBuilder out) {
+        boolean credit = CARD_TYPES.index(random) == 1;
+
+        out.append(id).append(',').append(1 + random.nextInt(accounts))
+                .append(',').append(credit ? "Credit" : "Debit").append(',');
+        // Issuer prefix and the card id, which keeps card numbers unique
+        out.append(credit ? "5412" : "4532");
+        appendDigits(out, id, 12);
+        out.append(',').append(EXPIRY_DATES[random.nextInt(EXPIRY_DATES.length)]).append(',');
+        appendMoney(out, credit ? Math.max(500_000_00L,
+                logNormal(random, 3_000_000_00L, 0.7) / 100_000_00L * 100_000_00L) : 0);
+        out.append(',').append(CARD_STATUSES.pick(random));
+    }
+
+    /**
+     * Draws from a log-normal distribution, the usual shape of balances
+     * and payment amounts: most values near the median, a long tail above.
+     *
+     * @return Amount in cents, at least one cent
+     */
+    private static long logNormal(SplittableRandom random, long median, double sigma) {
+        // Box-Muller; SplittableRandom has no nextGaussian on Java 11
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(1, Math.round(median * Math.exp(sigma * gaussian)));
+    }
+
+    private static void appendMoney(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        appendDigits(out, cents % 100, 2);
+    }
+
+    private static void appendDigits(StringBuilder out, long value, int digits) {
+        String text = Long.toString(value);
+        for (int i = text.length(); i < digits; i++) {
+            out.append('0');
+        }
+        out.append(text);
+    }
+
+    /**
+     * SplitMix64 finalizer, so neighbouring blocks get unrelated seeds.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Days of a date range, weekdays weighted three times as much as
+     * weekends.
+     */
+    private static Weighted dates(LocalDate from, LocalDate to) {
+        int days = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+        String[] values = new String[days];
+        int[] weights = new int[days];
+        for (int i = 0; i < days; i++) {
+            LocalDate date = from.plusDays(i);
+            values[i] = date.toString();
+            DayOfWeek day = date.getDayOfWeek();
+            weights[i] = day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY ? 1 : 3;
+        }
+        return new Weighted(values, weights);
+    }
+
+    /**
+     * Month ends of a range, as cards expire.
+     */
+    private static String[] expiryDates(YearMonth from, YearMonth to) {
+        List<String> dates = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            dates.add(month.atEndOfMonth().toString());
+        }
+        return dates.toArray(new String[0]);
+    }
+
+    /**
+     * Values drawn with fixed relative weights.
+     */
+    private static final class Weighted {
+
+        private final String[] values;
+        private final int[] cumulative;
+
+        Weighted(String[] values, int[] weights) {
+            this.values = values;
+            this.cumulative = new int[weights.length];
+            int total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+        }
+
+        int index(SplittableRandom random) {
+            int i = Arrays.binarySearch(cumulative, random.nextInt(cumulative[cumulative.length - 1]) + 1);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        String value(int index) {
+            return values[index];
+        }
+
+        String pick(SplittableRandom random) {
+            return values[index(random)];
+        }
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * Usage: DataGenerator directory transactions [accounts [seed [threads [gz]]]]
+     * Accounts default to one per 100 transactions.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: DataGenerator directory transactions [accounts [seed [threads [gz]]]]");
+            System.exit(1);
+        }
+        int transactions = Integer.parseInt(args[1]);
+        DataGenerator generator = new DataGenerator(args.length > 3 ? Long.parseLong(args[3]) : 42L);
+        generator.setTransactions(transactions);
+        generator.setAccounts(args.length > 2 ? Integer.parseInt(args[2]) : Math.max(10, transactions / 100));
+        if (args.length > 4) {
+            generator.setThreads(Integer.parseInt(args[4]));
+        }
+        generator.setCompressed(args.length > 5 && "gz".equalsIgnoreCase(args[5]));
+        generator.generate(new File(args[0]));
+    }
+}
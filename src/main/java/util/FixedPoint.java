@@ -0,0 +1,143 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses decimal text into scaled long values without allocating, for
+ * DECIMAL columns such as balance and amount. With scale 2, "1234.5"
+ * becomes 123450 (cents).
+ *
+ * Digits beyond the scale are rounded half up, as MySQL does when storing
+ * a value into a DECIMAL column. Exponents are not accepted; values whose
+ * scaled form does not fit in a long are rejected.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class FixedPoint {
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses decimal text into an unscaled value.
+     *
+     * @param text Decimal text such as "-1234.56", without surrounding blanks
+     * @param scale Number of fractional digits to keep
+     * @return Value multiplied by 10^scale
+     * @throws NumberFormatException if the text is not a plain decimal number
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        int pos = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            pos++;
+        }
+
+        long value = 0;
+        int fraction = -1;
+        boolean digits = false;
+        boolean roundUp = false;
+        for (; pos < length; pos++) {
+            char c = text.charAt(pos);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (fraction < scale) {
+                    value = appendDigit(value, c - '0', text);
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else if (fraction == scale) {
+                    // First dropped digit decides the rounding
+                    roundUp = c >= '5';
+                    fraction++;
+                }
+            } else {
+                throw invalid(text);
+            }
+        }
+        if (!digits) {
+            throw invalid(text);
+        }
+        return finish(value, Math.max(fraction, 0), scale, roundUp, negative, text);
+    }
+
+    /**
+     * Parses decimal bytes (ASCII) from a buffer into an unscaled value,
+     * with the same rules as {@link #parse(CharSequence, int)}.
+     *
+     * @param buffer Buffer holding the text
+     * @param start Index of the first byte
+     * @param end Index after the last byte
+     * @param scale Number of fractional digits to keep
+     * @return Value multiplied by 10^scale
+     * @throws NumberFormatException if the bytes are not a plain decimal number
+     */
+    public static long parse(ByteBuffer buffer, int start, int end, int scale) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+
+        long value = 0;
+        int fraction = -1;
+        boolean digits = false;
+        boolean roundUp = false;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (b >= '0' && b <= '9') {
+                digits = true;
+                if (fraction < scale) {
+                    value = appendDigit(value, b - '0', null);
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else if (fraction == scale) {
+                    roundUp = b >= '5';
+                    fraction++;
+                }
+            } else {
+                throw invalid(null);
+            }
+        }
+        if (!digits) {
+            throw invalid(null);
+        }
+        return finish(value, Math.max(fraction, 0), scale, roundUp, negative, null);
+    }
+
+    private static long appendDigit(long value, int digit, CharSequence text) {
+        if (value > (Long.MAX_VALUE - digit) / 10) {
+            throw invalid(text);
+        }
+        return value * 10 + digit;
+    }
+
+    private static long finish(long value, int fraction, int scale, boolean roundUp,
+            boolean negative, CharSequence text) {
+        // Pad missing fractional digits: "12.5" at scale 2 is 1250
+        for (int i = Math.min(fraction, scale); i < scale; i++) {
+            value = appendDigit(value, 0, text);
+        }
+        if (roundUp) {
+            if (value == Long.MAX_VALUE) {
+                throw invalid(text);
+            }
+            value++;
+        }
+        return negative ? -value : value;
+    }
+
+    private static NumberFormatException invalid(CharSequence text) {
+        return new NumberFormatException(text == null
+                ? "Not a decimal number" : "For input string: \"" + text + "\"");
+    }
+}
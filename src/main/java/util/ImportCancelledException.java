@@ -0,0 +1,30 @@
+package util;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an import stops because {@link CSVImporter#cancel()} was
+ * called. The import stops at a batch boundary, after committing the
+ * rows already sent, so the table holds exactly the rows reported.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportCancelledException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long rowsCommitted;
+
+    public ImportCancelledException(String filePath, long rowsCommitted) {
+        super("Import of " + filePath + " cancelled after " + rowsCommitted + " committed rows");
+        this.rowsCommitted = rowsCommitted;
+    }
+
+    /**
+     * @return Rows of the file committed before the import stopped
+     */
+    public long getRowsCommitted() {
+        return rowsCommitted;
+    }
+}
@@ -0,0 +1,250 @@
+package util;
+
+import db.DBConnection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores import checkpoints in the import_checkpoints table.
+ *
+ * A checkpoint covers the byte range [rangeStart, rangeEnd) of a CSV file
+ * and records the offset of the first record not yet committed, plus the
+ * number of records of the range done so far. The sequential importer keeps one
+ * checkpoint for the whole data section of a file and saves it in the
+ * same transaction as each commit, so it never runs ahead of the data.
+ * The parallel importer saves a range's checkpoint once every row of the
+ * range has committed.
+ * Checkpoints are tied to the file's size and modification time; if the
+ * file changes they are discarded and the import starts over.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportCheckpoints {
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS import_checkpoints (" +
+            "file_path VARCHAR(500) NOT NULL, " +
+            "range_start BIGINT NOT NULL, " +
+            "range_end BIGINT NOT NULL, " +
+            "file_size BIGINT NOT NULL, " +
+            "file_modified BIGINT NOT NULL, " +
+            "byte_offset BIGINT NOT NULL, " +
+            "rows_committed BIGINT NOT NULL, " +
+            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+            "PRIMARY KEY (file_path, range_start, range_end)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+    private static final String SAVE_SQL =
+            "INSERT INTO import_checkpoints (file_path, range_start, range_end, file_size, " +
+            "file_modified, byte_offset, rows_committed) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE file_size=VALUES(file_size), " +
+            "file_modified=VALUES(file_modified), byte_offset=VALUES(byte_offset), " +
+            "rows_committed=VALUES(rows_committed)";
+
+    /**
+     * Progress through one byte range of a file.
+     */
+    public static final class Checkpoint {
+
+        private final long rangeStart;
+        private final long rangeEnd;
+        private final long byteOffset;
+        private final long rowsCommitted;
+
+        public Checkpoint(long rangeStart, long rangeEnd, long byteOffset, long rowsCommitted) {
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+            this.byteOffset = byteOffset;
+            this.rowsCommitted = rowsCommitted;
+        }
+
+        public long getRangeStart() {
+            return rangeStart;
+        }
+
+        public long getRangeEnd() {
+            return rangeEnd;
+        }
+
+        /**
+         * @return Offset of the first uncommitted record, or -1 if only
+         *         the row count is known
+         */
+        public long getByteOffset() {
+            return byteOffset;
+        }
+
+        /**
+         * @return Records of the range done, including rows skipped as
+         *         unchanged or rejected
+         */
+        public long getRowsCommitted() {
+            return rowsCommitted;
+        }
+
+        /**
+         * @return true if every record of the range was committed
+         */
+        public boolean isComplete() {
+            return byteOffset >= rangeEnd;
+        }
+    }
+
+    private final DBConnection dbConnection;
+    private volatile boolean tableReady;
+
+    public ImportCheckpoints(DBConnection dbConnection) {
+        this.dbConnection = dbConnection;
+    }
+
+    /**
+     * Loads the checkpoints of a file, discarding them if the file has
+     * changed since they were written.
+     *
+     * @param csvFilePath Path to the CSV file
+     * @return Checkpoints keyed by {@link #rangeKey(long, long)}
+     * @throws SQLException if the checkpoints cannot be read
+     */
+    public Map<String, Checkpoint> load(String csvFilePath) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            ensureTable(conn);
+            return load(conn, csvFilePath);
+        }
+    }
+
+    /**
+     * Loads the checkpoints of a file on the caller's connection, deleting
+     * them if the file has changed since they were written.
+     *
+     * @param conn Connection to use, in auto-commit mode
+     * @param csvFilePath Path to the CSV file
+     * @return Checkpoints keyed by {@link #rangeKey(long, long)}
+     * @throws SQLException if the checkpoints cannot be read
+     */
+    public Map<String, Checkpoint> load(Connection conn, String csvFilePath) throws SQLException {
+        File file = new File(csvFilePath);
+        Map<String, Checkpoint> checkpoints = new HashMap<>();
+        boolean stale = false;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT range_start, range_end, file_size, file_modified, byte_offset, rows_committed " +
+                "FROM import_checkpoints WHERE file_path = ?")) {
+            ps.setString(1, key(csvFilePath));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getLong("file_size") != file.length()
+                            || rs.getLong("file_modified") != file.lastModified()) {
+                        stale = true;
+                    }
+                    Checkpoint checkpoint = new Checkpoint(rs.getLong("range_start"),
+                            rs.getLong("range_end"), rs.getLong("byte_offset"), rs.getLong("rows_committed"));
+                    checkpoints.put(rangeKey(checkpoint.rangeStart, checkpoint.rangeEnd), checkpoint);
+                }
+            }
+        }
+        if (stale) {
+            System.err.println("Discarding import checkpoints of changed file: " + csvFilePath);
+            clear(conn, csvFilePath);
+            checkpoints.clear();
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Saves a checkpoint as part of the caller's transaction. Call
+     * {@link #load(String)} first, which creates the table if needed.
+     *
+     * @param conn Connection whose transaction commits the checkpointed rows
+     * @param csvFilePath Path to the CSV file
+     * @param checkpoint Progress to record
+     * @throws SQLException if the checkpoint cannot be written
+     */
+    public void save(Connection conn, String csvFilePath, Checkpoint checkpoint) throws SQLException {
+        File file = new File(csvFilePath);
+        try (PreparedStatement ps = conn.prepareStatement(SAVE_SQL)) {
+            ps.setString(1, key(csvFilePath));
+            ps.setLong(2, checkpoint.rangeStart);
+            ps.setLong(3, checkpoint.rangeEnd);
+            ps.setLong(4, file.length());
+            ps.setLong(5, file.lastModified());
+            ps.setLong(6, checkpoint.byteOffset);
+            ps.setLong(7, checkpoint.rowsCommitted);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Saves a checkpoint in its own transaction.
+     *
+     * @param csvFilePath Path to the CSV file
+     * @param checkpoint Progress to record
+     * @throws SQLException if the checkpoint cannot be written
+     */
+    public void save(String csvFilePath, Checkpoint checkpoint) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            ensureTable(conn);
+            save(conn, csvFilePath, checkpoint);
+        }
+    }
+
+    /**
+     * Removes every checkpoint of a file as part of the caller's transaction.
+     *
+     * @param conn Connection to use
+     * @param csvFilePath Path to the CSV file
+     * @throws SQLException if the checkpoints cannot be deleted
+     */
+    public void clear(Connection conn, String csvFilePath) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM import_checkpoints WHERE file_path = ?")) {
+            ps.setString(1, key(csvFilePath));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes every checkpoint of a file in its own transaction.
+     *
+     * @param csvFilePath Path to the CSV file
+     * @throws SQLException if the checkpoints cannot be deleted
+     */
+    public void clear(String csvFilePath) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            ensureTable(conn);
+            clear(conn, csvFilePath);
+        }
+    }
+
+    /**
+     * @return Map key of the checkpoint for a byte range
+     */
+    public static String rangeKey(long rangeStart, long rangeEnd) {
+        return rangeStart + "-" + rangeEnd;
+    }
+
+    private static String key(String csvFilePath) {
+        return new File(csvFilePath).getAbsolutePath();
+    }
+
+    /**
+     * Creates the table on first use, for databases set up before it was
+     * added to schema.sql. DDL commits implicitly, so this is only called
+     * outside the caller's transactions.
+     */
+    private void ensureTable(Connection conn) throws SQLException {
+        if (!tableReady) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_TABLE_SQL);
+            }
+            tableReady = true;
+        }
+    }
+}
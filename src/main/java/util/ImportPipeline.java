@@ -0,0 +1,624 @@
+package util;
+
+import db.DBConnection;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parallel import of one table: producer threads parse CSV rows into
+ * batches, a bounded queue hands the batches over, and writer threads
+ * upsert them, each batch on its own pooled connection and transaction.
+ *
+ * Producers usually read with a {@link MappedCsvReader}, whose rows are
+ * reused, so each row is copied into its table columns before it is
+ * queued. Records parsed with Commons CSV are immutable and queued as they
+ * are.
+ *
+ * The bounded queue keeps memory flat when parsing outpaces the database.
+ * A writer borrows a connection only while it writes a batch, so writers
+ * never hold one connection while waiting for another. A batch that fails
+ * with a deadlock is retried, since concurrent upserts into the same
+ * table can deadlock on InnoDB gap locks. Batches commit independently,
+ * so after a failure the batches already committed stay in the table.
+ *
+ * With a {@link RejectWriter} set, rows that fail to parse are rejected
+ * before their batch is sent, and a batch that fails on a row's values
+ * (a missing foreign key, a failed constraint) is rolled back and written
+ * again row by row, so only the offending rows are rejected. Split files
+ * are parsed without line numbers, so these rejects have no line number;
+ * the text of a copied row is read from the file again by its offset.
+ *
+ * With {@link SummaryTables} set, each batch also applies its changes to
+ * them before it commits.
+ *
+ * Each run collects {@link PipelineStats}: queue depth, and the time
+ * producers stall on a full queue and writers idle on an empty one, to
+ * show whether parsing or writing limits the import.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportPipeline {
+
+    private static final int MAX_DEADLOCK_RETRIES = 3;
+    private static final Batch END_OF_INPUT = new Batch(-1, new ArrayList<>());
+
+    /**
+     * Parses rows and passes them to the pipeline.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        void produce(RecordSink sink) throws Exception;
+    }
+
+    /**
+     * Receives parsed rows; blocks while the queue is full.
+     */
+    public interface RecordSink {
+
+        /**
+         * Copies a row, which the reader may reuse once this returns.
+         *
+         * @param row Parsed row, read by table column
+         * @param offset Byte offset of the record in the file, to recover its text
+         * @return false if the import was cancelled and the producer should stop
+         */
+        boolean accept(CsvRow row, long offset) throws InterruptedException;
+
+        /**
+         * @param record Record parsed with Commons CSV
+         * @return false if the import was cancelled and the producer should stop
+         */
+        boolean accept(CSVRecord record) throws InterruptedException;
+    }
+
+    /**
+     * Notified when every record of one producer has been committed.
+     */
+    @FunctionalInterface
+    public interface ProducerListener {
+
+        /**
+         * Called on the thread that committed the producer's last batch.
+         *
+         * @param producer Index of the producer in the list passed to run
+         * @param rowsCommitted Rows of that producer committed
+         * @throws SQLException to fail the import
+         */
+        void producerCompleted(int producer, long rowsCommitted) throws SQLException;
+    }
+
+    private final DBConnection dbConnection;
+    private final ImportTable table;
+    private final int[] positions;
+    private final int batchSize;
+    private final int writerThreads;
+    private final BlockingQueue<Batch> queue;
+    private String filePath;
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private BooleanSupplier cancelled = () -> false;
+    private Runnable batchListener = () -> { };
+    private ProducerListener producerListener = (producer, rows) -> { };
+    private RejectWriter rejects;
+    private AccountIds accountIds;
+    private SummaryTables summaries;
+    private volatile PipelineStats stats;
+
+    // Per producer: queued or unwritten batches plus one while it still produces
+    private AtomicInteger[] outstanding;
+    private AtomicLong[] producerRows;
+
+    /**
+     * @param dbConnection Source of pooled connections
+     * @param table Target table
+     * @param positions File position of each table column, see
+     *        {@link CsvRowReader#resolveColumns}
+     * @param batchSize Records per batch and per transaction
+     * @param writerThreads Number of writer threads
+     */
+    public ImportPipeline(DBConnection dbConnection, ImportTable table, int[] positions,
+            int batchSize, int writerThreads) {
+        this.dbConnection = dbConnection;
+        this.table = table;
+        this.positions = positions;
+        this.batchSize = Math.max(1, batchSize);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.queue = new ArrayBlockingQueue<>(this.writerThreads * 2);
+    }
+
+    /**
+     * Sets the cancellation check. Once it returns true, producers stop
+     * at their next record and writers discard the batches still queued,
+     * so the pipeline stops after the batches being written commit.
+     *
+     * @param cancelled Returns true when the import should stop
+     */
+    public void setCancellation(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Quarantines bad rows instead of failing the import.
+     *
+     * @param rejects Writer for rejected rows, or null to fail on the first bad row
+     */
+    public void setRejects(RejectWriter rejects) {
+        this.rejects = rejects;
+    }
+
+    /**
+     * Checks the account_id of each row in memory before it is batched,
+     * or records the ids of an accounts import. Orphans fail like rows
+     * that cannot be parsed.
+     *
+     * @param accountIds Known account ids, or null to leave the check to the database
+     */
+    public void setAccountIds(AccountIds accountIds) {
+        this.accountIds = accountIds;
+    }
+
+    /**
+     * Updates summary tables with each batch, in the batch's transaction.
+     *
+     * @param summaries Summaries of the table, or null to leave them alone
+     */
+    public void setSummaries(SummaryTables summaries) {
+        this.summaries = summaries;
+    }
+
+    /**
+     * Sets a callback run on a writer thread after each batch commits.
+     *
+     * @param batchListener Callback, for example to publish progress
+     */
+    public void setBatchListener(Runnable batchListener) {
+        this.batchListener = batchListener;
+    }
+
+    /**
+     * Sets a callback run once all records of a producer are committed,
+     * for example to checkpoint the producer's byte range. It is not
+     * called for producers that fail or are cancelled.
+     *
+     * @param producerListener Callback
+     */
+    public void setProducerListener(ProducerListener producerListener) {
+        this.producerListener = producerListener;
+    }
+
+    /**
+     * Runs the producers and writers until every record is written or
+     * one of them fails. On failure the remaining threads are interrupted.
+     *
+     * @param producers Row producers, one thread each
+     * @param filePath File being imported, for rejects and the cancellation message
+     * @return Number of rows written
+     * @throws ImportCancelledException if the import was cancelled
+     * @throws IOException if a producer fails to read its input
+     * @throws SQLException if a batch cannot be written
+     */
+    public long run(List<Producer> producers, String filePath) throws IOException, SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(producers.size() + writerThreads,
+                new NamedThreadFactory("import-" + table.getTableName()));
+        this.filePath = filePath;
+        ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        AtomicInteger producersLeft = new AtomicInteger(producers.size());
+        stats = new PipelineStats(writerThreads * 2);
+        outstanding = new AtomicInteger[producers.size()];
+        producerRows = new AtomicLong[producers.size()];
+        for (int i = 0; i < producers.size(); i++) {
+            outstanding[i] = new AtomicInteger(1);
+            producerRows[i] = new AtomicLong();
+        }
+
+        try {
+            for (int i = 0; i < writerThreads; i++) {
+                completion.submit(() -> {
+                    drain();
+                    return null;
+                });
+            }
+            for (int p = 0; p < producers.size(); p++) {
+                int index = p;
+                Producer producer = producers.get(p);
+                completion.submit(() -> {
+                    try {
+                        produce(index, producer);
+                    } finally {
+                        // The last producer tells every writer to stop
+                        if (producersLeft.decrementAndGet() == 0) {
+                            for (int i = 0; i < writerThreads; i++) {
+                                queue.put(END_OF_INPUT);
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < producers.size() + writerThreads; i++) {
+                completion.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Import of " + table.getTableName() + " failed", cause);
+        } finally {
+            executor.shutdownNow();
+            stats.finished();
+        }
+        if (cancelled.getAsBoolean()) {
+            throw new ImportCancelledException(filePath, rowsWritten.get());
+        }
+        return rowsWritten.get();
+    }
+
+    /**
+     * @return Rows written so far
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * @return Statistics of the current or last run, or null before the first run
+     */
+    public PipelineStats getStats() {
+        return stats;
+    }
+
+    private void produce(int index, Producer producer) throws Exception {
+        Batcher batcher = new Batcher(index);
+        producer.produce(batcher);
+        batcher.flush();
+        if (!cancelled.getAsBoolean()) {
+            release(index);
+        }
+    }
+
+    private void drain() throws InterruptedException, SQLException {
+        Batch batch;
+        while ((batch = take()) != END_OF_INPUT) {
+            if (!cancelled.getAsBoolean()) {
+                long start = System.nanoTime();
+                producerRows[batch.producer].addAndGet(write(batch.rows));
+                stats.written(System.nanoTime() - start);
+                batchListener.run();
+                release(batch.producer);
+            }
+        }
+    }
+
+    private Batch take() throws InterruptedException {
+        Batch batch = queue.poll();
+        if (batch == null) {
+            long start = System.nanoTime();
+            batch = queue.take();
+            stats.taken(System.nanoTime() - start);
+        }
+        return batch;
+    }
+
+    private void release(int producer) throws SQLException {
+        if (outstanding[producer].decrementAndGet() == 0) {
+            producerListener.producerCompleted(producer, producerRows[producer].get());
+        }
+    }
+
+    /**
+     * Writes and commits one batch, retrying on deadlock.
+     *
+     * @return Rows written, excluding rejected rows
+     */
+    private int write(List<Row> batch) throws SQLException {
+        List<Row> rows = batch;
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = dbConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(table.getUpsertSql())) {
+                    // Retries skip the rows rejected on the first attempt
+                    rows = bindAll(ps, rows);
+                    int[] ids = summaries == null ? null : ids(rows);
+                    SummaryTables.Snapshot before = ids == null ? null : summaries.read(conn, ids, ids.length);
+                    List<Row> failed = new ArrayList<>();
+                    List<SQLException> errors = new ArrayList<>();
+                    try {
+                        ps.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        if (rejects == null || !RejectWriter.isRowError(e)) {
+                            throw e;
+                        }
+                        conn.rollback();
+                        ps.clearBatch();
+                        writeRows(ps, rows, failed, errors);
+                    }
+                    if (ids != null) {
+                        summaries.apply(conn, before, summaries.read(conn, ids, ids.length));
+                    }
+                    conn.commit();
+                    for (int i = 0; i < failed.size(); i++) {
+                        rejects.reject(-1, rawRecord(failed.get(i)), errors.get(i));
+                    }
+                    int written = rows.size() - failed.size();
+                    rowsWritten.addAndGet(written);
+                    return written;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    if (!(e instanceof SQLException) || !isDeadlock((SQLException) e)
+                            || attempt >= MAX_DEADLOCK_RETRIES) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds and batches rows, rejecting those that fail to parse.
+     *
+     * @return The rows that were batched
+     */
+    private List<Row> bindAll(PreparedStatement ps, List<Row> rows) throws SQLException {
+        List<Row> accepted = rejects == null ? rows : new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            try {
+                if (accountIds != null) {
+                    accountIds.check(table, row);
+                }
+                table.bind(ps, row);
+            } catch (RuntimeException e) {
+                if (rejects == null) {
+                    throw e;
+                }
+                rejects.reject(-1, rawRecord(row), e);
+                continue;
+            }
+            ps.addBatch();
+            if (accepted != rows) {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Reads the primary keys of rows that have already been bound once.
+     */
+    private static int[] ids(List<Row> rows) {
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).getInt(0);
+        }
+        return ids;
+    }
+
+    /**
+     * Recovers the text of a rejected row, from its record or by reading
+     * it from the file again.
+     */
+    private String rawRecord(Row row) {
+        if (row.record != null) {
+            return RejectWriter.format(row.record);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return MappedCsvReader.readRawRecord(channel, row.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read rejected record of " + filePath, e);
+        }
+    }
+
+    /**
+     * Executes rows one at a time after their batch failed, collecting
+     * the rows that fail on their values. InnoDB rolls back only the
+     * failed statement, so the others stay in the transaction.
+     */
+    private void writeRows(PreparedStatement ps, List<Row> rows, List<Row> failed,
+            List<SQLException> errors) throws SQLException {
+        for (Row row : rows) {
+            table.bind(ps, row);
+            try {
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                if (!RejectWriter.isRowError(e)) {
+                    throw e;
+                }
+                failed.add(row);
+                errors.add(e);
+            }
+        }
+    }
+
+    private static boolean isDeadlock(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213;
+    }
+
+    /**
+     * Collects one producer's rows into batches for the queue.
+     */
+    private final class Batcher implements RecordSink {
+
+        private final int producer;
+        private List<Row> batch = new ArrayList<>(batchSize);
+
+        Batcher(int producer) {
+            this.producer = producer;
+        }
+
+        @Override
+        public boolean accept(CsvRow row, long offset) throws InterruptedException {
+            return add(Row.copy(row, positions.length, offset));
+        }
+
+        @Override
+        public boolean accept(CSVRecord record) throws InterruptedException {
+            return add(new Row(positions, record));
+        }
+
+        private boolean add(Row row) throws InterruptedException {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                put();
+            }
+            return true;
+        }
+
+        void flush() throws InterruptedException {
+            if (!batch.isEmpty() && !cancelled.getAsBoolean()) {
+                put();
+            }
+        }
+
+        private void put() throws InterruptedException {
+            outstanding[producer].incrementAndGet();
+            Batch queued = new Batch(producer, batch);
+            long stall = 0;
+            if (!queue.offer(queued)) {
+                long start = System.nanoTime();
+                queue.put(queued);
+                stall = System.nanoTime() - start;
+            }
+            stats.queued(queue.size(), stall);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Rows of one producer, written in one transaction.
+     */
+    private static final class Batch {
+
+        private final int producer;
+        private final List<Row> rows;
+
+        Batch(int producer, List<Row> rows) {
+            this.producer = producer;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * A queued row: either the table columns copied from a reused row,
+     * with the record's byte offset, or a Commons CSV record read by file
+     * position. A row that could not be copied fails when it is bound,
+     * so it is rejected like any other row that fails to parse.
+     */
+    private static final class Row implements CsvRow {
+
+        private final String[] values;
+        private final long offset;
+        private final RuntimeException error;
+        private final int[] positions;
+        private final CSVRecord record;
+
+        private Row(String[] values, long offset, RuntimeException error) {
+            this.values = values;
+            this.offset = offset;
+            this.error = error;
+            this.positions = null;
+            this.record = null;
+        }
+
+        Row(int[] positions, CSVRecord record) {
+            this.values = null;
+            this.offset = -1;
+            this.error = null;
+            this.positions = positions;
+            this.record = record;
+        }
+
+        static Row copy(CsvRow row, int columns, long offset) {
+            String[] values = new String[columns];
+            try {
+                for (int c = 0; c < columns; c++) {
+                    values[c] = row.getString(c);
+                }
+            } catch (RuntimeException e) {
+                return new Row(null, offset, e);
+            }
+            return new Row(values, offset, null);
+        }
+
+        @Override
+        public String getString(int column) {
+            if (error != null) {
+                throw error;
+            }
+            return record != null ? record.get(positions[column]).trim() : values[column];
+        }
+
+        @Override
+        public int getInt(int column) {
+            return Integer.parseInt(getString(column));
+        }
+
+        @Override
+        public double getDouble(int column) {
+            return Double.parseDouble(getString(column));
+        }
+
+        @Override
+        public long getScaledLong(int column, int scale) {
+            return FixedPoint.parse(getString(column), scale);
+        }
+
+        @Override
+        public LocalDate getDate(int column) {
+            return LocalDate.parse(getString(column), RecordRow.DATE_FORMAT);
+        }
+    }
+
+    /**
+     * Names pipeline threads after their table, as daemon threads.
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package util;
+
+import java.io.File;
+
+/**
+ * Snapshot of the progress of importing one CSV file, published to
+ * {@link ImportProgressListener}s while {@link CSVImporter} runs.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportProgress {
+
+    /**
+     * State of one file in an import.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final ImportTable table;
+    private final String filePath;
+    private final Status status;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long rowsCommitted;
+    private final long elapsedNanos;
+    private final String message;
+
+    public ImportProgress(ImportTable table, String filePath, Status status, long bytesRead,
+            long totalBytes, long rowsCommitted, long elapsedNanos, String message) {
+        this.table = table;
+        this.filePath = filePath;
+        this.status = status;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.rowsCommitted = rowsCommitted;
+        this.elapsedNanos = elapsedNanos;
+        this.message = message;
+    }
+
+    public ImportTable getTable() {
+        return table;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getFileName() {
+        return new File(filePath).getName();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Bytes of the file consumed so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return File size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Rows committed to the database so far
+     */
+    public long getRowsCommitted() {
+        return rowsCommitted;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    /**
+     * @return Error or cancellation message, or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return Fraction of the file consumed, from 0.0 to 1.0
+     */
+    public double getFraction() {
+        if (status == Status.COMPLETED) {
+            return 1.0;
+        }
+        return totalBytes <= 0 ? 0.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+    }
+
+    /**
+     * @return Average rows committed per second since the file started
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos <= 0 ? 0.0 : rowsCommitted / getElapsedSeconds();
+    }
+
+    /**
+     * @return Average bytes consumed per second since the file started
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos <= 0 ? 0.0 : bytesRead / getElapsedSeconds();
+    }
+
+    /**
+     * @return Estimated seconds until the file is consumed, or -1 if unknown
+     */
+    public double getEtaSeconds() {
+        double rate = getBytesPerSecond();
+        if (status != Status.RUNNING || rate <= 0) {
+            return status == Status.COMPLETED ? 0 : -1;
+        }
+        return Math.max(0, totalBytes - bytesRead) / rate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %.0f%%, %d rows committed, %.0f rows/sec",
+                getFileName(), status, getFraction() * 100, rowsCommitted, getRowsPerSecond());
+    }
+}
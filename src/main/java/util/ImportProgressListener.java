@@ -0,0 +1,20 @@
+package util;
+
+/**
+ * Receives progress updates from {@link CSVImporter}.
+ *
+ * Updates are delivered on the importing threads, after every batch and
+ * whenever a file changes status, so implementations must be thread-safe
+ * and return quickly; Swing code should hand them to the event thread.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+
+    /**
+     * @param progress Latest state of one file
+     */
+    void importProgress(ImportProgress progress);
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.io.File;
+
+/**
+ * Outcome of importing one CSV file.
+ * Reports the rows written and the throughput in rows per second, and
+ * for delta imports how many rows were inserted, updated or unchanged.
+ * Rows quarantined to the rejects file are counted separately.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportResult {
+
+    private final ImportTable table;
+    private final String filePath;
+    private final long rowCount;
+    private final long elapsedNanos;
+    private final boolean delta;
+    private final long inserted;
+    private final long updated;
+    private final long unchanged;
+    private final long rejected;
+
+    public ImportResult(ImportTable table, String filePath, long rowCount, long elapsedNanos) {
+        this(table, filePath, rowCount, elapsedNanos, null, 0);
+    }
+
+    /**
+     * @param hashes Row hashes that classified the file's rows, or null
+     *        if this was not a delta import
+     * @param rejected Rows written to the rejects file
+     */
+    public ImportResult(ImportTable table, String filePath, long rowCount, long elapsedNanos, 
+            RowHashes hashes, long rejected) {
+        this(table, filePath, rowCount, elapsedNanos, hashes != null, 
+                hashes == null ? 0 : hashes.getInserted(), hashes == null ? 0 : hashes.getUpdated(),
+                hashes == null ? 0 : hashes.getUnchanged(), rejected);
+    }
+
+    private ImportResult(ImportTable table, String filePath, long rowCount, long elapsedNanos,
+            boolean delta, long inserted, long updated, long unchanged, long rejected) {
+        this.table = table;
+        this.filePath = filePath;
+        this.rowCount = rowCount;
+        this.elapsedNanos = elapsedNanos;
+        this.delta = delta;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+        this.rejected = rejected;
+    }
+
+    public ImportTable getTable() {
+        return table;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return Number of rows written to the database
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return true if this was a delta import with change counts
+     */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /**
+     * @return Rows new to the table, or 0 if this was not a delta import
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return Rows whose content changed, or 0 if this was not a delta import
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return Rows skipped as unchanged, or 0 if this was not a delta import
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return Rows quarantined to the rejects file
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    /**
+     * @return Rows written per second of wall-clock time
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowCount / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%s (%s): %d records imported in %.2f s (%.0f rows/sec)",
+                table.getDisplayName(), new File(filePath).getName(), rowCount,
+                getElapsedSeconds(), getRowsPerSecond());
+        if (delta) {
+            summary += String.format(" [%d inserted, %d updated, %d unchanged]",
+                    inserted, updated, unchanged);
+        }
+        if (rejected > 0) {
+            summary += String.format(", %d rejected (see %s.rejects)", 
+                    rejected, new File(filePath).getName());
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,211 @@
+package util;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Describes each importable table for Bank Data Analysis System.
+ * Holds the CSV headers, the upsert statement and the column binding
+ * for accounts, transactions, loans and cards, so the import loop in
+ * {@link CSVImporter} is shared by all four.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public enum ImportTable {
+
+    ACCOUNTS("accounts", "Accounts",
+            new String[] { "account_id", "customer_name", "email", "phone",
+                "account_type", "balance", "date_opened", "branch", "status" },
+            "INSERT INTO accounts (account_id, customer_name, email, " +
+                    "phone, account_type, balance, date_opened, branch, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE customer_name=VALUES(customer_name), " +
+                    "balance=VALUES(balance)") {
+        @Override
+        public void bind(PreparedStatement ps, CsvRow row) throws SQLException {
+            ps.setInt(1, row.getInt(0));
+            ps.setString(2, row.getString(1));
+            ps.setString(3, row.getString(2));
+            ps.setString(4, row.getString(3));
+            ps.setString(5, row.getString(4));
+            ps.setBigDecimal(6, money(row, 5));
+            ps.setObject(7, row.getDate(6));
+            ps.setString(8, row.getString(7));
+            ps.setString(9, row.getString(8));
+        }
+    },
+
+    TRANSACTIONS("transactions", "Transactions",
+            new String[] { "transaction_id", "account_id", "transaction_type", "amount",
+                "transaction_date", "description", "status" },
+            "INSERT INTO transactions (transaction_id, account_id, transaction_type, " +
+                    "amount, transaction_date, description, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE status=VALUES(status)") {
+        @Override
+        public void bind(PreparedStatement ps, CsvRow row) throws SQLException {
+            ps.setInt(1, row.getInt(0));
+            ps.setInt(2, row.getInt(1));
+            ps.setString(3, row.getString(2));
+            ps.setBigDecimal(4, money(row, 3));
+            ps.setObject(5, row.getDate(4));
+            ps.setString(6, row.getString(5));
+            ps.setString(7, row.getString(6));
+        }
+    },
+
+    LOANS("loans", "Loans",
+            new String[] { "loan_id", "account_id", "loan_type", "amount", "interest_rate",
+                "duration_months", "start_date", "status", "monthly_payment" },
+            "INSERT INTO loans (loan_id, account_id, loan_type, amount, " +
+                    "interest_rate, duration_months, start_date, status, monthly_payment) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE status=VALUES(status)") {
+        @Override
+        public void bind(PreparedStatement ps, CsvRow row) throws SQLException {
+            ps.setInt(1, row.getInt(0));
+            ps.setInt(2, row.getInt(1));
+            ps.setString(3, row.getString(2));
+            ps.setBigDecimal(4, money(row, 3));
+            ps.setBigDecimal(5, money(row, 4));
+            ps.setInt(6, row.getInt(5));
+            ps.setObject(7, row.getDate(6));
+            ps.setString(8, row.getString(7));
+            ps.setBigDecimal(9, money(row, 8));
+        }
+    },
+
+    CARDS("cards", "Cards",
+            new String[] { "card_id", "account_id", "card_type", "card_number",
+                "expiry_date", "credit_limit", "status" },
+            "INSERT INTO cards (card_id, account_id, card_type, card_number, " +
+                    "expiry_date, credit_limit, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE status=VALUES(status)") {
+        @Override
+        public void bind(PreparedStatement ps, CsvRow row) throws SQLException {
+            ps.setInt(1, row.getInt(0));
+            ps.setInt(2, row.getInt(1));
+            ps.setString(3, row.getString(2));
+            ps.setString(4, row.getString(3));
+            ps.setObject(5, row.getDate(4));
+            ps.setBigDecimal(6, money(row, 5));
+            ps.setString(7, row.getString(6));
+        }
+    };
+
+    /** Fractional digits of the DECIMAL money and rate columns in schema.sql. */
+    static final int DECIMAL_SCALE = 2;
+
+    private final String tableName;
+    private final String displayName;
+    private final String[] headers;
+    private final String upsertSql;
+
+    ImportTable(String tableName, String displayName, String[] headers, String upsertSql) {
+        this.tableName = tableName;
+        this.displayName = displayName;
+        this.headers = headers;
+        this.upsertSql = upsertSql;
+    }
+
+    /**
+     * Binds one CSV row to the parameters of {@link #getUpsertSql()}.
+     * Row columns are indexed in {@link #getHeaders()} order.
+     *
+     * @param ps Prepared upsert statement
+     * @param row CSV row read by this table's headers
+     * @throws SQLException if binding fails
+     * @throws NumberFormatException if a numeric field is malformed
+     * @throws java.time.DateTimeException if a date field is malformed
+     */
+    public abstract void bind(PreparedStatement ps, CsvRow row) throws SQLException;
+
+    /**
+     * Computes a 64-bit FNV-1a hash of every column of a row, for
+     * detecting rows whose content changed between imports.
+     *
+     * @param row CSV row read by this table's headers
+     * @return Content hash of the row
+     */
+    public long contentHash(CsvRow row) {
+        long hash = 0xcbf29ce484222325L;
+        for (int column = 0; column < headers.length; column++) {
+            String value = row.getString(column);
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            // Separator, so that "ab","c" and "a","bc" differ
+            hash = (hash ^ 0xffff) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a DECIMAL(p, 2) column exactly, without rounding through a double.
+     */
+    private static BigDecimal money(CsvRow row, int column) {
+        return BigDecimal.valueOf(row.getScaledLong(column, DECIMAL_SCALE), DECIMAL_SCALE);
+    }
+
+    /**
+     * @return Column index of the account_id foreign key, or -1 for the
+     *         accounts table itself
+     */
+    public int getAccountColumn() {
+        return this == ACCOUNTS ? -1 : Arrays.asList(headers).indexOf("account_id");
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return CSV headers expected for this table, in schema order
+     */
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * @return INSERT ... ON DUPLICATE KEY UPDATE statement for one row
+     */
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    /**
+     * @return Assignment list of the upsert's ON DUPLICATE KEY UPDATE clause
+     */
+    public String getUpdateClause() {
+        String marker = "ON DUPLICATE KEY UPDATE ";
+        return upsertSql.substring(upsertSql.indexOf(marker) + marker.length());
+    }
+
+    /**
+     * Detects the table a CSV file belongs to from its file name.
+     *
+     * @param fileName CSV file name
+     * @return Matching table, or null if the name is not recognized
+     */
+    public static ImportTable forFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.contains("account") && !name.contains("transaction")) {
+            return ACCOUNTS;
+        } else if (name.contains("transaction")) {
+            return TRANSACTIONS;
+        } else if (name.contains("loan")) {
+            return LOANS;
+        } else if (name.contains("card")) {
+            return CARDS;
+        }
+        return null;
+    }
+}
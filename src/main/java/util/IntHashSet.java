@@ -0,0 +1,99 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of ints.
+ *
+ * Values are kept in one primitive array with linear probing, about 7
+ * bytes per value at the default load factor, so a set of ten million
+ * account ids fits in under 100 MB. Not thread safe.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class IntHashSet {
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final double LOAD_FACTOR = 0.6;
+
+    private int[] values;
+    private int size;
+    private int resizeAt;
+    private boolean hasFreeValue; // The FREE marker itself is stored aside
+
+    public IntHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Values the set should hold without resizing
+     */
+    public IntHashSet(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+    }
+
+    /**
+     * @return true if the value is in the set
+     */
+    public boolean contains(int value) {
+        return value == FREE ? hasFreeValue : values[find(value)] != FREE;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @return true if the value was not in the set before
+     */
+    public boolean add(int value) {
+        if (value == FREE) {
+            boolean added = !hasFreeValue;
+            hasFreeValue = true;
+            size += added ? 1 : 0;
+            return added;
+        }
+        int slot = find(value);
+        if (values[slot] != FREE) {
+            return false;
+        }
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(values.length << 1);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(int value) {
+        int mask = values.length - 1;
+        int slot = mix(value) & mask;
+        while (values[slot] != FREE && values[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int capacity) {
+        values = new int[capacity];
+        Arrays.fill(values, FREE);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] old = values;
+        allocate(capacity);
+        for (int value : old) {
+            if (value != FREE) {
+                values[find(value)] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to long values.
+ *
+ * Keys and values are kept in two primitive arrays with linear probing,
+ * so a map of ten million entries takes about 200 MB instead of the
+ * gigabytes a HashMap of boxed Integers and Longs would need. Not thread
+ * safe.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class IntLongHashMap {
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final double LOAD_FACTOR = 0.6;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    // The FREE marker cannot be a key in the arrays, so it is stored aside
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+
+    public IntLongHashMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Entries the map should hold without resizing
+     */
+    public IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param key Key to look up
+     * @param missing Value to return if the key is absent
+     * @return Value mapped to the key, or missing
+     */
+    public long get(int key, long missing) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : missing;
+        }
+        int slot = find(key);
+        return keys[slot] == FREE ? missing : values[slot];
+    }
+
+    /**
+     * @return true if the key is mapped
+     */
+    public boolean containsKey(int key) {
+        return key == FREE ? hasFreeKey : keys[find(key)] != FREE;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @return true if the key was not mapped before
+     */
+    public boolean put(int key, long value) {
+        if (key == FREE) {
+            boolean added = !hasFreeKey;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            size += added ? 1 : 0;
+            return added;
+        }
+        int slot = find(key);
+        values[slot] = value;
+        if (keys[slot] != FREE) {
+            return false;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key, moving later entries of its probe sequence back so
+     * they stay reachable.
+     *
+     * @return true if the key was mapped
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            boolean removed = hasFreeKey;
+            hasFreeKey = false;
+            size -= removed ? 1 : 0;
+            return removed;
+        }
+        int gap = find(key);
+        if (keys[gap] == FREE) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        for (int slot = (gap + 1) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+            // An entry may fill the gap if the gap lies between its home slot and its slot
+            int home = mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Slot holding the key, or the free slot where it belongs
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocation-light CSV tokenizer over a memory-mapped file.
+ *
+ * The file is mapped in windows of a fixed size. Each record is tokenized
+ * into field offsets within the window, and numbers, decimals and dates
+ * are parsed straight from those bytes; a String is only created when a text column
+ * is read. The reader is its own {@link CsvRow}, so reading a record
+ * allocates nothing.
+ *
+ * Accepts RFC 4180 input: comma separators, double-quoted fields with ""
+ * escapes and embedded line breaks, LF, CRLF or CR line endings and a
+ * UTF-8 byte order mark. Empty lines are skipped and values are trimmed,
+ * matching the Commons CSV format used by {@link CommonsCsvReader}. A
+ * record must fit within one mapping window. A marked record is just its
+ * byte offset, and its text is read from the file again when needed.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class MappedCsvReader implements CsvRowReader, CsvRow {
+
+    /** Default bytes mapped at a time. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Thrown for input this tokenizer cannot read, such as a record larger
+     * than the mapping window; the caller may read the file with Commons CSV.
+     */
+    public static final class UnsupportedInputException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedInputException(String message) {
+            super(message);
+        }
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final List<String> headers;
+    private final int[] positions;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private int cursor;
+    private long recordNumber;
+    private long end = Long.MAX_VALUE;
+    private long line = 1;
+    private long recordLine;
+    private boolean linesKnown = true;
+    private int recordStart;
+    private int quotedLineBreaks;
+
+    private int fieldCount;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private boolean[] fieldEscaped = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Opens a CSV file and reads its header line.
+     *
+     * @param path CSV file
+     * @param columns Column names the rows are read by
+     * @throws IOException if the file cannot be read or lacks a column
+     */
+    public MappedCsvReader(Path path, String[] columns) throws IOException {
+        this(path, columns, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedCsvReader(Path path, String[] columns, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            this.windowSize = windowSize;
+            map(0);
+            skipByteOrderMark();
+
+            this.headers = new ArrayList<>();
+            if (readRecord()) {
+                for (int f = 0; f < fieldCount; f++) {
+                    headers.add(fieldString(f));
+                }
+            }
+            this.positions = headers.isEmpty()
+                    ? new int[columns.length] : CsvRowReader.resolveColumns(columns, headers);
+            this.recordNumber = 0;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> getHeaders() {
+        return new ArrayList<>(headers);
+    }
+
+    /**
+     * @return 1-based number of the current data record
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Ends the input at a byte offset, so the reader covers one
+     * {@link CsvSplitter.Range} of the file together with
+     * {@link #skip(long, long)} to its start.
+     *
+     * @param end Offset of the first record not to return
+     */
+    void limit(long end) {
+        this.end = end;
+    }
+
+    @Override
+    public CsvRow next() throws IOException {
+        if (windowStart + cursor >= end || !readRecord() || windowStart + recordStart >= end) {
+            return null;
+        }
+        recordNumber++;
+        return this;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return linesKnown ? recordLine : -1;
+    }
+
+    @Override
+    public String getRawRecord() {
+        int end = cursor;
+        while (end > recordStart && (window.get(end - 1) == '\n' || window.get(end - 1) == '\r')) {
+            end--;
+        }
+        byte[] bytes = new byte[end - recordStart];
+        window.position(recordStart);
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long markRecord() {
+        return windowStart + recordStart;
+    }
+
+    @Override
+    public String getRawRecord(long mark) throws IOException {
+        return readRawRecord(channel, mark);
+    }
+
+    /**
+     * Reads the text of the record starting at a byte offset of a file.
+     *
+     * @param channel CSV file
+     * @param offset Byte offset of the record, such as a mark or a
+     *        {@link #getRecordOffset()} taken before it was read
+     * @return The record without its line break
+     * @throws IOException if the file cannot be read
+     */
+    static String readRawRecord(FileChannel channel, long offset) throws IOException {
+        // The record ends at the first line break outside quotes; "" escapes toggle twice
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        boolean quoted = false;
+        long position = offset;
+        int n;
+        while ((n = channel.read(buffer, position)) > 0) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && (b == '\n' || b == '\r')) {
+                    record.write(buffer.array(), 0, i);
+                    return new String(record.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            record.write(buffer.array(), 0, n);
+            position += n;
+            buffer.clear();
+        }
+        return new String(record.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void clearMarks() {
+        // Marks are file offsets, so there is nothing to release
+    }
+
+    @Override
+    public long getBytesRead() {
+        return windowStart + cursor;
+    }
+
+    @Override
+    public long getRecordOffset() {
+        return windowStart + cursor;
+    }
+
+    @Override
+    public void skip(long byteOffset, long records) throws IOException {
+        if (byteOffset < 0) {
+            CsvRowReader.super.skip(byteOffset, records);
+        } else if (byteOffset > windowStart + cursor) {
+            map(Math.min(byteOffset, fileSize));
+            recordNumber += records;
+            linesKnown = false; // Lines were not counted over the skipped bytes
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    // ---- Tokenizer ----
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowLimit = (int) length;
+        cursor = 0;
+    }
+
+    private void skipByteOrderMark() {
+        if (windowLimit >= 3 && window.get(0) == (byte) 0xEF
+                && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+            cursor = 3;
+        }
+    }
+
+    private boolean atEndOfFile(int position) {
+        return windowStart + position >= fileSize;
+    }
+
+    /**
+     * Tokenizes the next non-empty record, remapping the window when a
+     * record crosses its end.
+     *
+     * @return false at the end of the file
+     */
+    private boolean readRecord() throws IOException {
+        while (true) {
+            // Skip empty lines
+            while (cursor < windowLimit) {
+                byte b = window.get(cursor);
+                if (b != '\n' && b != '\r') {
+                    break;
+                }
+                if (isLineEnd(cursor)) {
+                    line++;
+                }
+                cursor++;
+            }
+            if (cursor >= windowLimit) {
+                if (atEndOfFile(cursor)) {
+                    return false;
+                }
+                map(windowStart + cursor);
+                continue;
+            }
+
+            int end = tokenize(cursor);
+            if (end >= 0) {
+                recordStart = cursor;
+                recordLine = line + quotedLineBreaks;
+                line = recordLine + (end > cursor && isLineEnd(end - 1) ? 1 : 0);
+                cursor = end;
+                return true;
+            }
+            if (cursor == 0) {
+                throw new UnsupportedInputException("CSV record at byte " + windowStart
+                        + " is larger than the " + windowSize + "-byte mapping window");
+            }
+            map(windowStart + cursor);
+        }
+    }
+
+    /**
+     * @return true if the byte at a window position ends a line, counting
+     *         CRLF once
+     */
+    private boolean isLineEnd(int position) {
+        byte b = window.get(position);
+        return b == '\n' || b == '\r' && (position + 1 >= windowLimit || window.get(position + 1) != '\n');
+    }
+
+    /**
+     * Splits the record starting at a window position into fields.
+     * Counts the line breaks within quoted fields in quotedLineBreaks.
+     *
+     * @return Position after the record's line break, or -1 if the
+     *         record continues past the end of the window
+     */
+    private int tokenize(int position) throws IOException {
+        fieldCount = 0;
+        quotedLineBreaks = 0;
+        int pos = position;
+
+        while (true) {
+            if (fieldCount == fieldStart.length) {
+                growFields();
+            }
+
+            if (pos < windowLimit && window.get(pos) == '"') {
+                int start = pos + 1;
+                int p = start;
+                boolean escaped = false;
+                while (true) {
+                    if (p >= windowLimit) {
+                        if (atEndOfFile(p)) {
+                            throw new IOException("Unterminated quoted field at byte "
+                                    + (windowStart + position));
+                        }
+                        return -1;
+                    }
+                    if (window.get(p) == '"') {
+                        if (p + 1 >= windowLimit && !atEndOfFile(p + 1)) {
+                            return -1; // Cannot tell a closing quote from an escape yet
+                        }
+                        if (p + 1 < windowLimit && window.get(p + 1) == '"') {
+                            escaped = true;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (isLineEnd(p)) {
+                        quotedLineBreaks++;
+                    }
+                    p++;
+                }
+                fieldStart[fieldCount] = start;
+                fieldEnd[fieldCount] = p;
+                fieldEscaped[fieldCount] = escaped;
+                pos = p + 1;
+                while (pos < windowLimit && (window.get(pos) == ' ' || window.get(pos) == '\t')) {
+                    pos++;
+                }
+            } else {
+                int start = pos;
+                while (pos < windowLimit) {
+                    byte b = window.get(pos);
+                    if (b == ',' || b == '\n' || b == '\r') {
+                        break;
+                    }
+                    pos++;
+                }
+                fieldStart[fieldCount] = start;
+                fieldEnd[fieldCount] = pos;
+                fieldEscaped[fieldCount] = false;
+            }
+            fieldCount++;
+
+            if (pos >= windowLimit) {
+                return atEndOfFile(pos) ? pos : -1;
+            }
+            byte b = window.get(pos);
+            if (b == ',') {
+                pos++;
+            } else if (b == '\n') {
+                return pos + 1;
+            } else if (b == '\r') {
+                if (pos + 1 >= windowLimit) {
+                    return atEndOfFile(pos + 1) ? pos + 1 : -1;
+                }
+                return window.get(pos + 1) == '\n' ? pos + 2 : pos + 1;
+            } else {
+                throw new IOException("Invalid character after quoted field at byte "
+                        + (windowStart + pos));
+            }
+        }
+    }
+
+    private void growFields() {
+        int size = fieldStart.length * 2;
+        fieldStart = Arrays.copyOf(fieldStart, size);
+        fieldEnd = Arrays.copyOf(fieldEnd, size);
+        fieldEscaped = Arrays.copyOf(fieldEscaped, size);
+    }
+
+    // ---- Field access ----
+
+    private int field(int column) {
+        int f = positions[column];
+        if (f >= fieldCount) {
+            throw new IllegalArgumentException("Record " + recordNumber + " has only "
+                    + fieldCount + " fields, column " + column + " is field " + (f + 1));
+        }
+        return f;
+    }
+
+    private int trimmedStart(int f) {
+        int start = fieldStart[f];
+        int end = fieldEnd[f];
+        while (start < end && isBlank(window.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int f, int start) {
+        int end = fieldEnd[f];
+        while (end > start && isBlank(window.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isBlank(byte b) {
+        // Matches String.trim(); bytes of multi-byte UTF-8 characters are negative
+        return b >= 0 && b <= ' ';
+    }
+
+    private String fieldString(int f) {
+        int start = trimmedStart(f);
+        int end = trimmedEnd(f, start);
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        if (!fieldEscaped[f]) {
+            window.position(start);
+            window.get(scratch, 0, length);
+        } else {
+            length = 0;
+            for (int i = start; i < end; i++) {
+                byte b = window.get(i);
+                scratch[length++] = b;
+                if (b == '"') {
+                    i++; // Skip the second quote of ""
+                }
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getString(int column) {
+        return fieldString(field(column));
+    }
+
+    @Override
+    public int getInt(int column) {
+        int f = field(column);
+        int start = trimmedStart(f);
+        int end = trimmedEnd(f, start);
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (window.get(pos) == '-' || window.get(pos) == '+')) {
+            negative = window.get(pos) == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 10) {
+            throw invalidNumber(f);
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = window.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidNumber(f);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidNumber(f);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public double getDouble(int column) {
+        int f = field(column);
+        int start = trimmedStart(f);
+        int end = trimmedEnd(f, start);
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (window.get(pos) == '-' || window.get(pos) == '+')) {
+            negative = window.get(pos) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; pos < end; pos++) {
+            byte b = window.get(pos);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9' && digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                // Exponents, long mantissas and malformed input
+                return Double.parseDouble(fieldString(f));
+            }
+        }
+        if (digits == 0 || mantissa >= MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(fieldString(f));
+        }
+        // Both operands are exact, so the quotient is correctly rounded like parseDouble
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public long getScaledLong(int column, int scale) {
+        int f = field(column);
+        int start = trimmedStart(f);
+        try {
+            return FixedPoint.parse(window, start, trimmedEnd(f, start), scale);
+        } catch (NumberFormatException e) {
+            throw invalidNumber(f);
+        }
+    }
+
+    @Override
+    public LocalDate getDate(int column) {
+        int f = field(column);
+        int start = trimmedStart(f);
+        int end = trimmedEnd(f, start);
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int part = 0;
+        int partDigits = 0;
+        for (int pos = start; pos <= end; pos++) {
+            // A virtual '-' after the last byte closes the day part
+            byte b = pos < end ? window.get(pos) : (byte) '-';
+            if (b >= '0' && b <= '9' && partDigits < (part == 0 ? 4 : 2)) {
+                int digit = b - '0';
+                if (part == 0) {
+                    year = year * 10 + digit;
+                } else if (part == 1) {
+                    month = month * 10 + digit;
+                } else {
+                    day = day * 10 + digit;
+                }
+                partDigits++;
+            } else if (b == '-' && part < 3 && (part == 0 ? partDigits == 4 : partDigits > 0)) {
+                part++;
+                partDigits = 0;
+            } else {
+                part = -1;
+                break;
+            }
+        }
+        if (part != 3) {
+            // Let the formatter report the error
+            return LocalDate.parse(fieldString(f), RecordRow.DATE_FORMAT);
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private NumberFormatException invalidNumber(int f) {
+        return new NumberFormatException("For input string: \"" + fieldString(f) + "\"");
+    }
+}
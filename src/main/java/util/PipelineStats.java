@@ -0,0 +1,137 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stage level statistics of an {@link ImportPipeline} run.
+ *
+ * Parser stall is the time producers spent blocked on a full queue and
+ * writer idle is the time writers spent waiting on an empty one, so they
+ * tell which stage limits the import: stalled parsers mean the database
+ * is the bottleneck and more writer threads may help, idle writers mean
+ * parsing is. Queue depth is sampled each time a batch is queued. Methods
+ * are thread safe.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class PipelineStats {
+
+    private final int queueCapacity;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong depthSum = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong parserStallNanos = new AtomicLong();
+    private final AtomicLong writerIdleNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * @param queueCapacity Batches the queue holds
+     */
+    PipelineStats(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Records a batch queued by a producer.
+     *
+     * @param depth Queue size right after the batch was queued
+     * @param stallNanos Time the producer waited for room in the queue
+     */
+    void queued(int depth, long stallNanos) {
+        batches.incrementAndGet();
+        depthSum.addAndGet(depth);
+        maxDepth.accumulateAndGet(depth, Math::max);
+        parserStallNanos.addAndGet(stallNanos);
+    }
+
+    /**
+     * @param idleNanos Time a writer waited for a batch
+     */
+    void taken(long idleNanos) {
+        writerIdleNanos.addAndGet(idleNanos);
+    }
+
+    /**
+     * @param nanos Time a writer spent writing and committing a batch
+     */
+    void written(long nanos) {
+        writeNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Marks the end of the run.
+     */
+    void finished() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * @return Batches queued by producers
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return Batches the queue holds
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return Average queue size seen when a batch was queued
+     */
+    public double getAverageQueueDepth() {
+        long n = batches.get();
+        return n == 0 ? 0 : (double) depthSum.get() / n;
+    }
+
+    /**
+     * @return Largest queue size seen when a batch was queued
+     */
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return Time producers spent blocked on a full queue, summed over producers
+     */
+    public long getParserStallMillis() {
+        return parserStallNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return Time writers spent waiting on an empty queue, summed over writers
+     */
+    public long getWriterIdleMillis() {
+        return writerIdleNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return Time writers spent writing batches, summed over writers
+     */
+    public long getWriteMillis() {
+        return writeNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return Wall clock time of the run so far, or of the whole run once finished
+     */
+    public long getElapsedMillis() {
+        long end = endNanos;
+        return ((end == 0 ? System.nanoTime() : end) - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d batches in %d ms, queue depth avg %.1f max %d of %d, "
+                + "parsers stalled %d ms, writers idle %d ms, writing %d ms",
+                getBatches(), getElapsedMillis(), getAverageQueueDepth(), getMaxQueueDepth(),
+                queueCapacity, getParserStallMillis(), getWriterIdleMillis(), getWriteMillis());
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input stream that reads another stream on a background thread.
+ *
+ * The background thread fills buffers from the source and hands them over
+ * through a small bounded queue, so expensive work in the source, such as
+ * gzip decompression, overlaps with whatever consumes this stream, such as
+ * CSV parsing. At most {@link #BUFFERS} buffers are in flight, which keeps
+ * memory bounded when the consumer is slower than the source. Errors of
+ * the source, including runtime exceptions thrown by it, are rethrown to
+ * the reader instead of leaving it waiting for data that never comes.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+class ReadAheadInputStream extends InputStream {
+
+    private static final int BUFFERS = 4;
+    private static final int BUFFER_SIZE = 1 << 18;
+    private static final Chunk END = new Chunk(new byte[0], -1, null);
+
+    /**
+     * Buffer handed from the reading thread, or the error that stopped it.
+     */
+    private static final class Chunk {
+
+        private final byte[] data;
+        private final int length;
+        private final Throwable error;
+
+        Chunk(byte[] data, int length, Throwable error) {
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+    }
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(BUFFERS);
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private Chunk current;
+    private int position;
+
+    /**
+     * Starts reading the source in the background.
+     *
+     * @param source Stream to read; closed when this stream is closed
+     * @param name Name of the reading thread
+     */
+    ReadAheadInputStream(InputStream source, String name) {
+        this.source = source;
+        this.reader = new Thread(this::fill, name);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill() {
+        Chunk last = END;
+        try {
+            while (!closed) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int length = 0;
+                int n = 0;
+                while (length < buffer.length && (n = source.read(buffer, length, buffer.length - length)) > 0) {
+                    length += n;
+                }
+                if (length > 0) {
+                    offer(new Chunk(buffer, length, null));
+                }
+                if (n < 0) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            last = new Chunk(null, -1, e);
+        } catch (InterruptedException e) {
+            return; // Closed while waiting for the consumer
+        }
+        try {
+            offer(last);
+        } catch (InterruptedException e) {
+            // Closed; nobody is waiting for the end marker
+        }
+    }
+
+    private void offer(Chunk chunk) throws InterruptedException {
+        while (!closed && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            // Wait for the consumer, checking for close
+        }
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        if (current == END) {
+            return false;
+        }
+        if (current == null || position == current.length) {
+            try {
+                current = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading ahead");
+            }
+            position = 0;
+            if (current.error != null) {
+                Throwable error = current.error;
+                current = END;
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw new IOException(error.getMessage(), error);
+            }
+        }
+        return current != END;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextChunk() ? current.data[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+}
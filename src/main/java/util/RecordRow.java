@@ -0,0 +1,83 @@
+package util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * {@link CsvRow} view of a Commons CSV record, reading fields by
+ * pre-resolved file position instead of by header name.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+final class RecordRow implements CsvRow {
+
+    /** Date format accepted by both CSV readers. */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-M-d");
+
+    private final int[] positions;
+    private CSVRecord record;
+
+    RecordRow(int[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Points this row at another record.
+     *
+     * @param record Record to read
+     * @return This row
+     */
+    RecordRow reset(CSVRecord record) {
+        this.record = record;
+        return this;
+    }
+
+    /**
+     * Parses a single CSV record, such as one from
+     * {@link CsvRowReader#getRawRecord()}.
+     *
+     * @param line Record text
+     * @return Parsed record
+     * @throws IOException if the text is not a CSV record
+     */
+    static CSVRecord parse(String line) throws IOException {
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(new StringReader(line))) {
+            for (CSVRecord record : parser) {
+                return record;
+            }
+        }
+        throw new IOException("Not a CSV record: " + line);
+    }
+
+    @Override
+    public String getString(int column) {
+        return record.get(positions[column]).trim();
+    }
+
+    @Override
+    public int getInt(int column) {
+        return Integer.parseInt(getString(column));
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return Double.parseDouble(getString(column));
+    }
+
+    @Override
+    public long getScaledLong(int column, int scale) {
+        return FixedPoint.parse(getString(column), scale);
+    }
+
+    @Override
+    public LocalDate getDate(int column) {
+        return LocalDate.parse(getString(column), DATE_FORMAT);
+    }
+}
@@ -0,0 +1,131 @@
+package util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Quarantines rows that cannot be imported to a sidecar rejects file, so
+ * the rest of the file still imports.
+ *
+ * The rejects of data.csv go to data.csv.rejects, a CSV file with the
+ * columns line, reason and record, where record is the rejected CSV
+ * record as read. The file is only created once a row is rejected; an
+ * old rejects file is replaced when a new import of its CSV file starts.
+ * Methods are thread safe, so the writers of a parallel import can share
+ * one instance.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class RejectWriter implements Closeable {
+
+    /** MySQL error for a failed CHECK constraint, reported with SQLState HY000. */
+    private static final int ER_CHECK_CONSTRAINT_VIOLATED = 3819;
+
+    private final File file;
+    private CSVPrinter printer;
+    private long count;
+
+    /**
+     * @param csvFilePath CSV file whose rows are checked
+     * @param append true to keep the rejects of an interrupted import that
+     *        is being resumed, false to start a new rejects file
+     * @throws IOException if an old rejects file cannot be removed
+     */
+    public RejectWriter(String csvFilePath, boolean append) throws IOException {
+        this.file = new File(csvFilePath + ".rejects");
+        if (!append && file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace rejects file: " + file);
+        }
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param line Line number of the record in the CSV file, or -1 if unknown
+     * @param record Record as read from the file
+     * @param reason Why the row was rejected
+     */
+    public synchronized void reject(long line, String record, String reason) {
+        try {
+            if (printer == null) {
+                boolean exists = file.exists();
+                printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file, true), StandardCharsets.UTF_8)), CSVFormat.DEFAULT);
+                if (!exists) {
+                    printer.printRecord("line", "reason", "record");
+                }
+            }
+            printer.printRecord(line < 0 ? "" : Long.toString(line), reason, record);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write rejects file " + file, e);
+        }
+    }
+
+    /**
+     * Records a rejected row because of an exception.
+     */
+    public void reject(long line, String record, Exception cause) {
+        String message = cause.getMessage();
+        reject(line, record, message == null ? cause.getClass().getSimpleName() : message);
+    }
+
+    /**
+     * @return Rows rejected so far
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The rejects file, which exists once a row was rejected
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (printer != null) {
+            printer.close();
+            printer = null;
+        }
+    }
+
+    /**
+     * Formats a parsed record back into one CSV line.
+     */
+    static String format(CSVRecord record) {
+        return CSVFormat.DEFAULT.format((Object[]) record.values());
+    }
+
+    /**
+     * Tells errors caused by the values of a single row, such as a missing
+     * foreign key, a duplicate unique value, a failed CHECK or an out of
+     * range number, from failures of the connection or statement.
+     *
+     * @param e Error from executing a row or batch
+     * @return true if rejecting the offending row lets the rest import
+     */
+    static boolean isRowError(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || e instanceof SQLDataException
+                || e.getErrorCode() == ER_CHECK_CONSTRAINT_VIOLATED
+                || e.getSQLState() != null
+                        && (e.getSQLState().startsWith("23") || e.getSQLState().startsWith("22"));
+    }
+}
@@ -0,0 +1,253 @@
+package util;
+
+import db.QueryExecutor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Content hashes of the rows last imported into a table, for delta
+ * imports.
+ *
+ * The hash of every imported row is kept in the import_row_hashes table,
+ * keyed by table and primary key, and loaded into an {@link IntLongHashMap}
+ * when a delta import starts. Each row read from the CSV file is then
+ * classified as inserted (key not seen before), updated (hash differs) or
+ * unchanged, and only the first two are sent to the database. New hashes
+ * are written on the importing connection when the rows' batch is
+ * flushed, so they commit or roll back together with the rows they
+ * describe. A row rejected before then is discarded: its key keeps the
+ * hash it had, so it is classified the same way when imported again.
+ *
+ * The hashes describe the CSV content last imported, not the table: a row
+ * changed in the database by other means is not re-imported until its CSV
+ * content changes too.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class RowHashes implements AutoCloseable {
+
+    /** How a CSV row compares with the row last imported under its key. */
+    public enum Change {
+        INSERTED, UPDATED, UNCHANGED
+    }
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS import_row_hashes (" +
+            "table_name VARCHAR(64) NOT NULL, " +
+            "row_id INT NOT NULL, " +
+            "row_hash BIGINT NOT NULL, " +
+            "PRIMARY KEY (table_name, row_id)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+    private static final String SAVE_SQL =
+            "INSERT INTO import_row_hashes (table_name, row_id, row_hash) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE row_hash=VALUES(row_hash)";
+
+    private final ImportTable table;
+    private final IntLongHashMap hashes;
+    private final PreparedStatement save;
+
+    // Rows tracked since the last flush, with the hash each replaced
+    private int[] journalIds = new int[64];
+    private long[] journalHashes = new long[64];
+    private long[] journalPrevious = new long[64];
+    private boolean[] journalKnown = new boolean[64];
+    private boolean[] discarded = new boolean[64];
+    private int pending;
+
+    private long inserted;
+    private long updated;
+    private long unchanged;
+
+    private RowHashes(ImportTable table, IntLongHashMap hashes, PreparedStatement save) {
+        this.table = table;
+        this.hashes = hashes;
+        this.save = save;
+    }
+
+    /**
+     * Loads the hashes of a table. Creates the hash table if needed, which
+     * commits implicitly, so call this before starting a transaction.
+     *
+     * @param conn Connection the import writes on
+     * @param table Table being imported
+     * @return Hashes ready to classify rows
+     * @throws SQLException if the hashes cannot be read
+     */
+    public static RowHashes load(Connection conn, ImportTable table) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_TABLE_SQL);
+        }
+
+        IntLongHashMap hashes = new IntLongHashMap(count(conn, table));
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT row_id, row_hash FROM import_row_hashes WHERE table_name = ?",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setString(1, table.getTableName());
+            ps.setFetchSize(QueryExecutor.STREAMING_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    hashes.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+        }
+        return new RowHashes(table, hashes, conn.prepareStatement(SAVE_SQL));
+    }
+
+    private static int count(Connection conn, ImportTable table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM import_row_hashes WHERE table_name = ?")) {
+            ps.setString(1, table.getTableName());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? (int) Math.min(rs.getLong(1), Integer.MAX_VALUE / 2) : 0;
+            }
+        }
+    }
+
+    /**
+     * Classifies a row and, unless it is unchanged, records its new hash
+     * to be written by the next {@link #flush()}.
+     *
+     * @param rowId Primary key of the row
+     * @param hash Content hash from {@link ImportTable#contentHash(CsvRow)}
+     * @return How the row changed
+     */
+    public Change track(int rowId, long hash) {
+        boolean known = hashes.containsKey(rowId);
+        long previous = hashes.get(rowId, 0);
+        if (known && previous == hash) {
+            unchanged++;
+            return Change.UNCHANGED;
+        }
+        hashes.put(rowId, hash);
+        journal(rowId, hash, known, previous);
+        if (known) {
+            updated++;
+            return Change.UPDATED;
+        }
+        inserted++;
+        return Change.INSERTED;
+    }
+
+    /**
+     * @return Position the next tracked row gets among the rows pending
+     *         until the next flush, to pass to {@link #discard(int)}
+     */
+    public int position() {
+        return pending;
+    }
+
+    /**
+     * Forgets a tracked row that was rejected instead of imported: its key
+     * goes back to the hash it had before, or to unknown if it had none,
+     * and its new hash is not written. Call it before the next flush.
+     *
+     * @param position What {@link #position()} returned before the row was
+     *        tracked; ignored for an unchanged row, which was not recorded
+     */
+    public void discard(int position) {
+        if (position < 0 || position >= pending || discarded[position]) {
+            return;
+        }
+        int rowId = journalIds[position];
+        discarded[position] = true;
+        if (journalKnown[position]) {
+            updated--;
+        } else {
+            inserted--;
+        }
+
+        // A later row with the same key now replaces what this one replaced
+        for (int later = position + 1; later < pending; later++) {
+            if (journalIds[later] == rowId && !discarded[later]) {
+                if (journalKnown[later] && !journalKnown[position]) {
+                    updated--;
+                    inserted++;
+                }
+                journalKnown[later] = journalKnown[position];
+                journalPrevious[later] = journalPrevious[position];
+                return;
+            }
+        }
+        if (journalKnown[position]) {
+            hashes.put(rowId, journalPrevious[position]);
+        } else {
+            hashes.remove(rowId);
+        }
+    }
+
+    /**
+     * Sends the hashes tracked and not discarded since the last flush, to
+     * be committed with the rows' batch.
+     *
+     * @throws SQLException if the hashes cannot be written
+     */
+    public void flush() throws SQLException {
+        int batched = 0;
+        for (int i = 0; i < pending; i++) {
+            if (!discarded[i]) {
+                save.setString(1, table.getTableName());
+                save.setInt(2, journalIds[i]);
+                save.setLong(3, journalHashes[i]);
+                save.addBatch();
+                batched++;
+            }
+        }
+        pending = 0;
+        if (batched > 0) {
+            save.executeBatch();
+        }
+    }
+
+    /**
+     * Appends a tracked row to the journal of the pending batch.
+     */
+    private void journal(int rowId, long hash, boolean known, long previous) {
+        if (pending == journalIds.length) {
+            int capacity = pending * 2;
+            journalIds = Arrays.copyOf(journalIds, capacity);
+            journalHashes = Arrays.copyOf(journalHashes, capacity);
+            journalPrevious = Arrays.copyOf(journalPrevious, capacity);
+            journalKnown = Arrays.copyOf(journalKnown, capacity);
+            discarded = Arrays.copyOf(discarded, capacity);
+        }
+        journalIds[pending] = rowId;
+        journalHashes[pending] = hash;
+        journalPrevious[pending] = previous;
+        journalKnown[pending] = known;
+        discarded[pending] = false;
+        pending++;
+    }
+
+    /**
+     * @return Rows whose key was not imported before
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return Rows whose content changed since they were last imported
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return Rows skipped because their content did not change
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        save.close();
+    }
+}
@@ -0,0 +1,450 @@
+package util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Pre-aggregated summary tables of accounts and transactions, kept up to
+ * date by the importer so dashboards read a few hundred summary rows
+ * instead of aggregating the base tables.
+ *
+ * account_summary holds the count, sum, minimum and maximum balance per
+ * account type, branch, status and balance range; transaction_summary the
+ * same of amounts, plus inflow and outflow, per transaction type and month
+ * of completed transactions. Every account analysis and transaction
+ * analysis of the dashboard is a roll-up of these groups.
+ *
+ * Imports keep them current in the same transaction as each batch: the
+ * groups of the batch's keys are aggregated from the base table before
+ * and after the batch is written, and the difference is added to the
+ * summary. This is exact for inserts and upserts alike, and for rows
+ * rejected in between. Minimum and maximum cannot be subtracted, so when
+ * a batch removes a group's extreme value it is recomputed from the base
+ * table. Groups are updated in key order, so concurrent writers lock
+ * summary rows in the same order.
+ *
+ * Two writers updating the same key at the same moment may both read the
+ * old row and subtract it twice; like the rest of the parallel import,
+ * summaries assume a key is not written by two batches at once.
+ *
+ * Only imports maintain the summaries. Rows inserted, updated or deleted
+ * any other way, such as with a SQL client, leave them stale, and
+ * {@link #ensure(Connection)} does not notice, since it only builds
+ * summaries that are empty. Call {@link #rebuild(Connection)} after such
+ * changes, or use Tools, Rebuild Summary Tables in the application.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public final class SummaryTables {
+
+    /** Balance range of an account, from 0 for 10M and above to 4 for below 500K. */
+    public static final String BALANCE_RANGE_SQL =
+            "CASE WHEN balance >= 10000000 THEN 0 " +
+            "WHEN balance >= 5000000 THEN 1 " +
+            "WHEN balance >= 1000000 THEN 2 " +
+            "WHEN balance >= 500000 THEN 3 " +
+            "ELSE 4 END";
+
+    private static final String CREATE_ACCOUNT_SUMMARY_SQL =
+            "CREATE TABLE IF NOT EXISTS account_summary (" +
+            "account_type VARCHAR(50) NOT NULL, " +
+            "branch VARCHAR(100) NOT NULL, " +
+            "status VARCHAR(20) NOT NULL, " +
+            "balance_range TINYINT NOT NULL, " +
+            "account_count BIGINT NOT NULL, " +
+            "total_balance DECIMAL(20, 2) NOT NULL, " +
+            "min_balance DECIMAL(15, 2), " +
+            "max_balance DECIMAL(15, 2), " +
+            "PRIMARY KEY (account_type, branch, status, balance_range)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+    private static final String CREATE_TRANSACTION_SUMMARY_SQL =
+            "CREATE TABLE IF NOT EXISTS transaction_summary (" +
+            "transaction_type VARCHAR(50) NOT NULL, " +
+            "month CHAR(7) NOT NULL, " +
+            "transaction_count BIGINT NOT NULL, " +
+            "total_amount DECIMAL(20, 2) NOT NULL, " +
+            "min_amount DECIMAL(15, 2), " +
+            "max_amount DECIMAL(15, 2), " +
+            "total_inflow DECIMAL(20, 2) NOT NULL, " +
+            "total_outflow DECIMAL(20, 2) NOT NULL, " +
+            "PRIMARY KEY (transaction_type, month)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+    // A NULL status is summarized as '' since key columns cannot be NULL
+    private static final SummaryTables ACCOUNTS = new SummaryTables(ImportTable.ACCOUNTS,
+            "account_summary", CREATE_ACCOUNT_SUMMARY_SQL, "account_count", "balance",
+            new String[] { "account_type", "branch", "status", "balance_range" },
+            new String[] { "account_type", "branch", "COALESCE(status, '')", BALANCE_RANGE_SQL },
+            new String[] { "account_type = ?", "branch = ?", "status <=> NULLIF(?, '')",
+                BALANCE_RANGE_SQL + " = ?" },
+            new String[0], new String[0], null);
+
+    private static final SummaryTables TRANSACTIONS = new SummaryTables(ImportTable.TRANSACTIONS,
+            "transaction_summary", CREATE_TRANSACTION_SUMMARY_SQL, "transaction_count", "amount",
+            new String[] { "transaction_type", "month" },
+            new String[] { "transaction_type", "DATE_FORMAT(transaction_date, '%Y-%m')" },
+            new String[] { "transaction_type = ?",
+                "transaction_date >= STR_TO_DATE(CONCAT(?, '-01'), '%Y-%m-%d') " +
+                "AND transaction_date < STR_TO_DATE(CONCAT(?, '-01'), '%Y-%m-%d') + INTERVAL 1 MONTH" },
+            new String[] { "total_inflow", "total_outflow" },
+            new String[] { "CASE WHEN amount > 0 THEN amount ELSE 0 END",
+                "CASE WHEN amount < 0 THEN ABS(amount) ELSE 0 END" },
+            "status = 'Completed'");
+
+    private final ImportTable table;
+    private final String summaryTable;
+    private final String createSql;
+    private final String[] keyColumns;
+    private final String[] keyPredicates;
+    private final String aggregateSql;
+    private final String groupBySql;
+    private final String upsertSql;
+    private final String recomputeSql;
+    private final String rebuildSql;
+    private final int sums;
+
+    private SummaryTables(ImportTable table, String summaryTable, String createSql, String countColumn,
+            String measure, String[] keyColumns, String[] keyExpressions, String[] keyPredicates,
+            String[] sumColumns, String[] sumExpressions, String filter) {
+        this.table = table;
+        this.summaryTable = summaryTable;
+        this.createSql = createSql;
+        this.keyColumns = keyColumns;
+        this.keyPredicates = keyPredicates;
+        this.sums = sumColumns.length;
+
+        String where = filter == null ? "" : filter + " AND ";
+        String base = table.getTableName();
+        List<String> columns = new ArrayList<>(Arrays.asList(keyColumns));
+        Collections.addAll(columns, countColumn, "total_" + measure, "min_" + measure, "max_" + measure);
+        Collections.addAll(columns, sumColumns);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (String expression : keyExpressions) {
+            select.append(expression).append(", ");
+        }
+        select.append("COUNT(*), SUM(").append(measure).append("), MIN(").append(measure)
+                .append("), MAX(").append(measure).append(")");
+        for (String expression : sumExpressions) {
+            select.append(", SUM(").append(expression).append(")");
+        }
+        select.append(" FROM ").append(base);
+        StringBuilder groupBy = new StringBuilder(") GROUP BY ");
+        for (int i = 1; i <= keyColumns.length; i++) {
+            groupBy.append(i == 1 ? "" : ", ").append(i);
+        }
+        // read puts the key list between the two parts
+        this.aggregateSql = select + " WHERE " + where + table.getHeaders()[0] + " IN (";
+        this.groupBySql = groupBy.toString();
+        this.rebuildSql = "INSERT INTO " + summaryTable + " (" + String.join(", ", columns) + ") "
+                + select + (filter == null ? "" : " WHERE " + filter) + groupBy.substring(1);
+
+        StringBuilder upsert = new StringBuilder("INSERT INTO ").append(summaryTable).append(" (")
+                .append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            upsert.append(i == 0 ? "?" : ", ?");
+        }
+        upsert.append(") ON DUPLICATE KEY UPDATE ");
+        String min = "min_" + measure;
+        String max = "max_" + measure;
+        for (int i = keyColumns.length; i < columns.size(); i++) {
+            String column = columns.get(i);
+            if (i > keyColumns.length) {
+                upsert.append(", ");
+            }
+            if (column.equals(min) || column.equals(max)) {
+                // LEAST and GREATEST are NULL if either side is, as in an emptied group
+                upsert.append(column).append(" = ").append(column.equals(min) ? "LEAST" : "GREATEST")
+                        .append("(COALESCE(").append(column).append(", VALUES(").append(column)
+                        .append(")), COALESCE(VALUES(").append(column).append("), ").append(column)
+                        .append("))");
+            } else {
+                upsert.append(column).append(" = ").append(column).append(" + VALUES(")
+                        .append(column).append(")");
+            }
+        }
+        this.upsertSql = upsert.toString();
+
+        StringBuilder group = new StringBuilder(" FROM ").append(base).append(" WHERE ").append(where);
+        for (int i = 0; i < keyPredicates.length; i++) {
+            group.append(i == 0 ? "" : " AND ").append(keyPredicates[i]);
+        }
+        StringBuilder key = new StringBuilder();
+        for (String column : keyColumns) {
+            key.append(" AND ").append(column).append(" = ?");
+        }
+        this.recomputeSql = "UPDATE " + summaryTable + " SET "
+                + min + " = (SELECT MIN(" + measure + ")" + group + "), "
+                + max + " = (SELECT MAX(" + measure + ")" + group + ") "
+                + "WHERE " + key.substring(5) + " AND (" + min + " >= ? OR " + max + " <= ?)";
+    }
+
+    /**
+     * @param table Imported table
+     * @return Summaries of the table, or null if it has none
+     */
+    public static SummaryTables forTable(ImportTable table) {
+        switch (table) {
+            case ACCOUNTS:
+                return ACCOUNTS;
+            case TRANSACTIONS:
+                return TRANSACTIONS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Creates the summary tables if needed, and fills each one that is
+     * empty while its base table is not, as after an upgrade. A summary
+     * that has rows is trusted as it is, see {@link #rebuild(Connection)}.
+     * Creating a table commits implicitly, so call this before starting a
+     * transaction.
+     *
+     * @param conn Connection in auto-commit mode
+     * @throws SQLException if the tables cannot be created or filled
+     */
+    public static void ensure(Connection conn) throws SQLException {
+        for (SummaryTables summaries : new SummaryTables[] { ACCOUNTS, TRANSACTIONS }) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(summaries.createSql);
+                try (ResultSet rs = stmt.executeQuery("SELECT EXISTS(SELECT 1 FROM " + summaries.summaryTable
+                        + "), EXISTS(SELECT 1 FROM " + summaries.table.getTableName() + ")")) {
+                    if (rs.next() && !rs.getBoolean(1) && rs.getBoolean(2)) {
+                        System.out.println("Building " + summaries.summaryTable + " from "
+                                + summaries.table.getTableName());
+                        stmt.executeUpdate(summaries.rebuildSql);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes both summary tables from their base tables, in the
+     * connection's current transaction.
+     *
+     * @param conn Connection to rebuild on
+     * @throws SQLException if the summaries cannot be written
+     */
+    public static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (SummaryTables summaries : new SummaryTables[] { ACCOUNTS, TRANSACTIONS }) {
+                stmt.executeUpdate("DELETE FROM " + summaries.summaryTable);
+                stmt.executeUpdate(summaries.rebuildSql);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the current rows of some keys by summary group.
+     *
+     * @param conn Connection of the import transaction
+     * @param ids Primary keys, of which the first count are read
+     * @param count Number of keys
+     * @return Aggregates per group
+     * @throws SQLException if the rows cannot be read
+     */
+    public Snapshot read(Connection conn, int[] ids, int count) throws SQLException {
+        if (count == 0) {
+            return new Snapshot();
+        }
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(aggregateSql + placeholders + groupBySql)) {
+            for (int i = 0; i < count; i++) {
+                ps.setInt(i + 1, ids[i]);
+            }
+            return read(ps);
+        }
+    }
+
+    /**
+     * Aggregates the current rows of the keys in a staging table of a
+     * bulk load by summary group.
+     *
+     * @param conn Connection of the import transaction
+     * @param stagingTable Table with the imported primary key column
+     * @return Aggregates per group
+     * @throws SQLException if the rows cannot be read
+     */
+    public Snapshot readStaged(Connection conn, String stagingTable) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(aggregateSql 
+                + "SELECT " + table.getHeaders()[0] + " FROM " + stagingTable + groupBySql)) {
+            return read(ps);
+        }
+    }
+
+    private Snapshot read(PreparedStatement ps) throws SQLException {
+        Snapshot snapshot = new Snapshot();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Group group = new Group(keyColumns.length, sums);
+                for (int i = 0; i < group.key.length; i++) {
+                    group.key[i] = rs.getString(i + 1);
+                }
+                int column = group.key.length;
+                group.count = rs.getLong(++column);
+                for (int i = 0; i < group.values.length; i++) {
+                    group.values[i] = rs.getBigDecimal(++column);
+                }
+                snapshot.groups.put(String.join("\u0000", group.key), group);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Adds the difference between two snapshots of the same keys, taken
+     * before and after a batch was written, to the summary table.
+     *
+     * @param conn Connection of the import transaction
+     * @param before Snapshot taken before the batch
+     * @param after Snapshot taken after the batch
+     * @throws SQLException if the summary cannot be updated
+     */
+    public void apply(Connection conn, Snapshot before, Snapshot after) throws SQLException {
+        TreeSet<String> keys = new TreeSet<>(before.groups.keySet());
+        keys.addAll(after.groups.keySet());
+        // Rejected or unchanged rows leave their groups as they were
+        keys.removeIf(key -> before.groups.containsKey(key)
+                && before.groups.get(key).equals(after.groups.get(key)));
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Group> recompute = new ArrayList<>();
+
+        try (PreparedStatement upsert = conn.prepareStatement(upsertSql)) {
+            for (String key : keys) {
+                Group old = before.groups.get(key);
+                Group current = after.groups.get(key);
+                Group any = current != null ? current : old;
+                int column = 0;
+                for (String value : any.key) {
+                    upsert.setString(++column, value);
+                }
+                upsert.setLong(++column, count(current) - count(old));
+                upsert.setBigDecimal(++column, value(current, Group.SUM).subtract(value(old, Group.SUM)));
+                upsert.setBigDecimal(++column, current == null ? null : current.values[Group.MIN]);
+                upsert.setBigDecimal(++column, current == null ? null : current.values[Group.MAX]);
+                for (int i = Group.MAX + 1; i < any.values.length; i++) {
+                    upsert.setBigDecimal(++column, value(current, i).subtract(value(old, i)));
+                }
+                upsert.addBatch();
+
+                // An extreme may have left the group if nothing at least as extreme replaced it
+                if (old != null && (current == null
+                        || current.values[Group.MIN].compareTo(old.values[Group.MIN]) > 0
+                        || current.values[Group.MAX].compareTo(old.values[Group.MAX]) < 0)) {
+                    recompute.add(old);
+                }
+            }
+            upsert.executeBatch();
+        }
+
+        if (!recompute.isEmpty()) {
+            try (PreparedStatement update = conn.prepareStatement(recomputeSql)) {
+                for (Group old : recompute) {
+                    int column = 0;
+                    for (int pass = 0; pass < 2; pass++) {
+                        for (int i = 0; i < keyPredicates.length; i++) {
+                            for (int p = keyPredicates[i].indexOf('?'); p >= 0;
+                                    p = keyPredicates[i].indexOf('?', p + 1)) {
+                                update.setString(++column, old.key[i]);
+                            }
+                        }
+                    }
+                    for (String value : old.key) {
+                        update.setString(++column, value);
+                    }
+                    update.setBigDecimal(++column, old.values[Group.MIN]);
+                    update.setBigDecimal(++column, old.values[Group.MAX]);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+    }
+
+    private static long count(Group group) {
+        return group == null ? 0 : group.count;
+    }
+
+    private static BigDecimal value(Group group, int index) {
+        return group == null || group.values[index] == null ? BigDecimal.ZERO : group.values[index];
+    }
+
+    /**
+     * Aggregates of some base table rows per summary group.
+     */
+    public static final class Snapshot {
+
+        private final Map<String, Group> groups = new TreeMap<>();
+
+        /**
+         * @return Number of groups
+         */
+        public int size() {
+            return groups.size();
+        }
+    }
+
+    /**
+     * Key and aggregates of one group: sum, minimum and maximum of the
+     * measure followed by any further sums.
+     */
+    private static final class Group {
+
+        static final int SUM = 0;
+        static final int MIN = 1;
+        static final int MAX = 2;
+
+        final String[] key;
+        long count;
+        final BigDecimal[] values;
+
+        Group(int keys, int sums) {
+            key = new String[keys];
+            values = new BigDecimal[3 + sums];
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Group)) {
+                return false;
+            }
+            Group group = (Group) other;
+            if (count != group.count) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null ? group.values[i] != null
+                        : group.values[i] == null || values[i].compareTo(group.values[i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(count);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package analysis;
+
+import db.ColumnarResult;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AccountAggregates and TransactionAggregates.
+ * Tests that grouped partial aggregates give the same results as rows.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class AccountAggregatesTest {
+
+    /**
+     * Test that accounts added as groups, like rows of the grouped query,
+     * match the same accounts added one by one.
+     */
+    @Test
+    public void testGroupsMatchRows() {
+        Dictionary types = new Dictionary("account_type", 128);
+        Dictionary branches = new Dictionary("branch", 128);
+        Dictionary statuses = new Dictionary("status", 128);
+        int savings = types.code("Savings");
+        int checking = types.code("Checking");
+        int arusha = branches.code("Arusha");
+        int mwanza = branches.code("Mwanza");
+        int active = statuses.code("Active");
+        int closed = statuses.code("Closed");
+
+        AccountAggregates rows = new AccountAggregates(types, branches, statuses);
+        rows.add(savings, arusha, active, 600_000_00L);
+        rows.add(savings, arusha, active, 800_000_00L);
+        rows.add(checking, mwanza, active, 12_000_000_00L);
+        rows.add(checking, arusha, closed, 100_01L);
+
+        AccountAggregates groups = new AccountAggregates();
+        groups.add("Checking", "Mwanza", "Active", 0, 1, 12_000_000_00L, 12_000_000_00L, 12_000_000_00L);
+        groups.add("Savings", "Arusha", "Active", 3, 2, 1_400_000_00L, 600_000_00L, 800_000_00L);
+        groups.add("Checking", "Arusha", "Closed", 4, 1, 100_01L, 100_01L, 100_01L);
+
+        assertResultsEqual(rows.getBalancesByType(), groups.getBalancesByType());
+        assertResultsEqual(rows.getBranchDistribution(), groups.getBranchDistribution());
+        assertResultsEqual(rows.getStatusDistribution(), groups.getStatusDistribution());
+        assertResultsEqual(rows.getBalanceRanges(), groups.getBalanceRanges());
+
+        ColumnarResult branch = groups.getBranchDistribution();
+        assertArrayEquals(new String[] { "Mwanza", "Arusha" }, branch.getStrings(0));
+        assertEquals(2, branch.getLong(1, 4));
+        assertEquals(1, branch.getLong(1, 5));
+        assertEquals(3, AccountAggregates.range(500_000_00L));
+        assertEquals(4, AccountAggregates.range(-1));
+    }
+
+    /**
+     * Test that transaction groups by type and month match rows, newest
+     * month first.
+     */
+    @Test
+    public void testTransactionGroupsMatchRows() {
+        Dictionary types = new Dictionary("transaction_type", 128);
+        int deposit = types.code("Deposit");
+        int withdrawal = types.code("Withdrawal");
+        int january = TransactionAggregates.month(2023, 1);
+        int december = TransactionAggregates.month(2022, 12);
+
+        TransactionAggregates rows = new TransactionAggregates(types);
+        rows.add(deposit, january, 500_000_00L);
+        rows.add(withdrawal, january, -200_000_00L);
+        rows.add(deposit, december, 300_000_00L);
+
+        TransactionAggregates groups = new TransactionAggregates();
+        groups.add("Deposit", "2022-12", 1, 300_000_00L, 300_000_00L, 300_000_00L, 300_000_00L, 0);
+        groups.add("Withdrawal", "2023-01", 1, -200_000_00L, -200_000_00L, -200_000_00L, 0, 200_000_00L);
+        groups.add("Deposit", "2023-01", 1, 500_000_00L, 500_000_00L, 500_000_00L, 500_000_00L, 0);
+
+        assertResultsEqual(rows.getTransactionsByType(), groups.getTransactionsByType());
+        ColumnarResult trends = groups.getTransactionTrends();
+        assertResultsEqual(rows.getTransactionTrends(), trends);
+        assertArrayEquals(new String[] { "2023-01", "2022-12" }, trends.getStrings(0));
+        assertEquals(300_000.00, trends.getDouble(0, 4), 1e-9);
+    }
+
+    private static void assertResultsEqual(ColumnarResult expected, ColumnarResult actual) {
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        for (int c = 0; c < expected.getColumnCount(); c++) {
+            for (int r = 0; r < expected.getRowCount(); r++) {
+                assertEquals(expected.getColumnName(c) + " row " + r,
+                        expected.getValue(r, c), actual.getValue(r, c));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package analysis;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AsyncStatService class.
+ * Tests completion, timeouts and cancellation without a database.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class AsyncStatServiceTest {
+
+    private AsyncStatService asyncStatService;
+
+    @Before
+    public void setUp() {
+        asyncStatService = new AsyncStatService(new StatService(), 2, 0);
+    }
+
+    @After
+    public void tearDown() {
+        asyncStatService.shutdown();
+    }
+
+    /**
+     * Test that a submitted analysis completes with its result.
+     */
+    @Test
+    public void testSubmitCompletes() throws Exception {
+        CompletableFuture<Integer> future = asyncStatService.submit(service -> 42);
+
+        assertEquals(Integer.valueOf(42), future.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that failures surface through the future.
+     */
+    @Test
+    public void testSubmitFailure() throws Exception {
+        CompletableFuture<Object> future = asyncStatService.submit(service -> {
+            throw new IllegalStateException("boom");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Future should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test that a slow analysis times out and its task is interrupted.
+     */
+    @Test
+    public void testTimeoutInterruptsTask() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Object> future = asyncStatService.submit(service -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }, 100);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Future should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue("Task should be interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that concurrency is bounded by the configured size.
+     */
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            asyncStatService.submit(service -> {
+                started.countDown();
+                release.await();
+                return null;
+            });
+        }
+
+        assertFalse("Only two analyses may run at once",
+                started.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, started.getCount());
+        release.countDown();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
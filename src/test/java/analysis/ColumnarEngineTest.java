@@ -0,0 +1,206 @@
+package analysis;
+
+import db.ColumnarResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ColumnarEngine.
+ * Tests the in-memory analyses against hand-computed results, without a database.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ColumnarEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ColumnarEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        File directory = folder.newFolder();
+        write(directory, "accounts.csv",
+                "account_id,customer_name,email,phone,account_type,balance,date_opened,branch,status\n"
+                + "1,John Doe,john@email.com,+255712345001,Savings,5500000.00,2021-03-15,Dar es Salaam,Active\n"
+                + "2,Jane Smith,jane@email.com,+255712345002,Checking,3200000.00,2021-07-22,Arusha,Active\n"
+                + "3,Ali Said,ali@email.com,+255712345003,Savings,100.01,2022-01-10,Arusha,Closed\n"
+                + "4,Neema Mushi,neema@email.com,+255712345004,Business,12000000.00,2020-05-01,Mwanza,Active\n");
+        write(directory, "transactions.csv",
+                "transaction_id,account_id,transaction_type,amount,transaction_date,description,status\n"
+                + "1,1,Deposit,500000.00,2023-01-15,Salary Deposit,Completed\n"
+                + "2,1,Withdrawal,-200000.00,2023-01-20,ATM Withdrawal,Completed\n"
+                + "3,2,Deposit,300000.00,2023-02-01,Business Revenue,Completed\n"
+                + "4,2,Deposit,999.00,2023-02-03,Cash Deposit,Pending\n"
+                + "5,1,Payment,-50000.00,2023-02-10,Tax Payment,Completed\n");
+        write(directory, "loans.csv",
+                "loan_id,account_id,loan_type,amount,interest_rate,duration_months,start_date,status,monthly_payment\n"
+                + "1,1,Personal,2000000.00,12.5,24,2022-01-15,Active,92708.33\n"
+                + "2,1,Personal,1000000.00,13.0,12,2022-06-01,Active,89000.00\n"
+                + "3,4,Business,9000000.00,11.0,60,2021-01-01,Paid,195000.00\n");
+        write(directory, "cards.csv",
+                "card_id,account_id,card_type,card_number,expiry_date,credit_limit,status\n"
+                + "1,1,Debit,4532000000000001,2026-03-31,0.00,Active\n"
+                + "2,2,Credit,5412000000000002,2025-12-31,5000000.00,Active\n"
+                + "3,4,Credit,5412000000000003,2027-01-31,2000000.00,Blocked\n");
+        engine = ColumnarEngine.loadCsv(directory);
+    }
+
+    /**
+     * Test the sketch analyses, which are exact on data this small:
+     * completed transactions only, largest group first, then the total row.
+     */
+    @Test
+    public void testDistributionSketches() {
+        DistributionAggregates distributions = engine.scanDistributions();
+
+        ColumnarResult amounts = distributions.getTransactionAmountQuantiles();
+        assertArrayEquals(new String[] { "Deposit", "Withdrawal", "Payment", "All Types" }, amounts.getStrings(0));
+        assertEquals(2, amounts.getLong(0, 1));
+        assertEquals(300000.00, amounts.getDouble(0, 2), 1e-9);
+        assertEquals(500000.00, amounts.getDouble(0, 4), 1e-9);
+        assertEquals(4, amounts.getLong(3, 1));
+        assertEquals(-50000.00, amounts.getDouble(3, 2), 1e-9);
+
+        ColumnarResult customers = distributions.getDistinctCustomersByBranch();
+        assertArrayEquals(new String[] { "Arusha", "Dar es Salaam", "Mwanza", "All Branches" },
+                customers.getStrings(0));
+        assertEquals(2, customers.getLong(0, 2));
+        assertEquals(4, customers.getLong(3, 1));
+        assertEquals(4, customers.getLong(3, 2));
+
+        ColumnarResult distribution = distributions.getTransactionAmountDistribution();
+        assertEquals(99, distribution.getRowCount());
+        assertEquals(500000.00, distribution.getDouble(98, 1), 1e-9);
+    }
+
+    /**
+     * Test that a customer with several accounts counts once per branch
+     * and once over all branches.
+     */
+    @Test
+    public void testDistinctCustomersByName() {
+        DistributionAggregates distributions = new DistributionAggregates();
+        distributions.addAccount("Savings", "Arusha", "John Doe", 10000);
+        distributions.addAccount("Checking", "Arusha", "John Doe", 20000);
+        distributions.addAccount("Savings", "Mwanza", "John Doe", 30000);
+        distributions.addAccount("Savings", "Mwanza", "Jane Smith", 40000);
+
+        ColumnarResult customers = distributions.getDistinctCustomersByBranch();
+        assertArrayEquals(new String[] { "Mwanza", "Arusha", "All Branches" }, customers.getStrings(0));
+        assertEquals(2, customers.getLong(1, 1));
+        assertEquals(1, customers.getLong(1, 2));
+        assertEquals(4, customers.getLong(2, 1));
+        assertEquals(2, customers.getLong(2, 2));
+    }
+
+    /**
+     * Test grouped balances, ordered by total balance like the SQL query.
+     */
+    @Test
+    public void testAccountBalancesByType() {
+        ColumnarResult result = engine.getAccountBalancesByType();
+
+        assertEquals(3, result.getRowCount());
+        assertArrayEquals(new String[] { "Business", "Savings", "Checking" }, result.getStrings(0));
+        assertEquals(2, result.getLong(1, 1));
+        assertEquals(5500100.01, result.getDouble(1, 2), 1e-9);
+        assertEquals(2750050.005, result.getDouble(1, 3), 1e-9);
+        assertEquals(100.01, result.getDouble(1, 4), 1e-9);
+        assertEquals(5500000.00, result.getDouble(1, 5), 1e-9);
+        assertEquals("avg_balance", result.getColumnName(3));
+    }
+
+    /**
+     * Test that monthly trends count completed transactions only, newest
+     * month first.
+     */
+    @Test
+    public void testTransactionTrends() {
+        ColumnarResult result = engine.getTransactionTrends();
+
+        assertArrayEquals(new String[] { "2023-02", "2023-01" }, result.getStrings(0));
+        assertEquals(2, result.getLong(0, 1));
+        assertEquals(300000.00, result.getDouble(0, 2), 1e-9);
+        assertEquals(50000.00, result.getDouble(0, 3), 1e-9);
+        assertEquals(300000.00, result.getDouble(1, 4), 1e-9);
+    }
+
+    /**
+     * Test the analyses that join accounts with transactions and loans.
+     */
+    @Test
+    public void testJoins() {
+        ColumnarResult activity = engine.getAccountActivity();
+        assertEquals(2, activity.getRowCount());
+        assertEquals(1, activity.getLong(0, 0));
+        assertEquals(3, activity.getLong(0, 4));
+        assertEquals(250000.00, activity.getDouble(0, 6), 1e-9);
+
+        ColumnarResult repayment = engine.getLoanRepaymentAnalysis();
+        assertEquals(1, repayment.getRowCount());
+        assertEquals(3000000.00, repayment.getDouble(0, 3), 1e-9);
+        assertEquals(12.75, repayment.getDouble(0, 5), 1e-9);
+
+        ColumnarResult top = engine.getTopAccounts(2);
+        assertEquals(2, top.getRowCount());
+        assertEquals(4, top.getLong(0, 0));
+        assertEquals(1, top.getLong(1, 0));
+    }
+
+    /**
+     * Test NULL averages, percentages and balance ranges.
+     */
+    @Test
+    public void testDistributions() {
+        ColumnarResult cards = engine.getCardDistribution();
+        assertEquals("Debit", cards.getString(0, 0));
+        assertTrue(cards.isNull(0, 4));
+        assertEquals(3500000.00, cards.getDouble(1, 4), 1e-9);
+        assertEquals(1, cards.getLong(1, 2));
+
+        ColumnarResult statuses = engine.getStatusDistribution();
+        assertEquals("Active", statuses.getString(0, 0));
+        assertEquals(75.00, statuses.getDouble(0, 2), 1e-9);
+
+        ColumnarResult ranges = engine.getBalanceRangeAnalysis();
+        assertArrayEquals(new String[] { "10M+ (High Value)", "5M-10M (Medium-High)", "1M-5M (Medium)" },
+                ranges.getStrings(0));
+    }
+
+    /**
+     * Test the dashboard metrics through StatService, which needs no
+     * database when given an engine.
+     */
+    @Test
+    public void testSummaryStatistics() throws Exception {
+        StatService statService = new StatService(engine);
+        Map<String, Object> stats = statService.getSummaryStatistics();
+
+        assertFalse(statService.requiresDatabase());
+        assertEquals(4L, stats.get("Total Accounts"));
+        assertEquals(new BigDecimal("20700000.00"), stats.get("Total Balance"));
+        assertEquals(4L, stats.get("Total Transactions"));
+        assertEquals(3L, stats.get("Active Accounts"));
+        assertEquals(2L, stats.get("Active Loans"));
+        assertEquals(2L, stats.get("Active Cards"));
+        assertEquals(2, statService.getLoanPortfolioAnalysis().getRowCount()
+                + statService.getRevenueAnalysis().getRowCount());
+    }
+
+    private static void write(File directory, String name, String content) throws IOException {
+        Files.write(new File(directory, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,102 @@
+package analysis;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ResultCache class.
+ * Tests hits, TTL expiry, LRU eviction and invalidation.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ResultCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ResultCache.Loader<Integer> loader() {
+        return loads::incrementAndGet;
+    }
+
+    /**
+     * Test that repeated lookups are served from the cache.
+     */
+    @Test
+    public void testHit() throws SQLException {
+        ResultCache cache = new ResultCache(4, 1000, now::get);
+
+        assertEquals(Integer.valueOf(1), cache.get("a", loader()));
+        assertEquals(Integer.valueOf(1), cache.get("a", loader()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+    }
+
+    /**
+     * Test that entries expire after the time to live.
+     */
+    @Test
+    public void testTtlExpiry() throws SQLException {
+        ResultCache cache = new ResultCache(4, 1000, now::get);
+        cache.get("a", loader());
+
+        now.addAndGet(1_000_000_000L);
+
+        assertEquals(Integer.valueOf(2), cache.get("a", loader()));
+        assertTrue(cache.getStatistics().contains("expirations=1"));
+    }
+
+    /**
+     * Test that the least recently used entry is evicted when full.
+     */
+    @Test
+    public void testLruEviction() throws SQLException {
+        ResultCache cache = new ResultCache(2, 1000, now::get);
+        cache.get("a", loader());
+        cache.get("b", loader());
+        cache.get("a", loader());
+        cache.get("c", loader());
+
+        assertEquals(2, cache.size());
+        cache.get("a", loader());
+        assertEquals("a should still be cached", 3, loads.get());
+        cache.get("b", loader());
+        assertEquals("b should have been evicted", 4, loads.get());
+    }
+
+    /**
+     * Test that invalidation drops entries and discards in-flight loads.
+     */
+    @Test
+    public void testInvalidation() throws SQLException {
+        ResultCache cache = new ResultCache(4, 1000, now::get);
+        cache.get("a", loader());
+
+        cache.get("b", () -> {
+            cache.invalidateAll();
+            return 99;
+        });
+
+        assertEquals(0, cache.size());
+        assertEquals(Integer.valueOf(2), cache.get("a", loader()));
+    }
+
+    /**
+     * Test that a size of zero disables caching.
+     */
+    @Test
+    public void testDisabled() throws SQLException {
+        ResultCache cache = new ResultCache(0, 1000, now::get);
+        cache.get("a", loader());
+        cache.get("a", loader());
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,107 @@
+package analysis;
+
+import db.DBConnection;
+import db.QueryExecutor;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression benchmark for StatService.getSummaryStatistics().
+ * Compares the single-round-trip query against the six sequential
+ * scalar queries it replaced, and checks that both return the same values.
+ * The summary tables are turned off so the base table query is measured.
+ * Timings are only reported, since wall-clock comparisons vary too much
+ * between machines and runs to pass or fail a build.
+ * 
+ * Note: This test requires MySQL/MariaDB to be running and is skipped
+ * otherwise. Load a large data set first for meaningful timings; the
+ * iteration count can be set with -Dbenchmark.iterations=N.
+ * 
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class SummaryStatisticsBenchmarkTest {
+    
+    private static final String[] SEQUENTIAL_QUERIES = {
+        "SELECT COUNT(*) FROM accounts",
+        "SELECT ROUND(SUM(balance), 2) FROM accounts WHERE status = 'Active'",
+        "SELECT COUNT(*) FROM transactions WHERE status = 'Completed'",
+        "SELECT COUNT(*) FROM accounts WHERE status = 'Active'",
+        "SELECT COUNT(*) FROM loans WHERE status = 'Active'",
+        "SELECT COUNT(*) FROM cards WHERE status = 'Active'"
+    };
+    
+    private StatService statService;
+    private QueryExecutor queryExecutor;
+    private int iterations;
+    
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Database not available - skipping benchmark",
+                DBConnection.getInstance().testConnection());
+        System.setProperty("analysis.summaryTables", "false");
+        statService = new StatService();
+        queryExecutor = new QueryExecutor();
+        iterations = Integer.getInteger("benchmark.iterations", 20);
+    }
+    
+    @After
+    public void tearDown() {
+        System.clearProperty("analysis.summaryTables");
+    }
+    
+    /**
+     * Test that the combined query matches the sequential queries and
+     * report the latency of both.
+     */
+    @Test
+    public void testSingleRoundTripMatchesSequential() throws SQLException {
+        // Warm up both paths
+        Object[] expected = runSequential();
+        Map<String, Object> actual = statService.getSummaryStatistics();
+        
+        int i = 0;
+        for (Object value : actual.values()) {
+            assertEquals("Metric " + i + " should match", 
+                    toDouble(expected[i]), toDouble(value), 0.005);
+            i++;
+        }
+        
+        long sequentialNanos = 0;
+        long combinedNanos = 0;
+        for (int n = 0; n < iterations; n++) {
+            long start = System.nanoTime();
+            runSequential();
+            sequentialNanos += System.nanoTime() - start;
+            
+            statService.invalidateCache(); // Measure the query, not the result cache
+            start = System.nanoTime();
+            statService.getSummaryStatistics();
+            combinedNanos += System.nanoTime() - start;
+        }
+        
+        double sequentialMs = sequentialNanos / 1_000_000.0 / iterations;
+        double combinedMs = combinedNanos / 1_000_000.0 / iterations;
+        System.out.printf("Summary statistics: sequential %.2f ms, single round trip %.2f ms (%.1fx)%n",
+                sequentialMs, combinedMs, sequentialMs / Math.max(combinedMs, 0.001));
+    }
+    
+    private Object[] runSequential() throws SQLException {
+        Object[] values = new Object[SEQUENTIAL_QUERIES.length];
+        for (int i = 0; i < SEQUENTIAL_QUERIES.length; i++) {
+            values[i] = queryExecutor.executeScalar(SEQUENTIAL_QUERIES[i]);
+        }
+        return values;
+    }
+    
+    private static double toDouble(Object value) {
+        return value == null ? 0.0 : ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,101 @@
+package db;
+
+import org.junit.Test;
+
+import javax.swing.table.TableModel;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ColumnarResult class.
+ * Tests columnar storage, dictionary encoding and the TableModel adapter.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ColumnarResultTest {
+
+    private ColumnarResult buildBranchResult() {
+        ColumnarResult.Builder builder = ColumnarResult.builder()
+                .column("branch", ColumnarResult.ColumnType.STRING)
+                .column("total_accounts", ColumnarResult.ColumnType.LONG)
+                .column("avg_balance", ColumnarResult.ColumnType.DOUBLE);
+
+        String[] branches = { "Arusha", "Dodoma", "Arusha", "Mwanza", "Arusha" };
+        for (int i = 0; i < branches.length; i++) {
+            builder.appendString(0, branches[i]);
+            builder.appendLong(1, i + 1);
+            if (i == 3) {
+                builder.appendNull(2);
+            } else {
+                builder.appendDouble(2, i * 1.5);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Test that repeated strings share one dictionary entry.
+     */
+    @Test
+    public void testDictionaryEncoding() {
+        ColumnarResult result = buildBranchResult();
+
+        assertEquals(5, result.getRowCount());
+        assertEquals(3, result.getDictionary(0).length);
+        assertArrayEquals(new int[] { 0, 1, 0, 2, 0 }, result.getCodes(0));
+        assertEquals("Mwanza", result.getString(3, 0));
+        assertSame(result.getStrings(0)[0], result.getStrings(0)[2]);
+    }
+
+    /**
+     * Test primitive accessors and NULL tracking.
+     */
+    @Test
+    public void testPrimitiveColumns() {
+        ColumnarResult result = buildBranchResult();
+
+        assertArrayEquals(new long[] { 1, 2, 3, 4, 5 }, result.getLongs(1));
+        assertArrayEquals(new double[] { 1, 2, 3, 4, 5 }, result.getDoubles(1), 0.0);
+        assertEquals(3.0, result.getDouble(2, 2), 0.0);
+        assertTrue(result.isNull(3, 2));
+        assertNull(result.getValue(3, 2));
+        assertEquals(2, result.findColumn("AVG_BALANCE"));
+    }
+
+    /**
+     * Test that asking for the wrong primitive type fails clearly.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongTypeAccessor() {
+        buildBranchResult().getLongs(0);
+    }
+
+    /**
+     * Test the read-only TableModel adapter.
+     */
+    @Test
+    public void testTableModelAdapter() {
+        TableModel model = buildBranchResult().toTableModel();
+
+        assertEquals(5, model.getRowCount());
+        assertEquals(3, model.getColumnCount());
+        assertEquals("total_accounts", model.getColumnName(1));
+        assertEquals(Long.class, model.getColumnClass(1));
+        assertEquals("Dodoma", model.getValueAt(1, 0));
+        assertEquals(2L, model.getValueAt(1, 1));
+        assertFalse(model.isCellEditable(0, 0));
+    }
+
+    /**
+     * Test that mismatched column lengths are rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMismatchedColumns() {
+        ColumnarResult.builder()
+                .column("a", ColumnarResult.ColumnType.LONG)
+                .column("b", ColumnarResult.ColumnType.LONG)
+                .appendLong(0, 1)
+                .build();
+    }
+}
@@ -0,0 +1,266 @@
+package db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ConnectionPool class.
+ * Uses an in-process stub driver so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ConnectionPoolTest {
+
+    private StubDriver driver;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        driver = StubDriver.register();
+        pool = new ConnectionPool(StubDriver.URL, "user", "", 1, 2, 200, 60000, 30000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    /**
+     * Test that a returned connection is reused instead of reopened.
+     */
+    @Test
+    public void testReturnedConnectionIsReused() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            assertFalse("Leased connection should be open", conn.isClosed());
+        }
+        try (Connection conn = pool.borrow()) {
+            assertNotNull(conn);
+        }
+
+        ConnectionPool.Statistics stats = pool.getStatistics();
+        assertEquals("Only one physical connection should be opened", 1, stats.getCreatedCount());
+        assertEquals(2, stats.getBorrowCount());
+        assertEquals(1, stats.getIdleConnections());
+    }
+
+    /**
+     * Test that concurrent borrowers get separate connections up to maxSize.
+     */
+    @Test
+    public void testPoolIsBounded() throws SQLException {
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        assertNotSame(first, second);
+
+        try {
+            pool.borrow();
+            fail("Third borrow should time out");
+        } catch (SQLTimeoutException e) {
+            assertEquals(1, pool.getStatistics().getTimeoutCount());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    /**
+     * Test that a waiting borrower receives a connection when one is returned.
+     */
+    @Test
+    public void testWaitingBorrowerIsServed() throws Exception {
+        pool.close();
+        pool = new ConnectionPool(StubDriver.URL, "user", "", 0, 1, 5000, 60000, 30000, 2);
+        Connection held = pool.borrow();
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try (Connection conn = pool.borrow()) {
+                assertFalse(conn.isClosed());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+            done.countDown();
+        });
+        waiter.start();
+
+        Thread.sleep(50);
+        held.close();
+
+        assertTrue("Waiter should be served", done.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertEquals(1, pool.getStatistics().getWaitCount());
+    }
+
+    /**
+     * Test that a connection cannot be used after it was returned.
+     */
+    @Test
+    public void testStaleLeaseIsRejected() throws SQLException {
+        Connection conn = pool.borrow();
+        conn.close();
+
+        assertTrue("Returned lease should report closed", conn.isClosed());
+        try {
+            conn.setAutoCommit(false);
+            fail("Using a returned connection should fail");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("returned"));
+        }
+    }
+
+    /**
+     * Test that uncommitted transactions are reset when returned.
+     */
+    @Test
+    public void testAutoCommitResetOnReturn() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertTrue("Auto-commit should be restored", conn.getAutoCommit());
+        }
+    }
+
+    /**
+     * Test that closing the pool closes every physical connection.
+     */
+    @Test
+    public void testCloseClosesAllConnections() throws SQLException {
+        Connection leased = pool.borrow();
+        pool.borrow().close();
+
+        pool.close();
+
+        assertTrue("Leased connection should be closed", leased.isClosed());
+        assertEquals(0, driver.openConnections.get());
+        try {
+            pool.borrow();
+            fail("Borrowing from a closed pool should fail");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    /**
+     * Test that preparing the same SQL again reuses the cached statement.
+     */
+    @Test
+    public void testStatementCacheReusesStatements() throws SQLException {
+        String sql = "INSERT INTO accounts (account_id) VALUES (?)";
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, i);
+                ps.executeUpdate();
+            }
+        }
+
+        ConnectionPool.Statistics stats = pool.getStatistics();
+        assertEquals("Statement should be prepared once", 1, driver.preparedStatements.get());
+        assertEquals(1, stats.getStatementCacheMisses());
+        assertEquals(2, stats.getStatementCacheHits());
+    }
+
+    /**
+     * Test that a reused statement has its result set closed and its
+     * fetch size, row limit and timeout back at their defaults.
+     */
+    @Test
+    public void testStatementCacheResetsSettings() throws SQLException {
+        String sql = "SELECT account_id FROM accounts";
+        driver.queryRows = 3;
+        try (Connection conn = pool.borrow();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setMaxRows(10);
+            ps.setQueryTimeout(30);
+            ps.executeQuery().next(); // Left open by the caller
+        }
+
+        assertEquals("Open result set should be closed", 0, driver.openResultSets.get());
+        try (Connection conn = pool.borrow();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            assertEquals(1, pool.getStatistics().getStatementCacheHits());
+            assertEquals(0, ps.getFetchSize());
+            assertEquals(0, ps.getMaxRows());
+            assertEquals(0, ps.getQueryTimeout());
+        }
+    }
+
+    /**
+     * Test that the least recently used statement is evicted and that a
+     * statement still open by the caller is not handed out twice.
+     */
+    @Test
+    public void testStatementCacheEvictionAndConcurrentUse() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement first = conn.prepareStatement("SELECT 1");
+            PreparedStatement second = conn.prepareStatement("SELECT 1");
+            assertNotSame("Open statement must not be shared", first, second);
+            first.close();
+            second.close();
+            assertTrue(first.isClosed());
+
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 3").close();
+        }
+
+        assertEquals(1, pool.getStatistics().getStatementCacheEvictions());
+    }
+
+    /**
+     * Test that the uncached statement handed out for SQL already open
+     * reports the leased connection and is closed when the lease ends.
+     */
+    @Test
+    public void testUncachedStatementClosedOnReturn() throws SQLException {
+        Connection conn = pool.borrow();
+        PreparedStatement cached = conn.prepareStatement("SELECT 1");
+        PreparedStatement uncached = conn.prepareStatement("SELECT 1");
+        assertSame(conn, cached.getConnection());
+        assertSame(conn, uncached.getConnection());
+        assertEquals(2, driver.openStatements.get());
+
+        conn.close();
+        assertTrue(uncached.isClosed());
+        assertEquals("Only the cached statement stays open", 1, driver.openStatements.get());
+    }
+
+    /**
+     * Test that statements created outside the statement cache report the
+     * leased connection and are closed when the lease ends, and that
+     * unwrapping to Connection does not expose the physical connection.
+     */
+    @Test
+    public void testStatementsClosedOnReturn() throws SQLException {
+        Connection conn = pool.borrow();
+        assertSame(conn, conn.unwrap(Connection.class));
+        assertTrue(conn.isWrapperFor(Connection.class));
+
+        Statement statement = conn.createStatement();
+        PreparedStatement keys = conn.prepareStatement("INSERT INTO t VALUES (1)",
+                Statement.RETURN_GENERATED_KEYS);
+        assertSame(conn, statement.getConnection());
+        assertSame(conn, keys.getConnection());
+        assertEquals(2, driver.openStatements.get());
+
+        conn.close();
+        assertTrue(statement.isClosed());
+        assertTrue(keys.isClosed());
+        assertEquals(0, driver.openStatements.get());
+    }
+}
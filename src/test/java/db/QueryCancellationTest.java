@@ -0,0 +1,114 @@
+package db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for QueryCancellation.
+ * Uses an in-process stub driver so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class QueryCancellationTest {
+
+    private static final String SQL = "SELECT n FROM numbers";
+
+    private StubDriver driver;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        driver = StubDriver.register();
+        pool = new ConnectionPool(StubDriver.URL, "user", "", 1, 1, 200, 60000, 30000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    /**
+     * Test that statements created while a cancellation is bound get the
+     * time left as query timeout, rounded up to whole seconds.
+     */
+    @Test
+    public void testTimeoutAppliedToStatements() throws SQLException {
+        QueryCancellation cancellation = new QueryCancellation(2500);
+        cancellation.bind();
+        try (Connection conn = pool.borrow();
+             PreparedStatement ps = conn.prepareStatement(SQL)) {
+            assertEquals(3, ps.getQueryTimeout());
+        } finally {
+            cancellation.unbind();
+        }
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement ps = conn.prepareStatement(SQL)) {
+            assertEquals("Unbound thread gets no timeout", 0, ps.getQueryTimeout());
+        }
+    }
+
+    /**
+     * Test that cancelling from another thread cancels the statement still
+     * open, but not one already closed and back in the cache.
+     */
+    @Test
+    public void testCancelReachesOpenStatement() throws Exception {
+        QueryCancellation cancellation = new QueryCancellation(0);
+        cancellation.bind();
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+            try (PreparedStatement ps = conn.prepareStatement(SQL)) {
+                Thread canceller = new Thread(cancellation::cancel);
+                canceller.start();
+                canceller.join();
+
+                assertTrue(cancellation.isCancelled());
+                assertEquals(1, driver.cancelledStatements.get());
+            }
+        } finally {
+            cancellation.unbind();
+        }
+        assertEquals(0, pool.getStatistics().getActiveConnections());
+    }
+
+    /**
+     * Test that a cancelled or expired task cannot start new statements.
+     */
+    @Test
+    public void testNoStatementsAfterCancelOrDeadline() throws Exception {
+        QueryCancellation cancellation = new QueryCancellation(0);
+        cancellation.cancel();
+        cancellation.bind();
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement(SQL);
+            fail("Cancelled task should not prepare statements");
+        } catch (SQLException e) {
+            assertEquals("70100", e.getSQLState());
+        } finally {
+            cancellation.unbind();
+        }
+
+        QueryCancellation expired = new QueryCancellation(1);
+        Thread.sleep(20);
+        expired.bind();
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement(SQL);
+            fail("Expired task should not prepare statements");
+        } catch (SQLTimeoutException e) {
+            // Expected
+        } finally {
+            expired.unbind();
+        }
+        assertEquals(0, pool.getStatistics().getActiveConnections());
+    }
+}
@@ -0,0 +1,97 @@
+package db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for QueryExecutor streaming.
+ * Uses an in-process stub driver so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class QueryExecutorTest {
+
+    private StubDriver driver;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        driver = StubDriver.register();
+        pool = new ConnectionPool(StubDriver.URL, "user", "", 1, 1, 200, 60000, 30000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    /**
+     * Test that every row is streamed with the requested fetch size and
+     * the connection goes back to the pool.
+     */
+    @Test
+    public void testStreamsAllRows() throws SQLException {
+        driver.queryRows = 5;
+        long[] sum = { 0 };
+
+        long rows = QueryExecutor.stream(pool.borrow(), "SELECT n FROM numbers",
+                QueryExecutor.STREAMING_FETCH_SIZE, row -> {
+                    sum[0] += row.getInt(1);
+                    return true;
+                });
+
+        assertEquals(5, rows);
+        assertEquals(15, sum[0]);
+        assertEquals(QueryExecutor.STREAMING_FETCH_SIZE, driver.lastFetchSize);
+        assertReleased();
+    }
+
+    /**
+     * Test that a stream stopped early returns the rows read, even though
+     * closing the cancelled result set fails, and still releases the
+     * statement and connection.
+     */
+    @Test
+    public void testEarlyStopIgnoresCancelledClose() throws SQLException {
+        driver.queryRows = 100;
+
+        long rows = QueryExecutor.stream(pool.borrow(), "SELECT n FROM numbers", 500,
+                row -> row.getInt(1) < 3);
+
+        assertEquals(3, rows);
+        assertEquals(500, driver.lastFetchSize);
+        assertReleased();
+    }
+
+    /**
+     * Test that a failing callback propagates its error and still
+     * releases the statement and connection.
+     */
+    @Test
+    public void testCallbackErrorReleasesConnection() {
+        driver.queryRows = 10;
+
+        try {
+            QueryExecutor.stream(pool.borrow(), "SELECT n FROM numbers",
+                    QueryExecutor.STREAMING_FETCH_SIZE, row -> {
+                        throw new SQLException("Bad row");
+                    });
+            fail("Callback error should propagate");
+        } catch (SQLException e) {
+            assertEquals("Bad row", e.getMessage());
+        }
+        assertReleased();
+    }
+
+    private void assertReleased() {
+        assertEquals("Result set should be closed", 0, driver.openResultSets.get());
+        assertEquals("Statement should be closed", 0, driver.openStatements.get());
+        assertEquals("Connection should be back in the pool", 0, pool.getStatistics().getActiveConnections());
+    }
+}
@@ -0,0 +1,234 @@
+package db;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Minimal in-process JDBC driver for tests that need real Connection
+ * objects without a running database. Accepts URLs starting with "jdbc:stub:".
+ *
+ * Queries return {@link #queryRows} rows of one int column counting from 1.
+ * Like MySQL Connector/J streaming a result, closing a result set whose
+ * statement was cancelled before its last row fails with "Query execution
+ * was interrupted".
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class StubDriver implements Driver {
+
+    public static final String URL = "jdbc:stub:test";
+
+    private static final StubDriver INSTANCE = new StubDriver();
+    private static boolean registered;
+
+    final AtomicInteger openConnections = new AtomicInteger();
+    final AtomicInteger preparedStatements = new AtomicInteger();
+    final AtomicInteger openStatements = new AtomicInteger();
+    final AtomicInteger openResultSets = new AtomicInteger();
+    volatile int queryRows;
+    volatile int lastFetchSize;
+    volatile int lastQueryTimeout;
+    final AtomicInteger cancelledStatements = new AtomicInteger();
+
+    /**
+     * Registers the stub driver with DriverManager once and returns it.
+     */
+    public static synchronized StubDriver register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(INSTANCE);
+            registered = true;
+        }
+        INSTANCE.openConnections.set(0);
+        INSTANCE.preparedStatements.set(0);
+        INSTANCE.openStatements.set(0);
+        INSTANCE.openResultSets.set(0);
+        INSTANCE.queryRows = 0;
+        INSTANCE.lastFetchSize = 0;
+        INSTANCE.lastQueryTimeout = 0;
+        INSTANCE.cancelledStatements.set(0);
+        return INSTANCE;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        openConnections.incrementAndGet();
+        boolean[] closed = { false };
+        boolean[] autoCommit = { true };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                openConnections.decrementAndGet();
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "isValid":
+                            return !closed[0];
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "setAutoCommit":
+                            autoCommit[0] = (Boolean) args[0];
+                            return null;
+                        case "prepareStatement":
+                            preparedStatements.incrementAndGet();
+                            return newStatement((String) args[0]);
+                        case "createStatement":
+                            return newStatement("");
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "StubConnection";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement newStatement(String sql) {
+        openStatements.incrementAndGet();
+        boolean[] closed = { false };
+        boolean[] cancelled = { false };
+        int[] settings = new int[3]; // Fetch size, max rows, query timeout
+        ResultSet[] results = { null };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                openStatements.decrementAndGet();
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "setFetchSize":
+                            lastFetchSize = (Integer) args[0];
+                            settings[0] = (Integer) args[0];
+                            return null;
+                        case "getFetchSize":
+                            return settings[0];
+                        case "setMaxRows":
+                            settings[1] = (Integer) args[0];
+                            return null;
+                        case "getMaxRows":
+                            return settings[1];
+                        case "setQueryTimeout":
+                            settings[2] = (Integer) args[0];
+                            lastQueryTimeout = (Integer) args[0];
+                            return null;
+                        case "getQueryTimeout":
+                            return settings[2];
+                        case "cancel":
+                            cancelled[0] = true;
+                            cancelledStatements.incrementAndGet();
+                            return null;
+                        case "executeQuery":
+                            results[0] = newResultSet(queryRows, cancelled);
+                            return results[0];
+                        case "getResultSet":
+                            return results[0];
+                        case "executeUpdate":
+                            return 1;
+                        case "executeBatch":
+                            return new int[0];
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "StubStatement[" + sql + "]";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private ResultSet newResultSet(int rows, boolean[] cancelled) {
+        openResultSets.incrementAndGet();
+        int[] row = { 0 };
+        boolean[] closed = { false };
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] <= rows;
+                        case "getInt":
+                            return row[0];
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                openResultSets.decrementAndGet();
+                                if (cancelled[0] && row[0] < rows) {
+                                    throw new SQLException("Query execution was interrupted", "70100", 1317);
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "StubResultSet";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith("jdbc:stub:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
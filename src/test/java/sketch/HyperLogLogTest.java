@@ -0,0 +1,84 @@
+package sketch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for HyperLogLog.
+ * Tests estimates for small and large cardinalities, merging and serialization.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class HyperLogLogTest {
+
+    /**
+     * Test estimates are within 3% from a handful to a million distinct values.
+     */
+    @Test
+    public void testEstimateWithinError() {
+        for (int distinct : new int[] { 10, 1000, 50000, 1000000 }) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < distinct; i++) {
+                sketch.add("customer" + i + "@email.com");
+                sketch.add("customer" + i + "@email.com"); // Duplicates do not count
+            }
+            assertEquals("Estimate of " + distinct, distinct, sketch.estimate(), Math.max(1, distinct * 0.03));
+        }
+    }
+
+    /**
+     * Test nulls are ignored and an empty sketch estimates zero.
+     */
+    @Test
+    public void testEmptyAndNull() {
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.add((String) null);
+        assertEquals(0, sketch.estimate());
+    }
+
+    /**
+     * Test merging overlapping sketches counts shared values once.
+     */
+    @Test
+    public void testMergeCountsUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 60000; i++) {
+            first.add(i);
+        }
+        for (int i = 30000; i < 90000; i++) {
+            second.add(i);
+        }
+
+        first.merge(second);
+
+        assertEquals(90000, first.estimate(), 90000 * 0.03);
+    }
+
+    /**
+     * Test sketches of different precision cannot be merged.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(12).merge(new HyperLogLog(14));
+    }
+
+    /**
+     * Test a serialized sketch reads back equal.
+     */
+    @Test
+    public void testSerializationRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int i = 0; i < 20000; i++) {
+            sketch.add("branch-customer-" + i);
+        }
+
+        HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(12, copy.getPrecision());
+        assertEquals(sketch, copy);
+        assertEquals(sketch.estimate(), copy.estimate());
+    }
+}
@@ -0,0 +1,121 @@
+package sketch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for KllSketch.
+ * Tests quantile accuracy against sorted data, merging and serialization.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class KllSketchTest {
+
+    private static final double[] RANKS = { 0.01, 0.25, 0.5, 0.75, 0.95, 0.99 };
+
+    /**
+     * Test quantiles of a skewed stream are within 2% in rank of the exact ones.
+     */
+    @Test
+    public void testQuantilesWithinRankError() {
+        KllSketch sketch = new KllSketch();
+        double[] values = lognormal(200000, 1);
+        for (double value : values) {
+            sketch.update(value);
+        }
+
+        assertEquals(values.length, sketch.getN());
+        assertTrue("Sketch should stay small", sketch.getRetained() < 4 * KllSketch.DEFAULT_K);
+        assertRanks(values, sketch);
+    }
+
+    /**
+     * Test minimum and maximum are exact and an empty sketch has no quantiles.
+     */
+    @Test
+    public void testExtremesAndEmpty() {
+        KllSketch sketch = new KllSketch();
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+
+        for (int i = 1; i <= 10000; i++) {
+            sketch.update(i);
+        }
+        sketch.update(Double.NaN);
+
+        assertEquals(10000, sketch.getN());
+        assertEquals(1.0, sketch.getMin(), 0);
+        assertEquals(10000.0, sketch.getMax(), 0);
+        assertEquals(1.0, sketch.getQuantile(0), 0);
+        assertEquals(10000.0, sketch.getQuantile(1), 0);
+    }
+
+    /**
+     * Test merged sketches of parts of a stream answer like a sketch of the whole.
+     */
+    @Test
+    public void testMerge() {
+        double[] values = lognormal(100000, 2);
+        KllSketch merged = new KllSketch();
+        for (int part = 0; part < 4; part++) {
+            KllSketch sketch = new KllSketch();
+            for (int i = part; i < values.length; i += 4) {
+                sketch.update(values[i]);
+            }
+            merged.merge(sketch);
+        }
+
+        assertEquals(values.length, merged.getN());
+        assertRanks(values, merged);
+    }
+
+    /**
+     * Test a serialized sketch reads back with the same quantiles.
+     */
+    @Test
+    public void testSerializationRoundTrip() {
+        KllSketch sketch = new KllSketch();
+        for (double value : lognormal(50000, 3)) {
+            sketch.update(value);
+        }
+
+        KllSketch copy = KllSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getN(), copy.getN());
+        assertEquals(sketch.getMin(), copy.getMin(), 0);
+        assertEquals(sketch.getMax(), copy.getMax(), 0);
+        assertArrayEquals(sketch.getQuantiles(RANKS), copy.getQuantiles(RANKS), 0);
+    }
+
+    /**
+     * Test bytes that are not a sketch are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorruptBytes() {
+        KllSketch.fromBytes(new byte[] { 1, 0, 0 });
+    }
+
+    private static void assertRanks(double[] values, KllSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double[] quantiles = sketch.getQuantiles(RANKS);
+        for (int i = 0; i < RANKS.length; i++) {
+            int below = Arrays.binarySearch(sorted, quantiles[i]);
+            double rank = (double) (below < 0 ? -below - 1 : below) / sorted.length;
+            assertEquals("Rank of p" + RANKS[i], RANKS[i], rank, 0.02);
+        }
+    }
+
+    private static double[] lognormal(int count, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.round(Math.exp(10 + 2 * random.nextGaussian())) / 100.0;
+        }
+        return values;
+    }
+}
@@ -123,6 +123,44 @@ public class CSVImporterTest {
         }
     }
     
+    /**
+     * Test that a cancel arriving when no import runs, such as just after
+     * one finished, does not stop the next import.
+     */
+    @Test
+    public void testCancelDoesNotAffectLaterImports() throws IOException {
+        File csv = File.createTempFile("accounts", ".csv");
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write(String.join(",", ImportTable.ACCOUNTS.getHeaders()) + "\n");
+        }
+        csvImporter.cancel();
+        assertFalse(csvImporter.isCancelled());
+        
+        try {
+            csvImporter.importFile(ImportTable.ACCOUNTS, csv.getAbsolutePath());
+        } catch (ImportCancelledException e) {
+            fail("Import should not be cancelled: " + e.getMessage());
+        } catch (Exception e) {
+            // If database is not available, the import fails for that reason instead
+            System.out.println("Database not available: " + e.getMessage());
+        } finally {
+            csv.delete();
+        }
+        assertFalse(csvImporter.isCancelled());
+    }
+    
+    /**
+     * Test that CSV files are matched to their tables by name.
+     */
+    @Test
+    public void testImportTableDetection() {
+        assertEquals(ImportTable.ACCOUNTS, ImportTable.forFileName("accounts.csv"));
+        assertEquals(ImportTable.TRANSACTIONS, ImportTable.forFileName("account_transactions.csv"));
+        assertEquals(ImportTable.LOANS, ImportTable.forFileName("Loans_2024.csv"));
+        assertEquals(ImportTable.CARDS, ImportTable.forFileName("cards.csv"));
+        assertNull(ImportTable.forFileName("students.csv"));
+    }
+    
     /**
      * Helper method to create a test CSV file.
      */
@@ -0,0 +1,97 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CsvInput.
+ * Tests streaming gzip compressed CSV files through the row readers.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class CsvInputTest {
+
+    private static final String[] COLUMNS = { "transaction_id", "amount", "transaction_date", "description" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that a compressed file larger than the read-ahead buffers reads
+     * every record, and reports progress in compressed bytes.
+     */
+    @Test
+    public void testReadsGzipFile() throws IOException {
+        File file = folder.newFile("transactions.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write("transaction_id,amount,transaction_date,description\n".getBytes(StandardCharsets.UTF_8));
+            for (int i = 1; i <= 50000; i++) {
+                out.write((i + "," + i + ".50,2024-03-01,\"Payment, ref " + i + "\"\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        try (CsvRowReader reader = CsvRowReader.open(file.getPath(), COLUMNS, true)) {
+            assertFalse(reader instanceof MappedCsvReader);
+            long count = 0;
+            for (CsvRow row; (row = reader.next()) != null; ) {
+                count++;
+                assertEquals(count, row.getInt(0));
+                assertEquals("Payment, ref " + count, row.getString(3));
+            }
+            assertEquals(50000, count);
+            assertEquals(file.length(), reader.getBytesRead());
+        }
+    }
+
+    /**
+     * Test that compressed files are recognized by name.
+     */
+    @Test
+    public void testFileNames() {
+        assertTrue(CsvInput.isCsvFile("Transactions_2024.CSV.GZ"));
+        assertTrue(CsvInput.isCsvFile("accounts.csv"));
+        assertFalse(CsvInput.isCsvFile("accounts.csv.rejects"));
+        assertTrue(CsvInput.isCompressed("transactions.csv.gz"));
+        assertFalse(CsvInput.isCompressed("transactions.csv"));
+    }
+
+    /**
+     * Test that a runtime exception thrown while reading ahead reaches the
+     * reader instead of leaving it blocked.
+     */
+    @Test(timeout = 5000)
+    public void testReadAheadForwardsRuntimeException() throws IOException {
+        IllegalStateException failure = new IllegalStateException("progress callback failed");
+        InputStream source = new InputStream() {
+            private int remaining = 10;
+
+            @Override
+            public int read() {
+                if (remaining-- == 0) {
+                    throw failure;
+                }
+                return 'a';
+            }
+        };
+
+        try (InputStream in = new ReadAheadInputStream(source, "read-ahead-test")) {
+            in.read(new byte[100]);
+            fail("Reader should see the exception");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+    }
+}
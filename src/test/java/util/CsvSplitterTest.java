@@ -0,0 +1,161 @@
+package util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CsvSplitter.
+ * Tests that ranges are record-aligned, including quoted newlines.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class CsvSplitterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that parsing every range yields each record exactly once,
+     * even when descriptions contain quoted newlines and commas.
+     */
+    @Test
+    public void testRangesCoverAllRecords() throws IOException {
+        StringBuilder csv = new StringBuilder("transaction_id,description\n");
+        for (int i = 1; i <= 500; i++) {
+            String description = i % 3 == 0
+                    ? "\"multi\nline, \"\"quoted\"\" #" + i + "\"" : "plain #" + i;
+            csv.append(i).append(',').append(description).append('\n');
+        }
+        File file = folder.newFile("transactions.csv");
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<CsvSplitter.Range> ranges = CsvSplitter.split(file.toPath(), 7);
+        assertTrue("Should produce several ranges", ranges.size() > 1);
+
+        List<String> ids = new ArrayList<>();
+        long expectedStart = ranges.get(0).getStart();
+        for (CsvSplitter.Range range : ranges) {
+            assertEquals("Ranges should be contiguous", expectedStart, range.getStart());
+            expectedStart = range.getEnd();
+
+            try (Reader reader = new InputStreamReader(range.open(), StandardCharsets.UTF_8);
+                 CSVParser parser = new CSVParser(reader,
+                         CSVFormat.DEFAULT.builder().setHeader("transaction_id", "description").build())) {
+                for (CSVRecord record : parser) {
+                    ids.add(record.get("transaction_id"));
+                    assertTrue(record.get("description").endsWith("#" + record.get("transaction_id")));
+                }
+            }
+        }
+
+        assertEquals(file.length(), expectedStart);
+        assertEquals(500, ids.size());
+        for (int i = 1; i <= 500; i++) {
+            assertEquals(String.valueOf(i), ids.get(i - 1));
+        }
+    }
+
+    /**
+     * Test that a mapped reader skipped to each range and limited to its
+     * end reads each record exactly once, with offsets that recover the
+     * record text.
+     */
+    @Test
+    public void testMappedReaderPerRange() throws IOException {
+        StringBuilder csv = new StringBuilder("transaction_id,description\n");
+        for (int i = 1; i <= 300; i++) {
+            String description = i % 4 == 0 ? "\"two\nlines #" + i + "\"" : "plain #" + i;
+            csv.append(i).append(',').append(description).append('\n');
+        }
+        File file = folder.newFile("transactions.csv");
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+        String[] columns = { "transaction_id", "description" };
+
+        List<Integer> ids = new ArrayList<>();
+        for (CsvSplitter.Range range : CsvSplitter.split(file.toPath(), 5)) {
+            try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), columns, 256)) {
+                reader.skip(range.getStart(), 0);
+                reader.limit(range.getEnd());
+                for (CsvRow row; (row = reader.next()) != null; ) {
+                    ids.add(row.getInt(0));
+                    assertEquals(reader.getRawRecord(), reader.getRawRecord(reader.markRecord()));
+                }
+            }
+        }
+
+        assertEquals(300, ids.size());
+        for (int i = 1; i <= 300; i++) {
+            assertEquals(i, ids.get(i - 1).intValue());
+        }
+    }
+
+    /**
+     * Test that bare CR and CRLF line endings are record boundaries, so
+     * such files split into ranges that the mapped reader reads in full.
+     */
+    @Test
+    public void testCarriageReturnLineEndings() throws IOException {
+        File small = folder.newFile("small.csv");
+        Files.write(small.toPath(), "a,b\r1,2\r3,4\r".getBytes(StandardCharsets.UTF_8));
+        List<CsvSplitter.Range> ranges = CsvSplitter.split(small.toPath(), 1);
+        assertEquals(1, ranges.size());
+        assertEquals(4, ranges.get(0).getStart());
+        assertEquals(small.length(), ranges.get(0).getEnd());
+
+        for (String lineEnd : new String[] { "\r", "\r\n" }) {
+            StringBuilder csv = new StringBuilder("transaction_id,description").append(lineEnd);
+            for (int i = 1; i <= 200; i++) {
+                String description = i % 5 == 0 ? "\"cr\rinside #" + i + "\"" : "plain #" + i;
+                csv.append(i).append(',').append(description).append(lineEnd);
+            }
+            File file = folder.newFile("cr" + lineEnd.length() + ".csv");
+            Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+            ranges = CsvSplitter.split(file.toPath(), 6);
+            assertTrue("Should produce several ranges", ranges.size() > 1);
+            List<Integer> ids = new ArrayList<>();
+            for (CsvSplitter.Range range : ranges) {
+                try (MappedCsvReader reader = new MappedCsvReader(file.toPath(),
+                        new String[] { "transaction_id", "description" }, 256)) {
+                    reader.skip(range.getStart(), 0);
+                    reader.limit(range.getEnd());
+                    for (CsvRow row; (row = reader.next()) != null; ) {
+                        ids.add(row.getInt(0));
+                        assertTrue(row.getString(1).endsWith("#" + row.getInt(0)));
+                    }
+                }
+            }
+            assertEquals(200, ids.size());
+            for (int i = 1; i <= 200; i++) {
+                assertEquals(i, ids.get(i - 1).intValue());
+            }
+        }
+    }
+
+    /**
+     * Test that a file with only a header produces no ranges.
+     */
+    @Test
+    public void testHeaderOnlyFile() throws IOException {
+        File file = folder.newFile("accounts.csv");
+        Files.write(file.toPath(), "account_id,balance\n".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(CsvSplitter.split(file.toPath(), 4).isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DataGenerator.
+ * Tests determinism, headers and referential consistency.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class DataGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that the same seed produces the same files with any number of
+     * threads, across several blocks.
+     */
+    @Test
+    public void testSameSeedSameFiles() throws IOException {
+        List<File> one = generate(folder.newFolder(), 1);
+        List<File> four = generate(folder.newFolder(), 4);
+
+        assertEquals(4, one.size());
+        for (int i = 0; i < one.size(); i++) {
+            assertArrayEquals(one.get(i).getName(),
+                    Files.readAllBytes(one.get(i).toPath()), Files.readAllBytes(four.get(i).toPath()));
+        }
+    }
+
+    /**
+     * Test that every file reads with its table's headers and that rows
+     * refer to existing accounts.
+     */
+    @Test
+    public void testReadableAndConsistent() throws IOException {
+        List<File> files = generate(folder.newFolder(), 2);
+        ImportTable[] tables = { ImportTable.ACCOUNTS, ImportTable.TRANSACTIONS, ImportTable.LOANS, ImportTable.CARDS };
+        int[] expectedRows = { 200, DataGenerator.BLOCK_ROWS + 10, 60, 160 };
+
+        Set<String> emails = new HashSet<>();
+        for (int t = 0; t < tables.length; t++) {
+            try (CsvRowReader reader = CsvRowReader.open(files.get(t).getPath(), tables[t].getHeaders(), true)) {
+                int rows = 0;
+                for (CsvRow row; (row = reader.next()) != null; ) {
+                    rows++;
+                    assertEquals(rows, row.getInt(0));
+                    if (tables[t] == ImportTable.ACCOUNTS) {
+                        assertTrue(emails.add(row.getString(2)));
+                        row.getDate(6);
+                    } else {
+                        int account = row.getInt(1);
+                        assertTrue(account >= 1 && account <= 200);
+                    }
+                    if (tables[t] == ImportTable.TRANSACTIONS) {
+                        assertTransactionSign(row);
+                    }
+                }
+                assertEquals(expectedRows[t], rows);
+            }
+        }
+    }
+
+    /**
+     * Checks that money leaving the account is negative and money coming
+     * in positive, as in the sample transactions.
+     */
+    private static void assertTransactionSign(CsvRow row) {
+        String type = row.getString(2);
+        boolean outgoing = type.equals("Withdrawal") || type.equals("Payment")
+                || row.getString(5).startsWith("Transfer to");
+        long amount = row.getScaledLong(3, 2);
+        assertTrue(type + " " + amount, outgoing ? amount < 0 : amount > 0);
+    }
+
+    private static List<File> generate(File directory, int threads) throws IOException {
+        DataGenerator generator = new DataGenerator(7L);
+        generator.setAccounts(200);
+        generator.setTransactions(DataGenerator.BLOCK_ROWS + 10);
+        generator.setThreads(threads);
+        return generator.generate(directory);
+    }
+}
@@ -0,0 +1,66 @@
+package util;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FixedPoint.
+ * Tests exact decimal parsing into scaled longs.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class FixedPointTest {
+
+    /**
+     * Test that both overloads agree with BigDecimal rounded half up.
+     */
+    @Test
+    public void testMatchesBigDecimal() {
+        String[] inputs = {
+            "0", "5500000.00", "12.5", "-0.10", "+7", ".5", "3.", "92708.333",
+            "169733.865", "-2.005", "9999999999999.99", "12345678901234567.8"
+        };
+        for (String input : inputs) {
+            long expected = new BigDecimal(input).setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+            assertEquals(input, expected, FixedPoint.parse(input, 2));
+
+            ByteBuffer bytes = ByteBuffer.wrap(("x" + input + "y").getBytes(StandardCharsets.US_ASCII));
+            assertEquals(input, expected, FixedPoint.parse(bytes, 1, input.length() + 1, 2));
+        }
+    }
+
+    /**
+     * Test that large monetary amounts stay exact where a double would not.
+     */
+    @Test
+    public void testExactLargeAmount() {
+        String amount = "90071992547409.93";
+        assertEquals(9007199254740993L, FixedPoint.parse(amount, 2));
+        assertNotEquals(new BigDecimal(amount),
+                BigDecimal.valueOf(Double.parseDouble(amount)).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Test that malformed and overflowing values are rejected.
+     */
+    @Test
+    public void testRejectsInvalidInput() {
+        String[] inputs = { "", "-", ".", "1e5", "1,000.00", "12.3.4", "99999999999999999999" };
+        for (String input : inputs) {
+            try {
+                FixedPoint.parse(input, 2);
+                fail("Should reject: " + input);
+            } catch (NumberFormatException expected) {
+                // Expected
+            }
+        }
+    }
+}
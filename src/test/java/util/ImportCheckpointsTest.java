@@ -0,0 +1,241 @@
+package util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ImportCheckpoints and resuming a file from a checkpoint.
+ * The import_checkpoints table is kept in memory by a stub connection,
+ * so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class ImportCheckpointsTest {
+
+    private static final String[] COLUMNS = { "id", "name" };
+    private static final List<String> TABLE_COLUMNS = Arrays.asList(
+            "range_start", "range_end", "file_size", "file_modified", "byte_offset", "rows_committed");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, long[]> table;
+    private Connection conn;
+    private ImportCheckpoints checkpoints;
+    private String csvFilePath;
+
+    @Before
+    public void setUp() throws IOException {
+        table = new LinkedHashMap<>();
+        conn = connection();
+        checkpoints = new ImportCheckpoints(null);
+
+        StringBuilder csv = new StringBuilder("id,name\n");
+        for (int i = 1; i <= 10; i++) {
+            csv.append(i).append(',').append(i % 3 == 0 ? "\"two\nlines " + i + "\"" : "name " + i).append('\n');
+        }
+        File file = folder.newFile("accounts.csv");
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+        csvFilePath = file.getPath();
+    }
+
+    /**
+     * Test that saved checkpoints load back by range, and that saving the
+     * same range again replaces its progress.
+     */
+    @Test
+    public void testSaveAndLoad() throws SQLException {
+        checkpoints.save(conn, csvFilePath, new ImportCheckpoints.Checkpoint(0, 100, 40, 3));
+        checkpoints.save(conn, csvFilePath, new ImportCheckpoints.Checkpoint(100, 200, 200, 7));
+        checkpoints.save(conn, csvFilePath, new ImportCheckpoints.Checkpoint(0, 100, 60, 5));
+
+        Map<String, ImportCheckpoints.Checkpoint> loaded = checkpoints.load(conn, csvFilePath);
+        assertEquals(2, loaded.size());
+        ImportCheckpoints.Checkpoint first = loaded.get(ImportCheckpoints.rangeKey(0, 100));
+        assertEquals(60, first.getByteOffset());
+        assertEquals(5, first.getRowsCommitted());
+        assertFalse(first.isComplete());
+        assertTrue(loaded.get(ImportCheckpoints.rangeKey(100, 200)).isComplete());
+
+        checkpoints.clear(conn, csvFilePath);
+        assertTrue(checkpoints.load(conn, csvFilePath).isEmpty());
+    }
+
+    /**
+     * Test that checkpoints of a file changed since they were saved are
+     * deleted instead of resumed.
+     */
+    @Test
+    public void testChangedFileDiscardsCheckpoints() throws Exception {
+        checkpoints.save(conn, csvFilePath, new ImportCheckpoints.Checkpoint(0, 100, 40, 3));
+        Files.write(new File(csvFilePath).toPath(), "11,appended\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        assertTrue(checkpoints.load(conn, csvFilePath).isEmpty());
+        assertTrue("Stale checkpoints should be deleted", table.isEmpty());
+    }
+
+    /**
+     * Test that a mapped reader resumes at the byte offset checkpointed by
+     * a mapped run, with the record count carried over.
+     */
+    @Test
+    public void testResumeMappedAtByteOffset() throws Exception {
+        ImportCheckpoints.Checkpoint checkpoint = interruptAfter(4, true);
+        assertTrue("Mapped reader should record an offset", checkpoint.getByteOffset() > 0);
+
+        assertResumesAt(5, checkpoint, true);
+    }
+
+    /**
+     * Test that Commons CSV records no offset and resumes by skipping the
+     * committed number of records.
+     */
+    @Test
+    public void testResumeCommonsByRecordCount() throws Exception {
+        ImportCheckpoints.Checkpoint checkpoint = interruptAfter(4, false);
+        assertEquals(-1, checkpoint.getByteOffset());
+
+        assertResumesAt(5, checkpoint, false);
+    }
+
+    /**
+     * Test that a checkpoint from either reader resumes with the other,
+     * as happens when import.mappedReader changes between runs.
+     */
+    @Test
+    public void testResumeWithOtherReader() throws Exception {
+        assertResumesAt(7, interruptAfter(6, false), true);
+        checkpoints.clear(conn, csvFilePath);
+        assertResumesAt(7, interruptAfter(6, true), false);
+    }
+
+    /**
+     * Reads records the way the sequential importer does and saves the
+     * checkpoint it would commit after them.
+     */
+    private ImportCheckpoints.Checkpoint interruptAfter(int records, boolean mapped) throws Exception {
+        long fileSize = new File(csvFilePath).length();
+        try (CsvRowReader reader = CsvRowReader.open(csvFilePath, COLUMNS, mapped)) {
+            for (int i = 0; i < records; i++) {
+                assertNotNull(reader.next());
+            }
+            checkpoints.save(conn, csvFilePath,
+                    new ImportCheckpoints.Checkpoint(0, fileSize, reader.getRecordOffset(), records));
+        }
+        return checkpoints.load(conn, csvFilePath).get(ImportCheckpoints.rangeKey(0, fileSize));
+    }
+
+    /**
+     * Resumes from a checkpoint the way the sequential importer does and
+     * checks that every remaining record is read exactly once.
+     */
+    private void assertResumesAt(int firstId, ImportCheckpoints.Checkpoint checkpoint, boolean mapped)
+            throws IOException {
+        try (CsvRowReader reader = CsvRowReader.open(csvFilePath, COLUMNS, mapped)) {
+            reader.skip(checkpoint.getByteOffset(), checkpoint.getRowsCommitted());
+            List<Integer> ids = new ArrayList<>();
+            for (CsvRow row; (row = reader.next()) != null; ) {
+                ids.add(row.getInt(0));
+                assertTrue(row.getString(1).endsWith(" " + row.getInt(0)));
+            }
+            assertEquals(10 - firstId + 1, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(firstId + i, ids.get(i).intValue());
+            }
+        }
+    }
+
+    /**
+     * Connection keeping import_checkpoints rows in {@link #table}, keyed
+     * by file path and range.
+     */
+    private Connection connection() {
+        return proxy(Connection.class, (method, args) -> {
+            if (!method.equals("prepareStatement")) {
+                return null;
+            }
+            String sql = (String) args[0];
+            Object[] parameters = new Object[8];
+            return proxy(PreparedStatement.class, (psMethod, psArgs) -> {
+                switch (psMethod) {
+                    case "setString":
+                    case "setLong":
+                        parameters[(Integer) psArgs[0]] = psArgs[1];
+                        return null;
+                    case "executeUpdate":
+                        return execute(sql, parameters);
+                    case "executeQuery":
+                        return query((String) parameters[1]);
+                    default:
+                        return null;
+                }
+            });
+        });
+    }
+
+    private int execute(String sql, Object[] parameters) {
+        String path = (String) parameters[1];
+        if (sql.startsWith("DELETE")) {
+            int before = table.size();
+            table.keySet().removeIf(key -> key.startsWith(path + "|"));
+            return before - table.size();
+        }
+        long[] row = new long[TABLE_COLUMNS.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = (Long) parameters[i + 2];
+        }
+        table.put(path + "|" + row[0] + "|" + row[1], row);
+        return 1;
+    }
+
+    private ResultSet query(String path) {
+        List<long[]> rows = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : table.entrySet()) {
+            if (entry.getKey().startsWith(path + "|")) {
+                rows.add(entry.getValue());
+            }
+        }
+        int[] row = { -1 };
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++row[0] < rows.size();
+                case "getLong":
+                    return rows.get(row[0])[TABLE_COLUMNS.indexOf((String) args[0])];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+}
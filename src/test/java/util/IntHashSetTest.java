@@ -0,0 +1,40 @@
+package util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IntHashSet.
+ * Tests membership and growth against a HashSet.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class IntHashSetTest {
+
+    /**
+     * Test random adds, including the reserved marker value, across resizes.
+     */
+    @Test
+    public void testMatchesHashSet() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            int value = i % 1000 == 0 ? Integer.MIN_VALUE : random.nextInt(40000) - 20000;
+            assertEquals(expected.add(value), set.add(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int value = -20000; value < 20000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertTrue(set.contains(Integer.MIN_VALUE));
+    }
+}
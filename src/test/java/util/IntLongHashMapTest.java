@@ -0,0 +1,72 @@
+package util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IntLongHashMap.
+ * Tests lookups, replacement and growth against a HashMap.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class IntLongHashMapTest {
+
+    /**
+     * Test random puts, including the reserved marker key, across resizes.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        IntLongHashMap map = new IntLongHashMap();
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50000; i++) {
+            int key = i % 1000 == 0 ? Integer.MIN_VALUE : random.nextInt(20000) - 10000;
+            long value = random.nextLong();
+            assertEquals(!expected.containsKey(key), map.put(key, value));
+            expected.put(key, value);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), 0));
+        }
+        assertFalse(map.containsKey(10000));
+        assertEquals(-1, map.get(10000, -1));
+    }
+
+    /**
+     * Test random puts and removes, including the reserved marker key, so
+     * removals inside probe sequences keep the other keys reachable.
+     */
+    @Test
+    public void testRemoveMatchesHashMap() {
+        IntLongHashMap map = new IntLongHashMap();
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100000; i++) {
+            int key = i % 500 == 0 ? Integer.MIN_VALUE : random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertEquals(!expected.containsKey(key), map.put(key, value));
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 3000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, -1L).longValue(), map.get(key, -1));
+        }
+    }
+}
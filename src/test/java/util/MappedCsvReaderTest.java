@@ -0,0 +1,219 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MappedCsvReader.
+ * Tests tokenizing, typed parsing and agreement with Commons CSV.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class MappedCsvReaderTest {
+
+    private static final String[] COLUMNS = { "transaction_id", "amount", "transaction_date", "description" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test typed values, with a byte order mark and header columns in a
+     * different order than requested.
+     */
+    @Test
+    public void testTypedValuesByColumn() throws IOException {
+        File file = write("\uFEFFdescription,transaction_date,Amount,transaction_id\n"
+                + "Salary Deposit,2023-01-15,500000.00,1\n"
+                + " ATM ,2023-1-5, -0.10 ,-42\n");
+
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS)) {
+            CsvRow row = reader.next();
+            assertEquals(1, row.getInt(0));
+            assertEquals(500000.00, row.getDouble(1), 0.0);
+            assertEquals(LocalDate.of(2023, 1, 15), row.getDate(2));
+            assertEquals("Salary Deposit", row.getString(3));
+
+            row = reader.next();
+            assertEquals(-42, row.getInt(0));
+            assertEquals(Double.parseDouble("-0.10"), row.getDouble(1), 0.0);
+            assertEquals(LocalDate.of(2023, 1, 5), row.getDate(2));
+            assertEquals("ATM", row.getString(3));
+
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Test that quoted fields, CRLF endings and blank lines are read the
+     * same way as by Commons CSV, across window remaps.
+     */
+    @Test
+    public void testMatchesCommonsCsv() throws IOException {
+        StringBuilder csv = new StringBuilder("transaction_id,amount,transaction_date,description\r\n");
+        for (int i = 1; i <= 200; i++) {
+            String description = i % 4 == 0 ? "\"Line one\r\nline, \"\"two\"\" é\"" : "Payment " + i;
+            csv.append(i).append(',').append(i * 1.25).append(",2024-02-").append(1 + i % 28)
+                    .append(',').append(description).append("\r\n");
+            if (i % 50 == 0) {
+                csv.append("\r\n");
+            }
+        }
+        File file = write(csv.toString());
+
+        List<String> expected = new ArrayList<>();
+        try (CsvRowReader reader = new CommonsCsvReader(file.getPath(), COLUMNS)) {
+            for (CsvRow row; (row = reader.next()) != null; ) {
+                expected.add(describe(row));
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        try (CsvRowReader reader = new MappedCsvReader(file.toPath(), COLUMNS, 512)) {
+            for (CsvRow row; (row = reader.next()) != null; ) {
+                actual.add(describe(row));
+            }
+        }
+
+        assertEquals(200, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test that malformed numbers fail like Integer.parseInt.
+     */
+    @Test(expected = NumberFormatException.class)
+    public void testMalformedInt() throws IOException {
+        File file = write("transaction_id,amount,transaction_date,description\n1x,1,2024-01-01,a\n");
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS)) {
+            reader.next().getInt(0);
+        }
+    }
+
+    /**
+     * Test that a missing column is reported when the file is opened.
+     */
+    @Test(expected = IOException.class)
+    public void testMissingColumn() throws IOException {
+        File file = write("transaction_id,amount,description\n1,2,a\n");
+        new MappedCsvReader(file.toPath(), COLUMNS).close();
+    }
+
+    /**
+     * Test that a record larger than the mapping window is reported as
+     * unsupported, so the caller can fall back to Commons CSV.
+     */
+    @Test(expected = MappedCsvReader.UnsupportedInputException.class)
+    public void testOversizedRecord() throws IOException {
+        File file = write("transaction_id,amount,transaction_date,description\n"
+                + "1,2.5,2024-01-01,a description longer than the sixty-four byte window\n");
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS, 64)) {
+            reader.next();
+        }
+    }
+
+    /**
+     * Test that a reader resumed at a record offset, or by skipping a
+     * record count, continues with the next record.
+     */
+    @Test
+    public void testSkipToRecordOffset() throws IOException {
+        File file = write("transaction_id,amount,transaction_date,description\n"
+                + "1,1.00,2024-01-01,a\n2,2.00,2024-01-02,b\n3,3.00,2024-01-03,c\n");
+
+        long offset;
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS, 64)) {
+            reader.next();
+            reader.next();
+            offset = reader.getRecordOffset();
+        }
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS, 64)) {
+            reader.skip(offset, 2);
+            assertEquals(3, reader.next().getInt(0));
+            assertNull(reader.next());
+        }
+        try (CsvRowReader reader = new CommonsCsvReader(file.getPath(), COLUMNS)) {
+            assertEquals(-1, reader.getRecordOffset());
+            reader.skip(-1, 2);
+            assertEquals(3, reader.next().getInt(0));
+        }
+    }
+
+    /**
+     * Test that line numbers and raw records of rows match the file, with
+     * blank lines, CRLF endings and a quoted line break.
+     */
+    @Test
+    public void testLineNumbersAndRawRecords() throws IOException {
+        File file = write("transaction_id,amount,transaction_date,description\r\n"
+                + "1,1.00,2024-01-01,a\r\n\r\n"
+                + "2,2.00,2024-01-02,\"two\r\nlines\"\r\n"
+                + "3,3.00,2024-01-03,c");
+
+        try (MappedCsvReader reader = new MappedCsvReader(file.toPath(), COLUMNS)) {
+            reader.next();
+            assertEquals(2, reader.getLineNumber());
+            assertEquals("1,1.00,2024-01-01,a", reader.getRawRecord());
+            reader.next();
+            assertEquals(5, reader.getLineNumber());
+            assertEquals("2,2.00,2024-01-02,\"two\r\nlines\"", reader.getRawRecord());
+            reader.next();
+            assertEquals(6, reader.getLineNumber());
+            assertEquals("3,3.00,2024-01-03,c", reader.getRawRecord());
+        }
+        try (CsvRowReader reader = new CommonsCsvReader(file.getPath(), COLUMNS)) {
+            reader.next();
+            reader.next();
+            assertEquals(5, reader.getLineNumber());
+            assertEquals("two\r\nlines", RecordRow.parse(reader.getRawRecord()).get(3));
+        }
+    }
+
+    /**
+     * Test that marked records are read back as their raw records, after
+     * the window has moved past them.
+     */
+    @Test
+    public void testMarkedRecords() throws IOException {
+        File file = write("transaction_id,amount,transaction_date,description\r\n"
+                + "1,1.00,2024-01-01,a\r\n"
+                + "2,2.00,2024-01-02,\"two\r\nlines, \"\"quoted\"\"\"\r\n"
+                + "3,3.00,2024-01-03,c");
+
+        for (boolean mapped : new boolean[] { true, false }) {
+            try (CsvRowReader reader = mapped ? new MappedCsvReader(file.toPath(), COLUMNS, 64)
+                    : new CommonsCsvReader(file.getPath(), COLUMNS)) {
+                List<String> raw = new ArrayList<>();
+                List<Long> marks = new ArrayList<>();
+                while (reader.next() != null) {
+                    raw.add(reader.getRawRecord());
+                    marks.add(reader.markRecord());
+                }
+                for (int i = 0; i < marks.size(); i++) {
+                    assertEquals(raw.get(i), reader.getRawRecord(marks.get(i)));
+                }
+                reader.clearMarks();
+            }
+        }
+    }
+
+    private static String describe(CsvRow row) {
+        return row.getInt(0) + "|" + row.getDouble(1) + "|" + row.getDate(2) + "|" + row.getString(3);
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,54 @@
+package util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PipelineStats.
+ * Tests queue depth and stall time accounting.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class PipelineStatsTest {
+
+    /**
+     * Test that queue depths average and peak over queued batches.
+     */
+    @Test
+    public void testQueueDepth() {
+        PipelineStats stats = new PipelineStats(8);
+        assertEquals(0, stats.getAverageQueueDepth(), 0.0);
+
+        stats.queued(1, 0);
+        stats.queued(2, 0);
+        stats.queued(6, 0);
+
+        assertEquals(3, stats.getBatches());
+        assertEquals(3.0, stats.getAverageQueueDepth(), 1e-9);
+        assertEquals(6, stats.getMaxQueueDepth());
+        assertEquals(8, stats.getQueueCapacity());
+    }
+
+    /**
+     * Test that stall, idle and write times add up per stage.
+     */
+    @Test
+    public void testStageTimes() {
+        PipelineStats stats = new PipelineStats(2);
+        stats.queued(2, 3_000_000);
+        stats.queued(2, 4_000_000);
+        stats.taken(5_000_000);
+        stats.written(20_000_000);
+        stats.written(22_000_000);
+        stats.finished();
+
+        assertEquals(7, stats.getParserStallMillis());
+        assertEquals(5, stats.getWriterIdleMillis());
+        assertEquals(42, stats.getWriteMillis());
+        long elapsed = stats.getElapsedMillis();
+        assertEquals(elapsed, stats.getElapsedMillis());
+        assertTrue(stats.toString().contains("parsers stalled 7 ms"));
+    }
+}
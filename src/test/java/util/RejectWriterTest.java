@@ -0,0 +1,63 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RejectWriter.
+ * Tests the rejects file format and the row error classification.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class RejectWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that the rejects file is only created once a row is rejected,
+     * and replaced by the next import of the same file.
+     */
+    @Test
+    public void testRejectsFile() throws IOException {
+        String csvPath = new File(folder.getRoot(), "accounts.csv").getPath();
+
+        try (RejectWriter rejects = new RejectWriter(csvPath, false)) {
+            assertFalse(rejects.getFile().exists());
+            rejects.reject(3, "1,\"Smith, J\",x", new NumberFormatException("For input string: \"x\""));
+            assertEquals(1, rejects.getCount());
+        }
+        List<String> lines = Files.readAllLines(new File(csvPath + ".rejects").toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("line,reason,record",
+                "3,\"For input string: \"\"x\"\"\",\"1,\"\"Smith, J\"\",x\""), lines);
+
+        new RejectWriter(csvPath, false).close();
+        assertFalse(new File(csvPath + ".rejects").exists());
+    }
+
+    /**
+     * Test that constraint and data errors are row errors, and connection
+     * errors are not.
+     */
+    @Test
+    public void testIsRowError() {
+        assertTrue(RejectWriter.isRowError(new BatchUpdateException(
+                "Cannot add or update a child row", "23000", 1452, new int[0])));
+        assertTrue(RejectWriter.isRowError(new SQLException("Check constraint violated", "HY000", 3819)));
+        assertTrue(RejectWriter.isRowError(new SQLException("Out of range value", "22003", 1264)));
+        assertFalse(RejectWriter.isRowError(new SQLException("Communications link failure", "08S01", 0)));
+    }
+}
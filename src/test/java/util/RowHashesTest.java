@@ -0,0 +1,190 @@
+package util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RowHashes.
+ * Stored hashes are read from a stub result set, and the hashes flush
+ * writes are recorded, so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class RowHashesTest {
+
+    private List<long[]> saved;
+    private RowHashes hashes;
+
+    @Before
+    public void setUp() throws SQLException {
+        saved = new ArrayList<>();
+        hashes = RowHashes.load(connection(new long[][] { { 1, 100 }, { 2, 200 } }), ImportTable.ACCOUNTS);
+    }
+
+    /**
+     * Test that rows are classified against the stored hashes and that
+     * only inserted and updated rows are written.
+     */
+    @Test
+    public void testClassification() throws SQLException {
+        assertEquals(RowHashes.Change.UNCHANGED, hashes.track(1, 100));
+        assertEquals(RowHashes.Change.UPDATED, hashes.track(2, 201));
+        assertEquals(RowHashes.Change.INSERTED, hashes.track(3, 300));
+        assertTrue("Nothing is written before the flush", saved.isEmpty());
+
+        hashes.flush();
+        assertSaved(new long[][] { { 2, 201 }, { 3, 300 } });
+        assertCounts(1, 1, 1);
+        assertEquals(RowHashes.Change.UNCHANGED, hashes.track(3, 300));
+    }
+
+    /**
+     * Test that a rejected new row is not written and stays unknown, so
+     * it is counted as inserted when it is imported again.
+     */
+    @Test
+    public void testRejectedInsertStaysUnknown() throws SQLException {
+        int position = hashes.position();
+        assertEquals(RowHashes.Change.INSERTED, hashes.track(3, 300));
+        hashes.discard(position);
+        hashes.flush();
+        assertSaved(new long[0][]);
+        assertCounts(0, 0, 0);
+
+        assertEquals(RowHashes.Change.INSERTED, hashes.track(3, 300));
+        hashes.flush();
+        assertSaved(new long[][] { { 3, 300 } });
+        assertCounts(1, 0, 0);
+    }
+
+    /**
+     * Test that a rejected changed row keeps its previous hash.
+     */
+    @Test
+    public void testRejectedUpdateKeepsPreviousHash() throws SQLException {
+        int position = hashes.position();
+        assertEquals(RowHashes.Change.UPDATED, hashes.track(2, 201));
+        hashes.discard(position);
+        hashes.flush();
+        assertSaved(new long[0][]);
+        assertCounts(0, 0, 0);
+
+        assertEquals(RowHashes.Change.UNCHANGED, hashes.track(2, 200));
+        assertEquals(RowHashes.Change.UPDATED, hashes.track(2, 201));
+    }
+
+    /**
+     * Test that when the first of two rows with the same new key is
+     * rejected, the second counts as inserted and its hash is written.
+     */
+    @Test
+    public void testRejectedFirstOfRepeatedKey() throws SQLException {
+        int first = hashes.position();
+        assertEquals(RowHashes.Change.INSERTED, hashes.track(5, 500));
+        assertEquals(RowHashes.Change.UPDATED, hashes.track(5, 501));
+        hashes.discard(first);
+        hashes.flush();
+
+        assertSaved(new long[][] { { 5, 501 } });
+        assertCounts(1, 0, 0);
+        assertEquals(RowHashes.Change.UNCHANGED, hashes.track(5, 501));
+    }
+
+    private void assertSaved(long[][] expected) {
+        assertEquals(expected.length, saved.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], saved.get(i));
+        }
+        saved.clear();
+    }
+
+    private void assertCounts(long inserted, long updated, long unchanged) {
+        assertEquals("Inserted", inserted, hashes.getInserted());
+        assertEquals("Updated", updated, hashes.getUpdated());
+        assertEquals("Unchanged", unchanged, hashes.getUnchanged());
+    }
+
+    /**
+     * Connection whose hash query returns the given (row_id, row_hash)
+     * pairs and whose hash upserts are recorded when their batch executes.
+     */
+    private Connection connection(long[][] stored) {
+        return proxy(Connection.class, (method, args) -> {
+            if (method.equals("createStatement")) {
+                return proxy(Statement.class, (stmtMethod, stmtArgs) ->
+                        stmtMethod.equals("execute") ? Boolean.FALSE : null);
+            }
+            if (!method.equals("prepareStatement")) {
+                return null;
+            }
+            String sql = (String) args[0];
+            if (sql.startsWith("SELECT COUNT")) {
+                return proxy(PreparedStatement.class, (psMethod, psArgs) ->
+                        psMethod.equals("executeQuery") ? resultSet(new long[][] { { stored.length } }) : null);
+            }
+            if (sql.startsWith("SELECT")) {
+                return proxy(PreparedStatement.class, (psMethod, psArgs) ->
+                        psMethod.equals("executeQuery") ? resultSet(stored) : null);
+            }
+            List<long[]> batch = new ArrayList<>();
+            long[] row = new long[2];
+            return proxy(PreparedStatement.class, (psMethod, psArgs) -> {
+                switch (psMethod) {
+                    case "setInt":
+                        row[0] = (Integer) psArgs[1];
+                        return null;
+                    case "setLong":
+                        row[1] = (Long) psArgs[1];
+                        return null;
+                    case "addBatch":
+                        batch.add(row.clone());
+                        return null;
+                    case "executeBatch":
+                        saved.addAll(batch);
+                        int[] counts = new int[batch.size()];
+                        batch.clear();
+                        return counts;
+                    default:
+                        return null;
+                }
+            });
+        });
+    }
+
+    private static ResultSet resultSet(long[][] rows) {
+        int[] row = { -1 };
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++row[0] < rows.length;
+                case "getInt":
+                    return (int) rows[row[0]][(Integer) args[0] - 1];
+                case "getLong":
+                    return rows[row[0]][(Integer) args[0] - 1];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+}
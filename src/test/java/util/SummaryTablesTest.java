@@ -0,0 +1,212 @@
+package util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SummaryTables.
+ * Snapshots are read from stub result sets, and the statements apply
+ * sends are recorded, so no database is required.
+ *
+ * @author Bank Data Analysis Team
+ * @version 1.0
+ */
+public class SummaryTablesTest {
+
+    private SummaryTables accounts;
+    private List<String> statements;
+    private List<Object[]> upserts;
+    private List<Object[]> recomputes;
+
+    @Before
+    public void setUp() {
+        accounts = SummaryTables.forTable(ImportTable.ACCOUNTS);
+        statements = new ArrayList<>();
+        upserts = new ArrayList<>();
+        recomputes = new ArrayList<>();
+    }
+
+    /**
+     * Test that a new account adds its group with its balance as minimum
+     * and maximum.
+     */
+    @Test
+    public void testInsert() throws SQLException {
+        accounts.apply(recorder(), snapshot(), snapshot(
+                group("Savings", "Arusha", "Active", "2", 1, "1500000.00", "1500000.00", "1500000.00")));
+
+        assertEquals(1, upserts.size());
+        assertArrayEquals(new Object[] { "Savings", "Arusha", "Active", "2", 1L,
+                new BigDecimal("1500000.00"), new BigDecimal("1500000.00"), new BigDecimal("1500000.00") },
+                upserts.get(0));
+        assertTrue("Nothing left the group", recomputes.isEmpty());
+    }
+
+    /**
+     * Test that an upsert moving an account to another group subtracts it
+     * from the old group, adds it to the new one and recomputes the
+     * extremes of the old group.
+     */
+    @Test
+    public void testUpsertChangingGroup() throws SQLException {
+        accounts.apply(recorder(),
+                snapshot(group("Savings", "Arusha", "Active", "2", 1, "1500000.00", "1500000.00", "1500000.00")),
+                snapshot(group("Savings", "Arusha", "Closed", "4", 1, "0.00", "0.00", "0.00")));
+
+        assertEquals(2, upserts.size());
+        assertArrayEquals(new Object[] { "Savings", "Arusha", "Active", "2", -1L,
+                new BigDecimal("-1500000.00"), null, null }, upserts.get(0));
+        assertArrayEquals(new Object[] { "Savings", "Arusha", "Closed", "4", 1L,
+                new BigDecimal("0.00"), new BigDecimal("0.00"), new BigDecimal("0.00") }, upserts.get(1));
+
+        assertEquals(1, recomputes.size());
+        Object[] recompute = recomputes.get(0);
+        assertEquals(Arrays.asList("Savings", "Arusha", "Active", "2"),
+                Arrays.asList(recompute).subList(recompute.length - 6, recompute.length - 2));
+        assertEquals(new BigDecimal("1500000.00"), recompute[recompute.length - 2]);
+        assertEquals(new BigDecimal("1500000.00"), recompute[recompute.length - 1]);
+    }
+
+    /**
+     * Test that an upsert raising the group's minimum applies the
+     * difference of the sum and recomputes the extremes, since the old
+     * minimum may have left the group.
+     */
+    @Test
+    public void testUpsertRemovingMinimum() throws SQLException {
+        accounts.apply(recorder(),
+                snapshot(group("Business", "Mwanza", "Active", "0", 2, "25000000.00", "10000000.00", "15000000.00")),
+                snapshot(group("Business", "Mwanza", "Active", "0", 2, "27000000.00", "12000000.00", "15000000.00")));
+
+        assertEquals(1, upserts.size());
+        assertArrayEquals(new Object[] { "Business", "Mwanza", "Active", "0", 0L,
+                new BigDecimal("2000000.00"), new BigDecimal("12000000.00"), new BigDecimal("15000000.00") },
+                upserts.get(0));
+        assertEquals(1, recomputes.size());
+        Object[] recompute = recomputes.get(0);
+        assertEquals(new BigDecimal("10000000.00"), recompute[recompute.length - 2]);
+    }
+
+    /**
+     * Test that an upsert lowering the group's maximum recomputes the
+     * extremes, while one that widens them does not.
+     */
+    @Test
+    public void testUpsertRemovingMaximum() throws SQLException {
+        accounts.apply(recorder(),
+                snapshot(group("Checking", "Arusha", "Active", "3", 2, "1400000.00", "600000.00", "800000.00")),
+                snapshot(group("Checking", "Arusha", "Active", "3", 2, "1300000.00", "600000.00", "700000.00")));
+        assertEquals(1, recomputes.size());
+
+        recomputes.clear();
+        accounts.apply(recorder(),
+                snapshot(group("Checking", "Arusha", "Active", "3", 2, "1400000.00", "600000.00", "800000.00")),
+                snapshot(group("Checking", "Arusha", "Active", "3", 2, "1450000.00", "550000.00", "900000.00")));
+        assertTrue("Widened extremes are exact", recomputes.isEmpty());
+    }
+
+    /**
+     * Test that a batch whose rows were all rejected, so the base table
+     * did not change, sends no statements.
+     */
+    @Test
+    public void testRejectedRowsChangeNothing() throws SQLException {
+        SummaryTables.Snapshot unchanged =
+                snapshot(group("Savings", "Arusha", "Active", "2", 3, "4500000.00", "1000000.00", "2000000.00"));
+
+        accounts.apply(recorder(), unchanged,
+                snapshot(group("Savings", "Arusha", "Active", "2", 3, "4500000.00", "1000000.00", "2000000.00")));
+
+        assertTrue(statements.isEmpty());
+        assertEquals(0, accounts.read(recorder(), new int[0], 0).size());
+    }
+
+    private static Object[] group(String type, String branch, String status, String range, long count,
+            String sum, String min, String max) {
+        return new Object[] { type, branch, status, range, count,
+            new BigDecimal(sum), new BigDecimal(min), new BigDecimal(max) };
+    }
+
+    /**
+     * Reads a snapshot from a stub result set with the given groups.
+     */
+    private SummaryTables.Snapshot snapshot(Object[]... groups) throws SQLException {
+        Connection conn = proxy(Connection.class, (method, args) -> {
+            if (!method.equals("prepareStatement")) {
+                return null;
+            }
+            return proxy(PreparedStatement.class, (psMethod, psArgs) ->
+                    psMethod.equals("executeQuery") ? resultSet(groups) : null);
+        });
+        return accounts.read(conn, new int[] { 1 }, 1);
+    }
+
+    private static ResultSet resultSet(Object[][] rows) {
+        int[] row = { -1 };
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++row[0] < rows.length;
+                case "getString":
+                    return rows[row[0]][(Integer) args[0] - 1];
+                case "getLong":
+                    return rows[row[0]][(Integer) args[0] - 1];
+                case "getBigDecimal":
+                    return rows[row[0]][(Integer) args[0] - 1];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Records the parameters of each batched upsert and extreme recompute.
+     */
+    private Connection recorder() {
+        return proxy(Connection.class, (method, args) -> {
+            if (!method.equals("prepareStatement")) {
+                return null;
+            }
+            String sql = (String) args[0];
+            statements.add(sql);
+            List<Object[]> batches = sql.startsWith("INSERT") ? upserts : recomputes;
+            List<Object> parameters = new ArrayList<>();
+            return proxy(PreparedStatement.class, (psMethod, psArgs) -> {
+                if (psMethod.startsWith("set")) {
+                    int index = (Integer) psArgs[0];
+                    while (parameters.size() < index) {
+                        parameters.add(null);
+                    }
+                    parameters.set(index - 1, psArgs[1]);
+                } else if (psMethod.equals("addBatch")) {
+                    batches.add(parameters.toArray());
+                    parameters.clear();
+                } else if (psMethod.equals("executeBatch")) {
+                    return new int[0];
+                }
+                return null;
+            });
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+}